@@ -21,10 +21,21 @@ import io.dockstore.common.model.BasicMessage;
 import io.dockstore.consumer.handler.DOIHandler;
 import io.dockstore.consumer.handler.MessageHandler;
 import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.builder.fluent.Configurations;
 import org.apache.commons.configuration2.ex.ConfigurationException;
@@ -32,9 +43,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.SqsClientBuilder;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
 import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
-import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
 import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
 import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
 import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
 
@@ -46,12 +64,47 @@ public final class EventConsumer {
      * the maximum wait time allowed
      */
     private static final int MAX_WAIT_TIME_SECONDS = 20;
+    /**
+     * the maximum number of messages SQS returns from one receive, and accepts in one batch request
+     */
+    static final int MAX_MESSAGES_PER_BATCH = 10;
+    private static final int DEFAULT_WORKER_THREADS = 4;
+    /**
+     * messages are hidden from other consumers for this long, and the timeout is extended for as long as a message is being handled
+     */
+    static final int VISIBILITY_TIMEOUT_SECONDS = 120;
+    private static final int VISIBILITY_EXTENSION_INTERVAL_SECONDS = VISIBILITY_TIMEOUT_SECONDS / 2;
+
     private PropertiesConfiguration config;
+    private SqsClient sqs;
+    private String sqsURL;
+    private Map<String, MessageHandler> messageHandlers;
+    private ExecutorService workers;
+    private ScheduledExecutorService visibilityExtender;
+    private Semaphore idleWorkers;
+    private final Queue<HandledMessage> handledMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger messagesInFlight = new AtomicInteger();
+    private final Gson gson = new Gson();
 
     private EventConsumer() {
         this.config = getConsumerConfiguration();
     }
 
+    /**
+     * @param sqs the client to receive and delete messages with
+     * @param sqsURL the queue to consume
+     * @param messageHandlers handlers by the message type they handle
+     * @param workerThreads the maximum number of messages handled at once
+     */
+    EventConsumer(SqsClient sqs, String sqsURL, Map<String, MessageHandler> messageHandlers, int workerThreads) {
+        this.sqs = sqs;
+        this.sqsURL = sqsURL;
+        this.messageHandlers = messageHandlers;
+        this.workers = Executors.newFixedThreadPool(workerThreads);
+        this.visibilityExtender = Executors.newSingleThreadScheduledExecutor();
+        this.idleWorkers = new Semaphore(workerThreads);
+    }
+
     private PropertiesConfiguration getConsumerConfiguration() {
         if (this.config == null) {
             Configurations configs = new Configurations();
@@ -73,59 +126,174 @@ public final class EventConsumer {
      * @param args
      * @return
      */
-    public static void main(String[] args) {
-
-        EventConsumer consumer = new EventConsumer();
-        String sqsURL = consumer.getConsumerConfiguration().getString("sqsURL");
-        String dockstoreToken = consumer.getConsumerConfiguration().getString("dockstoreToken");
-        String dockstoreURL = consumer.getConsumerConfiguration().getString("dockstoreURL");
-        String zenodoToken = consumer.getConsumerConfiguration().getString("zenodoToken");
-        String zenodoURL = consumer.getConsumerConfiguration().getString("zenodoURL");
+    public static void main(String[] args) throws InterruptedException {
 
-        final SqsClient sqs = SqsClient.builder().region(Region.US_EAST_1).build();
-        LOG.info("Receiving messages from MyFifoQueue.fifo");
-        final ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(sqsURL).attributeNamesWithStrings(Lists.newArrayList(".*")).waitTimeSeconds(MAX_WAIT_TIME_SECONDS).maxNumberOfMessages(1).build();
+        PropertiesConfiguration consumerConfig = new EventConsumer().getConsumerConfiguration();
+        String sqsURL = consumerConfig.getString("sqsURL");
+        String dockstoreToken = consumerConfig.getString("dockstoreToken");
+        String dockstoreURL = consumerConfig.getString("dockstoreURL");
+        String zenodoToken = consumerConfig.getString("zenodoToken");
+        String zenodoURL = consumerConfig.getString("zenodoURL");
+        // set sqsEndpoint to use a local SQS emulator such as localstack instead of AWS
+        String sqsEndpoint = consumerConfig.getString("sqsEndpoint", null);
+        int workerThreads = consumerConfig.getInt("workerThreads", DEFAULT_WORKER_THREADS);
 
-        Gson gson = new Gson();
+        SqsClientBuilder sqsBuilder = SqsClient.builder().region(Region.US_EAST_1);
+        if (sqsEndpoint != null) {
+            sqsBuilder.endpointOverride(URI.create(sqsEndpoint));
+        }
+        final SqsClient sqs = sqsBuilder.build();
 
         DOIHandler doiHandler = new DOIHandler(dockstoreURL, dockstoreToken, zenodoURL, zenodoToken);
         Map<String, MessageHandler> messageHandlers = new HashMap<>();
         messageHandlers.put(doiHandler.messageTypeHandled(), doiHandler);
 
+        LOG.info("Receiving messages from " + sqsURL);
+        EventConsumer consumer = new EventConsumer(sqs, sqsURL, messageHandlers, workerThreads);
         do {
-            final List<Message> messages = sqs.receiveMessage(receiveMessageRequest).messages();
-            for (Message message : messages) {
-                LOG.debug("  Message");
-                LOG.debug("    MessageId:     " + message.messageId());
-                LOG.debug("    ReceiptHandle: " + message.receiptHandle());
-                LOG.debug("    MD5OfBody:     " + message.md5OfBody());
-                LOG.debug("    Body:          " + message.body());
-                for (Entry<MessageSystemAttributeName, String> entry: message.attributes().entrySet()) {
-                    LOG.debug("  Attribute");
-                    LOG.debug("    Name:  " + entry.getKey());
-                    LOG.debug("    Value: " + entry.getValue());
-                }
-
-                // in reality, get the workflow here and create a zenodo entry for it
-                MessageHandler messageHandler = messageHandlers.get(message.messageAttributes().get("type").stringValue());
-                if (messageHandler != null) {
-                    BasicMessage basicMessage = (BasicMessage)gson.fromJson(message.body(), messageHandler.messageClassHandled());
-                    boolean handled = messageHandler.handleMessage(basicMessage);
-
-                    String messageReceiptHandle = messages.get(0).receiptHandle();
-                    if (handled) {
-                        // Delete the message
-                        LOG.info("Deleting the message");
-                        sqs.deleteMessage(DeleteMessageRequest.builder().queueUrl(sqsURL).receiptHandle(messageReceiptHandle).build());
-                    } else {
-                        // requeue the message
-                        final ChangeMessageVisibilityRequest request = ChangeMessageVisibilityRequest.builder().queueUrl(sqsURL)
-                            .receiptHandle(messageReceiptHandle).visibilityTimeout(0).build();
-                        sqs.changeMessageVisibility(request);
-                    }
-                }
+            consumer.poll();
+        } while (true);
+    }
 
+    /**
+     * Settle the messages that have been handled since the last poll, then receive as many messages as there are idle workers for, up to
+     * a full batch, and hand them to the workers.
+     *
+     * @throws InterruptedException if interrupted while waiting for an idle worker
+     */
+    void poll() throws InterruptedException {
+        settleHandledMessages();
+        // wait for at least one idle worker, then take all of the idle ones
+        idleWorkers.acquire();
+        int available = 1 + idleWorkers.drainPermits();
+        int requested = Math.min(MAX_MESSAGES_PER_BATCH, available);
+        // don't long-poll while handled messages are waiting to be deleted
+        int waitTime = messagesInFlight.get() == 0 ? MAX_WAIT_TIME_SECONDS : 1;
+        final ReceiveMessageRequest receiveMessageRequest = ReceiveMessageRequest.builder().queueUrl(sqsURL).attributeNamesWithStrings(Lists.newArrayList(".*"))
+            .messageAttributeNames("All").waitTimeSeconds(waitTime).visibilityTimeout(VISIBILITY_TIMEOUT_SECONDS).maxNumberOfMessages(requested).build();
+        List<Message> messages;
+        try {
+            messages = sqs.receiveMessage(receiveMessageRequest).messages();
+        } finally {
+            idleWorkers.release(available);
+        }
+        for (Message message : messages) {
+            idleWorkers.acquire();
+            submit(message);
+        }
+    }
+
+    private void submit(Message message) {
+        LOG.debug("  Message");
+        LOG.debug("    MessageId:     " + message.messageId());
+        LOG.debug("    ReceiptHandle: " + message.receiptHandle());
+        LOG.debug("    MD5OfBody:     " + message.md5OfBody());
+        LOG.debug("    Body:          " + message.body());
+        for (Entry<MessageSystemAttributeName, String> entry: message.attributes().entrySet()) {
+            LOG.debug("  Attribute");
+            LOG.debug("    Name:  " + entry.getKey());
+            LOG.debug("    Value: " + entry.getValue());
+        }
+
+        // in reality, get the workflow here and create a zenodo entry for it
+        MessageAttributeValue type = message.messageAttributes().get("type");
+        MessageHandler messageHandler = type == null ? null : messageHandlers.get(type.stringValue());
+        if (messageHandler == null) {
+            // left for a consumer that can handle it
+            idleWorkers.release();
+            return;
+        }
+        messagesInFlight.incrementAndGet();
+        // keep the message hidden from other consumers for as long as it is being handled, a slow Zenodo call should not get it handled twice
+        ScheduledFuture<?> visibilityExtension = visibilityExtender.scheduleAtFixedRate(() -> extendVisibility(message), VISIBILITY_EXTENSION_INTERVAL_SECONDS,
+            VISIBILITY_EXTENSION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        workers.execute(() -> {
+            boolean handled = false;
+            try {
+                BasicMessage basicMessage = (BasicMessage)gson.fromJson(message.body(), messageHandler.messageClassHandled());
+                handled = messageHandler.handleMessage(basicMessage);
+            } catch (RuntimeException e) {
+                LOG.error("Could not handle message " + message.messageId(), e);
+            } finally {
+                handledMessages.add(new HandledMessage(message, handled, visibilityExtension));
+                idleWorkers.release();
             }
-        } while (true);
+        });
+    }
+
+    private void extendVisibility(Message message) {
+        try {
+            sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder().queueUrl(sqsURL).receiptHandle(message.receiptHandle())
+                .visibilityTimeout(VISIBILITY_TIMEOUT_SECONDS).build());
+        } catch (RuntimeException e) {
+            LOG.error("Could not extend the visibility timeout of message " + message.messageId(), e);
+        }
+    }
+
+    /**
+     * Delete the handled messages and requeue the ones that could not be handled, a batch of up to ten at a time
+     */
+    void settleHandledMessages() {
+        List<Message> toDelete = new ArrayList<>();
+        List<Message> toRequeue = new ArrayList<>();
+        HandledMessage handledMessage;
+        while ((handledMessage = handledMessages.poll()) != null) {
+            handledMessage.visibilityExtension.cancel(false);
+            messagesInFlight.decrementAndGet();
+            (handledMessage.handled ? toDelete : toRequeue).add(handledMessage.message);
+        }
+        for (List<Message> batch : Lists.partition(toDelete, MAX_MESSAGES_PER_BATCH)) {
+            LOG.info("Deleting " + batch.size() + " messages");
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder().id(String.valueOf(i)).receiptHandle(batch.get(i).receiptHandle()).build());
+            }
+            DeleteMessageBatchResponse response = sqs.deleteMessageBatch(DeleteMessageBatchRequest.builder().queueUrl(sqsURL).entries(entries).build());
+            response.failed().forEach(failure -> LOG.error("Could not delete message: " + failure.message()));
+        }
+        for (List<Message> batch : Lists.partition(toRequeue, MAX_MESSAGES_PER_BATCH)) {
+            // requeue the messages
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder().id(String.valueOf(i)).receiptHandle(batch.get(i).receiptHandle()).visibilityTimeout(0).build());
+            }
+            ChangeMessageVisibilityBatchResponse response = sqs.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder().queueUrl(sqsURL).entries(entries).build());
+            response.failed().forEach(failure -> requeue(batch.get(Integer.parseInt(failure.id())), failure.message()));
+        }
+    }
+
+    /**
+     * Retry requeueing a message that could not be requeued as part of a batch. If that fails too, the message is only handled again once its
+     * visibility timeout runs out.
+     */
+    private void requeue(Message message, String batchFailure) {
+        LOG.warn("Could not requeue message " + message.messageId() + " in a batch, retrying: " + batchFailure);
+        try {
+            sqs.changeMessageVisibility(ChangeMessageVisibilityRequest.builder().queueUrl(sqsURL).receiptHandle(message.receiptHandle()).visibilityTimeout(0).build());
+        } catch (RuntimeException e) {
+            LOG.error("Could not requeue message " + message.messageId() + ", it will be handled again after its visibility timeout", e);
+        }
+    }
+
+    /**
+     * Stop handling messages, waiting for the ones being handled to finish and settling them
+     */
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(VISIBILITY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        visibilityExtender.shutdownNow();
+        settleHandledMessages();
+    }
+
+    private static final class HandledMessage {
+        private final Message message;
+        private final boolean handled;
+        private final ScheduledFuture<?> visibilityExtension;
+
+        private HandledMessage(Message message, boolean handled, ScheduledFuture<?> visibilityExtension) {
+            this.message = message;
+            this.handled = handled;
+            this.visibilityExtension = visibilityExtension;
+        }
     }
 }
@@ -0,0 +1,179 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package io.dockstore.consumer;
+
+import io.dockstore.common.model.DOIMessage;
+import io.dockstore.consumer.handler.MessageHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+public class EventConsumerTest {
+
+    private static final int WORKER_THREADS = 4;
+
+    @Test
+    public void testBatchesAreHandledConcurrently() throws InterruptedException {
+        InMemorySqsClient sqs = new InMemorySqsClient();
+        for (int i = 0; i < 25; i++) {
+            sqs.pending.add(Message.builder().messageId("message" + i).receiptHandle("receipt" + i).body("{\"entryId\": " + i + "}")
+                .messageAttributes(Map.of("type", MessageAttributeValue.builder().stringValue("DOIMessage").dataType("String").build())).build());
+        }
+        CountingHandler handler = new CountingHandler();
+        EventConsumer consumer = new EventConsumer(sqs, "queue", Map.of("DOIMessage", handler), WORKER_THREADS);
+        while (!sqs.pending.isEmpty()) {
+            consumer.poll();
+        }
+        consumer.shutdown();
+
+        Assert.assertEquals(25, handler.handled.get());
+        Assert.assertTrue("no more messages should be handled at once than there are workers", handler.maxConcurrent.get() <= WORKER_THREADS);
+        Assert.assertTrue("receives should never ask for more than a batch", sqs.maxRequested <= EventConsumer.MAX_MESSAGES_PER_BATCH);
+        // every third message fails and is made visible again instead of being deleted
+        Assert.assertEquals(16, sqs.deleted.size());
+        Assert.assertEquals(9, sqs.requeued.size());
+        Assert.assertFalse(sqs.deleted.contains("receipt0"));
+        Assert.assertTrue(sqs.deleted.contains("receipt1"));
+    }
+
+    @Test
+    public void testMessagesThatFailToRequeueInABatchAreRetried() throws InterruptedException {
+        InMemorySqsClient sqs = new InMemorySqsClient();
+        for (int i = 0; i < 6; i++) {
+            sqs.pending.add(Message.builder().messageId("message" + i).receiptHandle("receipt" + i).body("{\"entryId\": " + i + "}")
+                .messageAttributes(Map.of("type", MessageAttributeValue.builder().stringValue("DOIMessage").dataType("String").build())).build());
+        }
+        sqs.failBatchRequeueOf.add("receipt3");
+        EventConsumer consumer = new EventConsumer(sqs, "queue", Map.of("DOIMessage", new CountingHandler()), WORKER_THREADS);
+        while (!sqs.pending.isEmpty()) {
+            consumer.poll();
+        }
+        consumer.shutdown();
+
+        Assert.assertEquals(Set.of("receipt0", "receipt3"), new HashSet<>(sqs.requeued));
+        Assert.assertEquals(4, sqs.deleted.size());
+    }
+
+    private static final class CountingHandler implements MessageHandler<DOIMessage> {
+        private final AtomicInteger handled = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        @Override
+        public boolean handleMessage(DOIMessage message) {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            handled.incrementAndGet();
+            return message.getEntryId() % 3 != 0;
+        }
+
+        @Override
+        public String messageTypeHandled() {
+            return "DOIMessage";
+        }
+
+        @Override
+        public Class<DOIMessage> messageClassHandled() {
+            return DOIMessage.class;
+        }
+    }
+
+    /**
+     * Stands in for SQS, or a local emulator of it, for the calls the consumer makes
+     */
+    private static final class InMemorySqsClient implements SqsClient {
+        private final List<Message> pending = Collections.synchronizedList(new LinkedList<>());
+        private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> requeued = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> failBatchRequeueOf = Collections.synchronizedSet(new HashSet<>());
+        private volatile int maxRequested;
+
+        @Override
+        public ReceiveMessageResponse receiveMessage(ReceiveMessageRequest receiveMessageRequest) {
+            maxRequested = Math.max(maxRequested, receiveMessageRequest.maxNumberOfMessages());
+            List<Message> received = new ArrayList<>();
+            while (received.size() < receiveMessageRequest.maxNumberOfMessages() && !pending.isEmpty()) {
+                received.add(pending.remove(0));
+            }
+            return ReceiveMessageResponse.builder().messages(received).build();
+        }
+
+        @Override
+        public DeleteMessageBatchResponse deleteMessageBatch(DeleteMessageBatchRequest deleteMessageBatchRequest) {
+            Assert.assertTrue(deleteMessageBatchRequest.entries().size() <= EventConsumer.MAX_MESSAGES_PER_BATCH);
+            deleted.addAll(deleteMessageBatchRequest.entries().stream().map(DeleteMessageBatchRequestEntry::receiptHandle).collect(Collectors.toList()));
+            return DeleteMessageBatchResponse.builder().build();
+        }
+
+        @Override
+        public ChangeMessageVisibilityBatchResponse changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest) {
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            for (ChangeMessageVisibilityBatchRequestEntry entry : changeMessageVisibilityBatchRequest.entries()) {
+                if (failBatchRequeueOf.contains(entry.receiptHandle())) {
+                    failed.add(BatchResultErrorEntry.builder().id(entry.id()).code("InternalError").message("try again").senderFault(false).build());
+                } else {
+                    requeued.add(entry.receiptHandle());
+                }
+            }
+            return ChangeMessageVisibilityBatchResponse.builder().failed(failed).build();
+        }
+
+        @Override
+        public ChangeMessageVisibilityResponse changeMessageVisibility(ChangeMessageVisibilityRequest changeMessageVisibilityRequest) {
+            if (changeMessageVisibilityRequest.visibilityTimeout() == 0) {
+                requeued.add(changeMessageVisibilityRequest.receiptHandle());
+            }
+            return ChangeMessageVisibilityResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
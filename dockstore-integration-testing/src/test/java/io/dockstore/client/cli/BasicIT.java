@@ -207,12 +207,12 @@ public class BasicIT extends BaseIT {
             "git@github.com:DockstoreTestUser/dockstore-whalesay.git", "/Dockstore.cwl", "/Dockstore.wdl", "/Dockerfile",
             DockstoreTool.RegistryEnum.DOCKER_HUB, "master", "latest", true);
         EventsApi eventsApi = new EventsApi(client);
-        List<Event> events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0);
+        List<Event> events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null);
         Assert.assertTrue("No starred entries, so there should be no events returned", events.isEmpty());
         StarRequest starRequest = new StarRequest();
         starRequest.setStar(true);
         toolsApi.starEntry(tool.getId(), starRequest);
-        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0).stream()
+        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null).stream()
             .filter(e -> e.getType() != TypeEnum.PUBLISH_ENTRY).collect(Collectors.toList());
         Assert.assertTrue("Should not be an event for the non-tag version that was automatically created for the newly registered tool", events.isEmpty());
         // Add a tag
@@ -225,7 +225,7 @@ public class BasicIT extends BaseIT {
         tags.add(tag);
 
         tags = toolTagsApi.addTags(tool.getId(), tags);
-        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0).stream()
+        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null).stream()
             .filter(e -> e.getType() != TypeEnum.PUBLISH_ENTRY).collect(Collectors.toList());
         Assert.assertEquals("Should have created an event for the new tag", 1, events.size());
         final long count = testingPostgres.runSelectStatement("select count(*) from tag where name = 'masterTest'", long.class);
@@ -270,7 +270,7 @@ public class BasicIT extends BaseIT {
 
         // Nothing has been starred so the events API should return an empty collection for the user
         EventsApi eventsApi = new EventsApi(client);
-        List<Event> events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0);
+        List<Event> events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null);
         Assert.assertTrue("No starred entries, so there should be no events returned", events.isEmpty());
 
         // Star the tool that was registered above
@@ -279,7 +279,7 @@ public class BasicIT extends BaseIT {
         toolsApi.starEntry(tool.getId(), starRequest);
 
         // Events API should return 1 event
-        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0);
+        events = eventsApi.getEvents(EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null);
         assertEquals("The user should return 1 starred entry", 1, events.size());
 
         // Get the event to compare with another user's request
@@ -290,11 +290,11 @@ public class BasicIT extends BaseIT {
         EventsApi client2EventsApi = new EventsApi(client2);
 
         // Get events by user id
-        List<Event> eventsForFirstClient = client2EventsApi.getUserEvents(user.getId(), EventSearchType.STARRED_ENTRIES.toString(), 10, 0);
+        List<Event> eventsForFirstClient = client2EventsApi.getUserEvents(user.getId(), EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null);
         assertEquals("The user should return 1 starred entry", 1, eventsForFirstClient.size());
 
         // Get user initiated events by user id
-        List<Event> profileEventsForFirstClient = client2EventsApi.getUserEvents(user.getId(), EventSearchType.PROFILE.toString(), 10, 0);
+        List<Event> profileEventsForFirstClient = client2EventsApi.getUserEvents(user.getId(), EventSearchType.PROFILE.toString(), 10, 0, null);
         assertTrue("The user events should be all intiiated by the client", !profileEventsForFirstClient.isEmpty() && profileEventsForFirstClient.stream().allMatch(e -> Objects.equals(e.getInitiatorUser().getId(), user.getId())));
 
         // Get the identified event
@@ -313,7 +313,7 @@ public class BasicIT extends BaseIT {
 
         // This should throw an error because no user exists with ID -1
         try {
-            List<Event> events = eventsApi.getUserEvents(-1L, EventSearchType.STARRED_ENTRIES.toString(), 10, 0);
+            List<Event> events = eventsApi.getUserEvents(-1L, EventSearchType.STARRED_ENTRIES.toString(), 10, 0, null);
             fail("No user exists with ID -1");
         } catch (ApiException e) {
             assertTrue(e.getMessage().contains("User not found."));
@@ -20,6 +20,8 @@ import io.dockstore.openapi.client.api.UsersApi;
 import io.dockstore.openapi.client.api.WorkflowsApi;
 import io.dockstore.openapi.client.model.DescriptionMetrics;
 import io.dockstore.openapi.client.model.DockstoreTool;
+import io.dockstore.openapi.client.model.Entry;
+import io.dockstore.openapi.client.model.OrcidExportJob;
 import io.dockstore.openapi.client.model.User;
 import io.dockstore.openapi.client.model.Workflow;
 import io.dockstore.openapi.client.model.WorkflowVersion;
@@ -62,7 +64,7 @@ public class EntryResourceIT extends BaseIT {
      * Also tests handling of synchronization issues (put code on Dockstore not on ORCID, put code and DOI URL on ORCID, but not on Dockstore)
      */
     @Test
-    public void testOrcidExport() {
+    public void testOrcidExport() throws InterruptedException {
         ApiClient client = getOpenAPIWebClient(USER_2_USERNAME, testingPostgres);
         EntriesApi entriesApi = new EntriesApi(client);
         UsersApi usersApi = new UsersApi(client);
@@ -86,6 +88,13 @@ public class EntryResourceIT extends BaseIT {
             Assert.assertEquals(HttpStatus.SC_BAD_REQUEST, e.getCode());
             Assert.assertEquals(EntryResource.ENTRY_NO_DOI_ERROR_MESSAGE, e.getMessage());
         }
+        try {
+            entriesApi.submitOrcidExport(workflowId, null);
+            fail("Should not have been able to submit an export job for an entry without DOI concept URL");
+        } catch (ApiException e) {
+            Assert.assertEquals(HttpStatus.SC_BAD_REQUEST, e.getCode());
+            Assert.assertEquals(EntryResource.ENTRY_NO_DOI_ERROR_MESSAGE, e.getMessage());
+        }
         testingPostgres.runUpdateStatement("update workflow set conceptDOI='https://doi.org/10.1038/s41586-020-1969-6'");
         try {
             entriesApi.exportToORCID(workflowId, workflowVersionId);
@@ -139,10 +148,28 @@ public class EntryResourceIT extends BaseIT {
         try (Hoverfly hoverfly = new Hoverfly(HoverflyMode.SIMULATE)) {
             hoverfly.start();
             hoverfly.simulate(ORCID_SIMULATION_SOURCE);
-            entriesApi.exportToORCID(workflowId, null);
+            // the exported entry is returned with its new put code and its lazily loaded associations
+            Entry exported = entriesApi.exportToORCID(workflowId, null);
+            assertEquals(workflowId, exported.getId());
+            assertEquals(PUT_CODE_USER_1, exported.getUserIdToOrcidPutCode().get(user.getId().toString()).getOrcidPutCode());
+            assertEquals(1, exported.getUsers().size());
+            assertEquals(workflowVersions.size(), exported.getWorkflowVersions().size());
             // Exporting twice should work because it's an update
             entriesApi.exportToORCID(workflowId, null);
 
+            // An export job updates the same work, and only the user that submitted it can see it
+            OrcidExportJob job = waitForOrcidExport(entriesApi, entriesApi.submitOrcidExport(workflowId, null).getId());
+            Assert.assertEquals(job.getMessage(), OrcidExportJob.StatusEnum.SUCCEEDED, job.getStatus());
+            Assert.assertEquals(workflowId, job.getEntryId());
+            try {
+                new EntriesApi(getOpenAPIWebClient(OTHER_USERNAME, testingPostgres)).getOrcidExport(job.getId());
+                fail("Should not have been able to see the export job of another user");
+            } catch (ApiException e) {
+                Assert.assertEquals(HttpStatus.SC_NOT_FOUND, e.getCode());
+            }
+            assertEquals("the job should not have created another put code", 1, (long)testingPostgres.runSelectStatement(
+                String.format("select count(*) from entry_orcidputcode where entry_id = %s", workflowId), long.class));
+
             hoverfly.resetState();
             // Manually change it to the wrong put code
             testingPostgres.runUpdateStatement(
@@ -162,6 +189,16 @@ public class EntryResourceIT extends BaseIT {
         }
     }
 
+    private static OrcidExportJob waitForOrcidExport(EntriesApi entriesApi, String jobId) throws InterruptedException {
+        final int maxPolls = 100;
+        OrcidExportJob job = entriesApi.getOrcidExport(jobId);
+        for (int i = 0; i < maxPolls && (job.getStatus() == OrcidExportJob.StatusEnum.QUEUED || job.getStatus() == OrcidExportJob.StatusEnum.RUNNING); i++) {
+            Thread.sleep(100);
+            job = entriesApi.getOrcidExport(jobId);
+        }
+        return job;
+    }
+
     @Test
     public void testMultipleUsersOrcidExport() {
         ApiClient userClient = getOpenAPIWebClient(USER_2_USERNAME, testingPostgres);
@@ -0,0 +1,180 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.client.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.dockstore.common.BenchmarkTest;
+import io.dockstore.common.WorkflowTest;
+import io.dockstore.webservice.jdbi.BioWorkflowDAO;
+import io.dropwizard.db.DataSourceFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks that the entry listing filter and the TRS tool filters are answered with the trigram indexes rather than by scanning
+ * every entry, on a table with enough workflows for the planner to prefer the indexes. The queries that are explained are the ones
+ * Hibernate generates for the DAO calls, with the values Hibernate binds.
+ */
+@Category({ BenchmarkTest.class, WorkflowTest.class })
+public class EntrySearchIndexBenchmarkIT extends BaseIT {
+
+    private static final int WORKFLOW_COUNT = 50000;
+    private static final Logger LOG = LoggerFactory.getLogger(EntrySearchIndexBenchmarkIT.class);
+
+    @Test
+    public void testFiltersUseTrigramIndexes() throws SQLException {
+        final long existing = testingPostgres.runSelectStatement("select count(*) from workflow", long.class);
+        assertTrue("the test data should have a workflow to copy", existing > 0);
+        // copy a workflow from the test data, varying the searched columns
+        testingPostgres.runUpdateStatement("insert into workflow select (jsonb_populate_record(w, jsonb_build_object("
+            + "'id', nextval('container_id_seq'), 'checkerid', null, 'topicid', null, 'ispublished', true, "
+            + "'organization', 'organization' || (g % 500), 'repository', 'repository' || g, 'workflowname', 'name' || g, "
+            + "'author', 'author' || (g % 1000), 'description', 'A workflow that does task number ' || g))).* "
+            + "from workflow w, generate_series(1, " + WORKFLOW_COUNT + ") g where w.id = (select min(id) from workflow)");
+        testingPostgres.runUpdateStatement("analyze workflow");
+        assertEquals(existing + WORKFLOW_COUNT, (long)testingPostgres.runSelectStatement("select count(*) from workflow", long.class));
+
+        final BioWorkflowDAO bioWorkflowDAO = new BioWorkflowDAO(SUPPORT.getApplication().getHibernate().getSessionFactory());
+
+        // the listing filter, built by EntryDAO.processQuery
+        final long expectedListingCount = testingPostgres.runSelectStatement(
+            "select count(*) from workflow where ispublished and upper(repository) like '%REPOSITORY4242%'", long.class);
+        RecordedStatement listingFilter = recordQuery(() -> bioWorkflowDAO.countAllPublished(Optional.of("repository4242")), expectedListingCount);
+        assertUsesIndex(listingFilter, "workflow_repository_upper_trgm_idx");
+
+        // the TRS description filter, built by EntryDAO.andLike
+        final long expectedTrsCount = testingPostgres.runSelectStatement(
+            "select count(*) from workflow where ispublished and description like '%task number 4242%'", long.class);
+        RecordedStatement trsFilter = recordQuery(() -> bioWorkflowDAO.countAllPublished(null, null, null, null, null, "task number 4242", null, null),
+            expectedTrsCount);
+        assertUsesIndex(trsFilter, "workflow_description_upper_trgm_idx");
+    }
+
+    /**
+     * Run a DAO query in a session whose JDBC statements are recorded
+     * @param query the DAO call, which returns a count
+     * @param expectedCount what the DAO call should return
+     * @return the one statement the DAO call ran, with its bound values
+     */
+    private RecordedStatement recordQuery(LongSupplier query, long expectedCount) throws SQLException {
+        final SessionFactory sessionFactory = SUPPORT.getApplication().getHibernate().getSessionFactory();
+        final List<RecordedStatement> statements = new ArrayList<>();
+        try (Connection connection = openConnection()) {
+            Session session = sessionFactory.withOptions().connection(recordingConnection(connection, statements)).openSession();
+            ManagedSessionContext.bind(session);
+            try {
+                assertEquals(expectedCount, query.getAsLong());
+            } finally {
+                ManagedSessionContext.unbind(sessionFactory);
+                session.close();
+            }
+        }
+        assertEquals("the DAO call should run one query, it ran " + statements, 1, statements.size());
+        return statements.get(0);
+    }
+
+    private void assertUsesIndex(RecordedStatement statement, String index) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Connection connection = openConnection(); PreparedStatement explain = connection.prepareStatement("explain analyze " + statement.sql)) {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters.entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString(1));
+                }
+            }
+        }
+        LOG.info("Plan of {} with {}:{}{}", statement.sql, statement.parameters, System.lineSeparator(), String.join(System.lineSeparator(), plan));
+        assertTrue("the query should be answered with " + index + ", the plan was " + plan, plan.stream().anyMatch(line -> line.contains(index)));
+        assertTrue("the query should not scan every workflow, the plan was " + plan, plan.stream().noneMatch(line -> line.contains("Seq Scan on workflow")));
+    }
+
+    private Connection openConnection() throws SQLException {
+        final DataSourceFactory dataSourceFactory = SUPPORT.getConfiguration().getDataSourceFactory();
+        return DriverManager.getConnection(dataSourceFactory.getUrl(), dataSourceFactory.getUser(), dataSourceFactory.getPassword());
+    }
+
+    /**
+     * @return a connection that records the SQL of every statement it prepares, and the values set on them
+     */
+    private static Connection recordingConnection(Connection connection, List<RecordedStatement> statements) {
+        return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+            Object result = invoke(method, connection, args);
+            if (!"prepareStatement".equals(method.getName())) {
+                return result;
+            }
+            final RecordedStatement statement = new RecordedStatement((String)args[0]);
+            statements.add(statement);
+            final PreparedStatement preparedStatement = (PreparedStatement)result;
+            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                (statementProxy, statementMethod, statementArgs) -> {
+                if (statementMethod.getName().startsWith("set") && statementArgs != null && statementArgs.length >= 2
+                    && statementArgs[0] instanceof Integer) {
+                    statement.parameters.put((Integer)statementArgs[0], "setNull".equals(statementMethod.getName()) ? null : statementArgs[1]);
+                }
+                return invoke(statementMethod, preparedStatement, statementArgs);
+            });
+        });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A statement Hibernate prepared, with the values it bound by parameter index
+     */
+    private static final class RecordedStatement {
+        private final String sql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        private RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + parameters;
+        }
+    }
+}
@@ -35,7 +35,11 @@ import io.dockstore.common.SlowTest;
 import io.dockstore.common.SourceControl;
 import io.dockstore.common.WorkflowTest;
 import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.core.Checksum;
+import io.dockstore.webservice.core.Version;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.dockstore.webservice.jdbi.FileDAO;
+import io.dockstore.webservice.jdbi.WorkflowVersionDAO;
 import io.swagger.client.ApiClient;
 import io.swagger.client.ApiException;
 import io.swagger.client.api.UsersApi;
@@ -44,13 +48,17 @@ import io.swagger.client.model.SourceFile;
 import io.swagger.client.model.Workflow;
 import io.swagger.client.model.Workflow.TopicSelectionEnum;
 import io.swagger.client.model.WorkflowVersion;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.eclipse.jetty.http.HttpStatus;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.context.internal.ManagedSessionContext;
 import org.junit.Assert;
 import org.junit.Before;
@@ -519,6 +527,32 @@ public class GeneralWorkflowIT extends BaseIT {
         Assert.assertEquals(TopicSelectionEnum.MANUAL, refreshedWorkflow.getTopicSelection());
     }
 
+    /**
+     * Tests that the file metadata of a version lists the same files, with the same checksums, as its sourcefiles, ordered by path
+     */
+    @Test
+    public void testSourceFileMetadataOfVersion() {
+        ApiClient webClient = WorkflowIT.getWebClient(USER_2_USERNAME, testingPostgres);
+        WorkflowsApi workflowsApi = new WorkflowsApi(webClient);
+        Workflow workflow = workflowsApi
+            .manualRegister("github", "DockstoreTestUser2/test_lastmodified", "/hello.wdl", "test-metadata", "wdl", "/test.json");
+        workflow = workflowsApi.refresh(workflow.getId(), false);
+        WorkflowVersion master = workflow.getWorkflowVersions().stream().filter(v -> v.getName().equals("master")).findFirst().get();
+
+        List<io.dockstore.webservice.core.SourceFile> sourceFiles = fileDAO.findSourceFilesByVersion(master.getId());
+        List<SourceFileMetadata> metadata = fileDAO.findMetadataByVersion(master.getId());
+        assertFalse(sourceFiles.isEmpty());
+        assertEquals(sourceFiles.stream().map(io.dockstore.webservice.core.SourceFile::getPath).sorted().collect(Collectors.toList()),
+            metadata.stream().map(SourceFileMetadata::getPath).collect(Collectors.toList()));
+        metadata.forEach(fileMetadata -> {
+            io.dockstore.webservice.core.SourceFile sourceFile = sourceFiles.stream().filter(file -> file.getPath().equals(fileMetadata.getPath())).findFirst().get();
+            assertEquals(sourceFile.getAbsolutePath(), fileMetadata.getAbsolutePath());
+            assertEquals(sourceFile.getType(), fileMetadata.getType());
+            assertEquals(sourceFile.getChecksums().stream().map(Checksum::toString).collect(Collectors.toList()),
+                fileMetadata.getChecksums().stream().map(Checksum::toString).collect(Collectors.toList()));
+        });
+    }
+
     @Test
     public void testWorkflowFreezingWithNoFiles() {
         ApiClient webClient = WorkflowIT.getWebClient(USER_2_USERNAME, testingPostgres);
@@ -1184,7 +1218,52 @@ public class GeneralWorkflowIT extends BaseIT {
 
         }
 
+        // Give the user a Zenodo token that does not need refreshing, and a pending request for the version
+        testingPostgres.runUpdateStatement("insert into token (id, content, refreshToken, tokensource, userid, username, dbcreatedate, dbupdatedate) values "
+            + "(9001, 'fakeToken', 'fakeRefreshToken', 'zenodo.org', 1, 'Potato', now(), now())");
+        testingPostgres.runUpdateStatement(String.format("update version_metadata set doistatus='%s', doirequestdate=now() where id=%s",
+            Version.DOIStatus.REQUESTED.name(), master.getId()));
+        try {
+            workflowsApi.requestDOIForWorkflowVersion(workflowBeforeFreezing.getId(), master.getId(), "");
+            fail("A DOI should not be requested again while a request is pending");
+        } catch (ApiException ex) {
+            assertEquals(HttpStatus.CONFLICT_409, ex.getCode());
+        }
+
         // Should be able to refresh a workflow with a frozen version without throwing an error
         workflowsApi.refresh(githubWorkflow.getId(), false);
     }
+
+    /**
+     * Tests that a DOI request is marked in one conditional update, so that only one of two requests goes ahead, and that a request that has
+     * been pending for too long is taken over
+     */
+    @Test
+    public void testRequestDOIOnlyOnce() {
+        ApiClient webClient = WorkflowIT.getWebClient(USER_2_USERNAME, testingPostgres);
+        WorkflowsApi workflowsApi = new WorkflowsApi(webClient);
+        Workflow workflow = workflowsApi.manualRegister("github", "DockstoreTestUser2/test_lastmodified", "/hello.wdl", "test-update-workflow", "wdl", "/test.json");
+        workflow = workflowsApi.refresh(workflow.getId(), false);
+        final long versionId = workflow.getWorkflowVersions().get(0).getId();
+
+        final SessionFactory sessionFactory = SUPPORT.getApplication().getHibernate().getSessionFactory();
+        final WorkflowVersionDAO workflowVersionDAO = new WorkflowVersionDAO(sessionFactory);
+        final Timestamp requestDate = new Timestamp(System.currentTimeMillis());
+        final Timestamp anHourAgo = new Timestamp(requestDate.getTime() - TimeUnit.HOURS.toMillis(1));
+        final Session session = sessionFactory.getCurrentSession();
+
+        Transaction transaction = session.beginTransaction();
+        assertTrue(workflowVersionDAO.requestDOI(versionId, requestDate, anHourAgo));
+        assertFalse("the request is pending", workflowVersionDAO.requestDOI(versionId, requestDate, anHourAgo));
+        transaction.commit();
+        assertEquals(Version.DOIStatus.REQUESTED.name(),
+            testingPostgres.runSelectStatement("select doistatus from version_metadata where id = " + versionId, String.class));
+
+        transaction = session.beginTransaction();
+        final Timestamp later = new Timestamp(requestDate.getTime() + TimeUnit.HOURS.toMillis(2));
+        assertTrue("a request older than the expiry is taken over", workflowVersionDAO.requestDOI(versionId, later, new Timestamp(later.getTime() - TimeUnit.HOURS.toMillis(1))));
+        transaction.commit();
+        assertEquals(1L, (long)testingPostgres.runSelectStatement(
+            String.format("select count(*) from version_metadata where id = %s and doirequestdate = '%s'", versionId, later), long.class));
+    }
 }
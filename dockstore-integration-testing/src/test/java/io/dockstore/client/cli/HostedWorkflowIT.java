@@ -259,6 +259,68 @@ public class HostedWorkflowIT extends BaseIT {
         hostedApi.createHostedTool("name", Registry.DOCKER_HUB.getDockerPath(), DescriptorType.CWL.toString(), "namespace", null);
     }
 
+    @Test
+    public void testRevisionsShareUnchangedFiles() {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(webClient);
+        Workflow hostedWorkflow = hostedApi.createHostedWorkflow("shared", null, CWL.getShortName(), null, null);
+        SourceFile descriptor = hostedSourceFile("cwlVersion: v1.0\nclass: Workflow", SourceFile.TypeEnum.DOCKSTORE_CWL, "/Dockstore.cwl");
+        SourceFile tool = hostedSourceFile("foo", SourceFile.TypeEnum.DOCKSTORE_CWL, "/tool.cwl");
+        SourceFile testParameters = hostedSourceFile("{}", SourceFile.TypeEnum.CWL_TEST_JSON, "/test.json");
+        hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(descriptor, tool, testParameters));
+        final long filesBefore = testingPostgres.runSelectStatement("select count(*) from sourcefile", long.class);
+
+        // only the changed tool and the test parameter file, which carries per version verification, are inserted
+        tool.setContent("food");
+        hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(tool));
+        final String versionFiles = "select count(*) from version_sourcefile vs, workflowversion v where vs.versionid = v.id and v.parentid = " + hostedWorkflow.getId();
+        assertEquals(6, (long)testingPostgres.runSelectStatement(versionFiles, long.class));
+        assertEquals(filesBefore + 2, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile", long.class));
+
+        // deleting the first revision deletes only the files it did not share
+        hostedApi.deleteHostedWorkflowVersion(hostedWorkflow.getId(), "1");
+        assertEquals(3, (long)testingPostgres.runSelectStatement(versionFiles, long.class));
+        assertEquals(filesBefore, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile", long.class));
+        assertEquals(0, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile where path = '/tool.cwl' and content = 'foo'", long.class));
+    }
+
+    /**
+     * Snapshotting a revision freezes the files it shares with older revisions, which must still be deletable
+     */
+    @Test
+    public void testSnapshotKeepsSharingRevisionsDeletable() {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(webClient);
+        WorkflowsApi workflowsApi = new WorkflowsApi(webClient);
+        Workflow hostedWorkflow = hostedApi.createHostedWorkflow("snapshot", null, CWL.getShortName(), null, null);
+        SourceFile descriptor = hostedSourceFile("cwlVersion: v1.0\nclass: Workflow", SourceFile.TypeEnum.DOCKSTORE_CWL, "/Dockstore.cwl");
+        SourceFile tool = hostedSourceFile("foo", SourceFile.TypeEnum.DOCKSTORE_CWL, "/tool.cwl");
+        hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(descriptor, tool));
+        tool.setContent("food");
+        hostedWorkflow = hostedApi.editHostedWorkflow(hostedWorkflow.getId(), Lists.newArrayList(tool));
+        snapshotWorkflowVersion(workflowsApi, hostedWorkflow, "2");
+        assertEquals(1, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile where path = '/Dockstore.cwl' and frozen", long.class));
+
+        hostedApi.deleteHostedWorkflowVersion(hostedWorkflow.getId(), "1");
+        final String versionFiles = "select count(*) from version_sourcefile vs, workflowversion v where vs.versionid = v.id and v.parentid = " + hostedWorkflow.getId();
+        assertEquals(2, (long)testingPostgres.runSelectStatement(versionFiles, long.class));
+        assertEquals(0, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile where path = '/tool.cwl' and content = 'foo'", long.class));
+        assertEquals(1, (long)testingPostgres.runSelectStatement("select count(*) from sourcefile where path = '/Dockstore.cwl'", long.class));
+
+        // the files of the snapshot itself still cannot be removed from it
+        testingPostgres.runUpdateStatement("delete from version_sourcefile vs using workflowversion v where vs.versionid = v.id and v.parentid = " + hostedWorkflow.getId());
+        assertEquals(2, (long)testingPostgres.runSelectStatement(versionFiles, long.class));
+    }
+
+    private static SourceFile hostedSourceFile(String content, SourceFile.TypeEnum type, String path) {
+        SourceFile sourceFile = new SourceFile();
+        sourceFile.setContent(content);
+        sourceFile.setType(type);
+        sourceFile.setPath(path);
+        sourceFile.setAbsolutePath(path);
+        return sourceFile;
+    }
+
     @Test
     public void testAmazonECRHostedToolCreation() {
         final io.dockstore.openapi.client.ApiClient webClient = getOpenAPIWebClient(USER_2_USERNAME, testingPostgres);
@@ -22,6 +22,7 @@ import io.dockstore.webservice.jdbi.EventDAO;
 import io.dockstore.webservice.resources.EventSearchType;
 import io.swagger.client.ApiClient;
 import io.swagger.client.ApiException;
+import io.swagger.client.ApiResponse;
 import io.swagger.client.api.ContainersApi;
 import io.swagger.client.api.ContainertagsApi;
 import io.swagger.client.api.EntriesApi;
@@ -40,10 +41,14 @@ import io.swagger.client.model.Workflow;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.junit.Assert;
 import org.junit.Before;
@@ -371,19 +376,23 @@ public class OrganizationIT extends BaseIT {
         organization = organizationsApiUser2.getOrganizationById(registeredOrganization.getId());
         assertEquals("organization should be returned and have an updated link.", link, organization.getLink());
 
-        List<Event> events = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 0, 5);
+        List<Event> events = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 0, 5, null);
         assertEquals("There should be 4 events, there are " + events.size(), 4, events.size());
 
         // Events pagination tests
-        List<Event> firstTwoEvents = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 0, 2);
+        List<Event> firstTwoEvents = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 0, 2, null);
         assertEquals("There should only be 2 events, there are " + firstTwoEvents.size(), 2, firstTwoEvents.size());
         assertEquals(firstTwoEvents.get(0), events.get(0));
         assertEquals(firstTwoEvents.get(1), events.get(1));
 
-        List<Event> secondEvent = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 1, 1);
+        List<Event> secondEvent = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 1, 1, null);
         assertEquals("There should only be 1 event, there are " + secondEvent.size(), 1, secondEvent.size());
         assertEquals(secondEvent.get(0), events.get(1));
 
+        // Pages can also start right after the last event of the previous page
+        List<Event> nextTwoEvents = organizationsApiUser2.getOrganizationEvents(registeredOrganization.getId(), 0, 2, firstTwoEvents.get(1).getId());
+        assertEquals(events.subList(2, 4), nextTwoEvents);
+
         List<io.swagger.client.model.OrganizationUser> users = organizationsApiUser2.getOrganizationMembers(registeredOrganization.getId());
         assertEquals("There should be 1 user, there are " + users.size(), 1, users.size());
 
@@ -434,28 +443,28 @@ public class OrganizationIT extends BaseIT {
         final io.dockstore.openapi.client.ApiClient openAPIWebClientUser2 = getOpenAPIWebClient(USER_2_USERNAME, testingPostgres);
         EventsApi eventsApi = new EventsApi(openAPIWebClientUser2);
         List<io.dockstore.openapi.client.model.Event> events = eventsApi
-                .getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), null, null);
+                .getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), null, null, null);
         assertEquals("Should have the correct amount of events", 0, events.size());
 
         organizationsApiUser2.starOrganization(organization.getId(), STAR_REQUEST);
 
         events = eventsApi
-                .getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), null, null);
+                .getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), null, null, null);
         assertEquals("Should have the correct amount of events (STARRED_ORGANIZATION)", 6, events.size());
         events = eventsApi
-                .getEvents(EventSearchType.ALL_STARRED.toString(), null, null);
+                .getEvents(EventSearchType.ALL_STARRED.toString(), null, null, null);
         assertEquals("Should have the correct amount of events (ALL_STARRED)", 6, events.size());
-        events = eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), 5, null);
+        events = eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), 5, null, null);
         assertEquals("Should have the correct amount of events", 5, events.size());
         Assert.assertFalse("The create org event is the oldest, it should not be returned", events.stream().anyMatch(event -> event.getType().equals(io.dockstore.openapi.client.model.Event.TypeEnum.CREATE_ORG)));
         try {
-            eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), EventDAO.MAX_LIMIT + 1, 0);
+            eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), EventDAO.MAX_LIMIT + 1, 0, null);
             Assert.fail("Should've failed because it's over the limit");
         } catch (io.dockstore.openapi.client.ApiException e) {
             assertEquals("{\"errors\":[\"query param limit must be less than or equal to " + EventDAO.MAX_LIMIT + "\"]}", e.getMessage());
         }
         try {
-            eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), 0, 0);
+            eventsApi.getEvents(EventSearchType.STARRED_ORGANIZATION.toString(), 0, 0, null);
             Assert.fail("Should've failed because it's under the limit");
         } catch (io.dockstore.openapi.client.ApiException e) {
             assertEquals("{\"errors\":[\"query param limit must be greater than or equal to 1\"]}", e.getMessage());
@@ -1087,7 +1096,7 @@ public class OrganizationIT extends BaseIT {
         assertEquals("There should be no roles for user 2 and org 1, there are " + count5, 0, count5);
 
         // Test that events are sorted by DESC dbCreateDate
-        List<Event> events = organizationsApiUser2.getOrganizationEvents(orgId, 0, 5);
+        List<Event> events = organizationsApiUser2.getOrganizationEvents(orgId, 0, 5, null);
         assertEquals("Should have 3 events returned, there are " + events.size(), 3, events.size());
         assertEquals("First event should be most recent, which is REJECT_ORG_INVITE, but is actually " + events.get(0).getType().getValue(),
             "REJECT_ORG_INVITE", events.get(0).getType().getValue());
@@ -1691,6 +1700,59 @@ public class OrganizationIT extends BaseIT {
         assertEquals(0L, collectionOrganizations1.size());
     }
 
+    /**
+     * Tests that a collection is answered with 304 while its entries are unchanged, and that relabelling or unpublishing one of its
+     * entries shows up right away with a new ETag
+     */
+    @Test
+    public void testCollectionEntityTag() {
+        final ApiClient webClientUser2 = getWebClient(USER_2_USERNAME, testingPostgres);
+        OrganizationsApi organizationsApi = new OrganizationsApi(webClientUser2);
+        ContainersApi containersApi = new ContainersApi(webClientUser2);
+        Organization organization = createOrg(organizationsApi);
+        Collection collection = organizationsApi.createCollection(organization.getId(), stubCollectionObject());
+        final String path = "/organizations/" + organization.getId() + "/collections/" + collection.getId();
+
+        long entryId = 2;
+        containersApi.publish(entryId, CommonTestUtilities.createPublishRequest(true));
+        organizationsApi.addEntryToCollection(organization.getId(), collection.getId(), entryId, null);
+
+        final String entityTag = getCollectionEntityTag(webClientUser2, path, null);
+        assertNotNull(entityTag);
+        try {
+            getCollectionEntityTag(webClientUser2, path, entityTag);
+            fail("An unchanged collection should not be sent again");
+        } catch (ApiException ex) {
+            assertEquals(HttpStatus.SC_NOT_MODIFIED, ex.getCode());
+        }
+
+        containersApi.updateLabels(entryId, "etag", "");
+        final String relabelledEntityTag = getCollectionEntityTag(webClientUser2, path, entityTag);
+        assertNotEquals(entityTag, relabelledEntityTag);
+        collection = organizationsApi.getCollectionById(organization.getId(), collection.getId());
+        assertEquals(List.of("etag"), collection.getEntries().get(0).getLabels());
+
+        // mutating what was returned must not change what the next request sees
+        collection.getEntries().get(0).getLabels().clear();
+        assertEquals(List.of("etag"), organizationsApi.getCollectionById(organization.getId(), collection.getId()).getEntries().get(0).getLabels());
+
+        containersApi.publish(entryId, CommonTestUtilities.createPublishRequest(false));
+        assertNotEquals(relabelledEntityTag, getCollectionEntityTag(webClientUser2, path, relabelledEntityTag));
+        assertTrue(organizationsApi.getCollectionById(organization.getId(), collection.getId()).getEntries().isEmpty());
+    }
+
+    private static String getCollectionEntityTag(ApiClient client, String path, String ifNoneMatch) {
+        Map<String, String> headers = new HashMap<>();
+        if (ifNoneMatch != null) {
+            headers.put(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        ApiResponse<Collection> response = client.invokeAPI(path, "GET", new ArrayList<>(), null, headers, new HashMap<>(), "application/json",
+            "application/json", new String[] { "BEARER" }, new GenericType<Collection>() {
+            });
+        return response.getHeaders().entrySet().stream().filter(header -> HttpHeaders.ETAG.equalsIgnoreCase(header.getKey()))
+            .map(header -> header.getValue().get(0)).findFirst().orElse(null);
+    }
+
     /**
      * This tests that aliases can be set on collections and workflows
      */
@@ -2161,7 +2223,7 @@ public class OrganizationIT extends BaseIT {
         }
 
         // Make sure a delete collection event was generated.
-        List<io.dockstore.openapi.client.model.Event> events = organizationsApi.getOrganizationEvents(organizationId, 0, Integer.MAX_VALUE);
+        List<io.dockstore.openapi.client.model.Event> events = organizationsApi.getOrganizationEvents(organizationId, 0, Integer.MAX_VALUE, null);
         io.dockstore.openapi.client.model.Event deleteEvent = events.stream().filter(e -> e.getType() == io.dockstore.openapi.client.model.Event.TypeEnum.DELETE_COLLECTION).findFirst().get();
         assertEquals(organizationId, deleteEvent.getOrganization().getId().longValue());
         assertEquals(collectionId, deleteEvent.getCollection().getId().longValue());
@@ -581,6 +581,7 @@ public class SwaggerClientIT extends BaseIT {
         List<User> starredUsers = containersApi.getStarredUsers(container.getId());
         Assert.assertEquals(1, starredUsers.size());
         starredUsers.forEach(user -> assertNull("User profile is not lazy loaded in starred users", user.getUserProfiles()));
+        assertEquals(1, containersApi.getContainer(containerId, "").getStarCount().intValue());
         thrown.expect(ApiException.class);
         containersApi.starEntry(containerId, STAR_REQUEST);
     }
@@ -620,6 +621,9 @@ public class SwaggerClientIT extends BaseIT {
         List<User> starredUsers = workflowsApi.getStarredUsers(workflow.getId());
         Assert.assertEquals(1, starredUsers.size());
         starredUsers.forEach(user -> assertNull("User profile is not lazy loaded in starred users", user.getUserProfiles()));
+        assertEquals(1, workflowsApi.getPublishedWorkflow(workflowId, null).getStarCount().intValue());
+        assertEquals("The starred workflow should be listed first when sorting by stars", workflowId,
+            workflowsApi.allPublishedWorkflows(null, 1, null, "stars", "desc", false, null).get(0).getId().longValue());
         thrown.expect(ApiException.class);
         workflowsApi.starEntry(workflowId, STAR_REQUEST);
     }
@@ -56,6 +56,7 @@ import io.swagger.model.DescriptorType;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -450,6 +451,51 @@ public class WorkflowIT extends BaseIT {
         tempZip2.deleteOnExit();
     }
 
+    /**
+     * This tests that the published workflow versions of an organization can be downloaded in one zip or NDJSON stream
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void downloadOrganizationArchive() throws IOException {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        WorkflowsApi workflowApi = new WorkflowsApi(webClient);
+        Workflow workflow = workflowApi
+            .manualRegister(SourceControl.GITHUB.getFriendlyName(), "DockstoreTestUser2/md5sum-checker", "/md5sum/md5sum-workflow.cwl",
+                "test", "cwl", null);
+        workflow = workflowApi.refresh(workflow.getId(), false);
+        workflowApi.publish(workflow.getId(), CommonTestUtilities.createPublishRequest(true));
+        final String entryPath = "github.com/DockstoreTestUser2/md5sum-checker/test/";
+        final ApiClient anonymousClient = CommonTestUtilities.getWebClient(false, null, testingPostgres);
+        final String archiveUrl = DockstoreWebserviceApplication.GA4GH_API_PATH_V2_BETA + "/extended/workflows/DockstoreTestUser2/archive";
+
+        byte[] archive = CommonTestUtilities.getArbitraryURL(archiveUrl, new GenericType<byte[]>() {
+        }, anonymousClient);
+        File tempZip = File.createTempFile("temp", "zip");
+        tempZip.deleteOnExit();
+        List<String> names;
+        try (ZipFile zipFile = new ZipFile(Files.write(tempZip.toPath(), archive).toFile())) {
+            names = zipFile.stream().map(ZipEntry::getName).collect(Collectors.toList());
+        }
+        assertEquals("each zip entry should only be written once", names.size(), names.stream().distinct().count());
+        final List<String> versionFiles = names.stream().filter(name -> name.startsWith(entryPath) && name.endsWith("/md5sum/md5sum-workflow.cwl"))
+            .collect(Collectors.toList());
+        assertFalse("the primary descriptors of the versions should be in the archive", versionFiles.isEmpty());
+        for (String versionFile : versionFiles) {
+            final String versionDirectory = versionFile.substring(0, versionFile.length() - "md5sum/md5sum-workflow.cwl".length());
+            assertTrue(names.contains(versionDirectory));
+            assertTrue(names.contains(versionDirectory + "md5sum/"));
+        }
+
+        archive = CommonTestUtilities.getArbitraryURL(archiveUrl + "?format=ndjson", new GenericType<byte[]>() {
+        }, anonymousClient);
+        final List<Map<String, String>> lines = new String(archive, StandardCharsets.UTF_8).lines()
+            .map(line -> (Map<String, String>)new Gson().fromJson(line, Map.class)).collect(Collectors.toList());
+        assertTrue("only workflows should be in the archive", lines.stream().allMatch(line -> line.get("id").startsWith("#workflow/")));
+        assertEquals(versionFiles.size(), lines.stream()
+            .filter(line -> line.get("id").equals("#workflow/github.com/DockstoreTestUser2/md5sum-checker/test") && line.get("path").equals("md5sum-workflow.cwl"))
+            .filter(line -> "PRIMARY_DESCRIPTOR".equals(line.get("file_type"))).count());
+    }
+
     /**
      * This tests a not found zip file
      */
@@ -955,8 +1001,9 @@ public class WorkflowIT extends BaseIT {
             .getWorkflowByPath(DOCKSTORE_TEST_USER2_GDC_DNASEQ_CWL_WORKFLOW + "/" + workflowName, BIOWORKFLOW, null);
         final Workflow workflow = userWorkflowsApi.refresh(workflowByPathGithub.getId(), true);
 
-        // Publish workflow, which will also add a topic
+        // Publish workflow, which queues a topic to be created in the background, then create it right away
         userWorkflowsApi.publish(workflow.getId(), CommonTestUtilities.createPublishRequest(true));
+        curatorEntriesApi.setDiscourseTopic(workflow.getId());
 
         // Should not be able to create a topic for the same workflow
         try {
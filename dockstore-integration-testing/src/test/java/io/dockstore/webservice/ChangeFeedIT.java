@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.Lists;
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.common.ConfidentialTest;
+import io.dockstore.common.DescriptorLanguage;
+import io.dropwizard.db.DataSourceFactory;
+import io.swagger.client.ApiClient;
+import io.swagger.client.ApiException;
+import io.swagger.client.api.ExtendedGa4GhApi;
+import io.swagger.client.api.HostedApi;
+import io.swagger.client.api.WorkflowsApi;
+import io.swagger.client.model.EntryChange;
+import io.swagger.client.model.SourceFile;
+import io.swagger.client.model.Workflow;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests the change feed read by mirrors, including changes whose transactions commit out of order
+ */
+@Category(ConfidentialTest.class)
+public class ChangeFeedIT extends BaseIT {
+
+    private static final int LIMIT = 100;
+
+    @Before
+    @Override
+    public void resetDBBetweenTests() throws Exception {
+        CommonTestUtilities.cleanStatePrivate2(SUPPORT, false);
+    }
+
+    @Test
+    public void testFeedOfHostedWorkflow() {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        final HostedApi hostedApi = new HostedApi(webClient);
+        final WorkflowsApi workflowsApi = new WorkflowsApi(webClient);
+        final ExtendedGa4GhApi extendedGa4GhApi = new ExtendedGa4GhApi(webClient);
+        final long start = lastChangeId(extendedGa4GhApi);
+
+        Workflow workflow = hostedApi.createHostedWorkflow("changes", null, DescriptorLanguage.CWL.getShortName(), null, null);
+        workflow = hostedApi.editHostedWorkflow(workflow.getId(), Lists.newArrayList(descriptor("cwlVersion: v1.0\nclass: Workflow")));
+        assertTrue("an unpublished workflow should not be in the feed", extendedGa4GhApi.entryChangesGet(start, LIMIT).isEmpty());
+
+        workflowsApi.publish(workflow.getId(), CommonTestUtilities.createPublishRequest(true));
+        List<EntryChange> changes = extendedGa4GhApi.entryChangesGet(start, LIMIT);
+        assertEquals(1, changes.size());
+        final EntryChange published = changes.get(0);
+        assertEquals(workflow.getId(), published.getEntryId());
+        assertEquals(EntryChange.ChangeTypeEnum.PUBLISH, published.getChangeType());
+        assertEquals("1", published.getVersionName());
+        assertNotNull(published.getChecksum());
+
+        // labels leave the files alone, so there is nothing to add
+        workflowsApi.updateLabels(workflow.getId(), "changes,feed", "");
+        assertTrue(extendedGa4GhApi.entryChangesGet(published.getId(), LIMIT).isEmpty());
+
+        // a new revision is an update of that version only
+        hostedApi.editHostedWorkflow(workflow.getId(), Lists.newArrayList(descriptor("cwlVersion: v1.0\n\nclass: Workflow")));
+        changes = extendedGa4GhApi.entryChangesGet(published.getId(), LIMIT);
+        assertEquals(1, changes.size());
+        final EntryChange updated = changes.get(0);
+        assertEquals(EntryChange.ChangeTypeEnum.UPDATE, updated.getChangeType());
+        assertEquals("2", updated.getVersionName());
+
+        workflowsApi.publish(workflow.getId(), CommonTestUtilities.createPublishRequest(false));
+        changes = extendedGa4GhApi.entryChangesGet(updated.getId(), LIMIT);
+        assertEquals(1, changes.size());
+        assertEquals(EntryChange.ChangeTypeEnum.DELETE, changes.get(0).getChangeType());
+        assertNull("unpublishing removes the whole entry", changes.get(0).getVersionName());
+    }
+
+    @Test
+    public void testUnknownSince() {
+        final ExtendedGa4GhApi extendedGa4GhApi = new ExtendedGa4GhApi(getWebClient(USER_2_USERNAME, testingPostgres));
+        try {
+            extendedGa4GhApi.entryChangesGet(Long.MAX_VALUE, LIMIT);
+            fail("since should have to be the id of a change");
+        } catch (ApiException ex) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, ex.getCode());
+        }
+    }
+
+    /**
+     * A change inserted by a transaction that commits after a later transaction must not be skipped by a reader that already
+     * saw the later change
+     */
+    @Test
+    public void testChangesAreWithheldUntilEarlierTransactionsFinish() throws SQLException {
+        final ExtendedGa4GhApi extendedGa4GhApi = new ExtendedGa4GhApi(getWebClient(USER_2_USERNAME, testingPostgres));
+        final long start = lastChangeId(extendedGa4GhApi);
+        final DataSourceFactory dataSourceFactory = SUPPORT.getConfiguration().getDataSourceFactory();
+        try (Connection connection = DriverManager.getConnection(dataSourceFactory.getUrl(), dataSourceFactory.getUser(), dataSourceFactory.getPassword())) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(insertChange("slow"));
+            }
+            // committed while the slow transaction is still open
+            testingPostgres.runUpdateStatement(insertChange("fast"));
+            assertTrue("the fast change should wait for the slow transaction", extendedGa4GhApi.entryChangesGet(start, LIMIT).isEmpty());
+
+            connection.commit();
+        }
+        final List<EntryChange> changes = extendedGa4GhApi.entryChangesGet(start, LIMIT);
+        assertEquals(List.of("slow", "fast"), changes.stream().map(EntryChange::getVersionName).collect(Collectors.toList()));
+        assertTrue("the slow change was inserted first, so it has the lower id", changes.get(0).getId() < changes.get(1).getId());
+        assertTrue(extendedGa4GhApi.entryChangesGet(changes.get(1).getId(), LIMIT).isEmpty());
+    }
+
+    private static String insertChange(String versionName) {
+        return "insert into entry_change (entryid, trsid, changetype, versionname, checksum, dbcreatedate) values "
+            + "(1, '#workflow/github.com/test/changes', 'UPDATE', '" + versionName + "', 'checksum', now())";
+    }
+
+    private static long lastChangeId(ExtendedGa4GhApi extendedGa4GhApi) {
+        long since = 0;
+        List<EntryChange> changes;
+        while (!(changes = extendedGa4GhApi.entryChangesGet(since, LIMIT)).isEmpty()) {
+            since = changes.get(changes.size() - 1).getId();
+        }
+        return since;
+    }
+
+    private static SourceFile descriptor(String content) {
+        SourceFile file = new SourceFile();
+        file.setContent(content);
+        file.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        file.setPath("/Dockstore.cwl");
+        file.setAbsolutePath("/Dockstore.cwl");
+        return file;
+    }
+}
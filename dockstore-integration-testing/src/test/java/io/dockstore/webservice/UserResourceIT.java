@@ -47,6 +47,8 @@ import io.swagger.client.model.Organization;
 import io.swagger.client.model.OrganizationUpdateTime;
 import io.swagger.client.model.Profile;
 import io.swagger.client.model.Repository;
+import io.swagger.client.model.SourceFile;
+import io.swagger.client.model.StarRequest;
 import io.swagger.client.model.User;
 import io.swagger.client.model.Workflow;
 import java.util.Arrays;
@@ -360,6 +362,38 @@ public class UserResourceIT extends BaseIT {
         assertEquals(3, userCount);
     }
 
+    /**
+     * Tests that the star count of an entry follows its stars, including those removed by deleting the user who starred it
+     */
+    @Test
+    public void testStarCountOfDeletedUser() {
+        ApiClient client = getWebClient(USER_2_USERNAME, testingPostgres);
+        HostedApi hostedApi = new HostedApi(client);
+        Workflow workflow = hostedApi.createHostedWorkflow("starred", null, DescriptorLanguage.CWL.getShortName(), null, null);
+        SourceFile descriptor = new SourceFile();
+        descriptor.setContent("cwlVersion: v1.0\nclass: Workflow");
+        descriptor.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        descriptor.setPath("/Dockstore.cwl");
+        descriptor.setAbsolutePath("/Dockstore.cwl");
+        workflow = hostedApi.editHostedWorkflow(workflow.getId(), Arrays.asList(descriptor));
+        final long workflowId = workflow.getId();
+        new WorkflowsApi(client).publish(workflowId, CommonTestUtilities.createPublishRequest(true));
+
+        StarRequest starRequest = new StarRequest();
+        starRequest.setStar(true);
+        new WorkflowsApi(client).starEntry(workflowId, starRequest);
+        new WorkflowsApi(getWebClient(OTHER_USERNAME, testingPostgres)).starEntry(workflowId, starRequest);
+        assertEquals(2, new WorkflowsApi(client).getPublishedWorkflow(workflowId, null).getStarCount().intValue());
+
+        // the other user is deleted along with their star
+        assertTrue(new UsersApi(getWebClient(ADMIN_USERNAME, testingPostgres)).selfDestruct(2L));
+        assertEquals(1, new WorkflowsApi(client).getPublishedWorkflow(workflowId, null).getStarCount().intValue());
+
+        starRequest.setStar(false);
+        new WorkflowsApi(client).starEntry(workflowId, starRequest);
+        assertEquals(0L, (long)testingPostgres.runSelectStatement("select starcount from workflow where id = " + workflowId, long.class));
+    }
+
     @Test
     public void testGettingUserEmails() {
         io.dockstore.openapi.client.ApiClient client = getOpenAPIWebClient(OTHER_USERNAME, testingPostgres);
@@ -555,6 +589,20 @@ public class UserResourceIT extends BaseIT {
         assertEquals("gitlab.com/dockstore.test.user2/dockstore-workflow-md5sum-unified", entries.get(0).getPath());
         assertEquals("dockstore-workflow-md5sum-unified", entries.get(0).getPrettyPath());
 
+        // Wildcards in the filter are matched literally
+        assertTrue(userApi.getUserEntries(10, "%").isEmpty());
+        assertTrue(userApi.getUserEntries(10, "md5sum_unified").isEmpty());
+        assertTrue(userApi.getUserEntries(10, "_").stream().allMatch(e -> e.getPath().contains("_")));
+
+        // Entries updated at the same time keep the same order from one request to the next
+        for (String table : List.of("tool", "tag", "workflow", "workflowversion")) {
+            testingPostgres.runUpdateStatement("update " + table + " set dbupdatedate = '2020-01-01'");
+        }
+        entries = userApi.getUserEntries(100, null);
+        assertTrue(entries.size() > 1);
+        assertEquals(entries, userApi.getUserEntries(100, null));
+        assertEquals(entries.subList(0, 1), userApi.getUserEntries(1, null));
+
         // Create organizations
         Organization foobarOrg = createOrganization(client, "Foobar", "Foo Bar");
         Organization foobarOrgTwo = createOrganization(client, "Foobar2", "Foo Bar the second");
@@ -578,6 +626,11 @@ public class UserResourceIT extends BaseIT {
         organizations = userApi.getUserDockstoreOrganizations(10, "tac");
         assertFalse(organizations.isEmpty());
         assertEquals("taco", organizations.get(0).getName());
+
+        // Wildcards in the search are matched literally
+        assertTrue(userApi.getUserDockstoreOrganizations(10, "%").isEmpty());
+        assertTrue(userApi.getUserDockstoreOrganizations(10, "t_co").isEmpty());
+        assertTrue(userApi.getUserDockstoreOrganizations(10, "\\").isEmpty());
     }
 
     /**
@@ -65,6 +65,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.apache.http.HttpStatus;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -298,40 +299,50 @@ public class WebhookIT extends BaseIT {
             client.handleGitHubRelease("refs/heads/idonotexist", installationId, workflowRepo, BasicIT.USER_2_USERNAME);
             fail("Should fail and not reach this point");
         } catch (io.dockstore.openapi.client.ApiException ex) {
-            List<io.dockstore.openapi.client.model.LambdaEvent> failureEvents = usersApi.getUserGitHubEvents("0", 10);
+            List<io.dockstore.openapi.client.model.LambdaEvent> failureEvents = usersApi.getUserGitHubEvents("0", 10, null);
             assertEquals("There should be 1 unsuccessful event", 1,
                     failureEvents.stream().filter(lambdaEvent -> !lambdaEvent.isSuccess()).count());
         }
 
         // There should be 5 successful lambda events
-        List<io.dockstore.openapi.client.model.LambdaEvent> events = usersApi.getUserGitHubEvents("0", 10);
+        List<io.dockstore.openapi.client.model.LambdaEvent> events = usersApi.getUserGitHubEvents("0", 10, null);
         assertEquals("There should be 5 successful events", 5,
                 events.stream().filter(io.dockstore.openapi.client.model.LambdaEvent::isSuccess).count());
 
         // Test pagination for user github events
-        events = usersApi.getUserGitHubEvents("2", 2);
+        events = usersApi.getUserGitHubEvents("2", 2, null);
         assertEquals("There should be 2 events (id 3 and 4)", 2, events.size());
         assertTrue("Should have event with ID 3", events.stream().anyMatch(lambdaEvent -> Objects.equals(3L, lambdaEvent.getId())));
         assertTrue("Should have event with ID 4", events.stream().anyMatch(lambdaEvent -> Objects.equals(4L, lambdaEvent.getId())));
+        events = usersApi.getUserGitHubEvents("0", 2, 5L);
+        assertEquals("The page after event 5 should be events 4 and 3", List.of(4L, 3L),
+            events.stream().map(io.dockstore.openapi.client.model.LambdaEvent::getId).collect(Collectors.toList()));
+        events = usersApi.getUserGitHubEvents("0", 2, events.get(events.size() - 1).getId());
+        assertEquals("The page after event 3 should be events 2 and 1", List.of(2L, 1L),
+            events.stream().map(io.dockstore.openapi.client.model.LambdaEvent::getId).collect(Collectors.toList()));
+        assertTrue("There should be no events before event 1", usersApi.getUserGitHubEvents("0", 2, 1L).isEmpty());
 
         // Test the organization events endpoint
-        List<io.dockstore.openapi.client.model.LambdaEvent> orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "0", 10);
+        List<io.dockstore.openapi.client.model.LambdaEvent> orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "0", 10, null);
         assertEquals("There should be 6 events", 6, orgEvents.size());
 
         // Test pagination
-        orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "2", 2);
+        orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "2", 2, null);
         assertEquals("There should be 2 events (id 3 and 4)", 2, orgEvents.size());
         assertTrue("Should have event with ID 3", orgEvents.stream().anyMatch(lambdaEvent -> Objects.equals(3L, lambdaEvent.getId())));
         assertTrue("Should have event with ID 4", orgEvents.stream().anyMatch(lambdaEvent -> Objects.equals(4L, lambdaEvent.getId())));
+        orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "0", 2, 5L);
+        assertEquals("The page after event 5 should be events 4 and 3", List.of(4L, 3L),
+            orgEvents.stream().map(io.dockstore.openapi.client.model.LambdaEvent::getId).collect(Collectors.toList()));
 
         // Change organization to test filter
         testingPostgres.runUpdateStatement("UPDATE lambdaevent SET repository = 'workflow-dockstore-yml', organization = 'DockstoreTestUser3' WHERE id = '1'");
 
-        orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "0", 10);
+        orgEvents = lambdaEventsApi.getLambdaEventsByOrganization("DockstoreTestUser2", "0", 10, null);
         assertEquals("There should now be 5 events", 5, orgEvents.size());
 
         try {
-            lambdaEventsApi.getLambdaEventsByOrganization("IAmMadeUp", "0", 10);
+            lambdaEventsApi.getLambdaEventsByOrganization("IAmMadeUp", "0", 10, null);
             fail("Should not reach this statement");
         } catch (io.dockstore.openapi.client.ApiException ex) {
             assertEquals("Should fail because user cannot access org.", HttpStatus.SC_UNAUTHORIZED, ex.getCode());
@@ -629,7 +640,7 @@ public class WebhookIT extends BaseIT {
         assertTrue("Refers to misspelled property", getLatestLambdaEventMessage("0", usersApi).contains("testParameterFilets"));
 
         // There should be 4 successful lambda events
-        List<LambdaEvent> events = usersApi.getUserGitHubEvents("0", 10);
+        List<LambdaEvent> events = usersApi.getUserGitHubEvents("0", 10, null);
         assertEquals("There should be 4 successful events", 4, events.stream().filter(LambdaEvent::isSuccess).count());
 
         final int versionCountBeforeInvalidDockstoreYml = getFoobar1Workflow(client).getWorkflowVersions().size();
@@ -638,7 +649,7 @@ public class WebhookIT extends BaseIT {
             client.handleGitHubRelease(workflowRepo, BasicIT.USER_2_USERNAME, "refs/heads/invalidDockstoreYml", installationId);
             fail("Should not reach this statement");
         } catch (ApiException ex) {
-            List<LambdaEvent> failEvents = usersApi.getUserGitHubEvents("0", 10);
+            List<LambdaEvent> failEvents = usersApi.getUserGitHubEvents("0", 10, null);
             assertEquals("There should be 1 unsuccessful event", 1,
                     failEvents.stream().filter(lambdaEvent -> !lambdaEvent.isSuccess()).count());
             assertEquals("Number of versions should be the same", versionCountBeforeInvalidDockstoreYml, getFoobar1Workflow(client).getWorkflowVersions().size());
@@ -646,7 +657,7 @@ public class WebhookIT extends BaseIT {
     }
 
     private String getLatestLambdaEventMessage(String user, UsersApi usersApi) {
-        return usersApi.getUserGitHubEvents(user, 1).get(0).getMessage();
+        return usersApi.getUserGitHubEvents(user, 1, null).get(0).getMessage();
     }
 
     /**
@@ -905,7 +916,7 @@ public class WebhookIT extends BaseIT {
             workflowsApi.handleGitHubRelease("refs/heads/invalidWorkflowName", installationId, workflowRepo, BasicIT.USER_2_USERNAME);
         } catch (io.dockstore.openapi.client.ApiException ex) {
             assertEquals("Should not be able to add a workflow with an invalid name", LAMBDA_ERROR, ex.getCode());
-            List<io.dockstore.openapi.client.model.LambdaEvent> failEvents = usersApi.getUserGitHubEvents("0", 10);
+            List<io.dockstore.openapi.client.model.LambdaEvent> failEvents = usersApi.getUserGitHubEvents("0", 10, null);
             assertEquals("There should be 1 unsuccessful event", 1,
                     failEvents.stream().filter(lambdaEvent -> !lambdaEvent.isSuccess()).count());
             assertTrue(failEvents.get(0).getMessage().contains("Invalid workflow name"));
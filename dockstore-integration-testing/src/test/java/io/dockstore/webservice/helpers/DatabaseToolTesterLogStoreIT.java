@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.common.ConfidentialTest;
+import io.dockstore.webservice.core.tooltester.ToolTesterLog;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogType;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests that the index of ToolTester logs is kept in the database
+ */
+@Category(ConfidentialTest.class)
+public class DatabaseToolTesterLogStoreIT extends BaseIT {
+
+    private static final String PREFIX = "tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0";
+
+    @Before
+    @Override
+    public void resetDBBetweenTests() throws Exception {
+        CommonTestUtilities.cleanStatePrivate2(SUPPORT, false);
+    }
+
+    @Test
+    public void testLogsAreStoredByPrefix() {
+        DatabaseToolTesterLogStore store = new DatabaseToolTesterLogStore(SUPPORT.getApplication().getHibernate().getSessionFactory());
+        assertTrue(store.findByPrefix(PREFIX).isEmpty());
+
+        ToolTesterLog first = log(PREFIX + "/test1.json/cwltool/1.log");
+        store.add(PREFIX, List.of(first, log(PREFIX + "/test1.json/cwltool/2.log")));
+        store.add("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.8.0", List.of(log("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.8.0/test1.json/cwltool/1.log")));
+        // another instance indexing the same log does not fail
+        store.add(PREFIX, List.of(first));
+
+        Map<String, ToolTesterLog> stored = store.findByPrefix(PREFIX);
+        assertEquals(2, stored.size());
+        ToolTesterLog storedFirst = stored.get(first.getFilename());
+        assertEquals(first.getToolId(), storedFirst.getToolId());
+        assertEquals(first.getToolVersionName(), storedFirst.getToolVersionName());
+        assertEquals(first.getTestFilename(), storedFirst.getTestFilename());
+        assertEquals(first.getRunner(), storedFirst.getRunner());
+        assertEquals(ToolTesterLogType.FULL, storedFirst.getLogType());
+        assertEquals(3L, (long)testingPostgres.runSelectStatement("select count(*) from tooltester_log", long.class));
+    }
+
+    @Test
+    public void testLogWithoutMetadataIsStored() {
+        DatabaseToolTesterLogStore store = new DatabaseToolTesterLogStore(SUPPORT.getApplication().getHibernate().getSessionFactory());
+        store.add(PREFIX, List.of(new ToolTesterLog(null, null, null, null, ToolTesterLogType.FULL, PREFIX + "/unknown.log")));
+        assertEquals(1, store.findByPrefix(PREFIX).size());
+    }
+
+    private static ToolTesterLog log(String key) {
+        return new ToolTesterLog("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0", "test1.json", "cwltool", ToolTesterLogType.FULL, key);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.client.cli.BaseIT;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.common.ConfidentialTest;
+import io.dockstore.common.DescriptorLanguage;
+import io.dropwizard.db.DataSourceFactory;
+import io.swagger.client.ApiClient;
+import io.swagger.client.api.HostedApi;
+import io.swagger.client.api.WorkflowsApi;
+import io.swagger.client.model.SourceFile;
+import io.swagger.client.model.Workflow;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests how the Discourse topic outbox claims, retries and completes requests in the database, against a stub forum
+ */
+@Category(ConfidentialTest.class)
+public class DiscourseTopicOutboxIT extends BaseIT {
+
+    private static final long TOPIC_ID = 42;
+
+    private HttpServer forum;
+    private final AtomicInteger posts = new AtomicInteger();
+    private volatile int status = HttpStatus.SC_OK;
+    private DiscourseTopicOutbox outbox;
+
+    @Before
+    @Override
+    public void resetDBBetweenTests() throws Exception {
+        CommonTestUtilities.cleanStatePrivate2(SUPPORT, false);
+    }
+
+    @Before
+    public void startForum() throws IOException {
+        forum = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        forum.createContext("/posts.json", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            posts.incrementAndGet();
+            byte[] body = ("{\"topic_id\": " + TOPIC_ID + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        forum.start();
+        outbox = new DiscourseTopicOutbox(SUPPORT.getApplication().getHibernate().getSessionFactory(), "http://localhost:" + forum.getAddress().getPort(),
+            "key", 9, "dockstore.org");
+    }
+
+    @After
+    public void stopForum() {
+        forum.stop(0);
+    }
+
+    @Test
+    public void testFailedAttemptIsRetried() {
+        final long workflowId = publishHostedWorkflow();
+        assertEquals("publishing should queue a request", 1, countRequests(workflowId));
+
+        status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        outbox.processDueRequests();
+        assertEquals(1, posts.get());
+        assertEquals(1, countRequests(workflowId));
+        assertEquals(1L, (long)testingPostgres.runSelectStatement("select attempts from discourse_topic_request where entryid = " + workflowId, long.class));
+        assertNotNull(testingPostgres.runSelectStatement("select lasterror from discourse_topic_request where entryid = " + workflowId, String.class));
+        assertEquals("no topic yet", 0, topicId(workflowId));
+
+        // backing off, so the next poll leaves it alone
+        outbox.processDueRequests();
+        assertEquals(1, posts.get());
+
+        status = HttpStatus.SC_OK;
+        testingPostgres.runUpdateStatement("update discourse_topic_request set nextattempt = now() - interval '1 minute'");
+        outbox.processDueRequests();
+        assertEquals(2, posts.get());
+        assertEquals(TOPIC_ID, topicId(workflowId));
+        assertEquals("a created topic completes the request", 0, countRequests(workflowId));
+    }
+
+    @Test
+    public void testRequestLockedElsewhereIsSkipped() throws SQLException {
+        final long workflowId = publishHostedWorkflow();
+        final DataSourceFactory dataSourceFactory = SUPPORT.getConfiguration().getDataSourceFactory();
+        try (Connection connection = DriverManager.getConnection(dataSourceFactory.getUrl(), dataSourceFactory.getUser(), dataSourceFactory.getPassword())) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("select * from discourse_topic_request where entryid = " + workflowId + " for update");
+            }
+            assertFalse("a request claimed by another instance should not be attempted", outbox.processNextRequest());
+            assertEquals(0, posts.get());
+            connection.rollback();
+        }
+        assertTrue(outbox.processNextRequest());
+        assertEquals(1, posts.get());
+        assertEquals(TOPIC_ID, topicId(workflowId));
+    }
+
+    @Test
+    public void testRequestIsQueuedOnce() {
+        final long workflowId = publishHostedWorkflow();
+        final WorkflowsApi workflowsApi = new WorkflowsApi(getWebClient(USER_2_USERNAME, testingPostgres));
+        workflowsApi.publish(workflowId, CommonTestUtilities.createPublishRequest(false));
+        workflowsApi.publish(workflowId, CommonTestUtilities.createPublishRequest(true));
+        assertEquals(1, countRequests(workflowId));
+
+        // an entry that was unpublished before its topic was created does not get one
+        workflowsApi.publish(workflowId, CommonTestUtilities.createPublishRequest(false));
+        outbox.processDueRequests();
+        assertEquals(0, posts.get());
+        assertEquals(0, countRequests(workflowId));
+    }
+
+    private long publishHostedWorkflow() {
+        final ApiClient webClient = getWebClient(USER_2_USERNAME, testingPostgres);
+        final HostedApi hostedApi = new HostedApi(webClient);
+        Workflow workflow = hostedApi.createHostedWorkflow("outbox", null, DescriptorLanguage.CWL.getShortName(), null, null);
+        SourceFile descriptor = new SourceFile();
+        descriptor.setContent("cwlVersion: v1.0\nclass: Workflow");
+        descriptor.setType(SourceFile.TypeEnum.DOCKSTORE_CWL);
+        descriptor.setPath("/Dockstore.cwl");
+        descriptor.setAbsolutePath("/Dockstore.cwl");
+        workflow = hostedApi.editHostedWorkflow(workflow.getId(), Lists.newArrayList(descriptor));
+        new WorkflowsApi(webClient).publish(workflow.getId(), CommonTestUtilities.createPublishRequest(true));
+        return workflow.getId();
+    }
+
+    private long countRequests(long entryId) {
+        return testingPostgres.runSelectStatement("select count(*) from discourse_topic_request where entryid = " + entryId, long.class);
+    }
+
+    private long topicId(long entryId) {
+        return testingPostgres.runSelectStatement("select coalesce(topicid, 0) from workflow where id = " + entryId, long.class);
+    }
+}
@@ -22,6 +22,7 @@ import static org.eclipse.jetty.servlets.CrossOriginFilter.ALLOWED_HEADERS_PARAM
 import static org.eclipse.jetty.servlets.CrossOriginFilter.ALLOWED_METHODS_PARAM;
 import static org.eclipse.jetty.servlets.CrossOriginFilter.ALLOWED_ORIGINS_PARAM;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -43,6 +44,8 @@ import io.dockstore.webservice.core.CloudInstance;
 import io.dockstore.webservice.core.Collection;
 import io.dockstore.webservice.core.CollectionOrganization;
 import io.dockstore.webservice.core.DeletedUsername;
+import io.dockstore.webservice.core.DiscourseTopicRequest;
+import io.dockstore.webservice.core.EntryChange;
 import io.dockstore.webservice.core.EntryVersion;
 import io.dockstore.webservice.core.Event;
 import io.dockstore.webservice.core.FileFormat;
@@ -64,20 +67,27 @@ import io.dockstore.webservice.core.Validation;
 import io.dockstore.webservice.core.VersionMetadata;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry;
 import io.dockstore.webservice.doi.DOIGeneratorFactory;
 import io.dockstore.webservice.helpers.CacheConfigManager;
 import io.dockstore.webservice.helpers.ConstraintExceptionMapper;
+import io.dockstore.webservice.helpers.DiscourseTopicOutbox;
 import io.dockstore.webservice.helpers.ElasticSearchHelper;
 import io.dockstore.webservice.helpers.GoogleHelper;
 import io.dockstore.webservice.helpers.MetadataResourceHelper;
 import io.dockstore.webservice.helpers.ORCIDHelper;
+import io.dockstore.webservice.helpers.OrcidExportQueue;
 import io.dockstore.webservice.helpers.PersistenceExceptionMapper;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.helpers.TransactionExceptionMapper;
+import io.dockstore.webservice.helpers.ZenodoExecutors;
+import io.dockstore.webservice.helpers.statelisteners.ChangeFeedListener;
+import io.dockstore.webservice.helpers.statelisteners.CollectionListener;
 import io.dockstore.webservice.helpers.statelisteners.PopulateEntryListener;
 import io.dockstore.webservice.jdbi.AppToolDAO;
 import io.dockstore.webservice.jdbi.BioWorkflowDAO;
 import io.dockstore.webservice.jdbi.DeletedUsernameDAO;
+import io.dockstore.webservice.jdbi.EntryChangeDAO;
 import io.dockstore.webservice.jdbi.EventDAO;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.ServiceDAO;
@@ -128,6 +138,7 @@ import io.dropwizard.forms.MultiPartBundle;
 import io.dropwizard.hibernate.HibernateBundle;
 import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
 import io.dropwizard.jersey.jackson.JsonProcessingExceptionMapper;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
@@ -194,7 +205,7 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
             Tag.class, Label.class, SourceFile.class, Workflow.class, CollectionOrganization.class, WorkflowVersion.class, FileFormat.class,
             Organization.class, Notification.class, OrganizationUser.class, Event.class, Collection.class, Validation.class, BioWorkflow.class, Service.class, VersionMetadata.class, Image.class, Checksum.class, LambdaEvent.class,
             ParsedInformation.class, EntryVersion.class, DeletedUsername.class, CloudInstance.class, Author.class, OrcidAuthor.class,
-            AppTool.class, Category.class, FullWorkflowPath.class) {
+            AppTool.class, Category.class, FullWorkflowPath.class, EntryChange.class, DiscourseTopicRequest.class, ToolTesterLogIndexEntry.class) {
         @Override
         public DataSourceFactory getDataSourceFactory(DockstoreWebserviceConfiguration configuration) {
             return configuration.getDataSourceFactory();
@@ -348,12 +359,15 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final BioWorkflowDAO bioWorkflowDAO = new BioWorkflowDAO(hibernate.getSessionFactory());
 
         publicStateManager.insertListener(new PopulateEntryListener(toolDAO), publicStateManager.getElasticListener());
+        final EntryChangeDAO entryChangeDAO = new EntryChangeDAO(hibernate.getSessionFactory());
+        publicStateManager.addListener(new ChangeFeedListener(entryChangeDAO, fileDAO));
+        publicStateManager.addListener(new CollectionListener(toolDAO));
 
         LOG.info("Cache directory for OkHttp is: " + cache.directory().getAbsolutePath());
         LOG.info("This is our custom logger saying that we're about to load authenticators");
         // setup authentication to allow session access in authenticators, see https://github.com/dropwizard/dropwizard/pull/1361
         SimpleAuthenticator authenticator = new UnitOfWorkAwareProxyFactory(getHibernate())
-                .create(SimpleAuthenticator.class, new Class[] { TokenDAO.class, UserDAO.class }, new Object[] { tokenDAO, userDAO });
+                .create(SimpleAuthenticator.class, new Class[] { TokenDAO.class, UserDAO.class, MetricRegistry.class }, new Object[] { tokenDAO, userDAO, environment.metrics() });
         CachingAuthenticator<String, User> cachingAuthenticator = new CachingAuthenticator<>(environment.metrics(), authenticator,
                 configuration.getAuthenticationCachePolicy());
         environment.jersey().register(new AuthDynamicFeature(
@@ -367,11 +381,22 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final HttpClient httpClient = new HttpClientBuilder(environment).using(configuration.getHttpClientConfiguration()).build(getName());
 
         final PermissionsInterface authorizer = PermissionsFactory.createAuthorizer(tokenDAO, configuration);
+        if (authorizer instanceof Managed) {
+            environment.lifecycle().manage((Managed) authorizer);
+        }
 
-        final EntryResource entryResource = new EntryResource(hibernate.getSessionFactory(), authorizer, tokenDAO, toolDAO, versionDAO, userDAO, configuration);
+        final DiscourseTopicOutbox discourseTopicOutbox = new DiscourseTopicOutbox(hibernate.getSessionFactory(), configuration);
+        environment.lifecycle().manage(discourseTopicOutbox);
+        final OrcidExportQueue orcidExportQueue = new OrcidExportQueue(hibernate.getSessionFactory());
+        environment.lifecycle().manage(orcidExportQueue);
+        final EntryResource entryResource = new EntryResource(hibernate.getSessionFactory(), authorizer, tokenDAO, toolDAO, versionDAO, userDAO, discourseTopicOutbox,
+            orcidExportQueue);
         environment.jersey().register(entryResource);
 
-        final WorkflowResource workflowResource = new WorkflowResource(httpClient, hibernate.getSessionFactory(), authorizer, entryResource, configuration);
+        final ZenodoExecutors zenodoExecutors = new ZenodoExecutors();
+        environment.lifecycle().manage(zenodoExecutors);
+        final WorkflowResource workflowResource = new WorkflowResource(httpClient, hibernate.getSessionFactory(), authorizer, entryResource, zenodoExecutors,
+            configuration);
         environment.jersey().register(workflowResource);
         final ServiceResource serviceResource = new ServiceResource(httpClient, hibernate.getSessionFactory(), entryResource, configuration);
         environment.jersey().register(serviceResource);
@@ -396,7 +421,7 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         environment.jersey().register(new NotificationResource(getHibernate().getSessionFactory()));
         environment.jersey().register(new CollectionResource(getHibernate().getSessionFactory()));
         environment.jersey().register(new EventResource(eventDAO, userDAO));
-        environment.jersey().register(new ToolTesterResource(configuration));
+        environment.jersey().register(new ToolTesterResource(configuration, hibernate.getSessionFactory()));
         environment.jersey().register(new CloudInstanceResource(getHibernate().getSessionFactory()));
         environment.jersey().register(new CategoryResource(getHibernate().getSessionFactory()));
 
@@ -425,6 +450,8 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         ToolsApiExtendedServiceImpl.setWorkflowDAO(workflowDAO);
         ToolsApiExtendedServiceImpl.setAppToolDAO(appToolDAO);
         ToolsApiExtendedServiceImpl.setConfig(configuration);
+        ToolsApiExtendedServiceImpl.setSessionFactory(hibernate.getSessionFactory());
+        ToolsApiExtendedServiceImpl.setEntryChangeDAO(entryChangeDAO);
 
         DOIGeneratorFactory.setConfig(configuration);
 
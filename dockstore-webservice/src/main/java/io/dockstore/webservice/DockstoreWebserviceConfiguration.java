@@ -661,6 +661,8 @@ public class DockstoreWebserviceConfiguration extends Configuration {
 
     public static class SamConfiguration {
         private String basepath;
+        private int connectTimeoutMillis = 5_000;
+        private int readTimeoutMillis = 10_000;
 
         public String getBasepath() {
             return basepath;
@@ -669,6 +671,22 @@ public class DockstoreWebserviceConfiguration extends Configuration {
         public void setBasepath(String basepath) {
             this.basepath = basepath;
         }
+
+        public int getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        public int getReadTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public void setReadTimeoutMillis(int readTimeoutMillis) {
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
     }
 
     public static class LimitConfig {
@@ -16,6 +16,10 @@
 
 package io.dockstore.webservice;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.api.services.oauth2.model.Userinfoplus;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.User;
@@ -24,7 +28,9 @@ import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.hibernate.UnitOfWork;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,13 +40,35 @@ import org.slf4j.LoggerFactory;
  */
 public class SimpleAuthenticator implements Authenticator<String, User> {
     private static final Logger LOG = LoggerFactory.getLogger(SimpleAuthenticator.class);
+    private static final long REJECTED_TTL_SECONDS = 30;
+    private static final long MAX_REJECTED_CREDENTIALS = 10_000;
 
     private final TokenDAO dao;
     private final UserDAO userDAO;
+    /**
+     * Hashes of credentials that were neither a Dockstore token nor a Google token, as Google definitively answered, remembered briefly so that a client
+     * retrying a bad token does not cost a database query and a call to Google every time
+     */
+    private final Cache<String, Boolean> rejectedCredentials = Caffeine.newBuilder()
+            .maximumSize(MAX_REJECTED_CREDENTIALS)
+            .expireAfterWrite(REJECTED_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+    private final Timer dockstoreTokenTimer;
+    private final Timer googleTokenTimer;
+    private final Timer rejectedTimer;
+    private final Timer cachedRejectionTimer;
 
     SimpleAuthenticator(TokenDAO dao, UserDAO userDAO) {
+        this(dao, userDAO, new MetricRegistry());
+    }
+
+    SimpleAuthenticator(TokenDAO dao, UserDAO userDAO, MetricRegistry metricRegistry) {
         this.dao = dao;
         this.userDAO = userDAO;
+        this.dockstoreTokenTimer = metricRegistry.timer(MetricRegistry.name(SimpleAuthenticator.class, "dockstore-token"));
+        this.googleTokenTimer = metricRegistry.timer(MetricRegistry.name(SimpleAuthenticator.class, "google-token"));
+        this.rejectedTimer = metricRegistry.timer(MetricRegistry.name(SimpleAuthenticator.class, "rejected"));
+        this.cachedRejectionTimer = metricRegistry.timer(MetricRegistry.name(SimpleAuthenticator.class, "cached-rejection"));
     }
 
     /**
@@ -56,27 +84,48 @@ public class SimpleAuthenticator implements Authenticator<String, User> {
     @Override
     public Optional<User> authenticate(String credentials) {
         LOG.debug("SimpleAuthenticator called with {}", credentials);
+        final long start = System.nanoTime();
+        final String credentialsHash = TokenDAO.contentHash(credentials);
+        if (rejectedCredentials.getIfPresent(credentialsHash) != null) {
+            cachedRejectionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
         final Token token = dao.findByContent(credentials);
         if (token != null) { // It's a valid Dockstore token
             User byId = userDAO.findById(token.getUserId());
+            dockstoreTokenTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             if (byId.isBanned()) {
                 return Optional.empty();
             }
             initializeUserProfiles(byId);
             return Optional.of(byId);
         } else { // It might be a Google token
-            return userinfoPlusFromToken(credentials)
-                    .map(userinfoPlus -> {
-                        final String email = userinfoPlus.getEmail();
-                        User user = userDAO.findByGoogleEmail(email);
-                        if (user == null) {
-                            user = createUser(userinfoPlus);
-                        }
-                        user.setTemporaryCredential(credentials);
-                        initializeUserProfiles(user);
-                        return Optional.of(user);
-                    }).filter(user -> !user.get().isBanned())
-                    .orElse(Optional.empty());
+            final Optional<Userinfoplus> userinfoplus;
+            try {
+                userinfoplus = userinfoPlusFromToken(credentials);
+            } catch (RuntimeException | IOException e) {
+                // not remembered, the token may well be valid once Google answers
+                LOG.warn("Could not check token with Google", e);
+                rejectedTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return Optional.empty();
+            }
+            if (userinfoplus.isEmpty()) {
+                rejectedCredentials.put(credentialsHash, Boolean.TRUE);
+                rejectedTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return Optional.empty();
+            }
+            final String email = userinfoplus.get().getEmail();
+            User user = userDAO.findByGoogleEmail(email);
+            if (user == null) {
+                user = createUser(userinfoplus.get());
+            }
+            googleTokenTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (user.isBanned()) {
+                return Optional.empty();
+            }
+            user.setTemporaryCredential(credentials);
+            initializeUserProfiles(user);
+            return Optional.of(user);
         }
     }
 
@@ -85,8 +134,12 @@ public class SimpleAuthenticator implements Authenticator<String, User> {
         Hibernate.initialize(user.getUserProfiles());
     }
 
-    Optional<Userinfoplus> userinfoPlusFromToken(String credentials) {
-        return GoogleHelper.userinfoplusFromToken(credentials);
+    /**
+     * @return the user info, or empty if Google rejected the token
+     * @throws IOException if Google could not tell whether the token is valid
+     */
+    Optional<Userinfoplus> userinfoPlusFromToken(String credentials) throws IOException {
+        return GoogleHelper.checkedUserinfoplusFromToken(credentials);
     }
 
     User createUser(Userinfoplus userinfoPlus) {
@@ -1,11 +1,14 @@
 package io.dockstore.webservice.core;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.SourceControl;
 import io.swagger.annotations.ApiModelProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -13,6 +16,8 @@ import java.util.List;
  * Used to retrieve specific entry fields from workflows/tools.  Also used in response for all endpoints that return a single collection.
  */
 public class CollectionEntry implements Serializable {
+    @JsonIgnore
+    private long collectionId;
     private String entryPath;
     @ApiModelProperty(dataType = "long")
     @Schema(type = "integer", format = "int64")
@@ -56,6 +61,36 @@ public class CollectionEntry implements Serializable {
         setVerified(verified);
     }
 
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public CollectionEntry(long collectionId, long id, Date dbUpdateDate, String entryTypeString, SourceControl sourceControl, String organization, String repository, String entryName, String versionName, boolean verified, DescriptorLanguage descriptorType)  {
+        this(id, dbUpdateDate, entryTypeString, sourceControl, organization, repository, entryName, versionName, verified);
+        setCollectionId(collectionId);
+        setDescriptorTypes(new ArrayList<>(Collections.singletonList(descriptorType.toString())));
+    }
+
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public CollectionEntry(long collectionId, long id, Date dbUpdateDate, String entryTypeString, String registry, String organization, String repository, String entryName, String versionName, boolean verified, List<String> descriptorTypes)  {
+        this(id, dbUpdateDate, entryTypeString, registry, organization, repository, entryName, versionName, verified);
+        setCollectionId(collectionId);
+        setDescriptorTypes(new ArrayList<>(descriptorTypes));
+    }
+
+    /**
+     * @param collectionEntry entry to copy, its lists are copied too so that the copy can be changed on its own
+     */
+    public CollectionEntry(CollectionEntry collectionEntry) {
+        setCollectionId(collectionEntry.getCollectionId());
+        setEntryPath(collectionEntry.getEntryPath());
+        setDbUpdateDate(collectionEntry.getDbUpdateDate() == null ? null : new Date(collectionEntry.getDbUpdateDate().getTime()));
+        setId(collectionEntry.getId());
+        setEntryType(collectionEntry.getEntryType());
+        setVersionName(collectionEntry.getVersionName());
+        setDescriptorTypes(new ArrayList<>(collectionEntry.getDescriptorTypes()));
+        setVerified(collectionEntry.getVerified());
+        setLabels(new ArrayList<>(collectionEntry.getLabels()));
+        setCategorySummaries(new ArrayList<>(collectionEntry.getCategorySummaries()));
+    }
+
     private void setEntryPathFromFragments(String sourceControl, String organization, String repository, String entryName) {
         setEntryPath(sourceControl + '/' + organization + '/' + repository + (entryName == null || "".equals(entryName) ? "" : '/' + entryName));
     }
@@ -76,6 +111,14 @@ public class CollectionEntry implements Serializable {
         this.dbUpdateDate = dbUpdateDate;
     }
 
+    public long getCollectionId() {
+        return collectionId;
+    }
+
+    public void setCollectionId(long collectionId) {
+        this.collectionId = collectionId;
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,107 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * An entry that was published without a Discourse topic and is waiting for one to be created in the background.
+ * The row is written in the same transaction as the publish and removed once the topic exists, so a request survives
+ * restarts and Discourse outages.
+ */
+@Entity
+@Table(name = "discourse_topic_request")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.DiscourseTopicRequest.findDue", query = "SELECT r FROM DiscourseTopicRequest r WHERE r.nextAttempt <= CURRENT_TIMESTAMP ORDER BY r.nextAttempt")
+})
+@NamedNativeQueries({
+    @NamedNativeQuery(name = "io.dockstore.webservice.core.DiscourseTopicRequest.enqueue", query = "INSERT INTO discourse_topic_request (entryid, attempts, nextattempt, dbcreatedate) "
+        + "VALUES (:entryId, 0, now(), now()) ON CONFLICT (entryid) DO NOTHING")
+})
+public class DiscourseTopicRequest {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false, unique = true)
+    private long entryId;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Timestamp nextAttempt;
+
+    @Column(columnDefinition = "text")
+    private String lastError;
+
+    @Column(updatable = false)
+    @CreationTimestamp
+    private Timestamp dbCreateDate;
+
+    public DiscourseTopicRequest() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Timestamp getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(Timestamp nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Timestamp getDbCreateDate() {
+        return dbCreateDate;
+    }
+}
@@ -18,13 +18,11 @@ package io.dockstore.webservice.core;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.EntryType;
 import io.dockstore.webservice.CustomWebApplicationException;
-import io.dockstore.webservice.helpers.EntryStarredSerializer;
 import io.swagger.annotations.ApiModelProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.sql.Timestamp;
@@ -86,6 +84,7 @@ import org.hibernate.annotations.UpdateTimestamp;
     @NamedQuery(name = "Entry.getGenericEntryById", query = "SELECT e from Entry e WHERE :id = e.id"),
     @NamedQuery(name = "Entry.getGenericEntryByAlias", query = "SELECT e from Entry e JOIN e.aliases a WHERE KEY(a) IN :alias"),
     @NamedQuery(name = "io.dockstore.webservice.core.Entry.findCollectionsByEntryId", query = "select distinct new io.dockstore.webservice.core.CollectionOrganization(col.id, col.name, col.displayName, organization.id, organization.name, organization.displayName, organization.avatarUrl) from Collection col join col.entries as entry join col.organization as organization where entry.entry.id = :entryId and organization.status = 'APPROVED' and col.deleted = false"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Entry.findCollectionIdsByEntryId", query = "select distinct col.id from Collection col join col.entries as entry where entry.entry.id = :entryId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Entry.findCategorySummariesByEntryId", query = "select distinct new io.dockstore.webservice.core.CategorySummary(cat.id, cat.name, cat.description, cat.displayName, cat.topic) from Category cat join cat.entries as entry where entry.entry.id = :entryId and cat.deleted = false"),
     @NamedQuery(name = "io.dockstore.webservice.core.Entry.findCategoriesByEntryId", query = "select distinct cat from Category cat join cat.entries as entry where entry.entry.id = :entryId and cat.deleted = false"),
     @NamedQuery(name = "io.dockstore.webservice.core.Entry.findEntryCategoryPairsByEntryIds", query = "select distinct entry.entry, cat from Category cat join cat.entries as entry where entry.entry.id in (:entryIds) and cat.deleted = false"),
@@ -97,6 +96,10 @@ import org.hibernate.annotations.UpdateTimestamp;
     @NamedQuery(name = "Entry.getCollectionWorkflowsWithVersions", query = "SELECT new io.dockstore.webservice.core.CollectionEntry(w.id, w.dbUpdateDate, case type(w) when BioWorkflow then 'workflow' when AppTool then 'apptool' else 'unsupported' end, w.sourceControl, w.organization, w.repository, w.workflowName, v.name, v.versionMetadata.verified) from Version v, Workflow w, Collection col join col.entries as e where type(w) in (BioWorkflow, AppTool) and  v.id = e.version.id and col.id = :collectionId and w.id = e.entry.id and w.isPublished = true"),
     @NamedQuery(name = "Entry.getCollectionServicesWithVersions", query = "SELECT new io.dockstore.webservice.core.CollectionEntry(w.id, w.dbUpdateDate, 'service', w.sourceControl, w.organization, w.repository, w.workflowName, v.name, v.versionMetadata.verified) from Version v, Service w, Collection col join col.entries as e where v.id = e.version.id and col.id = :collectionId and w.id = e.entry.id and w.isPublished = true"),
     @NamedQuery(name = "Entry.getCollectionToolsWithVersions", query = "SELECT new io.dockstore.webservice.core.CollectionEntry(t.id, t.dbUpdateDate, 'tool', t.registry, t.namespace, t.name, t.toolname, v.name, v.versionMetadata.verified) from Version v, Tool t, Collection col join col.entries as e where v.id = e.version.id and col.id = :collectionId and t.id = e.entry.id and t.isPublished = true"),
+    @NamedQuery(name = "Entry.getCollectionWorkflowEntries", query = "SELECT new io.dockstore.webservice.core.CollectionEntry(col.id, w.id, w.dbUpdateDate, case type(w) when BioWorkflow then 'workflow' when AppTool then 'apptool' when Service then 'service' else 'unsupported' end, w.sourceControl, w.organization, w.repository, w.workflowName, v.name, coalesce(vm.verified, false), w.descriptorType) from Workflow w, Collection col join col.entries as e left join e.version as v left join v.versionMetadata as vm where type(w) in (BioWorkflow, AppTool, Service) and col.id in (:collectionIds) and w.id = e.entry.id and w.isPublished = true"),
+    @NamedQuery(name = "Entry.getCollectionToolEntries", query = "SELECT new io.dockstore.webservice.core.CollectionEntry(col.id, t.id, t.dbUpdateDate, 'tool', t.registry, t.namespace, t.name, t.toolname, v.name, coalesce(vm.verified, false), t.descriptorType) from Tool t, Collection col join col.entries as e left join e.version as v left join v.versionMetadata as vm where col.id in (:collectionIds) and t.id = e.entry.id and t.isPublished = true"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Entry.findLabelValuesByEntryIds", query = "SELECT e.id, l.value FROM Entry e join e.labels l WHERE e.id in (:entryIds)"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Entry.findCategorySummariesByEntryIds", query = "select distinct entry.entry.id, cat.id, cat.name, cat.description, cat.displayName, cat.topic from Category cat join cat.entries as entry where entry.entry.id in (:entryIds) and cat.deleted = false"),
     @NamedQuery(name = "io.dockstore.webservice.core.Entry.findLabelByEntryId", query = "SELECT e.labels FROM Entry e WHERE e.id = :entryId"),
     @NamedQuery(name = "Entry.findToolsDescriptorTypes", query = "SELECT t.descriptorType FROM Tool t WHERE t.id = :entryId"),
     @NamedQuery(name = "Entry.findWorkflowsDescriptorTypes", query = "SELECT w.descriptorType FROM Workflow w WHERE w.id = :entryId"),
@@ -116,7 +119,16 @@ import org.hibernate.annotations.UpdateTimestamp;
     @NamedNativeQuery(name = "Entry.getPublishedEntryByPathNullName", query =
         "SELECT 'tool' as type, id from tool where registry = :one and namespace = :two and name = :three and toolname IS NULL and ispublished = TRUE union"
             + " select 'workflow' as type, id from workflow where sourcecontrol = :one and organization = :two and repository = :three and workflowname IS NULL and ispublished = TRUE"),
-    @NamedNativeQuery(name = "Entry.hostedWorkflowCount", query = "select (select count(*) from tool t, user_entry ue where mode = 'HOSTED' and ue.userid = :userid and ue.entryid = t.id) + (select count(*) from workflow w, user_entry ue where mode = 'HOSTED' and ue.userid = :userid and ue.entryid = w.id) as count;")})
+    @NamedNativeQuery(name = "Entry.hostedWorkflowCount", query = "select (select count(*) from tool t, user_entry ue where mode = 'HOSTED' and ue.userid = :userid and ue.entryid = t.id) + (select count(*) from workflow w, user_entry ue where mode = 'HOSTED' and ue.userid = :userid and ue.entryid = w.id) as count;"),
+    @NamedNativeQuery(name = "Entry.findUserEntryUpdateTimes", query =
+        "SELECT path, type, lastupdated FROM ("
+            + " SELECT concat_ws('/', t.registry, t.namespace, t.name, nullif(t.toolname, '')) as path, 'TOOL' as type, greatest(t.dbupdatedate, max(v.dbupdatedate)) as lastupdated, t.id"
+            + " FROM tool t JOIN user_entry ue ON ue.entryid = t.id LEFT JOIN tag v ON v.parentid = t.id WHERE ue.userid = :userId GROUP BY t.id"
+            + " UNION ALL SELECT concat_ws('/', w.sourcecontrol, w.organization, w.repository, nullif(w.workflowname, '')), 'WORKFLOW', greatest(w.dbupdatedate, max(v.dbupdatedate)), w.id"
+            + " FROM workflow w JOIN user_entry ue ON ue.entryid = w.id LEFT JOIN workflowversion v ON v.parentid = w.id WHERE ue.userid = :userId GROUP BY w.id"
+            + " UNION ALL SELECT concat_ws('/', s.sourcecontrol, s.organization, s.repository, nullif(s.workflowname, '')), 'SERVICE', greatest(s.dbupdatedate, max(v.dbupdatedate)), s.id"
+            + " FROM service s JOIN user_entry ue ON ue.entryid = s.id LEFT JOIN workflowversion v ON v.parentid = s.id WHERE ue.userid = :userId GROUP BY s.id"
+            + ") user_entries WHERE lower(path) LIKE :filter ESCAPE '\\' ORDER BY lastupdated DESC NULLS LAST, id DESC, type")})
 public abstract class Entry<S extends Entry, T extends Version> implements Comparable<Entry>, Aliasable {
 
     private static final int TOPIC_LENGTH = 150;
@@ -151,14 +163,19 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
     @BatchSize(size = 25)
     private SortedSet<User> users;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // not serialized, clients read starCount or the starredUsers endpoint of the entry
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "starred", inverseJoinColumns = @JoinColumn(name = "userid", nullable = false, updatable = false, referencedColumnName = "id"), joinColumns = @JoinColumn(name = "entryid", nullable = false, updatable = false, referencedColumnName = "id"))
-    @ApiModelProperty(value = "This indicates the users that have starred this entry, dockstore specific", required = false, position = 5)
-    @JsonSerialize(using = EntryStarredSerializer.class)
+    @JsonIgnore
     @OrderBy("id")
     @BatchSize(size = 25)
     private SortedSet<User> starredUsers;
 
+    // maintained by a trigger on the starred table, so Hibernate never writes it
+    @Column(nullable = false, columnDefinition = "integer default 0", insertable = false, updatable = false)
+    @Schema(description = "The number of users that have starred this entry")
+    private int starCount;
+
     @Column
     @ApiModelProperty(value = "This is the email of the git organization", position = 6)
     private String email;
@@ -504,6 +521,18 @@ public abstract class Entry<S extends Entry, T extends Version> implements Compa
         return starredUsers.remove(user);
     }
 
+    /**
+     * The number of starred users as of when this entry was loaded. The database counts the rows of the starred table as they are
+     * inserted and deleted, including those deleted with a user, so listings can be sorted by stars without joining the starred table.
+     */
+    public int getStarCount() {
+        return starCount;
+    }
+
+    public void setStarCount(int starCount) {
+        this.starCount = starCount;
+    }
+
     public Long getTopicId() {
         return topicId;
     }
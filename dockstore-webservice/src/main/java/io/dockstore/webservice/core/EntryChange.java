@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import io.dockstore.webservice.helpers.StateManagerMode;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import org.hibernate.annotations.CreationTimestamp;
+
+/**
+ * One row of the append-only change log of public entries. The id of the last change read is the cursor of the change feed.
+ *
+ * <p>Ids are assigned when a change is inserted, but the transactions inserting them can commit in a different order, so a
+ * change with a lower id can become visible after one with a higher id. The feed is therefore ordered by the id of the
+ * inserting transaction, then by id, and only returns changes whose transaction is older than every transaction still in
+ * progress. A change that becomes visible later always sorts after every change already returned, so a reader continuing
+ * from the last change it saw never misses one.</p>
+ */
+@ApiModel(value = "EntryChange", description = "A change to a published entry or one of its versions")
+@Schema(name = "EntryChange", description = "A change to a published entry or one of its versions")
+@Entity
+@Table(name = "entry_change")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.EntryChange.findSince", query = "SELECT c FROM EntryChange c WHERE "
+        + "(c.transactionId > :transactionId OR (c.transactionId = :transactionId AND c.id > :since)) AND c.transactionId < :finishedBefore "
+        + "ORDER BY c.transactionId, c.id"),
+    @NamedQuery(name = "io.dockstore.webservice.core.EntryChange.findTransactionId", query = "SELECT c.transactionId FROM EntryChange c WHERE c.id = :id"),
+    @NamedQuery(name = "io.dockstore.webservice.core.EntryChange.findLatestChangeDate", query = "SELECT max(c.dbCreateDate) FROM EntryChange c WHERE c.entryId = :entryId"),
+    @NamedQuery(name = "io.dockstore.webservice.core.EntryChange.countByEntryId", query = "SELECT count(c) FROM EntryChange c WHERE c.entryId = :entryId"),
+    @NamedQuery(name = "io.dockstore.webservice.core.EntryChange.findLatestVersionChecksums", query = "SELECT c.versionName, c.checksum FROM EntryChange c WHERE c.id IN "
+        + "(SELECT max(c2.id) FROM EntryChange c2 WHERE c2.entryId = :entryId AND c2.versionName IS NOT NULL GROUP BY c2.versionName)")
+})
+public class EntryChange {
+
+    @Id
+    @Column
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty(value = "Position of the change in the feed, pass the last one seen as since to get the following changes", position = 0)
+    @Schema(description = "Position of the change in the feed, pass the last one seen as since to get the following changes")
+    private long id;
+
+    @Column(nullable = false)
+    @ApiModelProperty(value = "Id of the changed entry", position = 1)
+    @Schema(description = "Id of the changed entry")
+    private long entryId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    @ApiModelProperty(value = "TRS id of the changed entry", position = 2)
+    @Schema(description = "TRS id of the changed entry")
+    private String trsId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @ApiModelProperty(value = "PUBLISH and UPDATE carry the current checksum of a version, DELETE means the entry or version is no longer public", position = 3)
+    @Schema(description = "PUBLISH and UPDATE carry the current checksum of a version, DELETE means the entry or version is no longer public")
+    private StateManagerMode changeType;
+
+    @Column
+    @ApiModelProperty(value = "Name of the changed version, null when the change applies to the whole entry", position = 4)
+    @Schema(description = "Name of the changed version, null when the change applies to the whole entry")
+    private String versionName;
+
+    @Column
+    @ApiModelProperty(value = "SHA-256 over the paths and checksums of the version's files", position = 5)
+    @Schema(description = "SHA-256 over the paths and checksums of the version's files")
+    private String checksum;
+
+    @Column(updatable = false)
+    @CreationTimestamp
+    private Timestamp dbCreateDate;
+
+    /**
+     * Id of the transaction that inserted the change, assigned by the database
+     */
+    @Column(insertable = false, updatable = false)
+    private long transactionId;
+
+    public EntryChange() {
+
+    }
+
+    public EntryChange(long entryId, String trsId, StateManagerMode changeType, String versionName, String checksum) {
+        this.entryId = entryId;
+        this.trsId = trsId;
+        this.changeType = changeType;
+        this.versionName = versionName;
+        this.checksum = checksum;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public String getTrsId() {
+        return trsId;
+    }
+
+    public StateManagerMode getChangeType() {
+        return changeType;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public Timestamp getDbCreateDate() {
+        return dbCreateDate;
+    }
+}
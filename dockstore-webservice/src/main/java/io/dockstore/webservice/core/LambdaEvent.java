@@ -29,8 +29,8 @@ import org.hibernate.annotations.UpdateTimestamp;
  */
 @ApiModel("LambdaEvent")
 @Entity
-@Table(name = "LambdaEvent", indexes = {@Index(name = "organization_index", columnList = "organization"),
-    @Index(name = "user_index", columnList = "userid")})
+@Table(name = "LambdaEvent", indexes = {@Index(name = "organization_index", columnList = "organization, id"),
+    @Index(name = "user_index", columnList = "userid, id")})
 @NamedQueries({
     @NamedQuery(name = "io.dockstore.webservice.core.LambdaEvent.findByRepository", query = "SELECT lambdaEvent FROM LambdaEvent lambdaEvent WHERE lambdaEvent.repository = :repository"),
     @NamedQuery(name = "io.dockstore.webservice.core.LambdaEvent.findByOrganization", query = "SELECT lambdaEvent FROM LambdaEvent lambdaEvent WHERE lambdaEvent.repository like :organization"),
@@ -0,0 +1,102 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.UUID;
+
+/**
+ * An export of an entry, or one of its versions, to a user's ORCID works that runs in the background
+ */
+@Schema(name = "OrcidExportJob", description = "An export of an entry or version to ORCID")
+public class OrcidExportJob {
+
+    @Schema(description = "Id of the job, used to poll its status")
+    private final String id;
+
+    @Schema(description = "Id of the exported entry")
+    private final long entryId;
+
+    @Schema(description = "Id of the exported version, null when the entry itself is exported")
+    private final Long versionId;
+
+    @JsonIgnore
+    private final long userId;
+
+    @Schema(description = "Status of the job")
+    private volatile Status status = Status.QUEUED;
+
+    @Schema(description = "Why the export failed")
+    private volatile String message;
+
+    @Schema(description = "HTTP status that describes the failure")
+    private volatile Integer errorCode;
+
+    public OrcidExportJob(long userId, long entryId, Long versionId) {
+        this.id = UUID.randomUUID().toString();
+        this.userId = userId;
+        this.entryId = entryId;
+        this.versionId = versionId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public Long getVersionId() {
+        return versionId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Integer getErrorCode() {
+        return errorCode;
+    }
+
+    public void start() {
+        status = Status.RUNNING;
+    }
+
+    public void succeed() {
+        status = Status.SUCCEEDED;
+    }
+
+    public void fail(String failureMessage, int failureCode) {
+        message = failureMessage;
+        errorCode = failureCode;
+        status = Status.FAILED;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+}
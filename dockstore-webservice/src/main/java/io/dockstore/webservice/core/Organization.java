@@ -56,6 +56,11 @@ import org.hibernate.annotations.Where;
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findAllPending", query = "SELECT org FROM Organization org WHERE org.status = 'PENDING'"),
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findAllRejected", query = "SELECT org FROM Organization org WHERE org.status = 'REJECTED'"),
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findAll", query = "SELECT org FROM Organization org"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Organization.findAllWithUsers", query = "SELECT DISTINCT org FROM Organization org LEFT JOIN FETCH org.users orgUser LEFT JOIN FETCH orgUser.user"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Organization.findByStatusWithUsers", query = "SELECT DISTINCT org FROM Organization org LEFT JOIN FETCH org.users orgUser LEFT JOIN FETCH orgUser.user WHERE org.status = :status"),
+    @NamedQuery(name = "io.dockstore.webservice.core.Organization.findUpdateTimesByUser", query = "SELECT new io.dockstore.webservice.core.OrganizationUpdateTime(org.name, org.displayName, org.dbUpdateDate, max(col.dbUpdateDate)) FROM OrganizationUser orgUser JOIN orgUser.organization org "
+        + "LEFT JOIN org.collections col WHERE orgUser.user.id = :userId AND (lower(org.name) LIKE :filter ESCAPE '\\' OR lower(org.displayName) LIKE :filter ESCAPE '\\') GROUP BY org.id, org.name, org.displayName, org.dbUpdateDate "
+        + "ORDER BY CASE WHEN max(col.dbUpdateDate) > org.dbUpdateDate THEN max(col.dbUpdateDate) ELSE org.dbUpdateDate END DESC NULLS LAST"),
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findByName", query = "SELECT org FROM Organization org WHERE lower(org.name) = lower(:name)"),
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findApprovedById", query = "SELECT org FROM Organization org WHERE org.id = :id AND org.status = 'APPROVED'"),
     @NamedQuery(name = "io.dockstore.webservice.core.Organization.findApprovedByName", query = "SELECT org FROM Organization org WHERE lower(org.name) = lower(:name) AND org.status = 'APPROVED'"),
@@ -22,6 +22,17 @@ public class OrganizationUpdateTime {
         this.lastUpdateDate = lastUpdateDate;
     }
 
+    /**
+     * Used by projections, the organization was last updated when either it or its most recently updated collection was
+     * @param name organization name
+     * @param displayName organization display name
+     * @param organizationUpdateDate when the organization itself was last updated
+     * @param collectionUpdateDate when its most recently updated collection was last updated, null if it has no collections
+     */
+    public OrganizationUpdateTime(String name, String displayName, Date organizationUpdateDate, Date collectionUpdateDate) {
+        this(name, displayName, collectionUpdateDate != null && organizationUpdateDate.before(collectionUpdateDate) ? collectionUpdateDate : organizationUpdateDate);
+    }
+
     public String getName() {
         return name;
     }
@@ -67,6 +67,13 @@ import org.slf4j.LoggerFactory;
 @Table(name = "sourcefile")
 @NamedQueries({
     @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findSourceFilesForVersion", query = "SELECT sourcefiles FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findMetadataForVersion", query = "SELECT new io.dockstore.webservice.core.database.SourceFileMetadata(sourcefiles.absolutePath, sourcefiles.path, sourcefiles.type, sourcefiles.checksums) FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId ORDER BY sourcefiles.path"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.countSourceFilesForVersion", query = "SELECT count(sourcefiles) FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId AND sourcefiles.content IS NOT NULL"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findVersionCountAndLastUpdateForEntry", query = "SELECT count(distinct version.id), max(version.dbUpdateDate), max(sourcefiles.dbUpdateDate) "
+        + "FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.parent.id = :entryId AND version.versionMetadata.hidden = false"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findPathsAndChecksumsForEntry", query = "SELECT version.name, sourcefiles.absolutePath, sourcefiles.checksums FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.parent.id = :entryId AND version.versionMetadata.hidden = false ORDER BY version.name, sourcefiles.absolutePath"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findPathsAndContentForVersions", query = "SELECT version.id, sourcefiles.absolutePath, sourcefiles.path, sourcefiles.type, sourcefiles.content FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id IN (:versionIds) AND sourcefiles.content IS NOT NULL ORDER BY version.id, sourcefiles.absolutePath"),
+    @NamedQuery(name = "io.dockstore.webservice.core.SourceFile.findPathsAndContentForVersion", query = "SELECT sourcefiles.absolutePath, sourcefiles.content FROM Version version INNER JOIN version.sourceFiles as sourcefiles WHERE version.id = :versionId AND sourcefiles.content IS NOT NULL ORDER BY sourcefiles.absolutePath"),
 })
 @SuppressWarnings("checkstyle:magicnumber")
 public class SourceFile implements Comparable<SourceFile> {
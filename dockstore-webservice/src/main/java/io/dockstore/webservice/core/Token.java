@@ -51,7 +51,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 @Table(name = "token")
 @NamedQueries({
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findByContent",
-        query = "SELECT t FROM Token t WHERE t.content = :content"),
+        query = "SELECT t FROM Token t WHERE t.contentHash = :contentHash AND t.content = :content"),
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findByUserId",
         query = "SELECT t FROM Token t WHERE t.userId = :userId"),
     @NamedQuery(name = "io.dockstore.webservice.core.Token.findDockstoreByUserId",
@@ -132,6 +132,11 @@ public class Token implements Comparable<Token> {
     @Column
     private Long expirationTime;
 
+    // Hex SHA-256 of the content, generated by the database and indexed so that tokens can be looked up by content
+    @JsonIgnore
+    @Column(name = "contenthash", updatable = false, insertable = false)
+    private String contentHash;
+
     // database timestamps
     @Column(updatable = false)
     @CreationTimestamp
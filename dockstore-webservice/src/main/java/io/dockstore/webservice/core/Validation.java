@@ -69,6 +69,13 @@ public class Validation implements Comparable<Validation> {
     @ApiModelProperty(value = "Mapping of filepath to validation message", required = true, position = 3)
     private String message;
 
+    /**
+     * The primary descriptor the files were validated against, null if not recorded
+     */
+    @Column(columnDefinition = "text")
+    @JsonIgnore
+    private String primaryDescriptorPath;
+
     // database timestamps
     @Column(updatable = false)
     @CreationTimestamp
@@ -92,6 +99,7 @@ public class Validation implements Comparable<Validation> {
         this.type = versionValidation.getType();
         this.valid = versionValidation.isValid();
         this.message = versionValidation.getMessage();
+        this.primaryDescriptorPath = versionValidation.getPrimaryDescriptorPath();
     }
 
     public Validation(DescriptorLanguage.FileType fileType, VersionTypeValidation validMessagePair) {
@@ -130,6 +138,15 @@ public class Validation implements Comparable<Validation> {
         this.message = message;
     }
 
+    @JsonIgnore
+    public String getPrimaryDescriptorPath() {
+        return primaryDescriptorPath;
+    }
+
+    public void setPrimaryDescriptorPath(String primaryDescriptorPath) {
+        this.primaryDescriptorPath = primaryDescriptorPath;
+    }
+
     public DescriptorLanguage.FileType getType() {
         return type;
     }
@@ -142,6 +159,7 @@ public class Validation implements Comparable<Validation> {
         type = versionValidation.type;
         valid = versionValidation.valid;
         message = versionValidation.message;
+        primaryDescriptorPath = versionValidation.primaryDescriptorPath;
     }
 
     @Override
@@ -131,8 +131,10 @@ public abstract class Version<T extends Version> implements Comparable<T> {
     private ReferenceType referenceType = ReferenceType.UNSET;
 
     // watch out for https://hibernate.atlassian.net/browse/HHH-3799 if this is set to EAGER
+    // revisions of hosted entries share their unchanged files, so files are not removed with the version. The database deletes a file
+    // once no version refers to it, see the deleteUnsharedSourceFile trigger
     @JsonIgnore
-    @OneToMany(fetch = FetchType.LAZY, orphanRemoval = true, cascade = CascadeType.ALL)
+    @ManyToMany(fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH })
     @JoinTable(name = "version_sourcefile", joinColumns = @JoinColumn(name = "versionid", referencedColumnName = "id", columnDefinition = "bigint"), inverseJoinColumns = @JoinColumn(name = "sourcefileid", referencedColumnName = "id", columnDefinition = "bigint"))
     @ApiModelProperty(value = "Cached files for each version. Includes Dockerfile and Descriptor files", position = 6)
     @Cascade(org.hibernate.annotations.CascadeType.DETACH)
@@ -324,6 +326,7 @@ public abstract class Version<T extends Version> implements Comparable<T> {
         if (matchingValidation.isPresent()) {
             matchingValidation.get().setMessage(versionValidation.getMessage());
             matchingValidation.get().setValid(versionValidation.isValid());
+            matchingValidation.get().setPrimaryDescriptorPath(versionValidation.getPrimaryDescriptorPath());
         } else {
             validations.add(versionValidation);
         }
@@ -560,7 +563,8 @@ public abstract class Version<T extends Version> implements Comparable<T> {
     public void setFrozen(boolean frozen) {
         this.frozen = frozen;
         // freeze sourcefiles as well, this ideally would be de-normalized but postgres doesn't do multi-table constraints and
-        // multitable row-level security is an even bigger pain
+        // multitable row-level security is an even bigger pain. A file shared with other hosted revisions is frozen for them too, so that
+        // it never changes under this version; whether a version can let go of a file depends on the version, see the version_sourcefile policies
         this.sourceFiles.forEach(s -> s.setFrozen(frozen));
     }
 
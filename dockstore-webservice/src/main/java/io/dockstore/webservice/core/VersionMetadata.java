@@ -34,6 +34,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.MapsId;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -52,6 +54,12 @@ import org.hibernate.annotations.UpdateTimestamp;
  */
 @Entity
 @Table(name = "version_metadata")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.VersionMetadata.requestDOI", query = "UPDATE VersionMetadata vm SET vm.doiStatus = :requested, vm.doiRequestDate = :requestDate "
+        + "WHERE vm.id = :versionId AND (vm.doiStatus <> :requested OR vm.doiRequestDate IS NULL OR vm.doiRequestDate < :expiredBefore)"),
+    @NamedQuery(name = "io.dockstore.webservice.core.VersionMetadata.withdrawDOIRequest", query = "UPDATE VersionMetadata vm SET vm.doiStatus = :notRequested "
+        + "WHERE vm.id = :versionId AND vm.doiStatus = :requested AND vm.doiRequestDate = :requestDate")
+})
 public class VersionMetadata {
     @Column(columnDefinition =  "boolean default false")
     protected boolean verified;
@@ -70,6 +78,12 @@ public class VersionMetadata {
     @Enumerated(EnumType.STRING)
     protected Version.DOIStatus doiStatus;
 
+    /**
+     * When the DOI was last requested, a request that has been REQUESTED for too long is presumed lost
+     */
+    @Column
+    protected Timestamp doiRequestDate;
+
     @Column
     @ApiModelProperty(value = "This is the name of the author stated in the descriptor")
     protected String author;
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.core.database;
+
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.webservice.core.Checksum;
+import io.dockstore.webservice.core.SourceFile;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The absolute path, path, type and checksums of a sourcefile, for answers that only need to know which files a version has.
+ * Selecting this instead of the sourcefile keeps the content column, which can be large, from being read from the database.
+ * @since 1.13.0
+ */
+public class SourceFileMetadata {
+
+    private final String absolutePath;
+    private final String path;
+    private final DescriptorLanguage.FileType type;
+    private final List<Checksum> checksums;
+
+    public SourceFileMetadata(final String absolutePath, final String path, final DescriptorLanguage.FileType type, final List<Checksum> checksums) {
+        this.absolutePath = absolutePath;
+        this.path = path;
+        this.type = type;
+        this.checksums = checksums;
+    }
+
+    public SourceFileMetadata(final SourceFile sourceFile) {
+        this(sourceFile.getAbsolutePath(), sourceFile.getPath(), sourceFile.getType(), sourceFile.getChecksums());
+    }
+
+    /**
+     * @return the absolute path, normalized like {@link SourceFile#getAbsolutePath()}
+     */
+    public String getAbsolutePath() {
+        if (absolutePath == null) {
+            return null;
+        }
+        return Paths.get(absolutePath).normalize().toString();
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public DescriptorLanguage.FileType getType() {
+        return type;
+    }
+
+    /**
+     * @return the checksums of the content, which the database generates when the file is written
+     */
+    public List<Checksum> getChecksums() {
+        return checksums;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.core.database;
+
+import io.dockstore.common.SourceControl;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.swagger.api.impl.ToolsImplCommon;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * This class is only used to get data from the database in a more type-safe way.
+ * Identifies a workflow version without loading the version, its parent, or its files.
+ */
+public class WorkflowVersionPath {
+    private final BioWorkflow bioWorkflow = new BioWorkflow();
+    private final long versionId;
+    private final String versionName;
+    private final String workflowPath;
+
+    public WorkflowVersionPath(long versionId, SourceControl sourceControl, String organization, String repository, String workflowName,
+        String versionName, String workflowPath) {
+        this.versionId = versionId;
+        this.bioWorkflow.setSourceControl(sourceControl);
+        this.bioWorkflow.setOrganization(organization);
+        this.bioWorkflow.setRepository(repository);
+        this.bioWorkflow.setWorkflowName(workflowName);
+        this.versionName = versionName;
+        this.workflowPath = workflowPath;
+    }
+
+    public long getVersionId() {
+        return versionId;
+    }
+
+    public String getEntryPath() {
+        return bioWorkflow.getWorkflowPath();
+    }
+
+    /**
+     * @return the TRS id of the parent workflow, following the same conventions as ToolsImplCommon
+     */
+    public String getTrsId() {
+        return ToolsImplCommon.WORKFLOW_PREFIX + "/" + getEntryPath();
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    /**
+     * @return the path of the primary descriptor of the version
+     */
+    public String getWorkflowPath() {
+        return workflowPath;
+    }
+
+    public String getWorkingDirectory() {
+        return workflowPath == null ? "" : FilenameUtils.getPathNoEndSeparator(workflowPath);
+    }
+}
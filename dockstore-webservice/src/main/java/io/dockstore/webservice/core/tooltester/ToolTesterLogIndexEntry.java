@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core.tooltester;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * A ToolTester log that has been indexed, so that the metadata of a log is looked up in S3 once rather than by every webservice instance
+ * after every restart. Logs are written to S3 by the ToolTester and never change, so an entry never needs updating.
+ */
+@Entity
+@Table(name = "tooltester_log")
+@NamedQueries({
+    @NamedQuery(name = "io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry.findByPrefix", query = "SELECT e FROM ToolTesterLogIndexEntry e WHERE e.prefix = :prefix")
+})
+@NamedNativeQueries({
+    @NamedNativeQuery(name = "io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry.add", query = "INSERT INTO tooltester_log (s3key, prefix, toolid, toolversionname, testfilename, runner) "
+        + "VALUES (:s3Key, :prefix, :toolId, :toolVersionName, :testFilename, :runner) ON CONFLICT (s3key) DO NOTHING")
+})
+public class ToolTesterLogIndexEntry {
+
+    @Id
+    @Column(columnDefinition = "text")
+    private String s3Key;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String prefix;
+
+    @Column(columnDefinition = "text")
+    private String toolId;
+
+    @Column(columnDefinition = "text")
+    private String toolVersionName;
+
+    @Column(columnDefinition = "text")
+    private String testFilename;
+
+    @Column(columnDefinition = "text")
+    private String runner;
+
+    public ToolTesterLogIndexEntry() {
+    }
+
+    public String getS3Key() {
+        return s3Key;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public ToolTesterLog toToolTesterLog() {
+        return new ToolTesterLog(toolId, toolVersionName, testFilename, runner, ToolTesterLogType.FULL, s3Key);
+    }
+}
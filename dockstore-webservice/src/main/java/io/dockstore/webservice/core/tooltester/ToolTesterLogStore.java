@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.core.tooltester;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Where the index of ToolTester logs is kept, so that it outlives a webservice instance and is shared between instances
+ */
+public interface ToolTesterLogStore {
+
+    /**
+     * @param prefix the S3 key prefix of a tool version's logs
+     * @return the stored logs of the prefix, by S3 key
+     */
+    Map<String, ToolTesterLog> findByPrefix(String prefix);
+
+    /**
+     * Store logs that are not stored yet
+     * @param prefix the S3 key prefix of the logs' tool version
+     * @param logs the logs, whose filenames are their S3 keys
+     */
+    void add(String prefix, Collection<ToolTesterLog> logs);
+}
@@ -18,15 +18,20 @@
 
 package io.dockstore.webservice.core.tooltester;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.regions.Region;
@@ -35,7 +40,6 @@ import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
 /**
@@ -46,13 +50,53 @@ public class ToolTesterS3Client {
     private static final int MAX_TOOL_ID_STRING_SEGMENTS = 5;
     private static final int TOOL_ID_REPOSITORY_INDEX = 3;
     private static final int TOOL_ID_TOOLNAME_INDEX = 4;
+    /**
+     * New logs are picked up when a version's index is refreshed, the stale index is served while the refresh runs
+     */
+    private static final Duration INDEX_REFRESH_INTERVAL = Duration.ofMinutes(5);
+    private static final int MAX_INDEXED_VERSIONS = 10_000;
     private final S3Client s3;
     private final String bucketName;
+    private final ToolTesterLogStore logStore;
+    private final LoadingCache<String, Map<String, ToolTesterLog>> logIndex;
 
     public ToolTesterS3Client(String bucketName) {
-        this.bucketName = bucketName;
+        this(bucketName, (ToolTesterLogStore)null);
+    }
+
+    public ToolTesterS3Client(String bucketName, ToolTesterLogStore logStore) {
         //TODO should not need to hardcode region since buckets are global, but http://opensourceforgeeks.blogspot.com/2018/07/how-to-fix-unable-to-find-region-via.html
-        this.s3 = S3Client.builder().region(Region.US_EAST_1).build();
+        this(bucketName, S3Client.builder().region(Region.US_EAST_1).build(), logStore);
+    }
+
+    public ToolTesterS3Client(String bucketName, S3Client s3) {
+        this(bucketName, s3, null);
+    }
+
+    /**
+     * @param bucketName The bucket the ToolTester logs are in
+     * @param s3 The S3 client to use, it is thread-safe and meant to be shared for the lifetime of the webservice
+     * @param logStore Where the index of the logs is kept beyond this instance, null to only keep it in memory
+     */
+    public ToolTesterS3Client(String bucketName, S3Client s3, ToolTesterLogStore logStore) {
+        this.bucketName = bucketName;
+        this.s3 = s3;
+        this.logStore = logStore;
+        this.logIndex = Caffeine.newBuilder()
+            .maximumSize(MAX_INDEXED_VERSIONS)
+            .expireAfterAccess(Duration.ofHours(1))
+            .refreshAfterWrite(INDEX_REFRESH_INTERVAL)
+            .build(new CacheLoader<>() {
+                @Override
+                public Map<String, ToolTesterLog> load(String prefix) {
+                    return indexLogs(prefix, logStore == null ? Map.of() : logStore.findByPrefix(prefix));
+                }
+
+                @Override
+                public Map<String, ToolTesterLog> reload(String prefix, Map<String, ToolTesterLog> oldValue) {
+                    return indexLogs(prefix, oldValue);
+                }
+            });
     }
 
     /**
@@ -117,22 +161,64 @@ public class ToolTesterS3Client {
 
     public String getToolTesterLog(String toolId, String versionName, String testFilePath, String runner, String filename)
             throws IOException {
-        String key = generateKey(toolId, versionName, testFilePath, runner, filename);
-        GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(key).build();
-        ResponseInputStream<GetObjectResponse> object = s3.getObject(request);
-        return IOUtils.toString(object, StandardCharsets.UTF_8);
+        try (ResponseInputStream<GetObjectResponse> object = getToolTesterLogStream(toolId, versionName, testFilePath, runner, filename, null)) {
+            return IOUtils.toString(object, StandardCharsets.UTF_8);
+        }
+    }
 
+    /**
+     * Open a ToolTester log without reading it into memory. The caller must close the returned stream.
+     *
+     * @param range Value of an HTTP Range header, passed on to S3 so only that part of the log is fetched, may be null for the whole log
+     * @return The log contents, its response has the content length and, for a range, the content range
+     * @throws UnsupportedEncodingException Could not endpoint string
+     */
+    public ResponseInputStream<GetObjectResponse> getToolTesterLogStream(String toolId, String versionName, String testFilePath, String runner, String filename,
+            String range) throws UnsupportedEncodingException {
+        String key = generateKey(toolId, versionName, testFilePath, runner, filename);
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(key).range(range).build();
+        return s3.getObject(request);
     }
 
+    /**
+     * Get the logs of a tool version from the index, listing the bucket only if the index for that version is missing or due for a refresh
+     *
+     * @param toolId          The GA4GH Tool ID
+     * @param toolVersionName The GA4GH ToolVersion name
+     * @return The logs, in key order
+     * @throws UnsupportedEncodingException Could not endpoint string
+     */
     public List<ToolTesterLog> getToolTesterLogs(String toolId, String toolVersionName) throws UnsupportedEncodingException {
         String key = convertToolIdToPartialKey(toolId) + "/" + URLEncoder.encode(toolVersionName, StandardCharsets.UTF_8.name());
-        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).prefix(key).build();
-        ListObjectsV2Response listObjectsV2Response = s3.listObjectsV2(request);
-        List<S3Object> contents = listObjectsV2Response.contents();
-        return contents.stream().map(s3Object -> {
-            HeadObjectRequest build = HeadObjectRequest.builder().bucket(bucketName).key(s3Object.key()).build();
-            Map<String, String> metadata = s3.headObject(build).metadata();
-            return convertUserMetadataToToolTesterLog(metadata, s3Object.key());
-        }).collect(Collectors.toList());
+        return new ArrayList<>(logIndex.get(key).values());
+    }
+
+    /**
+     * Index the logs under a prefix. Object metadata never changes once a log is written, so only logs that are not already in the previous
+     * index are looked up, a refresh costs one listing plus one request per new log. The logs that were looked up are added to the log
+     * store, so that an instance that starts without an index of the prefix only looks up logs no instance has indexed yet.
+     *
+     * @param prefix   The S3 key prefix of a tool version's logs
+     * @param previous The previous index of the prefix, or the stored one if this instance has none
+     * @return The logs by S3 key, in key order
+     */
+    private Map<String, ToolTesterLog> indexLogs(String prefix, Map<String, ToolTesterLog> previous) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+        Map<String, ToolTesterLog> index = new LinkedHashMap<>();
+        List<ToolTesterLog> newLogs = new ArrayList<>();
+        for (S3Object s3Object : s3.listObjectsV2Paginator(request).contents()) {
+            ToolTesterLog log = previous.get(s3Object.key());
+            if (log == null) {
+                HeadObjectRequest build = HeadObjectRequest.builder().bucket(bucketName).key(s3Object.key()).build();
+                Map<String, String> metadata = s3.headObject(build).metadata();
+                log = convertUserMetadataToToolTesterLog(metadata, s3Object.key());
+                newLogs.add(log);
+            }
+            index.put(s3Object.key(), log);
+        }
+        if (logStore != null) {
+            logStore.add(prefix, newLogs);
+        }
+        return Collections.unmodifiableMap(index);
     }
 }
@@ -18,6 +18,7 @@ package io.dockstore.webservice.helpers;
 
 import static io.dockstore.webservice.helpers.SourceCodeRepoFactory.parseGitUrl;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -35,7 +36,6 @@ import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Validation;
 import io.dockstore.webservice.core.dockerhub.DockerHubImage;
-import io.dockstore.webservice.core.dockerhub.DockerHubTag;
 import io.dockstore.webservice.core.dockerhub.Results;
 import io.dockstore.webservice.core.gitlab.GitLabContainerRegistry;
 import io.dockstore.webservice.core.gitlab.GitLabTag;
@@ -55,8 +55,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -64,10 +65,17 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +90,14 @@ public abstract class AbstractImageRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractImageRegistry.class);
     private static final String GITLAB_URL = "https://gitlab.com/api/v4/";
     private static final String SHA_TYPE_FOR_SOURCEFILES = "SHA-1";
+    /**
+     * Bounds the concurrent requests a refresh makes to each remote service, so that large namespaces are fetched in parallel
+     * without a single refresh flooding a registry or exhausting its rate limit
+     */
+    private static final int MAX_CONCURRENT_FETCHES = 8;
+    private static final String SOURCE_CONTROL_FETCHES = "source-control";
+    private static final Map<String, ExecutorService> FETCH_EXECUTORS = new ConcurrentHashMap<>();
+    private static final DockerHubClient DOCKER_HUB_CLIENT = new DockerHubClient(DOCKERHUB_URL);
 
 
     /**
@@ -186,11 +202,13 @@ public abstract class AbstractImageRegistry {
         List<Tool> newDBTools = updateTools(apiTools, notManualTools, user, toolDAO);
         setTopic(newDBTools, githubToken);
 
-        // Get tags and update for each tool
-        for (Tool tool : newDBTools) {
+        // Get the tags of every tool concurrently, then update each tool with its tags on this thread, which owns the session
+        List<List<Tag>> tagsOfTools = fetchConcurrently(getFetchExecutor(), newDBTools, this::getTags);
+        for (int i = 0; i < newDBTools.size(); i++) {
+            Tool tool = newDBTools.get(i);
             logToolRefresh(dashboardPrefix, tool);
 
-            List<Tag> toolTags = getTags(tool);
+            List<Tag> toolTags = tagsOfTools.get(i);
             final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
                 .createSourceCodeRepo(tool.getGitUrl(), bitbucketToken == null ? null : bitbucketToken.getContent(),
                     gitlabToken == null ? null : gitlabToken.getContent(), githubToken);
@@ -202,7 +220,43 @@ public abstract class AbstractImageRegistry {
 
     private void setTopic(List<Tool> tools, Token githubToken) {
         TopicHarvester topicHarvester = new TopicHarvester(githubToken);
-        tools.forEach(topicHarvester::harvestAndSetTopic);
+        fetchConcurrently(fetchExecutor(SOURCE_CONTROL_FETCHES), tools, topicHarvester::harvestTopic).forEach(Runnable::run);
+    }
+
+    /**
+     * @return the executor for requests to this registry
+     */
+    protected ExecutorService getFetchExecutor() {
+        return fetchExecutor(getRegistry().name());
+    }
+
+    private static ExecutorService fetchExecutor(String service) {
+        return FETCH_EXECUTORS.computeIfAbsent(service, key -> Executors.newFixedThreadPool(MAX_CONCURRENT_FETCHES,
+            new ThreadFactoryBuilder().setNameFormat("fetch-" + key.toLowerCase() + "-%d").setDaemon(true).build()));
+    }
+
+    /**
+     * Apply a remote fetch to every item concurrently. The fetch must not use the database session, which belongs to the calling thread.
+     * Must not be called from a fetch running on the same executor, which could deadlock.
+     *
+     * @param executor executor for the service the fetch calls
+     * @param items items to fetch for
+     * @param fetch fetches the result for an item
+     * @return the results, in the order of the items
+     */
+    protected static <T, R> List<R> fetchConcurrently(ExecutorService executor, List<? extends T> items, Function<T, R> fetch) {
+        List<CompletableFuture<R>> futures = items.stream()
+            .map(item -> CompletableFuture.supplyAsync(() -> fetch.apply(item), executor))
+            .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException ex) {
+            futures.forEach(future -> future.cancel(false));
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ex.getCause();
+            }
+            throw ex;
+        }
     }
 
     @SuppressWarnings("checkstyle:ParameterNumber")
@@ -383,82 +437,42 @@ public abstract class AbstractImageRegistry {
         }
     }
 
+    /**
+     * @return the tags of the tool, or null if they could not be listed, so that its existing tags are kept
+     */
     public List<Tag> getTagsDockerHub(Tool tool) {
         final String repo = tool.getNamespace() + '/' + tool.getName();
         LOG.info(" ======================= Getting tags for: {}================================", tool.getPath());
 
-        final List<Tag> tags = new ArrayList<>();
-        Optional<String> dockerHubResponse = getDockerHubToolAsString(tool);
-        Map<String, String> error = new HashMap<>();
-        DockerHubTag dockerHubTag;
-
-        if (dockerHubResponse.isPresent()) {
-            Gson gson = new Gson();
-            final String errorJSON = dockerHubResponse.get();
-            final String manifestJSON = dockerHubResponse.get();
-
-            error = (Map<String, String>)gson.fromJson(errorJSON, error.getClass());
-            if (error.get("message") != null) {
-                LOG.info("Error response from DockerHub: " + error.get("message"));
-                return new ArrayList<>();
-            }
-
-            dockerHubTag = gson.fromJson(manifestJSON, DockerHubTag.class);
-            Results[] results = dockerHubTag.getResults();
-
-            try {
-                for (Results r : results) {
-                    final Tag tag = new Tag();
-                    tag.setName(r.getName());
-
-                    DockerHubImage[] dockerHubImages = r.getImages();
-                    List<Checksum> checksums = new ArrayList<>();
-                    // For every version, DockerHub can provide multiple images, one for each architecture
-                    for (DockerHubImage i : dockerHubImages) {
-                        final String manifestDigest = i.getDigest();
-                        checksums.add(new Checksum(manifestDigest.split(":")[0], manifestDigest.split(":")[1]));
-                        Image image = new Image(checksums, repo, tag.getName(), r.getImageID(), Registry.DOCKER_HUB, i.getSize(), i.getLastPushed());
-                        image.setArchitecture(i.getArchitecture());
-                        tag.getImages().add(image);
-                    }
-                    tags.add(tag);
-                }
-
-            } catch (IndexOutOfBoundsException ex) {
-                LOG.info("Unable to grab image and checksum information for" + tool.getNamespace() + '/' + tool.getName());
-            }
-            return tags;
-
-        } else {
+        Optional<List<Results>> dockerHubResponse = DOCKER_HUB_CLIENT.getTags(repo);
+        if (dockerHubResponse.isEmpty()) {
             LOG.info("Could not get response from DockerHub");
-            return new ArrayList<>();
+            return null;
         }
-    }
-
 
-    private Optional<String> getDockerHubToolAsString(Tool tool) {
-        final String repo = tool.getNamespace() + '/' + tool.getName();
-        return getDockerHubToolAsOptionalString(repo);
-    }
-
-    public static Optional<String> getDockerHubToolAsOptionalString(String repo) {
-        final String repoUrl = DOCKERHUB_URL + "repositories/" + repo + "/tags";
-        Optional<String> response;
+        final List<Tag> tags = new ArrayList<>();
         try {
-            URL url = new URL(repoUrl);
-            response = Optional.of(IOUtils.toString(url, StandardCharsets.UTF_8));
-            if (response.isPresent()) {
-                return response;
-            }
+            for (Results r : dockerHubResponse.get()) {
+                final Tag tag = new Tag();
+                tag.setName(r.getName());
 
-        } catch (IOException ex) {
-            LOG.info("Unable to get DockerHub response for " + repo);
+                // For every version, DockerHub can provide multiple images, one for each architecture
+                for (DockerHubImage i : r.getImages()) {
+                    final String manifestDigest = i.getDigest();
+                    List<Checksum> checksums = new ArrayList<>();
+                    checksums.add(new Checksum(manifestDigest.split(":")[0], manifestDigest.split(":")[1]));
+                    Image image = new Image(checksums, repo, tag.getName(), r.getImageID(), Registry.DOCKER_HUB, i.getSize(), i.getLastPushed());
+                    image.setArchitecture(i.getArchitecture());
+                    tag.getImages().add(image);
+                }
+                tags.add(tag);
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            LOG.info("Unable to grab image and checksum information for" + tool.getNamespace() + '/' + tool.getName());
         }
-        return Optional.empty();
+        return tags;
     }
 
-
-
     /**
      * Updates/Adds/Deletes tags for a specific tool
      *
@@ -481,54 +495,42 @@ public abstract class AbstractImageRegistry {
                 return;
             }
 
+            // Match tags by name, an incoming tag updates the first existing tag with its name
+            Set<String> newTagNames = newTags.stream().map(Tag::getName).collect(Collectors.toSet());
             List<Tag> toDelete = new ArrayList<>(0);
             for (Iterator<Tag> iterator = existingTags.iterator(); iterator.hasNext(); ) {
                 Tag oldTag = iterator.next();
-                boolean exists = false;
-                for (Tag newTag : newTags) {
-                    if (newTag.getName().equals(oldTag.getName())) {
-                        exists = true;
-                        break;
-                    }
-                }
-                if (!exists) {
+                if (!newTagNames.contains(oldTag.getName())) {
                     toDelete.add(oldTag);
                     iterator.remove();
                 }
             }
+            Map<String, Tag> existingTagsByName = new HashMap<>();
+            existingTags.forEach(tag -> existingTagsByName.putIfAbsent(tag.getName(), tag));
 
             for (Tag newTag : newTags) {
-                boolean exists = false;
-
                 // Find if user already has the tag
-                for (Tag oldTag : existingTags) {
-                    if (newTag.getName().equals(oldTag.getName())) {
-                        exists = true;
-                        updateImageInformation(tool, newTag, oldTag);
-                        oldTag.update(newTag);
-                        // Update tag with default paths if dirty bit not set
-                        if (!oldTag.isDirtyBit()) {
-                            // Has not been modified => set paths
-                            oldTag.setCwlPath(tool.getDefaultCwlPath());
-                            oldTag.setWdlPath(tool.getDefaultWdlPath());
-                            oldTag.setDockerfilePath(tool.getDefaultDockerfilePath());
-                            //TODO: keep an eye on this, this used to always create new test params no matter what
-                            if (tool.getDefaultTestCwlParameterFile() != null && oldTag.getSourceFiles().stream()
-                                .noneMatch(file -> file.getPath().equals(tool.getDefaultTestCwlParameterFile()))) {
-                                oldTag.getSourceFiles().add(createSourceFile(tool.getDefaultTestCwlParameterFile(), DescriptorLanguage.FileType.CWL_TEST_JSON));
-                            }
-                            if (tool.getDefaultTestWdlParameterFile() != null && oldTag.getSourceFiles().stream()
-                                .noneMatch(file -> file.getPath().equals(tool.getDefaultTestWdlParameterFile()))) {
-                                oldTag.getSourceFiles().add(createSourceFile(tool.getDefaultTestWdlParameterFile(), DescriptorLanguage.FileType.WDL_TEST_JSON));
-                            }
+                Tag oldTag = existingTagsByName.get(newTag.getName());
+                if (oldTag != null) {
+                    updateImageInformation(tool, newTag, oldTag);
+                    oldTag.update(newTag);
+                    // Update tag with default paths if dirty bit not set
+                    if (!oldTag.isDirtyBit()) {
+                        // Has not been modified => set paths
+                        oldTag.setCwlPath(tool.getDefaultCwlPath());
+                        oldTag.setWdlPath(tool.getDefaultWdlPath());
+                        oldTag.setDockerfilePath(tool.getDefaultDockerfilePath());
+                        //TODO: keep an eye on this, this used to always create new test params no matter what
+                        Set<String> paths = oldTag.getSourceFiles().stream().map(SourceFile::getPath).collect(Collectors.toSet());
+                        if (tool.getDefaultTestCwlParameterFile() != null && !paths.contains(tool.getDefaultTestCwlParameterFile())) {
+                            oldTag.getSourceFiles().add(createSourceFile(tool.getDefaultTestCwlParameterFile(), DescriptorLanguage.FileType.CWL_TEST_JSON));
+                        }
+                        if (tool.getDefaultTestWdlParameterFile() != null && !paths.contains(tool.getDefaultTestWdlParameterFile())) {
+                            oldTag.getSourceFiles().add(createSourceFile(tool.getDefaultTestWdlParameterFile(), DescriptorLanguage.FileType.WDL_TEST_JSON));
                         }
-
-                        break;
                     }
-                }
-
-                // Tag does not already exist
-                if (!exists) {
+                } else {
+                    // Tag does not already exist
                     // this could result in the same tag being added to multiple containers with the same path, need to clone
                     Tag clonedTag = new Tag();
                     clonedTag.clone(newTag);
@@ -540,6 +542,7 @@ public abstract class AbstractImageRegistry {
                         clonedTag.getSourceFiles().add(createSourceFile(tool.getDefaultTestWdlParameterFile(), DescriptorLanguage.FileType.WDL_TEST_JSON));
                     }
                     existingTags.add(clonedTag);
+                    existingTagsByName.put(clonedTag.getName(), clonedTag);
                 }
             }
 
@@ -580,13 +583,17 @@ public abstract class AbstractImageRegistry {
 
         // Now grab default/main tag to grab general information (defaults to github/bitbucket "main branch")
         if (sourceCodeRepoInterface != null) {
-            // Grab files for each version/tag and check if valid
-            Set<Tag> tags = tool.getWorkflowVersions();
-            for (Tag tag : tags) {
+            // Grab files for each version/tag concurrently, then check if valid
+            List<Tag> tags = new ArrayList<>(tool.getWorkflowVersions());
+            // loading the files reads the existing test parameter files, which must be loaded by the thread that owns the session
+            tags.forEach(tag -> Hibernate.initialize(tag.getSourceFiles()));
+            List<List<SourceFile>> filesOfTags = fetchConcurrently(fetchExecutor(SOURCE_CONTROL_FETCHES), tags,
+                tag -> loadFiles(sourceCodeRepoInterface, tool, tag));
+            for (int i = 0; i < tags.size(); i++) {
                 // check to see whether the commit id has changed
 
                 //TODO: calls validation eventually, may simplify if we take into account metadata parsing below
-                updateFiles(tool, tag, fileDAO, sourceCodeRepoInterface, sourceCodeRepoInterface.gitUsername);
+                updateFiles(tool, tags.get(i), filesOfTags.get(i), fileDAO, sourceCodeRepoInterface.gitUsername);
                 // Grab and parse files to get tool information
                 // Add for new descriptor types
             }
@@ -627,12 +634,12 @@ public abstract class AbstractImageRegistry {
 
     private void updateNonQuayImageInformation(List<Tag> newTags, @NotNull Tool tool, List<Tag> existingTags) {
         if (newTags != null) {
+            Map<String, Tag> existingTagsByName = new HashMap<>();
+            existingTags.forEach(tag -> existingTagsByName.putIfAbsent(tag.getName(), tag));
             for (Tag newTag : newTags) {
-                for (Tag oldTag : existingTags) {
-                    if (oldTag.getName().equals(newTag.getName())) {
-                        updateImageInformation(tool, newTag, oldTag);
-                        break;
-                    }
+                Tag oldTag = existingTagsByName.get(newTag.getName());
+                if (oldTag != null) {
+                    updateImageInformation(tool, newTag, oldTag);
                 }
             }
         }
@@ -641,6 +648,10 @@ public abstract class AbstractImageRegistry {
     private void updateImageInformation(Tool tool, Tag newTag, Tag oldTag) {
         // If old tag does not have image information yet, try to set it. If it does, potentially old tag could have been deleted on
         // GitHub and replaced with tag of the same name. Check that the image is the same. If not, replace.
+        if (!oldTag.getImages().isEmpty() && digestsOf(oldTag).equals(digestsOf(newTag))) {
+            // the images have not changed, leave them be rather than replacing every image with an identical one
+            return;
+        }
         if (oldTag.getImages().isEmpty() && tool.getRegistry().equals(Registry.QUAY_IO.getDockerPath())) {
             oldTag.getImages().addAll(newTag.getImages());
         } else {
@@ -649,6 +660,10 @@ public abstract class AbstractImageRegistry {
         }
     }
 
+    private static Set<Checksum> digestsOf(Tag tag) {
+        return tag.getImages().stream().flatMap(image -> image.getChecksums().stream()).collect(Collectors.toSet());
+    }
+
     private List<Tag> getTagsGitLab(Tool tool) {
         final String repo = tool.getNamespace() + "%2F" + tool.getName();
         final String projectPath = GITLAB_URL + "projects/" + repo + "/registry/repositories";
@@ -748,44 +763,50 @@ public abstract class AbstractImageRegistry {
         return tool.getRegistry().equals(Registry.AMAZON_ECR.getDockerPath()) && !tool.isPrivateAccess();
     }
 
-    private void updateFiles(Tool tool, Tag tag, final FileDAO fileDAO, SourceCodeRepoInterface sourceCodeRepo, String username) {
-        // For each tag, will download files to db and determine if the tag is valid
+    private void updateFiles(Tool tool, Tag tag, List<SourceFile> loadedFiles, final FileDAO fileDAO, String username) {
+        // For each tag, will save the downloaded files to db and determine if the tag is valid
         LOG.info(username + " : Updating files for tag {}", tag.getName());
 
-        // Get all of the required sourcefiles for the given tag
-        List<SourceFile> newFiles = loadFiles(sourceCodeRepo, tool, tag);
-
-        Set<SourceFile> oldFilesTempSet = new HashSet<>(tag.getSourceFiles());
-
-        // copy content over to existing files
-        for (SourceFile oldFile : oldFilesTempSet) {
-            boolean found = false;
-            List<Checksum> checksums = new ArrayList<>();
-            for (SourceFile newFile : newFiles) {
-                if (Objects.equals(oldFile.getAbsolutePath(), newFile.getAbsolutePath())) {
-                    oldFile.setContent(newFile.getContent());
-                    newFiles.remove(newFile);
-                    found = true;
-                    break;
-                }
+        Map<String, SourceFile> newFilesByAbsolutePath = new LinkedHashMap<>();
+        List<SourceFile> newFiles = new ArrayList<>();
+        for (SourceFile loadedFile : loadedFiles) {
+            // the first loaded file with a path replaces the existing file with that path, any others with the same path are created
+            if (newFilesByAbsolutePath.putIfAbsent(loadedFile.getAbsolutePath(), loadedFile) != null) {
+                newFiles.add(loadedFile);
             }
-            if (!found) {
+        }
+        boolean filesChanged = false;
 
+        // copy content over to existing files
+        for (SourceFile oldFile : new ArrayList<>(tag.getSourceFiles())) {
+            SourceFile newFile = newFilesByAbsolutePath.remove(oldFile.getAbsolutePath());
+            if (newFile != null) {
+                filesChanged |= !Objects.equals(oldFile.getContent(), newFile.getContent());
+                oldFile.setContent(newFile.getContent());
+            } else {
                 tag.getSourceFiles().remove(oldFile);
+                filesChanged = true;
             }
         }
+        newFiles.addAll(newFilesByAbsolutePath.values());
 
         // create actual new files, newfiles should only have the new ones
         for (SourceFile newFile : newFiles) {
             long id = fileDAO.create(newFile);
             SourceFile file = fileDAO.findById(id);
             tag.addSourceFile(file);
+            filesChanged = true;
         }
 
         // Update the tag with validation information
         tag = validateTagDockerfile(tag, tool.isPrivateAccess());
-        tag = validateTagDescriptorType(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, tag.getCwlPath());
-        tag = validateTagDescriptorType(tag, DescriptorLanguage.FileType.DOCKSTORE_WDL, tag.getWdlPath());
+        // Validating a descriptor parses it, skip that when the files it was validated against have not changed
+        if (filesChanged || !isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, tag.getCwlPath())) {
+            tag = validateTagDescriptorType(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, tag.getCwlPath());
+        }
+        if (filesChanged || !isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_WDL, tag.getWdlPath())) {
+            tag = validateTagDescriptorType(tag, DescriptorLanguage.FileType.DOCKSTORE_WDL, tag.getWdlPath());
+        }
 
         boolean isValidVersion = isValidVersion(tag);
         tag.setValid(isValidVersion);
@@ -826,6 +847,19 @@ public abstract class AbstractImageRegistry {
         return foundFile.isPresent() && foundFile.get().isValid();
     }
 
+    /**
+     * A validation of unchanged files is current if it was made against the same primary descriptor. The primary descriptor path
+     * can change without the files changing, for example when a user edits the tag, which changes the result.
+     * @param tag Tag whose files are unchanged
+     * @param fileType Descriptor type
+     * @param primaryDescriptorPath Path to the primary descriptor
+     * @return True if the tag's validation of the descriptor type need not be repeated
+     */
+    static boolean isDescriptorValidationCurrent(Tag tag, DescriptorLanguage.FileType fileType, String primaryDescriptorPath) {
+        return primaryDescriptorPath != null && tag.getValidations().stream()
+            .anyMatch(validation -> Objects.equals(validation.getType(), fileType) && primaryDescriptorPath.equals(validation.getPrimaryDescriptorPath()));
+    }
+
     /**
      * Adds a version validation for a tag and its Dockerfile
      * @param tag Tag to validate
@@ -859,6 +893,7 @@ public abstract class AbstractImageRegistry {
         VersionTypeValidation isValidDescriptor = LanguageHandlerFactory.getInterface(fileType)
                 .validateToolSet(tag.getSourceFiles(), primaryDescriptorPath);
         Validation descriptorValidation = new Validation(fileType, isValidDescriptor);
+        descriptorValidation.setPrimaryDescriptorPath(primaryDescriptorPath);
         tag.addOrUpdateValidation(descriptorValidation);
 
         DescriptorLanguage.FileType testParamType = null;
@@ -961,17 +996,11 @@ public abstract class AbstractImageRegistry {
 
         final List<Tool> toDelete = new ArrayList<>();
         // Find containers that the user no longer has
+        final ToolIndex apiTools = new ToolIndex();
+        apiToolList.forEach(apiTools::add);
         for (final Iterator<Tool> iterator = dbToolList.iterator(); iterator.hasNext(); ) {
             final Tool oldTool = iterator.next();
-            boolean exists = false;
-            for (final Tool newTool : apiToolList) {
-                if ((newTool.getToolPath().equals(oldTool.getToolPath())) || (newTool.getPath().equals(oldTool.getPath()) && newTool
-                        .getGitUrl().equals(oldTool.getGitUrl()))) {
-                    exists = true;
-                    break;
-                }
-            }
-            if (!exists && oldTool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
+            if (apiTools.find(oldTool).isEmpty() && oldTool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
                 oldTool.removeUser(user);
                 toDelete.add(oldTool);
                 iterator.remove();
@@ -979,35 +1008,30 @@ public abstract class AbstractImageRegistry {
         }
 
         // when a container from the registry (ex: quay.io) has newer content, update it from
+        final ToolIndex dbTools = new ToolIndex();
+        dbToolList.forEach(dbTools::add);
         for (Tool newTool : apiToolList) {
             String path = newTool.getToolPath();
-            boolean exists = false;
 
             // Find if user already has the container
-            for (Tool oldTool : dbToolList) {
-                if ((newTool.getToolPath().equals(oldTool.getToolPath())) || (newTool.getPath().equals(oldTool.getPath()) && newTool
-                        .getGitUrl().equals(oldTool.getGitUrl()))) {
-                    exists = true;
-                    oldTool.update(newTool);
-                    break;
-                }
+            Optional<Tool> existingTool = dbTools.find(newTool);
+            if (existingTool.isPresent()) {
+                existingTool.get().update(newTool);
+                continue;
             }
 
             // Find if container already exists, but does not belong to user
-            if (!exists) {
-                Tool oldTool = toolDAO.findByPath(path, false);
-                if (oldTool != null) {
-                    exists = true;
-                    oldTool.update(newTool);
-                    dbToolList.add(oldTool);
-                }
-            }
-
-            // Tool does not already exist
-            if (!exists) {
+            Tool oldTool = toolDAO.findByPath(path, false);
+            if (oldTool != null) {
+                oldTool.update(newTool);
+                dbToolList.add(oldTool);
+                dbTools.add(oldTool);
+            } else {
+                // Tool does not already exist
                 // newTool.setUserId(userId);
 
                 dbToolList.add(newTool);
+                dbTools.add(newTool);
             }
         }
 
@@ -1039,4 +1063,35 @@ public abstract class AbstractImageRegistry {
 
         return dbToolList;
     }
+
+    /**
+     * Finds the tool that matches another, by tool path or by path and git url, in constant time. When several tools match,
+     * the one added first is found.
+     */
+    static final class ToolIndex {
+        private final Map<String, Tool> byToolPath = new HashMap<>();
+        private final Map<String, Tool> byPathAndGitUrl = new HashMap<>();
+        private final Map<Tool, Integer> order = new IdentityHashMap<>();
+
+        void add(Tool tool) {
+            order.putIfAbsent(tool, order.size());
+            byToolPath.putIfAbsent(tool.getToolPath(), tool);
+            if (tool.getGitUrl() != null) {
+                byPathAndGitUrl.putIfAbsent(pathAndGitUrl(tool), tool);
+            }
+        }
+
+        Optional<Tool> find(Tool tool) {
+            Tool byPath = byToolPath.get(tool.getToolPath());
+            Tool byGitUrl = tool.getGitUrl() == null ? null : byPathAndGitUrl.get(pathAndGitUrl(tool));
+            if (byPath == null || byGitUrl == null) {
+                return Optional.ofNullable(byPath != null ? byPath : byGitUrl);
+            }
+            return Optional.of(order.get(byPath) <= order.get(byGitUrl) ? byPath : byGitUrl);
+        }
+
+        private static String pathAndGitUrl(Tool tool) {
+            return tool.getPath() + '\n' + tool.getGitUrl();
+        }
+    }
 }
@@ -16,6 +16,9 @@
 
 package io.dockstore.webservice.helpers;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.ProxySelector;
@@ -25,13 +28,17 @@ import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 import javax.ws.rs.core.UriBuilder;
 import org.json.JSONArray;
@@ -44,12 +51,42 @@ public final class CheckUrlHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CheckUrlHelper.class);
 
+    private static final int CHECK_URL_THREADS = 16;
+    static final int MAX_CONCURRENT_CHECKS_PER_HOST = 4;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration CACHE_TTL = Duration.ofHours(1);
+    private static final int CACHE_MAX_SIZE = 10000;
+
+    /**
+     * Dedicated pool for the blocking lambda calls, so that they never run on the common ForkJoinPool.
+     */
+    private static final ExecutorService CHECK_URL_EXECUTOR = Executors.newFixedThreadPool(CHECK_URL_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("check-url-%d").setDaemon(true).build());
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().proxy(ProxySelector.getDefault())
+        .connectTimeout(REQUEST_TIMEOUT).build();
+    /**
+     * Permits limiting concurrent checks per host. Values are weak, so the semaphore of a host is dropped once no check of that host holds it.
+     */
+    private static final Cache<String, Semaphore> HOST_PERMITS = Caffeine.newBuilder()
+        .weakValues()
+        .build();
+    /**
+     * Definitive (true/false) answers from the lambda, keyed by checked URL. Versions sharing reference data do not re-check the same URLs.
+     */
+    private static final Cache<String, Boolean> URL_STATUS_CACHE = Caffeine.newBuilder()
+        .maximumSize(CACHE_MAX_SIZE)
+        .expireAfterWrite(CACHE_TTL)
+        .build();
+
     private CheckUrlHelper() {
 
     }
 
-
     private static Optional<Boolean> checkUrl(String url, String baseURL) {
+        Boolean cachedStatus = URL_STATUS_CACHE.getIfPresent(url);
+        if (cachedStatus != null) {
+            return Optional.of(cachedStatus);
+        }
         HttpRequest request;
         URI uri;
         try {
@@ -57,17 +94,27 @@ public final class CheckUrlHelper {
         } catch (URISyntaxException e) {
             return Optional.empty();
         }
-        request = HttpRequest.newBuilder().uri(uri).GET().build();
+        request = HttpRequest.newBuilder().uri(uri).timeout(REQUEST_TIMEOUT).GET().build();
+        // Limit how hard we make the lambda hit any one host. Checks run in the background, so a check of a busy host waits its turn
+        // rather than giving up, which would report the URL as unknown and have it checked again later. Every check holding a permit
+        // is bounded by the request timeout, so the wait is too.
+        Semaphore hostPermits = HOST_PERMITS.get(getHost(url), host -> new Semaphore(MAX_CONCURRENT_CHECKS_PER_HOST));
         try {
-            String s = HttpClient.newBuilder().proxy(ProxySelector.getDefault()).build().send(request,
-                HttpResponse.BodyHandlers.ofString()).body();
-            if ("{\"message\":true}".equals(s)) {
-                return Optional.of(true);
-            }
-            if ("{\"message\":false}".equals(s)) {
-                return Optional.of(false);
+            hostPermits.acquire();
+            try {
+                String s = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                if ("{\"message\":true}".equals(s)) {
+                    URL_STATUS_CACHE.put(url, true);
+                    return Optional.of(true);
+                }
+                if ("{\"message\":false}".equals(s)) {
+                    URL_STATUS_CACHE.put(url, false);
+                    return Optional.of(false);
+                }
+                return Optional.empty();
+            } finally {
+                hostPermits.release();
             }
-            return Optional.empty();
         } catch (IOException e) {
             return Optional.empty();
         } catch (InterruptedException e) {
@@ -76,9 +123,20 @@ public final class CheckUrlHelper {
         }
     }
 
+    private static String getHost(String url) {
+        try {
+            String host = new URL(url).getHost();
+            return host == null ? "" : host;
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
     private static Optional<Boolean> checkUrls(Set<String> urls, String baseURL) {
-        List<Optional<Boolean>> objectStream = urls.parallelStream().map(url -> checkUrl(url, baseURL))
-            .collect(Collectors.toCollection(ArrayList::new));
+        List<CompletableFuture<Optional<Boolean>>> futures = urls.stream()
+            .map(url -> CompletableFuture.supplyAsync(() -> checkUrl(url, baseURL), CHECK_URL_EXECUTOR))
+            .collect(Collectors.toList());
+        List<Optional<Boolean>> objectStream = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
         if (objectStream.stream().anyMatch(urlStatus -> urlStatus.isPresent() && urlStatus.get().equals(false))) {
             return Optional.of(false);
         }
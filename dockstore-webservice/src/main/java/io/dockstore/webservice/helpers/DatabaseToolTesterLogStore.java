@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.tooltester.ToolTesterLog;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogStore;
+import io.dockstore.webservice.jdbi.ToolTesterLogDAO;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.hibernate.SessionFactory;
+
+/**
+ * Keeps the index of ToolTester logs in the database. The index is read and written outside of requests, on the threads that refresh it,
+ * so each call runs in a transaction of its own session.
+ */
+public class DatabaseToolTesterLogStore implements ToolTesterLogStore {
+
+    private final SessionFactory sessionFactory;
+    private final ToolTesterLogDAO toolTesterLogDAO;
+
+    public DatabaseToolTesterLogStore(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.toolTesterLogDAO = new ToolTesterLogDAO(sessionFactory);
+    }
+
+    @Override
+    public Map<String, ToolTesterLog> findByPrefix(String prefix) {
+        Map<String, ToolTesterLog> logs = new HashMap<>();
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> {
+            for (ToolTesterLogIndexEntry entry : toolTesterLogDAO.findByPrefix(prefix)) {
+                logs.put(entry.getS3Key(), entry.toToolTesterLog());
+            }
+        });
+        return logs;
+    }
+
+    @Override
+    public void add(String prefix, Collection<ToolTesterLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> logs.forEach(log -> toolTesterLogDAO.add(prefix, log)));
+    }
+}
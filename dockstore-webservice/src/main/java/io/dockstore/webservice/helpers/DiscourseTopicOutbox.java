@@ -0,0 +1,256 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.AppTool;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.dockstore.webservice.core.DiscourseTopicRequest;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.Service;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.jdbi.DiscourseTopicRequestDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dropwizard.lifecycle.Managed;
+import io.swagger.discourse.client.ApiClient;
+import io.swagger.discourse.client.ApiException;
+import io.swagger.discourse.client.api.TopicsApi;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the Discourse topics of published entries in the background. Publishing only queues a {@link DiscourseTopicRequest},
+ * so a slow or unavailable Discourse never holds up a publish. Failed attempts are retried with exponential backoff.
+ */
+public class DiscourseTopicOutbox implements Managed {
+
+    static final Duration INITIAL_BACKOFF = Duration.ofMinutes(1);
+    static final Duration MAX_BACKOFF = Duration.ofHours(12);
+    /**
+     * How long a claimed request is left alone, long enough for a post to Discourse to finish or time out
+     */
+    static final Duration CLAIM_DURATION = Duration.ofMinutes(10);
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiscourseTopicOutbox.class);
+    private static final long POLL_INTERVAL_SECONDS = 30;
+    /**
+     * Caps the requests handled per poll, so that one poll cannot run indefinitely
+     */
+    private static final int MAX_REQUESTS_PER_POLL = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    private static final String DISCOURSE_API_USERNAME = "system";
+
+    private final SessionFactory sessionFactory;
+    private final DiscourseTopicRequestDAO discourseTopicRequestDAO;
+    private final ToolDAO toolDAO;
+    private final TopicsApi topicsApi;
+    private final String discourseUrl;
+    private final String discourseKey;
+    private final int discourseCategoryId;
+    private final String hostName;
+    private ScheduledExecutorService executor;
+
+    public DiscourseTopicOutbox(SessionFactory sessionFactory, DockstoreWebserviceConfiguration configuration) {
+        this(sessionFactory, configuration.getDiscourseUrl(), configuration.getDiscourseKey(), configuration.getDiscourseCategoryId(),
+            configuration.getExternalConfig().getHostname());
+    }
+
+    public DiscourseTopicOutbox(SessionFactory sessionFactory, String discourseUrl, String discourseKey, int discourseCategoryId, String hostName) {
+        this.sessionFactory = sessionFactory;
+        this.discourseTopicRequestDAO = new DiscourseTopicRequestDAO(sessionFactory);
+        this.toolDAO = new ToolDAO(sessionFactory);
+        this.discourseUrl = discourseUrl;
+        this.discourseKey = discourseKey;
+        this.discourseCategoryId = discourseCategoryId;
+        this.hostName = hostName;
+
+        ApiClient apiClient = new ApiClient();
+        apiClient.addDefaultHeader("Content-Type", "application/x-www-form-urlencoded");
+        apiClient.addDefaultHeader("cache-control", "no-cache");
+        apiClient.setBasePath(discourseUrl);
+        topicsApi = new TopicsApi(apiClient);
+    }
+
+    /**
+     * @return false if no Discourse is configured, in which case there is no point queueing topics
+     */
+    public boolean isEnabled() {
+        return StringUtils.isNotBlank(discourseUrl);
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            LOG.info("No Discourse URL is configured, topics will not be created");
+            return;
+        }
+        ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat("discourse-topic-outbox-%d").setDaemon(true).build());
+        scheduledExecutor.scheduleWithFixedDelay(this::processDueRequests, POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        executor = scheduledExecutor;
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Attempt the requests that are due, each in its own transaction
+     */
+    void processDueRequests() {
+        try {
+            int processed = 0;
+            while (processed < MAX_REQUESTS_PER_POLL && processNextRequest()) {
+                processed++;
+            }
+        } catch (RuntimeException ex) {
+            // an exception escaping a scheduled task would cancel all later polls
+            LOG.error("Could not process Discourse topic requests", ex);
+        }
+    }
+
+    /**
+     * Claim the next due request in one short transaction, create its topic with no transaction open, then record the outcome in another.
+     * The claim moves the request's next attempt past {@link #CLAIM_DURATION}, so no other poll picks it up while the topic is created.
+     * @return true if a due request was found
+     */
+    boolean processNextRequest() {
+        AtomicBoolean found = new AtomicBoolean(false);
+        AtomicReference<DiscourseTopicRequest> claimed = new AtomicReference<>();
+        AtomicReference<Entry<?, ?>> claimedEntry = new AtomicReference<>();
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> {
+            Optional<DiscourseTopicRequest> request = discourseTopicRequestDAO.lockNextDue();
+            if (request.isEmpty()) {
+                return;
+            }
+            found.set(true);
+            Entry<?, ?> entry = toolDAO.getGenericEntryById(request.get().getEntryId());
+            if (entry == null || !entry.getIsPublished() || entry.getTopicId() != null) {
+                // nothing left to do, publishing the entry again queues a new request
+                discourseTopicRequestDAO.delete(request.get());
+                return;
+            }
+            request.get().setNextAttempt(new Timestamp(System.currentTimeMillis() + CLAIM_DURATION.toMillis()));
+            claimed.set(request.get());
+            claimedEntry.set(entry);
+        });
+        if (claimed.get() != null) {
+            attempt(claimed.get(), claimedEntry.get());
+        }
+        return found.get();
+    }
+
+    private void attempt(DiscourseTopicRequest request, Entry<?, ?> entry) {
+        long topicId;
+        try {
+            topicId = createTopic(entry);
+        } catch (ApiException | RuntimeException ex) {
+            TransactionHelper.transactionInNewSession(sessionFactory, () -> recordFailure(request.getId(), entry.getId(), ex));
+            return;
+        }
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> recordTopic(request.getId(), entry.getId(), topicId));
+    }
+
+    private void recordTopic(long requestId, long entryId, long topicId) {
+        Entry<?, ?> entry = toolDAO.getGenericEntryById(entryId);
+        if (entry != null && entry.getTopicId() == null) {
+            entry.setTopicId(topicId);
+        }
+        DiscourseTopicRequest request = discourseTopicRequestDAO.findById(requestId);
+        if (request != null) {
+            discourseTopicRequestDAO.delete(request);
+        }
+    }
+
+    private void recordFailure(long requestId, long entryId, Exception ex) {
+        DiscourseTopicRequest request = discourseTopicRequestDAO.findById(requestId);
+        if (request == null) {
+            return;
+        }
+        request.setAttempts(request.getAttempts() + 1);
+        request.setNextAttempt(new Timestamp(System.currentTimeMillis() + backoff(request.getAttempts()).toMillis()));
+        request.setLastError(ex.getMessage());
+        LOG.warn("Attempt {} to create a Discourse topic for entry {} failed, retrying at {}", request.getAttempts(), entryId, request.getNextAttempt(), ex);
+    }
+
+    /**
+     * @param attempts number of failed attempts so far
+     * @return how long to wait before the next attempt, doubling with every failure up to {@link #MAX_BACKOFF}
+     */
+    static Duration backoff(int attempts) {
+        int doublings = Math.max(0, Math.min(attempts - 1, Long.SIZE - 2));
+        long millis = INITIAL_BACKOFF.toMillis() << doublings;
+        return millis <= 0 || millis > MAX_BACKOFF.toMillis() ? MAX_BACKOFF : Duration.ofMillis(millis);
+    }
+
+    /**
+     * Create a companion topic for an entry in the configured Discourse category
+     * @param entry a published entry
+     * @return id of the new topic
+     * @throws ApiException if Discourse cannot be reached or rejects the topic
+     */
+    public long createTopic(Entry<?, ?> entry) throws ApiException {
+        // Create title and link to entry
+        String entryLink = "https://dockstore.org/";
+        String title = "";
+        if (hostName.contains("staging")) {
+            entryLink = "https://staging.dockstore.org/";
+            title = "Staging ";
+        }
+        if (entry instanceof BioWorkflow) {
+            title += ((BioWorkflow)(entry)).getWorkflowPath();
+            entryLink += "workflows/";
+        } else if (entry instanceof Service) {
+            title += ((Service)(entry)).getWorkflowPath();
+            entryLink += "services/";
+        } else if (entry instanceof AppTool) {
+            title += ((AppTool)(entry)).getWorkflowPath();
+            entryLink += "tools/";
+        } else {
+            title += ((Tool)(entry)).getToolPath();
+            entryLink += "tools/";
+        }
+
+        entryLink += title;
+
+        // Create description
+        String description = "";
+        if (entry.getDescription() != null) {
+            description = entry.getDescription().substring(0, Math.min(entry.getDescription().length(), MAX_DESCRIPTION_LENGTH));
+        }
+
+        description += "\n<hr>\n<small>This is a companion discussion topic for the original entry at <a href='" + entryLink + "'>" + title + "</a></small>\n";
+
+        return topicsApi.postsJsonPost(description, discourseKey, DISCOURSE_API_USERNAME, title, null, discourseCategoryId, null, null, null).getTopicId()
+            .longValue();
+    }
+}
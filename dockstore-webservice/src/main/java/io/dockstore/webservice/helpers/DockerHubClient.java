@@ -0,0 +1,165 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.dockstore.webservice.core.dockerhub.DockerHubTag;
+import io.dockstore.webservice.core.dockerhub.Results;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import javax.ws.rs.core.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lists the tags of Docker Hub repositories. Follows every page of the listing, times out requests that hang, and revalidates
+ * pages it has seen before with conditional requests, so that pages that have not changed are not downloaded and parsed again.
+ */
+public class DockerHubClient {
+
+    static final int PAGE_SIZE = 100;
+
+    private static final Logger LOG = LoggerFactory.getLogger(DockerHubClient.class);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Caps the pages read for one repository, so that a listing whose next link never ends cannot run forever
+     */
+    private static final int MAX_PAGES = 1000;
+    private static final int MAX_CACHED_PAGES = 10000;
+    private static final Gson GSON = new Gson();
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    /**
+     * The last response for each page URL with its validators. The results hold the digest of every tag on the page,
+     * so a page that is not modified means none of its tags changed.
+     */
+    private final Cache<String, CachedPage> pages = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_PAGES)
+        .expireAfterAccess(Duration.ofDays(1))
+        .build();
+
+    /**
+     * @param baseUrl Docker Hub API, e.g. https://hub.docker.com/v2/
+     */
+    public DockerHubClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .proxy(ProxySelector.getDefault())
+            .build();
+    }
+
+    /**
+     * List every tag of a repository
+     * @param repository namespace and name of the repository, e.g. library/ubuntu
+     * @return the tags, an empty list if the repository does not exist, or empty if the tags could not be listed
+     */
+    public Optional<List<Results>> getTags(String repository) {
+        List<Results> tags = new ArrayList<>();
+        String pageUrl = baseUrl + "repositories/" + repository + "/tags?page_size=" + PAGE_SIZE;
+        for (int page = 0; pageUrl != null; page++) {
+            if (page == MAX_PAGES) {
+                LOG.error("Stopped listing the tags of Docker Hub repository {} after {} pages", repository, MAX_PAGES);
+                return Optional.empty();
+            }
+            Optional<DockerHubTag> response;
+            try {
+                response = getPage(pageUrl);
+            } catch (IOException | JsonParseException ex) {
+                LOG.error("Unable to get DockerHub response for " + repository, ex);
+                return Optional.empty();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+            if (response.isEmpty()) {
+                // a missing page means the repository is missing, unless pages before it were listed
+                return page == 0 ? Optional.of(tags) : Optional.empty();
+            }
+            if (response.get().getResults() != null) {
+                tags.addAll(Arrays.asList(response.get().getResults()));
+            }
+            pageUrl = response.get().getNext();
+        }
+        return Optional.of(tags);
+    }
+
+    /**
+     * @return the page, or empty if it was not found
+     * @throws IOException if the page could not be read
+     */
+    private Optional<DockerHubTag> getPage(String pageUrl) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(pageUrl)).timeout(REQUEST_TIMEOUT).GET();
+        CachedPage cachedPage = pages.getIfPresent(pageUrl);
+        if (cachedPage != null) {
+            if (cachedPage.etag != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, cachedPage.etag);
+            }
+            if (cachedPage.lastModified != null) {
+                request.header(HttpHeaders.IF_MODIFIED_SINCE, cachedPage.lastModified);
+            }
+        }
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() == HttpStatus.SC_NOT_MODIFIED && cachedPage != null) {
+            return Optional.of(cachedPage.page);
+        }
+        if (response.statusCode() == HttpStatus.SC_NOT_FOUND) {
+            LOG.info("Error response from DockerHub: " + response.body());
+            return Optional.empty();
+        }
+        if (response.statusCode() != HttpStatus.SC_OK) {
+            throw new IOException("Docker Hub responded with " + response.statusCode() + ": " + response.body());
+        }
+
+        DockerHubTag page = GSON.fromJson(response.body(), DockerHubTag.class);
+        String etag = response.headers().firstValue(HttpHeaders.ETAG).orElse(null);
+        String lastModified = response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null);
+        if (etag != null || lastModified != null) {
+            pages.put(pageUrl, new CachedPage(etag, lastModified, page));
+        }
+        return Optional.of(page);
+    }
+
+    private static final class CachedPage {
+        private final String etag;
+        private final String lastModified;
+        private final DockerHubTag page;
+
+        private CachedPage(String etag, String lastModified, DockerHubTag page) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.page = page;
+        }
+    }
+}
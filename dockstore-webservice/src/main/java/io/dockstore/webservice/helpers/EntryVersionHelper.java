@@ -51,15 +51,22 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
+import javax.ws.rs.core.Response;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.http.HttpStatus;
 import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 
 /**
  * This interface contains code for interacting with the files of versions for all types of entries (currently, tools and workflows)
@@ -370,29 +377,99 @@ public interface EntryVersionHelper<T extends Entry<T, U>, U extends Version, W
             sourceFiles.removeIf(sourceFile -> sourceFile.getContent() == null);
             // Write each sourcefile
             for (SourceFile sourceFile : sourceFiles) {
-                Path resolve = workingDirectory.resolve(sourceFile.getAbsolutePath());
-                File file = resolve.toFile();
-                String stripStart = removeWorkingDirectory(file.getPath(), file.getName());
-                ZipEntry secondaryZipEntry = new ZipEntry(stripStart);
-
-                // Deal with folders
-                Path filePath = Paths.get(stripStart).normalize();
-                if (filePath.getNameCount() > 1) {
-                    String parentPath = filePath.getParent().toString() + "/";
-                    if (!paths.contains(parentPath)) {
-                        zipOutputStream.putNextEntry(new ZipEntry(parentPath));
-                        zipOutputStream.closeEntry();
-                        paths.add(parentPath);
-                    }
+                writeZipEntry(zipOutputStream, paths, workingDirectory, sourceFile.getAbsolutePath(), sourceFile.getContent().getBytes(Charsets.UTF_8), false);
+            }
+        } catch (IOException ex) {
+            throw new CustomWebApplicationException("Could not create ZIP file", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Writes the source files of a version as a zip, reading them one at a time from the database in a separate read-only
+     * stateless session, so that the files of the version are never all held in memory. This can run after the request's
+     * session has been closed, e.g. from a StreamingOutput.
+     * Entries are STORED with a precomputed CRC, so the content is not deflated again on every download.
+     * @param sessionFactory Session factory to open the stateless session from
+     * @param versionId Id of the version
+     * @param outputStream Stream to write the zip to
+     * @param workingDirectory need a working directory to translate relative paths (which we store) to absolute paths
+     */
+    default void writeVersionAsZip(SessionFactory sessionFactory, long versionId, OutputStream outputStream, Path workingDirectory) {
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults results = session.getNamedQuery("io.dockstore.webservice.core.SourceFile.findPathsAndContentForVersion")
+                .setParameter("versionId", versionId).setReadOnly(true).setFetchSize(1).scroll(ScrollMode.FORWARD_ONLY)) {
+                List<String> paths = new ArrayList<>();
+                while (results.next()) {
+                    final String absolutePath = Paths.get((String)results.get(0)).normalize().toString();
+                    final byte[] content = ((String)results.get(1)).getBytes(Charsets.UTF_8);
+                    writeZipEntry(zipOutputStream, paths, workingDirectory, absolutePath, content, true);
                 }
-                zipOutputStream.putNextEntry(secondaryZipEntry);
-                zipOutputStream.write(sourceFile.getContent().getBytes(Charsets.UTF_8));
+            } finally {
+                transaction.rollback();
             }
         } catch (IOException ex) {
             throw new CustomWebApplicationException("Could not create ZIP file", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Builds the response for a version's zip. Frozen versions are served from the archive cache with a Content-Length and
+     * range support, others are streamed from the database.
+     * @param sessionFactory Session factory used to read the files
+     * @param version Version to zip
+     * @param fileName File name for the Content-Disposition header
+     * @param range Value of the Range request header, may be null
+     */
+    default Response getVersionZipResponse(SessionFactory sessionFactory, Version version, String fileName, String range) {
+        final long versionId = version.getId();
+        final Path path = Paths.get(version.getWorkingDirectory());
+        final Consumer<OutputStream> archiveWriter = output -> writeVersionAsZip(sessionFactory, versionId, output, path);
+        if (version.isFrozen()) {
+            return ZipArchiveCache.frozenArchiveResponse(versionId, archiveWriter, fileName, range);
+        }
+        return ZipArchiveCache.streamedArchiveResponse(archiveWriter, fileName);
+    }
+
+    private static void writeZipEntry(ZipOutputStream zipOutputStream, List<String> paths, Path workingDirectory, String absolutePath, byte[] content, boolean stored)
+        throws IOException {
+        Path resolve = workingDirectory.resolve(absolutePath);
+        File file = resolve.toFile();
+        String stripStart = removeWorkingDirectory(file.getPath(), file.getName());
+        ZipEntry secondaryZipEntry = stored ? storedZipEntry(stripStart, content) : new ZipEntry(stripStart);
+
+        // Deal with folders
+        Path filePath = Paths.get(stripStart).normalize();
+        if (filePath.getNameCount() > 1) {
+            String parentPath = filePath.getParent().toString() + "/";
+            if (!paths.contains(parentPath)) {
+                zipOutputStream.putNextEntry(new ZipEntry(parentPath));
+                zipOutputStream.closeEntry();
+                paths.add(parentPath);
+            }
+        }
+        zipOutputStream.putNextEntry(secondaryZipEntry);
+        zipOutputStream.write(content);
+    }
+
+    /**
+     * Create an uncompressed zip entry, which lets the archive be written without buffering or deflating the content
+     * @param name Name of the entry within the archive
+     * @param content Content the entry will hold
+     * @return A STORED zip entry with its size and CRC already set
+     */
+    static ZipEntry storedZipEntry(String name, byte[] content) {
+        ZipEntry zipEntry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(content.length);
+        zipEntry.setCompressedSize(content.length);
+        zipEntry.setCrc(crc.getValue());
+        return zipEntry;
+    }
+
     static String generateZipFileName(String path, String versionName) {
         final String pathName = path.replaceAll("/", "-");
         return pathName + '-' + versionName + ".zip";
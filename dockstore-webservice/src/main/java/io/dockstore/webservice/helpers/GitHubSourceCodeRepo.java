@@ -22,6 +22,8 @@ import static io.dockstore.webservice.Constants.DOCKSTORE_YML_PATHS;
 import static io.dockstore.webservice.Constants.LAMBDA_FAILURE;
 import static io.dockstore.webservice.Constants.SKIP_COMMIT_ID;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import io.dockstore.common.DescriptorLanguage;
@@ -32,6 +34,7 @@ import io.dockstore.common.VersionTypeValidation;
 import io.dockstore.common.yaml.DockstoreYaml12;
 import io.dockstore.common.yaml.DockstoreYamlHelper;
 import io.dockstore.common.yaml.Service12;
+import io.dockstore.common.yaml.Workflowish;
 import io.dockstore.common.yaml.YamlWorkflow;
 import io.dockstore.webservice.CacheHitListener;
 import io.dockstore.webservice.CustomWebApplicationException;
@@ -68,6 +71,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -107,6 +114,18 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
     private static final Logger LOG = LoggerFactory.getLogger(GitHubSourceCodeRepo.class);
     private final GitHub github;
     private String githubTokenUsername;
+    /**
+     * Upper bound on the characters of file content kept in the file snapshot of one instance
+     */
+    private static final long FILE_SNAPSHOT_MAX_CHARACTERS = 32L * 1024 * 1024;
+    /**
+     * Files read from GitHub, keyed by repository, reference and path. An instance normally lives for one request, so this acts
+     * as a snapshot of the pushed commit shared by every entry of a .dockstore.yml instead of re-fetching the same files per entry.
+     * Only files that were read, or that GitHub reported as not found, are kept; a failed read is retried on the next lookup.
+     */
+    private final Cache<String, Optional<String>> fileSnapshot = Caffeine.newBuilder().maximumWeight(FILE_SNAPSHOT_MAX_CHARACTERS)
+        .weigher((String key, Optional<String> content) -> key.length() + content.map(String::length).orElse(0)).build();
+    private final Map<String, GHRef[]> branchesAndTagsSnapshot = new ConcurrentHashMap<>();
 
     /**
      *  @param githubTokenUsername the username for githubTokenContent
@@ -179,6 +198,34 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
     }
 
     private String readFileFromRepo(String fileName, String reference, GHRepository repo) {
+        final String snapshotKey = repo.getFullName() + ":" + reference + ":" + fileName;
+        Optional<String> snapshotContent = fileSnapshot.getIfPresent(snapshotKey);
+        if (snapshotContent != null) {
+            return snapshotContent.orElse(null);
+        }
+        try {
+            snapshotContent = Optional.ofNullable(readFileFromRepoUncached(fileName, reference, repo));
+        } catch (GHFileNotFoundException e) {
+            LOG.info(gitUsername + ": could not find " + fileName + " in repository " + repo.getFullName() + ":" + reference);
+            snapshotContent = Optional.empty();
+        } catch (IOException e) {
+            // e.g. out of rate limit or a connection failure, the file may well exist so do not remember it as missing
+            LOG.warn(gitUsername + ": IOException on readFileFromRepo " + fileName + " from repository " + repo.getFullName() +  ":" + reference + ", " + e.getMessage(), e);
+            return null;
+        }
+        fileSnapshot.asMap().putIfAbsent(snapshotKey, snapshotContent);
+        return snapshotContent.orElse(null);
+    }
+
+    /**
+     * Forget the files and branches read so far, e.g. once a push has been processed
+     */
+    public void clearSnapshot() {
+        fileSnapshot.invalidateAll();
+        branchesAndTagsSnapshot.clear();
+    }
+
+    private String readFileFromRepoUncached(String fileName, String reference, GHRepository repo) throws IOException {
         GHRateLimit startRateLimit = null;
         try {
             startRateLimit = getGhRateLimitQuietly();
@@ -207,7 +254,7 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
                         start = new ArrayList<>();
                         i = -1;
                     }
-                } catch (IOException e) {
+                } catch (GHFileNotFoundException e) {
                     // move on if a file is not found
                     LOG.warn("Could not find " + partialPath + " at " + reference, e);
                 }
@@ -220,9 +267,6 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
             } else {
                 return decodedContentAndMetadata.getRight();
             }
-        } catch (IOException e) {
-            LOG.warn(gitUsername + ": IOException on readFileFromRepo " + fileName + " from repository " + repo.getFullName() +  ":" + reference + ", " + e.getMessage(), e);
-            return null;
         } finally {
             GHRateLimit endRateLimit = getGhRateLimitQuietly();
             reportOnRateLimit("readFileFromRepo", startRateLimit, endRateLimit);
@@ -901,6 +945,60 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         return version;
     }
 
+    /**
+     * Concurrently reads the files declared by the given .dockstore.yml entries (primary descriptors and their imports, test parameter files,
+     * and service files) into the file snapshot, so that processing each entry afterwards is mostly served from memory.
+     * Failures are only logged here; they resurface with a proper message when the entry itself is processed.
+     * @param repositoryId Repository path (ex. dockstore/dockstore-ui2)
+     * @param gitReference Git reference from GitHub (ex. refs/tags/1.0)
+     * @param entries .dockstore.yml workflows, tools, and services to prefetch
+     * @param executorService Executor to fan the reads out on
+     */
+    public void prefetchDockstoreYmlFiles(String repositoryId, String gitReference, List<? extends Workflowish> entries, ExecutorService executorService) {
+        final Optional<String> reference = GitHelper.parseGitHubReference(gitReference);
+        if (reference.isEmpty()) {
+            return;
+        }
+        final GHRepository repository = getRepository(repositoryId);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (Workflowish entry : entries) {
+            List<String> otherFiles = List.of();
+            if (entry instanceof YamlWorkflow) {
+                final YamlWorkflow yamlWorkflow = (YamlWorkflow)entry;
+                tasks.add(Executors.callable(() -> prefetchDescriptorAndImports(yamlWorkflow, reference.get(), repository)));
+                otherFiles = yamlWorkflow.getTestParameterFiles();
+            } else if (entry instanceof Service12) {
+                otherFiles = ((Service12)entry).getFiles();
+            }
+            if (otherFiles != null) {
+                otherFiles.forEach(path -> tasks.add(Executors.callable(() -> readFileFromRepo(path, reference.get(), repository))));
+            }
+        }
+        try {
+            executorService.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while prefetching .dockstore.yml files for " + repositoryId, e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void prefetchDescriptorAndImports(YamlWorkflow yamlWorkflow, String reference, GHRepository repository) {
+        final String primaryDescriptorPath = yamlWorkflow.getPrimaryDescriptorPath();
+        try {
+            final String content = readFileFromRepo(primaryDescriptorPath, reference, repository);
+            if (content != null) {
+                // Throwaway version, only used to tell the language handler where to look for imports
+                WorkflowVersion version = new WorkflowVersion();
+                version.setReference(reference);
+                version.setWorkflowPath(primaryDescriptorPath);
+                DescriptorLanguage.FileType fileType = DescriptorLanguage.convertShortStringToEnum(yamlWorkflow.getSubclass()).getFileType();
+                resolveImports(repository.getFullName(), content, fileType, version, primaryDescriptorPath);
+            }
+        } catch (RuntimeException ex) {
+            LOG.info(gitUsername + ": could not prefetch " + primaryDescriptorPath + " at " + reference + " from " + repository.getFullName(), ex);
+        }
+    }
+
     /**
      * Retrieve the Dockstore YML from a given repository tag
      * @param repositoryId Repository path (ex. dockstore/dockstore-ui2)
@@ -976,6 +1074,15 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
      * @return GHRef[] Array of branches and tags
      */
     private GHRef[] getBranchesAndTags(GHRepository repo) throws IOException {
+        GHRef[] branchesAndTags = branchesAndTagsSnapshot.get(repo.getFullName());
+        if (branchesAndTags == null) {
+            branchesAndTags = getBranchesAndTagsUncached(repo);
+            branchesAndTagsSnapshot.putIfAbsent(repo.getFullName(), branchesAndTags);
+        }
+        return branchesAndTags;
+    }
+
+    private GHRef[] getBranchesAndTagsUncached(GHRepository repo) throws IOException {
         boolean getBranchesSucceeded = false;
         GHRef[] branches = {};
         GHRef[] tags = {};
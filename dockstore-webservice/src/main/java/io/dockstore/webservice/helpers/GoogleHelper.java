@@ -1,11 +1,15 @@
 package io.dockstore.webservice.helpers;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.google.api.client.auth.oauth2.AuthorizationCodeFlow;
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.ClientParametersAuthentication;
 import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.oauth2.Oauth2;
 import com.google.api.services.oauth2.model.Tokeninfo;
 import com.google.api.services.oauth2.model.Userinfoplus;
@@ -19,6 +23,7 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,8 +37,45 @@ public final class GoogleHelper {
     private static final String GOOGLE_AUTHORIZATION_SERVICE_ENCODED_URL = "https://accounts.google.com/o/oauth2/v2/auth";
     private static final String GOOGLE_ENCODED_URL = "https://www.googleapis.com/oauth2/v4/token";
     private static final Logger LOG = LoggerFactory.getLogger(GoogleHelper.class);
+    /**
+     * Stop handing out a cached access token this long before Google says it expires, so it does not expire in flight
+     */
+    private static final long EXPIRY_MARGIN_SECONDS = 60;
+    private static final long MAX_CACHED_TOKENS = 10_000;
+
+    /**
+     * Access tokens already checked with Google, keyed by the access token
+     */
+    private static final Cache<String, ValidatedToken> VALIDATED_ACCESS_TOKENS = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfter(new ValidatedTokenExpiry())
+            .build();
+    /**
+     * Access tokens obtained by refreshing, keyed by the refresh token. Loading through this cache means concurrent
+     * requests for the same user share one refresh.
+     */
+    private static final Cache<String, ValidatedToken> REFRESHED_ACCESS_TOKENS = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfter(new ValidatedTokenExpiry())
+            .build();
+
+    /**
+     * Calls Google itself
+     */
+    static final GoogleTokenCalls GOOGLE_TOKEN_CALLS = new GoogleTokenCalls() {
+        @Override
+        public Optional<Tokeninfo> getTokenInfo(String accessToken) {
+            return tokenInfoFromToken(accessToken);
+        }
+
+        @Override
+        public Optional<TokenResponse> refresh(String refreshToken) {
+            return refreshFromGoogle(refreshToken);
+        }
+    };
 
     private static DockstoreWebserviceConfiguration config;
+    private static GoogleTokenCalls tokenCalls = GOOGLE_TOKEN_CALLS;
 
     private GoogleHelper() {
     }
@@ -43,6 +85,16 @@ public final class GoogleHelper {
         GoogleHelper.config = config;
     }
 
+    /**
+     * Replace the calls to Google, and forget the tokens checked and refreshed so far
+     * @param calls checks and refreshes access tokens
+     */
+    static void setTokenCalls(GoogleTokenCalls calls) {
+        tokenCalls = calls;
+        VALIDATED_ACCESS_TOKENS.invalidateAll();
+        REFRESHED_ACCESS_TOKENS.invalidateAll();
+    }
+
     /**
      * Retrieves info from Google and updates the user metadata
      * @param token The Google access token
@@ -93,43 +145,120 @@ public final class GoogleHelper {
      */
     public static Optional<String> getValidAccessToken(Token token) {
         final String googleToken = token.getToken();
-        return tokenInfoFromToken(googleToken)
+        if (googleToken != null && VALIDATED_ACCESS_TOKENS.getIfPresent(googleToken) != null) {
+            return Optional.of(googleToken);
+        }
+        if (token.getRefreshToken() != null) {
+            // Another request may already have refreshed this user's token
+            final ValidatedToken refreshed = REFRESHED_ACCESS_TOKENS.getIfPresent(token.getRefreshToken());
+            if (refreshed != null) {
+                return Optional.of(refreshed.accessToken);
+            }
+        }
+        return tokenCalls.getTokenInfo(googleToken)
                 .map(tokenInfo -> {
                     // The user has a non-expired Google token -- also make sure that the audience is valid.
-                    return isValidAudience(tokenInfo) ? Optional.of(googleToken) : Optional.<String>empty();
+                    if (!isValidAudience(tokenInfo)) {
+                        return Optional.<String>empty();
+                    }
+                    if (tokenInfo.getExpiresIn() != null) {
+                        VALIDATED_ACCESS_TOKENS.put(googleToken, new ValidatedToken(googleToken, tokenInfo.getExpiresIn()));
+                    }
+                    return Optional.of(googleToken);
                 })
                 .orElseGet(() -> {
                     // The token expired; try to refresh it
                     if (token.getRefreshToken() != null) {
-                        TokenResponse tokenResponse = new TokenResponse();
-                        try {
-                            tokenResponse.setRefreshToken(token.getRefreshToken());
-                            GoogleCredential credential = new GoogleCredential.Builder()
-                                    .setTransport(TokenResource.HTTP_TRANSPORT).setJsonFactory(TokenResource.JSON_FACTORY)
-                                    .setClientSecrets(config.getGoogleClientID(), config.getGoogleClientSecret()).build()
-                                    .setFromTokenResponse(tokenResponse);
-                            credential.refreshToken();
-                            return Optional.ofNullable(credential.getAccessToken());
-                        } catch (IOException e) {
-                            LOG.error("Error refreshing token", e);
-                        }
+                        return Optional.ofNullable(REFRESHED_ACCESS_TOKENS.get(token.getRefreshToken(), GoogleHelper::refreshAccessToken))
+                                .map(refreshed -> refreshed.accessToken);
                     }
                     return Optional.empty();
                 });
     }
 
+    /**
+     * @param refreshToken a Google refresh token
+     * @return a new access token, or null if it could not be refreshed, in which case nothing is cached
+     */
+    private static ValidatedToken refreshAccessToken(String refreshToken) {
+        return tokenCalls.refresh(refreshToken)
+                .filter(tokenResponse -> tokenResponse.getAccessToken() != null)
+                .map(tokenResponse -> {
+                    final ValidatedToken validatedToken = new ValidatedToken(tokenResponse.getAccessToken(),
+                            tokenResponse.getExpiresInSeconds() == null ? 0 : tokenResponse.getExpiresInSeconds());
+                    VALIDATED_ACCESS_TOKENS.put(validatedToken.accessToken, validatedToken);
+                    return validatedToken;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * @param refreshToken a Google refresh token
+     * @return the new access token and when it expires, or empty if Google could not refresh it
+     */
+    private static Optional<TokenResponse> refreshFromGoogle(String refreshToken) {
+        TokenResponse tokenResponse = new TokenResponse();
+        try {
+            tokenResponse.setRefreshToken(refreshToken);
+            GoogleCredential credential = new GoogleCredential.Builder()
+                    .setTransport(TokenResource.HTTP_TRANSPORT).setJsonFactory(TokenResource.JSON_FACTORY)
+                    .setClientSecrets(config.getGoogleClientID(), config.getGoogleClientSecret()).build()
+                    .setFromTokenResponse(tokenResponse);
+            credential.refreshToken();
+            return Optional.of(new TokenResponse().setAccessToken(credential.getAccessToken()).setExpiresInSeconds(credential.getExpiresInSeconds()));
+        } catch (IOException e) {
+            LOG.error("Error refreshing token", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * How long a token that Google says expires in <code>expiresInSeconds</code> may be cached
+     * @param expiresInSeconds seconds until the token expires
+     * @return nanoseconds to cache the token, 0 if it is too close to expiring
+     */
+    static long cacheDurationNanos(long expiresInSeconds) {
+        return TimeUnit.SECONDS.toNanos(Math.max(0, expiresInSeconds - EXPIRY_MARGIN_SECONDS));
+    }
+
     public static Optional<Userinfoplus> userinfoplusFromToken(String token)  {
-        if (isValidToken(token)) {
-            GoogleCredential credential = new GoogleCredential().setAccessToken(token);
-            Oauth2 oauth2;
-            try {
-                oauth2 = new Oauth2.Builder(TokenResource.HTTP_TRANSPORT, TokenResource.JSON_FACTORY, credential).setApplicationName("").build();
-                return Optional.ofNullable(oauth2.userinfo().get().execute());
-            } catch (Exception ex) {
+        try {
+            return checkedUserinfoplusFromToken(token);
+        } catch (RuntimeException | IOException e) {
+            LOG.info(MessageFormat.format("Error getting user info: {0}", e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Like {@link #userinfoplusFromToken(String)}, but tells a token Google rejected apart from a failure to ask Google
+     * @param token a Google access token
+     * @return the user info, or empty if Google answered that the token is not valid, or it was not issued for Dockstore
+     * @throws IOException if Google could not be reached, or answered with an error other than a rejection of the token
+     */
+    public static Optional<Userinfoplus> checkedUserinfoplusFromToken(String token) throws IOException {
+        final GoogleCredential credential = new GoogleCredential().setAccessToken(token);
+        final Oauth2 oauth2 = new Oauth2.Builder(TokenResource.HTTP_TRANSPORT, TokenResource.JSON_FACTORY, credential).setApplicationName("").build();
+        try {
+            final Tokeninfo tokenInfo = oauth2.tokeninfo().setAccessToken(token).execute();
+            if (tokenInfo == null || !isValidAudience(tokenInfo)) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(oauth2.userinfo().get().execute());
+        } catch (HttpResponseException e) {
+            if (isRejection(e)) {
                 return Optional.empty();
             }
+            throw e;
         }
-        return Optional.empty();
+    }
+
+    /**
+     * @param e an error response from Google
+     * @return true if Google answered that the token is not valid, rather than failing to answer
+     */
+    static boolean isRejection(HttpResponseException e) {
+        return e.getStatusCode() == HttpStatus.SC_BAD_REQUEST || e.getStatusCode() == HttpStatus.SC_UNAUTHORIZED;
     }
 
     static boolean isValidAudience(Tokeninfo tokenInfo) {
@@ -160,10 +289,6 @@ public final class GoogleHelper {
         }
     }
 
-    private static boolean isValidToken(String googleToken) {
-        return tokenInfoFromToken(googleToken).map(GoogleHelper::isValidAudience).orElse(false);
-    }
-
     /**
      * Gets the Google TokenResponse
      *
@@ -187,4 +312,47 @@ public final class GoogleHelper {
         }
     }
 
+    /**
+     * The calls to Google that access tokens are checked and refreshed with
+     */
+    interface GoogleTokenCalls {
+        /**
+         * @param accessToken a Google access token
+         * @return the info of the token, or empty if Google rejected it or could not be asked
+         */
+        Optional<Tokeninfo> getTokenInfo(String accessToken);
+
+        /**
+         * @param refreshToken a Google refresh token
+         * @return the new access token and when it expires, or empty if it could not be refreshed
+         */
+        Optional<TokenResponse> refresh(String refreshToken);
+    }
+
+    private static final class ValidatedToken {
+        private final String accessToken;
+        private final long expiresInSeconds;
+
+        ValidatedToken(String accessToken, long expiresInSeconds) {
+            this.accessToken = accessToken;
+            this.expiresInSeconds = expiresInSeconds;
+        }
+    }
+
+    private static final class ValidatedTokenExpiry implements Expiry<String, ValidatedToken> {
+        @Override
+        public long expireAfterCreate(String key, ValidatedToken value, long currentTime) {
+            return cacheDurationNanos(value.expiresInSeconds);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ValidatedToken value, long currentTime, long currentDuration) {
+            return cacheDurationNanos(value.expiresInSeconds);
+        }
+
+        @Override
+        public long expireAfterRead(String key, ValidatedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,342 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import static io.dockstore.webservice.helpers.ORCIDHelper.getPutCodeFromLocation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.OrcidExportJob;
+import io.dockstore.webservice.core.OrcidPutCode;
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.Version;
+import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.jdbi.VersionDAO;
+import io.dropwizard.lifecycle.Managed;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.xml.bind.JAXBException;
+import javax.xml.datatype.DatatypeConfigurationException;
+import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs ORCID exports off the request thread. The jobs of a user are queued and run one after another, so a user exporting
+ * many versions makes one stream of ORCID calls rather than many concurrent ones, while different users are exported in parallel.
+ * No database transaction is open during the ORCID calls; the work is read in one short transaction and the resulting put code
+ * is written back in another.
+ */
+public class OrcidExportQueue implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrcidExportQueue.class);
+    private static final int EXPORT_THREADS = 4;
+    /**
+     * How long stopping waits for running exports, an export is a handful of ORCID calls
+     */
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(EXPORT_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("orcid-export-%d").setDaemon(true).build());
+
+    /**
+     * Finished jobs are kept for a while so that their status can still be polled
+     */
+    private final Cache<String, OrcidExportJob> jobs = Caffeine.newBuilder()
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .maximumSize(10_000)
+        .build();
+
+    private final Map<Long, Queue<OrcidExportJob>> queuedJobsByUser = new ConcurrentHashMap<>();
+    private final SessionFactory sessionFactory;
+    private final ToolDAO toolDAO;
+    private final VersionDAO<?> versionDAO;
+    private final TokenDAO tokenDAO;
+    private final UserDAO userDAO;
+
+    public OrcidExportQueue(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.toolDAO = new ToolDAO(sessionFactory);
+        this.versionDAO = new VersionDAO<>(sessionFactory);
+        this.tokenDAO = new TokenDAO(sessionFactory);
+        this.userDAO = new UserDAO(sessionFactory);
+    }
+
+    @Override
+    public void start() {
+        // the pool is ready as soon as the queue is created
+    }
+
+    /**
+     * Stop taking jobs and give the running ones a chance to finish, queued jobs that have not started are dropped
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("ORCID exports were still running after {} seconds", STOP_TIMEOUT_SECONDS);
+        }
+    }
+
+    /**
+     * Queue an export. The caller is expected to have checked that the user can export the entry or version.
+     * @param userId id of the user whose ORCID works are updated
+     * @param entryId id of the entry
+     * @param versionId id of the version, null to export the entry itself
+     * @return the queued job
+     */
+    public OrcidExportJob submit(long userId, long entryId, Long versionId) {
+        OrcidExportJob job = new OrcidExportJob(userId, entryId, versionId);
+        jobs.put(job.getId(), job);
+        AtomicBoolean startRunner = new AtomicBoolean(false);
+        queuedJobsByUser.compute(userId, (id, queue) -> {
+            Queue<OrcidExportJob> userJobs = queue;
+            if (userJobs == null) {
+                userJobs = new ArrayDeque<>();
+                startRunner.set(true);
+            }
+            userJobs.add(job);
+            return userJobs;
+        });
+        if (startRunner.get()) {
+            executor.execute(() -> runQueuedJobs(userId));
+        }
+        return job;
+    }
+
+    /**
+     * @param jobId id of the job
+     * @param userId id of the user asking, only the user that submitted a job can see it
+     * @return the job, empty if it does not exist, has expired, or belongs to another user
+     */
+    public Optional<OrcidExportJob> getJob(String jobId, long userId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).filter(job -> job.getUserId() == userId);
+    }
+
+    /**
+     * Export on the calling thread, which must not have a transaction open since the export opens its own short transactions.
+     * The caller is expected to have checked that the user can export the entry or version.
+     * @param userId id of the user whose ORCID works are updated
+     * @param entryId id of the entry
+     * @param versionId id of the version, null to export the entry itself
+     * @return the finished job, which is not kept for polling
+     */
+    public OrcidExportJob exportNow(long userId, long entryId, Long versionId) {
+        OrcidExportJob job = new OrcidExportJob(userId, entryId, versionId);
+        run(job);
+        return job;
+    }
+
+    private void runQueuedJobs(long userId) {
+        while (true) {
+            AtomicReference<OrcidExportJob> next = new AtomicReference<>();
+            // the queue is removed when it is empty, so the next submit starts a new runner
+            queuedJobsByUser.computeIfPresent(userId, (id, queue) -> {
+                next.set(queue.poll());
+                return next.get() == null ? null : queue;
+            });
+            if (next.get() == null) {
+                return;
+            }
+            run(next.get());
+        }
+    }
+
+    private void run(OrcidExportJob job) {
+        job.start();
+        try {
+            PreparedExport export = inTransaction(() -> prepare(job));
+            String putCode = export(job, export);
+            if (!Objects.equals(putCode, export.putCode)) {
+                inTransaction(() -> {
+                    savePutCode(job, putCode);
+                    return null;
+                });
+            }
+            job.succeed();
+        } catch (CustomWebApplicationException ex) {
+            job.fail(ex.getErrorMessage(), ex.getResponse().getStatus());
+        } catch (IOException | URISyntaxException | JAXBException e) {
+            job.fail("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } catch (RuntimeException e) {
+            LOG.error("ORCID export {} failed", job.getId(), e);
+            job.fail("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Create or update the ORCID work, recovering when Dockstore and ORCID disagree about its put code
+     * @return the put code of the work on ORCID, null if it could not be determined
+     */
+    private String export(OrcidExportJob job, PreparedExport export) throws IOException, URISyntaxException, InterruptedException, JAXBException {
+        if (export.putCode == null) {
+            HttpResponse<String> response = createOrcidWork(export, export.workString);
+            if (response.statusCode() != HttpStatus.SC_CONFLICT) {
+                return getPutCodeFromLocation(response);
+            }
+            // The user already has an ORCID work with the same DOI URL. Try to link the ORCID work to the Dockstore entry by getting its put code
+            Optional<Long> existingPutCode = ORCIDHelper.searchForPutCodeByDoiUrl(export.orcidId, export.orcidTokens, export.doiUrl);
+            if (existingPutCode.isEmpty()) {
+                throw new CustomWebApplicationException("Could not export to ORCID: unable to find the put code for the existing ORCID work with DOI URL " + export.doiUrl,
+                    HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            }
+            String existingPutCodeString = existingPutCode.get().toString();
+            // Since the ORCID work was already created, update the work
+            if (!updateOrcidWork(export, inTransaction(() -> getOrcidWorkString(job, existingPutCodeString)), existingPutCodeString)) {
+                // Shouldn't really get here because we know the work with the put code exists
+                LOG.error("Could not find ORCID work based on put code: {}", existingPutCodeString);
+            }
+            return existingPutCodeString;
+        }
+        if (updateOrcidWork(export, export.workString, export.putCode)) {
+            return export.putCode;
+        }
+        LOG.error("Could not find ORCID work based on put code: {} ", export.putCode);
+        HttpResponse<String> response = createOrcidWork(export, inTransaction(() -> getOrcidWorkString(job, null)));
+        return response.statusCode() == HttpStatus.SC_CONFLICT ? null : getPutCodeFromLocation(response);
+    }
+
+    /**
+     * @return the response, which is either a 201 with the location of the new work or a 409 if the user has a work with the same DOI URL
+     */
+    private HttpResponse<String> createOrcidWork(PreparedExport export, String orcidWorkString) throws IOException, URISyntaxException, InterruptedException {
+        HttpResponse<String> response = ORCIDHelper.postWorkString(export.orcidId, orcidWorkString, export.orcidTokens.get(0).getToken());
+        if (response.statusCode() != HttpStatus.SC_CREATED && response.statusCode() != HttpStatus.SC_CONFLICT) {
+            throw new CustomWebApplicationException("Could not export to ORCID.\n" + response.body(), response.statusCode());
+        }
+        return response;
+    }
+
+    /**
+     * return true means everything is fine
+     * return false means there's a syncing problem (Dockstore has put code, ORCID does not)
+     */
+    private boolean updateOrcidWork(PreparedExport export, String orcidWorkString, String putCode) throws IOException, URISyntaxException, InterruptedException {
+        HttpResponse<String> response = ORCIDHelper.putWorkString(export.orcidId, orcidWorkString, export.orcidTokens.get(0).getToken(), putCode);
+        switch (response.statusCode()) {
+        case HttpStatus.SC_OK:
+            return true;
+        case HttpStatus.SC_NOT_FOUND:
+            return false;
+        default:
+            throw new CustomWebApplicationException("Could not export to ORCID: " + response.body(), response.statusCode());
+        }
+    }
+
+    private PreparedExport prepare(OrcidExportJob job) {
+        Entry<?, ?> entry = getEntry(job);
+        Optional<Version> version = getVersion(job);
+        OrcidPutCode userPutCode = version.isPresent() ? version.get().getVersionMetadata().getUserIdToOrcidPutCode().get(job.getUserId())
+            : entry.getUserIdToOrcidPutCode().get(job.getUserId());
+        String putCode = userPutCode == null ? null : userPutCode.orcidPutCode;
+        String orcidId = userDAO.findById(job.getUserId()).getOrcid();
+        if (orcidId == null) {
+            throw new CustomWebApplicationException("Dockstore could not get your ORCID ID", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        String doiUrl = version.isPresent() ? version.get().getDoiURL() : entry.getConceptDoi();
+        return new PreparedExport(orcidId, tokenDAO.findOrcidByUserId(job.getUserId()), putCode, doiUrl, getOrcidWorkString(entry, version, putCode));
+    }
+
+    private String getOrcidWorkString(OrcidExportJob job, String putCode) {
+        return getOrcidWorkString(getEntry(job), getVersion(job), putCode);
+    }
+
+    private static String getOrcidWorkString(Entry<?, ?> entry, Optional<Version> version, String putCode) {
+        try {
+            return ORCIDHelper.getOrcidWorkString(entry, version, putCode);
+        } catch (JAXBException | DatatypeConfigurationException e) {
+            throw new CustomWebApplicationException("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private void savePutCode(OrcidExportJob job, String putCode) {
+        OrcidPutCode orcidPutCode = new OrcidPutCode(putCode);
+        Optional<Version> version = getVersion(job);
+        if (version.isPresent()) {
+            version.get().getVersionMetadata().getUserIdToOrcidPutCode().put(job.getUserId(), orcidPutCode);
+        } else {
+            getEntry(job).getUserIdToOrcidPutCode().put(job.getUserId(), orcidPutCode);
+        }
+    }
+
+    private Entry<?, ?> getEntry(OrcidExportJob job) {
+        Entry<?, ?> entry = toolDAO.getGenericEntryById(job.getEntryId());
+        if (entry == null) {
+            throw new CustomWebApplicationException("Entry not found", HttpStatus.SC_NOT_FOUND);
+        }
+        return entry;
+    }
+
+    private Optional<Version> getVersion(OrcidExportJob job) {
+        if (job.getVersionId() == null) {
+            return Optional.empty();
+        }
+        Version version = versionDAO.findVersionInEntry(job.getEntryId(), job.getVersionId());
+        if (version == null) {
+            throw new CustomWebApplicationException("Version not found", HttpStatus.SC_NOT_FOUND);
+        }
+        return Optional.of(version);
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        AtomicReference<T> result = new AtomicReference<>();
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> result.set(work.get()));
+        return result.get();
+    }
+
+    /**
+     * What an export needs from the database, read before any ORCID call is made
+     */
+    private static final class PreparedExport {
+        private final String orcidId;
+        private final List<Token> orcidTokens;
+        private final String putCode;
+        private final String doiUrl;
+        private final String workString;
+
+        private PreparedExport(String orcidId, List<Token> orcidTokens, String putCode, String doiUrl, String workString) {
+            this.orcidId = orcidId;
+            this.orcidTokens = orcidTokens;
+            this.putCode = putCode;
+            this.doiUrl = doiUrl;
+            this.workString = workString;
+        }
+    }
+}
@@ -346,72 +346,78 @@ public class QuayImageRegistry extends AbstractImageRegistry {
 
     @Override
     public void updateAPIToolsWithBuildInformation(List<Tool> apiTools) {
+        // Grab build information for every repository concurrently
+        fetchConcurrently(getFetchExecutor(), apiTools, tool -> {
+            updateAPIToolWithBuildInformation(tool);
+            return tool;
+        });
+    }
+
+    private void updateAPIToolWithBuildInformation(Tool tool) {
         // Initialize useful classes
         final SimpleDateFormat formatter = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
 
         // Grab build information for given repository
         try {
-            for (Tool tool : apiTools) {
-                // Set path information (not sure why we have to do this here)
-                final String repo = tool.getNamespace() + '/' + tool.getName();
-                LOG.info("Grabbing tool information for " + tool.getPath());
-                // Initialize giturl
-                String gitUrl = null;
-
-                final List<QuayBuild> builds = buildApi.getRepoBuilds(repo, null, 1).getBuilds();
-                // Check result of API call
-                if (builds != null && !builds.isEmpty()) {
-                    // Look at the latest build for the git url
-                    // ASSUMPTION : We are assuming that for a given Quay repo users are only using one git trigger
-                    // If a build exists, grab data from it and update the tool
-                    final QuayBuild individualBuild = builds.get(0);
-                    // Get the git url
-                    final QuayBuildTriggerMetadata triggerMetadata = individualBuild.getTriggerMetadata();
-                    if (triggerMetadata != null) {
-                        gitUrl = triggerMetadata.getGitUrl();
-                    }
-                    // alternative hack for GA4GH importer (should be removed if we can create triggers on quay.io repos)
-                    String autoGenerateTag = "GA4GH-generated-do-not-edit";
-                    try {
-                        if (tool.getDescription().contains(autoGenerateTag)) {
-                            String[] split = tool.getDescription().split("\n");
-                            for (String line : split) {
-                                if (line.contains(autoGenerateTag)) {
-                                    String[] splitLine = line.split("<>");
-                                    String trimmed = splitLine[1].trim();
-                                    // strip the brackets
-                                    String substring = trimmed.substring(1, trimmed.length() - 1);
-                                    Map<String, String> map = new Gson().fromJson(substring, new TypeToken<Map<String, String>>() {
-                                    }.getType());
-                                    gitUrl = "git@github.com:" + map.get("namespace") + "/" + map.get("repo") + ".git";
-                                }
+            // Set path information (not sure why we have to do this here)
+            final String repo = tool.getNamespace() + '/' + tool.getName();
+            LOG.info("Grabbing tool information for " + tool.getPath());
+            // Initialize giturl
+            String gitUrl = null;
+
+            final List<QuayBuild> builds = buildApi.getRepoBuilds(repo, null, 1).getBuilds();
+            // Check result of API call
+            if (builds != null && !builds.isEmpty()) {
+                // Look at the latest build for the git url
+                // ASSUMPTION : We are assuming that for a given Quay repo users are only using one git trigger
+                // If a build exists, grab data from it and update the tool
+                final QuayBuild individualBuild = builds.get(0);
+                // Get the git url
+                final QuayBuildTriggerMetadata triggerMetadata = individualBuild.getTriggerMetadata();
+                if (triggerMetadata != null) {
+                    gitUrl = triggerMetadata.getGitUrl();
+                }
+                // alternative hack for GA4GH importer (should be removed if we can create triggers on quay.io repos)
+                String autoGenerateTag = "GA4GH-generated-do-not-edit";
+                try {
+                    if (tool.getDescription().contains(autoGenerateTag)) {
+                        String[] split = tool.getDescription().split("\n");
+                        for (String line : split) {
+                            if (line.contains(autoGenerateTag)) {
+                                String[] splitLine = line.split("<>");
+                                String trimmed = splitLine[1].trim();
+                                // strip the brackets
+                                String substring = trimmed.substring(1, trimmed.length() - 1);
+                                Map<String, String> map = new Gson().fromJson(substring, new TypeToken<Map<String, String>>() {
+                                }.getType());
+                                gitUrl = "git@github.com:" + map.get("namespace") + "/" + map.get("repo") + ".git";
                             }
                         }
-                    } catch (Exception e) {
-                        LOG.info("Found GA4GH tag in description for " + tool.getPath() + " but could not process it into a git url");
                     }
+                } catch (Exception e) {
+                    LOG.info("Found GA4GH tag in description for " + tool.getPath() + " but could not process it into a git url");
+                }
 
-                    // Get lastbuild time
-                    String lastBuild = individualBuild.getStarted();
+                // Get lastbuild time
+                String lastBuild = individualBuild.getStarted();
 
-                    Date date;
-                    try {
-                        date = formatter.parse(lastBuild);
-                        tool.setLastBuild(date);
-                    } catch (ParseException ex) {
-                        LOG.warn(quayToken.getUsername() + ": " + quayToken.getUsername()
-                            + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
-                    }
+                Date date;
+                try {
+                    date = formatter.parse(lastBuild);
+                    tool.setLastBuild(date);
+                } catch (ParseException ex) {
+                    LOG.warn(quayToken.getUsername() + ": " + quayToken.getUsername()
+                        + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
                 }
+            }
 
-                // Set some attributes if not manual
-                if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
-                    tool.setRegistry(Registry.QUAY_IO.getDockerPath());
-                    tool.setGitUrl(gitUrl);
-                }
+            // Set some attributes if not manual
+            if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
+                tool.setRegistry(Registry.QUAY_IO.getDockerPath());
+                tool.setGitUrl(gitUrl);
             }
         } catch (ApiException e) {
-            LOG.error(quayToken.getUsername() + ": could not process builds to determine build information", e);
+            LOG.error(quayToken.getUsername() + ": could not process builds to determine build information for " + tool.getPath(), e);
         }
     }
 
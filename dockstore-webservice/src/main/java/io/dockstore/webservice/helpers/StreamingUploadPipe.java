@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects a producer writing to an {@link OutputStream} on one thread to an HTTP client reading the request body from an
+ * {@link InputStream} on others, holding at most a few chunks in memory. Unlike a piped stream, it does not care which threads
+ * read, which matters because an HTTP client may read the body from any thread of its pool.
+ */
+final class StreamingUploadPipe {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS = 16;
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+    private volatile boolean aborted;
+
+    private final OutputStream outputStream = new OutputStream() {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            int written = 0;
+            while (written < length) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int toCopy = Math.min(length - written, buffer.length - count);
+                System.arraycopy(bytes, offset + written, buffer, count, toCopy);
+                count += toCopy;
+                written += toCopy;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                put(Arrays.copyOf(buffer, count));
+                count = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                flush();
+                put(END);
+            }
+        }
+    };
+
+    private final InputStream inputStream = new InputStream() {
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                if (ended) {
+                    return -1;
+                }
+                current = take();
+                position = 0;
+                ended = current == END;
+            }
+            int toCopy = Math.min(length, current.length - position);
+            System.arraycopy(current, position, bytes, offset, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+    };
+
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Called once either side has given up, so that the other side fails instead of waiting forever on a full or empty pipe
+     */
+    void abort() {
+        aborted = true;
+        chunks.clear();
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        try {
+            while (!chunks.offer(chunk, 1, TimeUnit.SECONDS)) {
+                checkAborted();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private byte[] take() throws IOException {
+        try {
+            byte[] chunk;
+            while ((chunk = chunks.poll(1, TimeUnit.SECONDS)) == null) {
+                checkAborted();
+            }
+            return chunk;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkAborted() throws IOException {
+        if (aborted) {
+            throw new IOException("The upload was aborted");
+        }
+    }
+}
@@ -30,14 +30,24 @@ public class TopicHarvester {
     }
 
     public void harvestAndSetTopic(Entry<?, ?> entry) {
+        harvestTopic(entry).run();
+    }
+
+    /**
+     * Fetch the topic of an entry without modifying the entry, so that topics can be fetched concurrently,
+     * off the thread that owns the entry's session
+     * @param entry the entry whose repository's topic is fetched
+     * @return sets the fetched topic on the entry, does nothing if the topic could not be determined
+     */
+    public Runnable harvestTopic(Entry<?, ?> entry) {
         if (repo == null) {
-            return;
+            return () -> { };
         }
         String repositoryId = repo.getRepositoryId(entry);
         if (repositoryId == null) {
-            return;
+            return () -> { };
         }
         String topic = repo.getTopic(repositoryId);
-        entry.setTopicAutomatic(topic);
+        return () -> entry.setTopicAutomatic(topic);
     }
 }
@@ -3,6 +3,7 @@ package io.dockstore.webservice.helpers;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +71,30 @@ public final class TransactionHelper {
         }
     }
 
+    /**
+     * Run the specified runnable in a transaction of a new session, which is
+     * bound as the current session so that DAOs can be used.  This is meant
+     * for work done outside of a request, e.g. on a background thread, where
+     * there is no session opened by @UnitOfWork. If a session is already
+     * bound, it is bound again afterwards.
+     */
+    public static void transactionInNewSession(SessionFactory factory, Runnable runnable) {
+        Session outerSession = ManagedSessionContext.hasBind(factory) ? ManagedSessionContext.unbind(factory) : null;
+        Session session = factory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            new TransactionHelper(session).transaction(runnable);
+        } finally {
+            ManagedSessionContext.unbind(factory);
+            if (session.isOpen()) {
+                session.close();
+            }
+            if (outerSession != null) {
+                ManagedSessionContext.bind(outerSession);
+            }
+        }
+    }
+
     public void clear() {
         check();
         try {
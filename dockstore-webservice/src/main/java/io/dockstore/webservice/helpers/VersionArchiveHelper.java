@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.webservice.core.database.WorkflowVersionPath;
+import io.openapi.api.impl.ToolsApiServiceImpl;
+import io.openapi.model.ToolFile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+/**
+ * Writes the files of every published version of an organization's workflows as a single zip or NDJSON stream.
+ * Only workflows are included, not GitHub App tools or services.
+ * Versions are read a page at a time, keyed on the version id, and files are scrolled one row at a time
+ * so memory use does not grow with the size of the organization.
+ */
+public final class VersionArchiveHelper {
+
+    public static final String ZIP_FORMAT = "zip";
+    public static final String NDJSON_FORMAT = "ndjson";
+
+    private static final int VERSION_PAGE_SIZE = 100;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private VersionArchiveHelper() {
+
+    }
+
+    /**
+     * Stream the files of all published, non-hidden versions of the workflows of an organization.
+     * In a zip, the files of a version are under entry path/version name, and only directories from the version's down get their own entries.
+     * @param sessionFactory Used to open a stateless session, since this runs after the request's session has closed
+     * @param organization The organization, matched case-insensitively
+     * @param format Either zip or ndjson
+     * @param outputStream Where the archive is written
+     */
+    public static void writePublishedWorkflowVersions(SessionFactory sessionFactory, String organization, String format, OutputStream outputStream)
+        throws IOException {
+        final boolean zip = ZIP_FORMAT.equals(format);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                final ZipOutputStream zipOutputStream = zip ? new ZipOutputStream(outputStream) : null;
+                long lastVersionId = 0;
+                List<WorkflowVersionPath> page = findVersionPage(session, organization, lastVersionId);
+                while (!page.isEmpty()) {
+                    final Map<Long, WorkflowVersionPath> versions = page.stream()
+                        .collect(Collectors.toMap(WorkflowVersionPath::getVersionId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+                    try (ScrollableResults files = session.getNamedQuery("io.dockstore.webservice.core.SourceFile.findPathsAndContentForVersions")
+                        .setParameterList("versionIds", versions.keySet())
+                        .setReadOnly(true)
+                        .setFetchSize(1)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                        // the files of a version are contiguous, so the directories already written only need to be known per version
+                        final Set<String> directories = new HashSet<>();
+                        WorkflowVersionPath previousVersion = null;
+                        while (files.next()) {
+                            final WorkflowVersionPath version = versions.get((Long)files.get(0));
+                            if (version != previousVersion) {
+                                directories.clear();
+                                previousVersion = version;
+                            }
+                            final String absolutePath = (String)files.get(1);
+                            final byte[] content = ((String)files.get(4)).getBytes(StandardCharsets.UTF_8);
+                            if (zip) {
+                                writeZipEntry(zipOutputStream, directories, version.getEntryPath() + "/" + version.getVersionName() + "/", StringUtils.stripStart(absolutePath, "/"), content);
+                            } else {
+                                writeJsonLine(outputStream, version, absolutePath, (DescriptorLanguage.FileType)files.get(3), content);
+                            }
+                        }
+                    }
+                    lastVersionId = page.get(page.size() - 1).getVersionId();
+                    page = findVersionPage(session, organization, lastVersionId);
+                }
+                if (zip) {
+                    zipOutputStream.finish();
+                }
+                outputStream.flush();
+            } finally {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private static List<WorkflowVersionPath> findVersionPage(StatelessSession session, String organization, long lastVersionId) {
+        return session.createNamedQuery("io.dockstore.webservice.core.Workflow.findPublishedVersionPathsByOrganization", WorkflowVersionPath.class)
+            .setParameter("organization", organization)
+            .setParameter("lastVersionId", lastVersionId)
+            .setReadOnly(true)
+            .setMaxResults(VERSION_PAGE_SIZE)
+            .getResultList();
+    }
+
+    private static void writeZipEntry(ZipOutputStream zipOutputStream, Set<String> directories, String versionDirectory, String path, byte[] content)
+        throws IOException {
+        // add the version's directories so that unzip tools recreate its layout, the ones above are created by unzip tools from the entry names
+        final String name = versionDirectory + path;
+        int slash = versionDirectory.length() - 1;
+        while (slash > 0) {
+            final String directory = name.substring(0, slash + 1);
+            if (directories.add(directory)) {
+                zipOutputStream.putNextEntry(new ZipEntry(directory));
+                zipOutputStream.closeEntry();
+            }
+            slash = name.indexOf('/', slash + 1);
+        }
+        zipOutputStream.putNextEntry(EntryVersionHelper.storedZipEntry(name, content));
+        zipOutputStream.write(content);
+        zipOutputStream.closeEntry();
+    }
+
+    private static void writeJsonLine(OutputStream outputStream, WorkflowVersionPath version, String absolutePath, DescriptorLanguage.FileType fileType, byte[] content)
+        throws IOException {
+        final ToolFile.FileTypeEnum toolFileType = absolutePath.equals(version.getWorkflowPath()) ? ToolFile.FileTypeEnum.PRIMARY_DESCRIPTOR
+            : ToolsApiServiceImpl.fileTypeToToolFileFileTypeEnum(fileType);
+        final Map<String, String> line = new LinkedHashMap<>();
+        line.put("id", version.getTrsId());
+        line.put("version", version.getVersionName());
+        // same relative path as the TRS files endpoint
+        line.put("path", Paths.get("/" + version.getWorkingDirectory()).relativize(Paths.get(absolutePath)).toString());
+        line.put("file_type", toolFileType.toString());
+        line.put("content", new String(content, StandardCharsets.UTF_8));
+        outputStream.write(MAPPER.writeValueAsBytes(line));
+        outputStream.write('\n');
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The threads that Zenodo DOIs are minted on. A DOI is minted off the request thread that asked for it, and while it is minted the
+ * files of the previous version are deleted, and the zip of the version is written, on threads of their own.
+ */
+public class ZenodoExecutors implements Managed {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZenodoExecutors.class);
+    private static final int DOI_THREADS = 2;
+    private static final int FILE_THREADS = 8;
+    /**
+     * How long stopping waits for DOIs being minted, which upload the files of a version
+     */
+    private static final long STOP_TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService doiExecutor = Executors.newFixedThreadPool(DOI_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("zenodo-doi-%d").setDaemon(true).build());
+    private final ExecutorService fileExecutor = Executors.newFixedThreadPool(FILE_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("zenodo-%d").setDaemon(true).build());
+
+    @Override
+    public void start() {
+        // the pools are ready as soon as they are created
+    }
+
+    /**
+     * Stop taking DOI requests and give the running ones a chance to finish. Their file work is stopped after them, since they wait for it.
+     * A DOI that is still being minted when the application exits stays requested until the request times out, and can then be requested again.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        doiExecutor.shutdown();
+        if (!doiExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("Zenodo DOIs were still being minted after {} seconds", STOP_TIMEOUT_SECONDS);
+        }
+        fileExecutor.shutdown();
+        if (!fileExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOG.warn("Zenodo files were still being written after {} seconds", STOP_TIMEOUT_SECONDS);
+        }
+    }
+
+    /**
+     * @return runs the minting of requested DOIs
+     */
+    public Executor getDoiExecutor() {
+        return doiExecutor;
+    }
+
+    /**
+     * @return runs the deletes of a deposit's previous files, and writes the zips that are streamed to Zenodo
+     */
+    public Executor getFileExecutor() {
+        return fileExecutor;
+    }
+}
@@ -4,10 +4,10 @@ import static io.swagger.api.impl.ToolsImplCommon.WORKFLOW_PREFIX;
 
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.Label;
-import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.resources.AliasableResourceInterface;
 import io.swagger.api.impl.ToolsImplCommon;
 import io.swagger.zenodo.client.ApiClient;
@@ -19,16 +19,21 @@ import io.swagger.zenodo.client.model.Author;
 import io.swagger.zenodo.client.model.Community;
 import io.swagger.zenodo.client.model.Deposit;
 import io.swagger.zenodo.client.model.DepositMetadata;
+import io.swagger.zenodo.client.model.DepositionFile;
 import io.swagger.zenodo.client.model.NestedDepositMetadata;
 import io.swagger.zenodo.client.model.RelatedIdentifier;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Files;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.ZonedDateTime;
@@ -37,22 +42,30 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import org.apache.commons.io.FileUtils;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public final class ZenodoHelper {
     private static final Logger LOG = LoggerFactory.getLogger(ZenodoHelper.class);
+    private static final HttpClient UPLOAD_CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+        .proxy(ProxySelector.getDefault()).build();
 
     private ZenodoHelper() {
     }
 
     /**
-     * Register a Zenodo DOI for the workflow version
+     * Register a Zenodo DOI for the workflow version. No session needs to be open, the workflow, with its labels and versions,
+     * and the workflow version may be detached.
      * @param zenodoClient Client for interacting with Zenodo server
      * @param workflow    workflow for which DOI is registered
      * @param workflowVersion workflow version for which DOI is registered
@@ -60,10 +73,14 @@ public final class ZenodoHelper {
      * @param dockstoreGA4GHBaseUrl The baseURL for GA4GH tools endpoint (e.g. "http://localhost:8080/api/api/ga4gh/v2/tools/")
      * @param dockstoreUrl URL for Dockstore (e.g. https://dockstore.org)
      * @param entryVersionHelper provides interface for retrieving the files of versions
+     * @param zenodoAccessToken Zenodo access token of the user, used to upload the files
+     * @param sessionFactory used to stream the files of the version from the database while they are uploaded
+     * @param fileExecutor runs the deletes of the previous version's files and writes the zip of the version
      */
     public static ZenodoDoiResult registerZenodoDOI(ApiClient zenodoClient, Workflow workflow,
             WorkflowVersion workflowVersion, String workflowUrl, String dockstoreGA4GHBaseUrl,
-            String dockstoreUrl, EntryVersionHelper entryVersionHelper) {
+            String dockstoreUrl, EntryVersionHelper entryVersionHelper, String zenodoAccessToken, SessionFactory sessionFactory,
+            Executor fileExecutor) {
         DepositsApi depositApi = new DepositsApi(zenodoClient);
         ActionsApi actionsApi = new ActionsApi(zenodoClient);
         Deposit deposit = new Deposit();
@@ -150,7 +167,7 @@ public final class ZenodoHelper {
         }
 
         provisionWorkflowVersionUploadFiles(zenodoClient, returnDeposit, depositionID,
-                workflow, workflowVersion, entryVersionHelper);
+                workflow, workflowVersion, entryVersionHelper, zenodoAccessToken, sessionFactory, fileExecutor);
 
         putDepositionOnZenodo(depositApi, depositMetadata, depositionID);
 
@@ -362,75 +379,136 @@ public final class ZenodoHelper {
      * @param workflow    workflow for which DOI is registered
      * @param workflowVersion workflow version for which DOI is registered
      * @param entryVersionHelper code for interacting with the files of versions, we use zip file creation methods
+     * @param zenodoAccessToken Zenodo access token of the user
+     * @param sessionFactory used to read the files of the version while the zip is streamed
+     * @param fileExecutor runs the deletes and writes the zip
      */
     private static void provisionWorkflowVersionUploadFiles(ApiClient zendoClient, Deposit returnDeposit,
-            int depositionID, Workflow workflow, WorkflowVersion workflowVersion, EntryVersionHelper entryVersionHelper) {
+            int depositionID, Workflow workflow, WorkflowVersion workflowVersion, EntryVersionHelper entryVersionHelper,
+            String zenodoAccessToken, SessionFactory sessionFactory, Executor fileExecutor) {
         // Creating a new version copies the files from the previous version
         // We want to delete these since we will upload a new set of files
         // if creating a completely new deposit this should not cause a problem
-        FilesApi filesApi = new FilesApi(zendoClient);
+        deleteFiles(new FilesApi(zendoClient), depositionID, returnDeposit.getFiles().stream().map(DepositionFile::getId).collect(Collectors.toList()),
+            fileExecutor);
 
-        returnDeposit.getFiles().forEach(file -> {
-            String fileIdStr = file.getId();
-            filesApi.deleteFile(depositionID, fileIdStr);
-        });
+        String bucketUrl = returnDeposit.getLinks().get("bucket");
+        if (bucketUrl == null) {
+            throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
+                + " Error is the deposition has no bucket to upload files to", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
 
+        // Replace forward slashes so we can use the version in a file name
+        String versionOfWorkflow = workflowVersion.getName().replaceAll("/", "-");
+        // Replace forward slashes so we can use the workflow path in a file name
+        String fileName = workflow.getWorkflowPath().replaceAll("/", "-") + "_" + versionOfWorkflow + ".zip";
 
+        // Add workflow version source files as a zip to the DOI upload deposit, streaming it from the database as it is uploaded
+        final long versionId = workflowVersion.getId();
+        final Path workingDirectory = Paths.get(workflowVersion.getWorkingDirectory());
+        uploadToBucket(bucketUrl, zenodoAccessToken, fileName,
+            outputStream -> entryVersionHelper.writeVersionAsZip(sessionFactory, versionId, outputStream, workingDirectory), fileExecutor);
+    }
 
-        // Add workflow version source files as a zip to the DOI upload deposit
-        Set<SourceFile> sourceFiles = workflowVersion.getSourceFiles();
-        if (sourceFiles == null || sourceFiles.size() == 0) {
-            LOG.warn("No source files found to zip when creating DOI");
-            throw new CustomWebApplicationException("No source files found to"
-                    + " upload when creating DOI. Zenodo requires at lease one file"
-                    + " to be uploaded in order to create a DOI.", HttpStatus.SC_BAD_REQUEST);
-        } else {
-            // Replace forward slashes so we can use the version in a file name
-            String versionOfWorkflow = workflowVersion.getName().replaceAll("/", "-");
-            // Replace forward slashes so we can use the workflow path in a file name
-            String fileNameBase = workflow.getWorkflowPath().replaceAll("/", "-")
-                    + "_" + versionOfWorkflow;
-            String fileSuffix = ".zip";
-            String fileName = fileNameBase + fileSuffix;
-            Path tempDirPath;
-            try {
-                tempDirPath = Files.createTempDirectory(null);
+    /**
+     * Delete files from a deposit, concurrently
+     * @param filesApi Zenodo API for the files of depositions
+     * @param depositionID Zenodo's ID for the deposition
+     * @param fileIds ids of the files to delete
+     * @param executor runs the deletes
+     */
+    static void deleteFiles(FilesApi filesApi, int depositionID, List<String> fileIds, Executor executor) {
+        CompletableFuture<?>[] deletions = fileIds.stream()
+            .map(fileId -> CompletableFuture.runAsync(() -> filesApi.deleteFile(depositionID, fileId), executor))
+            .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(deletions).join();
+        } catch (CompletionException e) {
+            LOG.error("Could not delete the files of the previous version on Zenodo. Error is " + e.getCause().getMessage(), e.getCause());
+            throw new CustomWebApplicationException("Could not delete the files of the previous version on Zenodo."
+                + " Error is " + e.getCause().getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Upload a file to the bucket of a deposit. The content is sent as it is written, so it is never held whole in memory or on disk.
+     * @param bucketUrl the "bucket" link of the deposit
+     * @param zenodoAccessToken Zenodo access token of the user
+     * @param fileName name of the file in the deposit
+     * @param writer writes the content of the file to the given stream and closes it
+     * @param executor runs the writer
+     */
+    static void uploadToBucket(String bucketUrl, String zenodoAccessToken, String fileName, Consumer<OutputStream> writer, Executor executor) {
+        final StreamingUploadPipe pipe = new StreamingUploadPipe();
+        final CompletableFuture<Void> written = CompletableFuture.runAsync(() -> {
+            try (OutputStream outputStream = pipe.getOutputStream()) {
+                writer.accept(outputStream);
             } catch (IOException e) {
-                LOG.error("Could not create Zenodo temp upload directory." + " Error is " + e.getMessage(), e);
-                throw new CustomWebApplicationException("Internal server error creating Zenodo upload temp directory", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                pipe.abort();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                // otherwise the upload would wait for the rest of the file forever
+                pipe.abort();
+                throw e;
             }
-
-            String zipFilePathName = tempDirPath.toString() + "/" + fileName;
-
-            try (OutputStream outputStream = new FileOutputStream(zipFilePathName)) {
-                entryVersionHelper.writeStreamAsZip(sourceFiles, outputStream, Paths.get(zipFilePathName));
-            } catch (IOException fne) {
-                // Delete the temporary directory
-                FileUtils.deleteQuietly(tempDirPath.toFile());
-                LOG.error(
-                    "Could not create file " + zipFilePathName + " outputstream for DOI zip file for upload to Zenodo." + " Error is " + fne
-                        .getMessage(), fne);
-                throw new CustomWebApplicationException("Internal server error creating Zenodo upload temp directory",
-                    HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }, executor);
+
+        final HttpRequest request = HttpRequest.newBuilder(URI.create(bucketUrl + "/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20")))
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + zenodoAccessToken)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM)
+            .PUT(HttpRequest.BodyPublishers.ofInputStream(pipe::getInputStream))
+            .build();
+        String rejection = null;
+        String uploadError = null;
+        try {
+            HttpResponse<String> response = UPLOAD_CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= HttpStatus.SC_MULTIPLE_CHOICES) {
+                rejection = response.body();
             }
+        } catch (IOException e) {
+            LOG.error("Could not upload files for new version to Zenodo", e);
+            uploadError = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomWebApplicationException("Could not create files for new version on Zenodo.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        } finally {
+            pipe.abort();
+        }
 
-            File zipFile = new File(zipFilePathName);
-
-            try {
-                filesApi.createFile(depositionID, zipFile, fileName);
-            } catch (ApiException e) {
-                LOG.error("Could not create files for new version on Zenodo. Error is " + e.getMessage(), e);
-                throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
-                        + " Error is " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
-            } finally {
-                // Delete the zip file in the temporary directory
-                FileUtils.deleteQuietly(zipFile);
-                // Delete the temporary directory
-                FileUtils.deleteQuietly(tempDirPath.toFile());
-            }
+        // Zenodo rejecting the upload aborts the writer, and a failure to write the zip fails the upload,
+        // so report whichever happened first
+        if (rejection != null) {
+            LOG.error("Zenodo rejected the files for new version. Error is " + rejection);
+            throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
+                + " Error is " + rejection, HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            LOG.error("Could not create the zip of the version for Zenodo. Error is " + e.getCause().getMessage(), e.getCause());
+            throw new CustomWebApplicationException("Could not create the zip of the version for Zenodo", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        if (uploadError != null) {
+            LOG.error("Could not create files for new version on Zenodo. Error is " + uploadError);
+            throw new CustomWebApplicationException("Could not create files for new version on Zenodo."
+                + " Error is " + uploadError, HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Check that a DOI can be registered for the workflow version, so that a request for one can be rejected before any work is done
+     * @param workflowVersion workflow version
+     * @param fileDAO used to count the files of the version without loading them
+     */
+    public static void checkCanRegisterDOI(WorkflowVersion workflowVersion, FileDAO fileDAO) {
+        checkForExistingDOIForWorkflowVersion(workflowVersion);
+        if (fileDAO.countSourceFilesByVersion(workflowVersion.getId()) == 0) {
+            LOG.warn("No source files found to zip when creating DOI");
+            throw new CustomWebApplicationException("No source files found to"
+                    + " upload when creating DOI. Zenodo requires at lease one file"
+                    + " to be uploaded in order to create a DOI.", HttpStatus.SC_BAD_REQUEST);
+        }
+    }
 
     /**
      * Check if a Zenodo DOI already exists for the workflow version
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.http.HttpStatus;
+
+/**
+ * Keeps the generated zip archives of frozen versions, whose files can no longer change, and serves them
+ * with a Content-Length and support for single byte-range requests. Archives larger than {@link #MAX_CACHED_ARCHIVE_BYTES}
+ * are not kept, they are streamed on every request instead.
+ */
+public final class ZipArchiveCache {
+
+    static final int MAX_CACHED_ARCHIVE_BYTES = 4 * 1024 * 1024;
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_OVERSIZED_VERSIONS = 10000;
+    private static final Pattern BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private static final Cache<Long, byte[]> FROZEN_ARCHIVES = Caffeine.newBuilder()
+        .maximumWeight(MAX_CACHED_BYTES)
+        .weigher((Long versionId, byte[] archive) -> archive.length)
+        .build();
+    /**
+     * Ids of frozen versions whose archive turned out to be too large to cache, so they are streamed without trying again
+     */
+    private static final Cache<Long, Boolean> OVERSIZED_ARCHIVES = Caffeine.newBuilder()
+        .maximumSize(MAX_OVERSIZED_VERSIONS)
+        .build();
+
+    private ZipArchiveCache() {
+
+    }
+
+    /**
+     * Serve the archive of a frozen version, generating it only if it is not already cached
+     * @param versionId Id of the frozen version
+     * @param archiveWriter Writes the archive to the given stream, on a cache miss or when the archive is too large to cache
+     * @param fileName File name for the Content-Disposition header
+     * @param range Value of the Range request header, may be null
+     * @return The whole archive, the requested range of it, or a 416 if the range cannot be satisfied
+     */
+    public static Response frozenArchiveResponse(long versionId, Consumer<OutputStream> archiveWriter, String fileName, String range) {
+        final byte[] archive = OVERSIZED_ARCHIVES.getIfPresent(versionId) != null ? null : FROZEN_ARCHIVES.get(versionId, id -> generateArchive(archiveWriter));
+        if (archive == null) {
+            OVERSIZED_ARCHIVES.put(versionId, true);
+            return streamedArchiveResponse(archiveWriter, fileName);
+        }
+        final Response.ResponseBuilder builder;
+        if (!isSingleByteRange(range)) {
+            // Per RFC 7233, a Range header that is not a single byte range is ignored and the whole archive is served
+            builder = Response.ok(archive).header(HttpHeaders.CONTENT_LENGTH, archive.length);
+        } else {
+            final Optional<long[]> byteRange = parseByteRange(range, archive.length);
+            if (byteRange.isEmpty()) {
+                builder = Response.status(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE).header("Content-Range", "bytes */" + archive.length);
+            } else {
+                final int start = (int)byteRange.get()[0];
+                final int end = (int)byteRange.get()[1];
+                builder = Response.status(HttpStatus.SC_PARTIAL_CONTENT).entity(Arrays.copyOfRange(archive, start, end + 1))
+                    .header("Content-Range", "bytes " + start + "-" + end + "/" + archive.length)
+                    .header(HttpHeaders.CONTENT_LENGTH, end - start + 1);
+            }
+        }
+        return builder.header("Accept-Ranges", "bytes").header("Content-Disposition", "attachment; filename=\"" + fileName + "\"").build();
+    }
+
+    /**
+     * Serve an archive by writing it straight to the response, without a Content-Length or range support
+     * @param archiveWriter Writes the archive to the given stream
+     * @param fileName File name for the Content-Disposition header
+     */
+    public static Response streamedArchiveResponse(Consumer<OutputStream> archiveWriter, String fileName) {
+        return Response.ok().entity((StreamingOutput) archiveWriter::accept)
+            .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"").build();
+    }
+
+    /**
+     * @return The archive, or null if it is larger than {@link #MAX_CACHED_ARCHIVE_BYTES}, which Caffeine does not cache
+     */
+    private static byte[] generateArchive(Consumer<OutputStream> archiveWriter) {
+        final BoundedByteArrayOutputStream archive = new BoundedByteArrayOutputStream();
+        try {
+            archiveWriter.accept(archive);
+        } catch (ArchiveTooLargeException ex) {
+            return null;
+        }
+        return archive.toByteArray();
+    }
+
+    /**
+     * @param range Range header value, may be null
+     * @return Whether the header asks for a single range of bytes, the only kind of range request that is honoured
+     */
+    static boolean isSingleByteRange(String range) {
+        if (range == null) {
+            return false;
+        }
+        final Matcher matcher = BYTE_RANGE.matcher(range.trim());
+        return matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty());
+    }
+
+    /**
+     * Parse a single-range Range header
+     * @param range Range header value (ex. bytes=0-499, bytes=500-, bytes=-500)
+     * @param length Length of the resource
+     * @return Inclusive start and end offsets, or empty if the range is malformed or unsatisfiable
+     */
+    static Optional<long[]> parseByteRange(String range, long length) {
+        if (range == null) {
+            return Optional.empty();
+        }
+        final Matcher matcher = BYTE_RANGE.matcher(range.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return Optional.empty();
+        }
+        long start;
+        long end;
+        try {
+            if (matcher.group(1).isEmpty()) {
+                // suffix range, the last n bytes
+                start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                end = length - 1;
+            } else {
+                start = Long.parseLong(matcher.group(1));
+                end = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+            }
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+        if (start > end || start >= length) {
+            return Optional.empty();
+        }
+        return Optional.of(new long[] {start, end});
+    }
+
+    /**
+     * Stops generating an archive as soon as it is known to be too large to cache
+     */
+    private static final class BoundedByteArrayOutputStream extends ByteArrayOutputStream {
+        @Override
+        public synchronized void write(int b) {
+            checkCapacity(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            checkCapacity(len);
+            super.write(b, off, len);
+        }
+
+        private void checkCapacity(int len) {
+            if (count + len > MAX_CACHED_ARCHIVE_BYTES) {
+                throw new ArchiveTooLargeException();
+            }
+        }
+    }
+
+    private static final class ArchiveTooLargeException extends RuntimeException {
+        ArchiveTooLargeException() {
+            super("The archive is too large to cache");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers.statelisteners;
+
+import com.google.common.hash.Hashing;
+import io.dockstore.webservice.core.Checksum;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.EntryChange;
+import io.dockstore.webservice.helpers.StateManagerMode;
+import io.dockstore.webservice.jdbi.EntryChangeDAO;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.swagger.api.impl.ToolsImplCommon;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends to the change log read by the change feed, so that mirrors can sync incrementally instead of
+ * crawling every tool. Only versions whose file checksums differ from the last recorded change are written.
+ * An update computes those checksums only if a version or file of the entry changed since its last recorded change,
+ * or the number of versions differs, since most updates (labels, stars, metadata) leave the files alone.
+ */
+public class ChangeFeedListener implements StateListenerInterface {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedListener.class);
+    /**
+     * Allowance for the clocks of webservice instances, which set the update and change dates, being out of step
+     */
+    private static final long CLOCK_SKEW_MILLIS = 60_000;
+
+    private final EntryChangeDAO entryChangeDAO;
+    private final FileDAO fileDAO;
+
+    public ChangeFeedListener(EntryChangeDAO entryChangeDAO, FileDAO fileDAO) {
+        this.entryChangeDAO = entryChangeDAO;
+        this.fileDAO = fileDAO;
+    }
+
+    @Override
+    public void handleIndexUpdate(Entry entry, StateManagerMode command) {
+        try {
+            recordChanges(entry, command);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Could not record change for entry " + entry.getId(), ex);
+        }
+    }
+
+    private void recordChanges(Entry<?, ?> entry, StateManagerMode command) {
+        final String trsId = ToolsImplCommon.getNewId(entry);
+        if (command == StateManagerMode.DELETE || !entry.getIsPublished()) {
+            // only entries that have been public before need a delete in the feed
+            if (command == StateManagerMode.DELETE && entryChangeDAO.countByEntryId(entry.getId()) > 0) {
+                entryChangeDAO.create(new EntryChange(entry.getId(), trsId, StateManagerMode.DELETE, null, null));
+            }
+            return;
+        }
+        final Map<String, String> recordedChecksums = entryChangeDAO.findLatestVersionChecksums(entry.getId());
+        if (command == StateManagerMode.UPDATE && !versionsMayHaveChanged(entry.getId(), recordedChecksums)) {
+            return;
+        }
+        final Map<String, String> currentChecksums = versionChecksums(fileDAO.findPathsAndChecksumsByEntry(entry.getId()));
+        currentChecksums.forEach((versionName, checksum) -> {
+            if (command == StateManagerMode.PUBLISH || !checksum.equals(recordedChecksums.get(versionName))) {
+                entryChangeDAO.create(new EntryChange(entry.getId(), trsId, command, versionName, checksum));
+            }
+        });
+        recordedChecksums.forEach((versionName, checksum) -> {
+            if (checksum != null && !currentChecksums.containsKey(versionName)) {
+                entryChangeDAO.create(new EntryChange(entry.getId(), trsId, StateManagerMode.DELETE, versionName, null));
+            }
+        });
+    }
+
+    /**
+     * Tell, without reading the files, whether the versions of an entry may differ from the last recorded ones
+     * @param entryId id of the entry
+     * @param recordedChecksums the last recorded checksum of each version
+     * @return false only if the entry has as many versions as recorded, and none of them or their files was updated since the last recorded change
+     */
+    private boolean versionsMayHaveChanged(long entryId, Map<String, String> recordedChecksums) {
+        final Timestamp lastRecorded = entryChangeDAO.findLatestChangeDate(entryId);
+        if (lastRecorded == null) {
+            return true;
+        }
+        final Object[] versions = fileDAO.findVersionCountAndLastUpdateByEntry(entryId);
+        final long recordedVersionCount = recordedChecksums.values().stream().filter(Objects::nonNull).count();
+        if (((Number)versions[0]).longValue() != recordedVersionCount) {
+            return true;
+        }
+        final long changedAfter = lastRecorded.getTime() - CLOCK_SKEW_MILLIS;
+        return Stream.of(versions[1], versions[2]).anyMatch(lastUpdate -> lastUpdate != null && ((Timestamp)lastUpdate).getTime() > changedAfter);
+    }
+
+    /**
+     * Digest the files of each version into one checksum
+     * @param rows version name, absolute path and checksums of each file, ordered by version name then path
+     * @return a SHA-256 over the paths and file checksums of each version, keyed by version name
+     */
+    static Map<String, String> versionChecksums(List<Object[]> rows) {
+        final Map<String, List<Object[]>> rowsByVersion = rows.stream().collect(Collectors.groupingBy(row -> (String)row[0], TreeMap::new, Collectors.toList()));
+        final Map<String, String> checksums = new TreeMap<>();
+        rowsByVersion.forEach((versionName, files) -> {
+            final StringBuilder builder = new StringBuilder();
+            for (Object[] file : files) {
+                @SuppressWarnings("unchecked")
+                final List<Checksum> fileChecksums = (List<Checksum>)file[2];
+                builder.append(file[1]).append('\t');
+                if (fileChecksums != null) {
+                    builder.append(fileChecksums.stream().filter(Objects::nonNull).map(Checksum::toString).collect(Collectors.joining(",")));
+                }
+                builder.append('\n');
+            }
+            checksums.put(versionName, Hashing.sha256().hashString(builder.toString(), StandardCharsets.UTF_8).toString());
+        });
+        return checksums;
+    }
+
+    @Override
+    public void bulkUpsert(List<Entry> entries) {
+        // a reindex does not change any public state, so there is nothing to add to the feed
+    }
+}
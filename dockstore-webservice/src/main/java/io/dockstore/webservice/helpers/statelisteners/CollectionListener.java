@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers.statelisteners;
+
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.helpers.StateManagerMode;
+import io.dockstore.webservice.jdbi.EntryDAO;
+import io.dockstore.webservice.resources.CollectionHelper;
+import java.util.List;
+
+/**
+ * Drops the cached entries of the collections an entry is in when the entry is published, unpublished or updated (for example relabelled),
+ * so that collection pages do not show it stale until the cache expires
+ */
+public class CollectionListener implements StateListenerInterface {
+
+    private final EntryDAO<?> entryDAO;
+
+    public CollectionListener(EntryDAO<?> entryDAO) {
+        this.entryDAO = entryDAO;
+    }
+
+    @Override
+    public void handleIndexUpdate(Entry entry, StateManagerMode command) {
+        // collections only show published entries, unpublishing comes as a delete
+        if (command == StateManagerMode.UPDATE && !entry.getIsPublished()) {
+            return;
+        }
+        final List<Long> collectionIds = entryDAO.findCollectionIdsByEntryId(entry.getId());
+        if (!collectionIds.isEmpty()) {
+            CollectionHelper.invalidateEntries(collectionIds);
+        }
+    }
+
+    @Override
+    public void bulkUpsert(List<Entry> entries) {
+        // a reindex does not change what collections show
+    }
+}
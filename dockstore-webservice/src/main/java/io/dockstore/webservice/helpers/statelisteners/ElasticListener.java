@@ -319,9 +319,21 @@ public class ElasticListener implements StateListenerInterface {
         ((ObjectNode)jsonNode).put("verified", verified);
         ((ObjectNode)jsonNode).put("verified_platforms", MAPPER.valueToTree(verifiedPlatforms));
         addCategoriesJson(jsonNode, entry);
+        addStarredUsersJson(jsonNode, entry);
         return jsonNode;
     }
 
+    /**
+     * Entries no longer serialize their starred users, the index still holds their ids
+     */
+    private static void addStarredUsersJson(JsonNode node, Entry<?, ?> entry) {
+        List<Map<String, Object>> values = new ArrayList<>();
+        for (User user : entry.getStarredUsers()) {
+            values.add(Map.of("id", user.getId()));
+        }
+        ((ObjectNode)node).put("starredUsers", MAPPER.valueToTree(values));
+    }
+
     private static void addCategoriesJson(JsonNode node, Entry<?, ?> entry) {
 
         List<Map<String, Object>> values = new ArrayList<>();
@@ -392,7 +404,8 @@ public class ElasticListener implements StateListenerInterface {
         // This is to avoid indexing both topicAutomatic and topicManual and having the frontend choose which one to display
         detachedEntry.setTopicAutomatic(entry.getTopic());
         detachedEntry.setInputFileFormats(new TreeSet<>(entry.getInputFileFormats()));
-        entry.getStarredUsers().forEach(user -> detachedEntry.addStarredUser((User)user));
+        // the loaded star count predates any star added or removed in this request, the starred users do not
+        detachedEntry.setStarCount(entry.getStarredUsers().size());
         String defaultVersion = entry.getDefaultVersion();
         if (defaultVersion != null) {
             boolean saneDefaultVersion = detachedVersions.stream().anyMatch(version -> defaultVersion.equals(version.getName()) || defaultVersion.equals(version.getReference()));
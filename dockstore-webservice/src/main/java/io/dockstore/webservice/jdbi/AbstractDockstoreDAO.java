@@ -32,4 +32,14 @@ public abstract class AbstractDockstoreDAO<T> extends AbstractDAO<T> {
         Session session = currentSession();
         session.evict(entry);
     }
+
+    /**
+     * Make a LIKE pattern matching values that contain the given text. The wildcards and escape character in the text are escaped,
+     * so queries using the pattern need an ESCAPE '\' clause.
+     * @param value text to look for
+     * @return the pattern
+     */
+    static String containsPattern(String value) {
+        return '%' + value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + '%';
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import io.dockstore.webservice.core.DiscourseTopicRequest;
+import io.dropwizard.hibernate.AbstractDAO;
+import java.util.Optional;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.SessionFactory;
+
+public class DiscourseTopicRequestDAO extends AbstractDAO<DiscourseTopicRequest> {
+    public DiscourseTopicRequestDAO(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    /**
+     * Queue the creation of a topic for an entry, unless one is already queued. A single insert, so that concurrent publishes of the same
+     * entry cannot both queue a request.
+     * @param entryId id of the entry
+     */
+    public void enqueue(long entryId) {
+        currentSession().getNamedQuery("io.dockstore.webservice.core.DiscourseTopicRequest.enqueue").setParameter("entryId", entryId).executeUpdate();
+    }
+
+    public DiscourseTopicRequest findById(long id) {
+        return get(id);
+    }
+
+    /**
+     * Lock the request that has been due the longest. Requests locked by another transaction, e.g. on another webservice instance,
+     * are skipped rather than waited on, so each request is attempted by one instance at a time.
+     * @return the locked request, empty if no request is due
+     */
+    public Optional<DiscourseTopicRequest> lockNextDue() {
+        return Optional.ofNullable(uniqueResult(namedTypedQuery("io.dockstore.webservice.core.DiscourseTopicRequest.findDue")
+            .setLockOptions(new LockOptions(LockMode.UPGRADE_SKIPLOCKED))
+            .setMaxResults(1)));
+    }
+
+    public void delete(DiscourseTopicRequest request) {
+        currentSession().delete(request);
+    }
+}
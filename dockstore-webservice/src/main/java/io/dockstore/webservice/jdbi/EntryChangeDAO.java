@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import io.dockstore.webservice.core.EntryChange;
+import io.dropwizard.hibernate.AbstractDAO;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+
+public class EntryChangeDAO extends AbstractDAO<EntryChange> {
+    public EntryChangeDAO(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public long create(EntryChange entryChange) {
+        return persist(entryChange).getId();
+    }
+
+    /**
+     * Lists the changes after the given one, ordered by the id of the transaction that inserted them, leaving out changes of
+     * transactions that are not older than every transaction still in progress. See {@link EntryChange}.
+     * @param since id of the last change read, 0 to start from the beginning
+     * @param limit maximum number of changes to return
+     * @return the changes, or empty if since is not the id of a change
+     */
+    public Optional<List<EntryChange>> findSince(long since, int limit) {
+        long transactionId = 0;
+        if (since != 0) {
+            final Optional<Long> sinceTransactionId = namedQuery("io.dockstore.webservice.core.EntryChange.findTransactionId").setParameter("id", since)
+                .uniqueResultOptional();
+            if (sinceTransactionId.isEmpty()) {
+                return Optional.empty();
+            }
+            transactionId = sinceTransactionId.get();
+        }
+        final long finishedBefore = ((Number)currentSession().createNativeQuery("select txid_snapshot_xmin(txid_current_snapshot())").getSingleResult()).longValue();
+        return Optional.of(list(namedTypedQuery("io.dockstore.webservice.core.EntryChange.findSince")
+            .setParameter("since", since)
+            .setParameter("transactionId", transactionId)
+            .setParameter("finishedBefore", finishedBefore)
+            .setMaxResults(limit)));
+    }
+
+    /**
+     * @param entryId id of the entry
+     * @return when the last change of the entry was recorded, or null if none was
+     */
+    public Timestamp findLatestChangeDate(long entryId) {
+        return (Timestamp)namedQuery("io.dockstore.webservice.core.EntryChange.findLatestChangeDate").setParameter("entryId", entryId).uniqueResult();
+    }
+
+    public long countByEntryId(long entryId) {
+        Query query = namedQuery("io.dockstore.webservice.core.EntryChange.countByEntryId").setParameter("entryId", entryId);
+        return (long)query.getSingleResult();
+    }
+
+    /**
+     * @param entryId id of the entry
+     * @return the most recently recorded checksum of each version of the entry, keyed by version name. Versions whose last change was a delete map to null.
+     */
+    public Map<String, String> findLatestVersionChecksums(long entryId) {
+        Query<Object[]> query = namedQuery("io.dockstore.webservice.core.EntryChange.findLatestVersionChecksums").setParameter("entryId", entryId);
+        Map<String, String> checksums = new HashMap<>();
+        for (Object[] row : query.list()) {
+            checksums.put((String)row[0], (String)row[1]);
+        }
+        return checksums;
+    }
+}
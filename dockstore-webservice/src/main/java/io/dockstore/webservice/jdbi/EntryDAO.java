@@ -18,11 +18,13 @@ package io.dockstore.webservice.jdbi;
 
 import com.google.common.base.Strings;
 import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.EntryType;
 import io.dockstore.webservice.core.Category;
 import io.dockstore.webservice.core.CategorySummary;
 import io.dockstore.webservice.core.CollectionEntry;
 import io.dockstore.webservice.core.CollectionOrganization;
 import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.EntryUpdateTime;
 import io.dockstore.webservice.core.Label;
 import io.dockstore.webservice.core.SourceControlConverter;
 import io.dockstore.webservice.core.Tool;
@@ -31,6 +33,7 @@ import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.database.EntryLite;
 import java.lang.reflect.ParameterizedType;
 import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -170,6 +173,14 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findCollectionsByEntryId").setParameter("entryId", entryId));
     }
 
+    /**
+     * @param entryId id of an entry
+     * @return the ids of every collection and category the entry is in, whatever their state
+     */
+    public List<Long> findCollectionIdsByEntryId(long entryId) {
+        return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findCollectionIdsByEntryId").setParameter("entryId", entryId));
+    }
+
     public List<CategorySummary> findCategorySummariesByEntryId(long entryId) {
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findCategorySummariesByEntryId").setParameter("entryId", entryId));
     }
@@ -208,6 +219,30 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
     public List<EntryLite> findEntryVersions(long userId) {
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".getEntryLiteByUserId").setParameter("userId", userId));
     }
+    /**
+     * Get the tools, workflows and services of a user, most recently updated first. An entry counts as updated when it or any of its versions was.
+     * @param userId id of the user
+     * @param filter only include entries whose path contains this, may be null
+     * @param count maximum number of entries to return, may be null for all of them
+     * @return the entries and their last update times
+     */
+    public List<EntryUpdateTime> findEntryUpdateTimes(long userId, String filter, Integer count) {
+        String pattern = filter == null || filter.isBlank() ? "%" : containsPattern(filter.toLowerCase());
+        Query query = this.currentSession().getNamedQuery("Entry.findUserEntryUpdateTimes").setParameter("userId", userId).setParameter("filter", pattern);
+        if (count != null) {
+            query.setMaxResults(count);
+        }
+        List<Object[]> rows = list(query);
+        List<EntryUpdateTime> entries = new ArrayList<>();
+        for (Object[] row : rows) {
+            String path = (String)row[0];
+            List<String> pathElements = Arrays.asList(path.split("/"));
+            String prettyPath = String.join("/", pathElements.subList(Math.min(2, pathElements.size()), pathElements.size()));
+            entries.add(new EntryUpdateTime(path, prettyPath, EntryType.valueOf((String)row[1]), (Timestamp)row[2]));
+        }
+        return entries;
+    }
+
     public List<T> findMyEntries(long userId) {
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".getEntriesByUserId").setParameter("userId", userId));
     }
@@ -247,6 +282,24 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
         return list(this.currentSession().getNamedQuery("Entry.getCollectionToolsWithVersions").setParameter("collectionId", collectionId));
     }
 
+    /**
+     * Get the published workflows, apptools and services, with or without a specific version, in the given collections
+     * @param collectionIds ids of the collections
+     * @return one CollectionEntry per collection entry, tagged with the id of its collection
+     */
+    public List<CollectionEntry> getCollectionWorkflowEntries(Collection<Long> collectionIds) {
+        return list(this.currentSession().getNamedQuery("Entry.getCollectionWorkflowEntries").setParameterList("collectionIds", collectionIds));
+    }
+
+    /**
+     * Get the published tools, with or without a specific version, in the given collections
+     * @param collectionIds ids of the collections
+     * @return one CollectionEntry per collection entry, tagged with the id of its collection
+     */
+    public List<CollectionEntry> getCollectionToolEntries(Collection<Long> collectionIds) {
+        return list(this.currentSession().getNamedQuery("Entry.getCollectionToolEntries").setParameterList("collectionIds", collectionIds));
+    }
+
     public List<CollectionEntry> getCollectionEntries(long collectionId) {
         return list(this.currentSession().getNamedQuery("Entry.getCollectionEntries").setParameter("collectionId", collectionId));
     }
@@ -308,6 +361,31 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
         return list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findLabelByEntryId").setParameter("entryId", entryId));
     }
 
+    /**
+     * Get the label values of many entries at once
+     * @param entryIds ids of the entries
+     * @return map of entry id to its label values, entries without labels are absent
+     */
+    public Map<Long, List<String>> getLabelValuesByEntryIds(Collection<Long> entryIds) {
+        List<Object[]> results = list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findLabelValuesByEntryIds").setParameterList("entryIds", entryIds));
+        Map<Long, List<String>> entryToLabels = new HashMap<>();
+        results.forEach(result -> entryToLabels.computeIfAbsent((Long)result[0], k -> new ArrayList<>()).add((String)result[1]));
+        return entryToLabels;
+    }
+
+    /**
+     * Get the category summaries of many entries at once
+     * @param entryIds ids of the entries
+     * @return map of entry id to the summaries of the categories it is in, entries without categories are absent
+     */
+    public Map<Long, List<CategorySummary>> findCategorySummariesByEntryIds(Collection<Long> entryIds) {
+        List<Object[]> results = list(this.currentSession().getNamedQuery("io.dockstore.webservice.core.Entry.findCategorySummariesByEntryIds").setParameterList("entryIds", entryIds));
+        Map<Long, List<CategorySummary>> entryToSummaries = new HashMap<>();
+        results.forEach(result -> entryToSummaries.computeIfAbsent((Long)result[0], k -> new ArrayList<>())
+            .add(new CategorySummary((Long)result[1], (String)result[2], (String)result[3], (String)result[4], (String)result[5])));
+        return entryToSummaries;
+    }
+
     public List<String> getToolsDescriptorTypes(long entryId) {
         return (List<String>)this.currentSession().getNamedQuery("Entry.findToolsDescriptorTypes").setParameter("entryId", entryId)
                 .getSingleResult();
@@ -330,24 +408,26 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
             String repoName = toolMode ? "name" : "repository";
             String orgName = toolMode ? "namespace" : "organization";
 
+            // Each upper(column) like '%FILTER%' is answered by a trigram index on upper(column), and a null column never matches.
+            // Any other form of these predicates, e.g. wrapping them with null checks, may keep the planner from combining the indexes.
+            String upperFilter = wildcardLike(filter.toUpperCase());
             predicates.add(cb.and(// get published workflows
                 cb.isTrue(entry.get("isPublished")),
-                // ensure we deal with null values and then do like queries on those non-null values
-                cb.or(cb.and(cb.isNotNull(entry.get(nameName)), cb.like(cb.upper(entry.get(nameName)), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get("author")), cb.like(cb.upper(entry.get("author")), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get(repoName)), cb.like(cb.upper(entry.get(repoName)), "%" + filter.toUpperCase() + "%")), //
-                    cb.and(cb.isNotNull(entry.get(orgName)), cb.like(cb.upper(entry.get(orgName)), "%" + filter.toUpperCase() + "%")))));
+                cb.or(cb.like(cb.upper(entry.get(nameName)), upperFilter), //
+                    cb.like(cb.upper(entry.get("author")), upperFilter), //
+                    cb.like(cb.upper(entry.get(repoName)), upperFilter), //
+                    cb.like(cb.upper(entry.get(orgName)), upperFilter))));
 
         } else {
             predicates.add(cb.isTrue(entry.get("isPublished")));
         }
         if (!Strings.isNullOrEmpty(sortCol)) {
-            // sorting by stars is a special case since it needs a join
+            // sorting by stars uses the maintained star count rather than counting the starred users of every entry
             if ("stars".equalsIgnoreCase(sortCol)) {
                 if ("desc".equalsIgnoreCase(sortOrder)) {
-                    query.orderBy(cb.desc(cb.size(entry.<Collection>get("starredUsers"))), cb.desc(entry.get("id")));
+                    query.orderBy(cb.desc(entry.get("starCount")), cb.desc(entry.get("id")));
                 } else {
-                    query.orderBy(cb.asc(cb.size(entry.<Collection>get("starredUsers"))), cb.desc(entry.get("id")));
+                    query.orderBy(cb.asc(entry.get("starCount")), cb.desc(entry.get("id")));
                 }
             } else {
                 Path<Object> sortPath = entry.get(sortCol);
@@ -363,8 +443,13 @@ public abstract class EntryDAO<T extends Entry> extends AbstractDockstoreDAO<T>
         query.where(predicates.toArray(new Predicate[]{}));
     }
 
+    /**
+     * Add a case-sensitive substring match of a column. The case-insensitive match of upper(column) can use the column's trigram index,
+     * the case-sensitive match then only has to check the rows that index finds.
+     */
     protected Predicate andLike(CriteriaBuilder cb, Predicate existingPredicate, Path<String> column, Optional<String> value) {
-        return value.map(val -> cb.and(existingPredicate, cb.like(column, wildcardLike(val))))
+        return value.map(val -> cb.and(existingPredicate, cb.like(cb.upper(column), cb.upper(cb.literal(wildcardLike(val)))),
+                cb.like(column, wildcardLike(val))))
             .orElse(existingPredicate);
     }
 
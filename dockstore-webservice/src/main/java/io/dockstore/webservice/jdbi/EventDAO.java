@@ -41,20 +41,18 @@ public class EventDAO extends AbstractDAO<Event> {
         return persist(event).getId();
     }
 
-    public List<Event> findEventsForOrganization(long organizationId, Integer offset, Integer limit) {
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllForOrganization")
-                .setParameter("organizationId", organizationId)
-                .setFirstResult(offset)
-                .setMaxResults(limit);
-        return list(query);
+    public List<Event> findEventsForOrganization(long organizationId, Long before, Integer offset, Integer limit) {
+        CriteriaBuilder cb = currentSession().getCriteriaBuilder();
+        CriteriaQuery<Event> query = criteriaQuery();
+        Root<Event> event = query.from(Event.class);
+        return findPage(query, event, cb.equal(event.get("organization").get("id"), organizationId), before, offset, limit);
     }
 
-    public List<Event> findEventsForInitiatorUser(long initiatorUser, Integer offset, Integer limit) {
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByInitiatorUserId")
-            .setParameter("initiatorUser", initiatorUser)
-            .setFirstResult(offset)
-            .setMaxResults(limit);
-        return list(query);
+    public List<Event> findEventsForInitiatorUser(long initiatorUser, Long before, Integer offset, Integer limit) {
+        CriteriaBuilder cb = currentSession().getCriteriaBuilder();
+        CriteriaQuery<Event> query = criteriaQuery();
+        Root<Event> event = query.from(Event.class);
+        return findPage(query, event, cb.equal(event.get("initiatorUser").get("id"), initiatorUser), before, offset, limit);
     }
 
     public long countAllEventsForOrganization(long organizationId) {
@@ -63,27 +61,15 @@ public class EventDAO extends AbstractDAO<Event> {
         return ((Long)query.getSingleResult()).longValue();
     }
 
-    public List<Event> findEventsByEntryIDs(Set<Long> entryIds, Integer offset, int limit) {
-        int newLimit = Math.min(MAX_LIMIT, limit);
-        if (entryIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByEntryIds");
-        query.setParameterList("entryIDs", entryIds).setFirstResult(offset).setMaxResults(newLimit);
-        return list(query);
+    public List<Event> findEventsByEntryIDs(Set<Long> entryIds, Long before, Integer offset, int limit) {
+        return findAllByOrganizationIdsOrEntryIds(Collections.emptySet(), entryIds, before, offset, limit);
     }
 
-    public List<Event> findAllByOrganizationIds(Set<Long> organizationIds, Integer offset, int limit) {
-        int newLimit = Math.min(MAX_LIMIT, limit);
-        if (organizationIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-        Query<Event> query = namedTypedQuery("io.dockstore.webservice.core.Event.findAllByOrganizationIds");
-        query.setParameterList("organizationIDs", organizationIds).setFirstResult(offset).setMaxResults(newLimit);
-        return list(query);
+    public List<Event> findAllByOrganizationIds(Set<Long> organizationIds, Long before, Integer offset, int limit) {
+        return findAllByOrganizationIdsOrEntryIds(organizationIds, Collections.emptySet(), before, offset, limit);
     }
 
-    public List<Event> findAllByOrganizationIdsOrEntryIds(Set<Long> organizationIds, Set<Long> entryIds, Integer offset, int limit) {
+    public List<Event> findAllByOrganizationIdsOrEntryIds(Set<Long> organizationIds, Set<Long> entryIds, Long before, Integer offset, int limit) {
         int newLimit = Math.min(MAX_LIMIT, limit);
 
         CriteriaBuilder cb = currentSession().getCriteriaBuilder();
@@ -102,12 +88,29 @@ public class EventDAO extends AbstractDAO<Event> {
             list.add(event.get("workflow").in(entryIds));
             list.add(event.get("apptool").in(entryIds));
         }
-        query.where(cb.or(list.toArray(new Predicate[0])));
+        return findPage(query, event, cb.or(list.toArray(new Predicate[0])), before, offset, newLimit);
+    }
+
+    /**
+     * Lists a page of the matching events, newest first. Pages are meant to be read with a cursor: passing the id of the last event
+     * of a page as before starts the next page right after it, which the (filter column, id) indexes answer at the same cost however
+     * deep the page is. Event ids come from a sequence, so they order events by when they were created.
+     *
+     * @param before only list events with smaller ids than this, or null to start from the newest event
+     * @param offset number of events to skip after the cursor, kept for clients that still page by offset
+     */
+    private List<Event> findPage(CriteriaQuery<Event> query, Root<Event> event, Predicate filter, Long before, Integer offset, int limit) {
+        CriteriaBuilder cb = currentSession().getCriteriaBuilder();
+        if (before == null) {
+            query.where(filter);
+        } else {
+            query.where(filter, cb.lessThan(event.<Long>get("id"), before));
+        }
         query.orderBy(cb.desc(event.get("id")));
         query.select(event);
 
         int primitiveOffset = MoreObjects.firstNonNull(offset, 0);
-        TypedQuery<Event> typedQuery = currentSession().createQuery(query).setFirstResult(primitiveOffset).setMaxResults(newLimit);
+        TypedQuery<Event> typedQuery = currentSession().createQuery(query).setFirstResult(primitiveOffset).setMaxResults(limit);
         return typedQuery.getResultList();
     }
 
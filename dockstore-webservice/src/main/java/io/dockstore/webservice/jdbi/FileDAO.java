@@ -17,9 +17,13 @@
 package io.dockstore.webservice.jdbi;
 
 import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.dropwizard.hibernate.AbstractDAO;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
 /**
  * @author xliu
@@ -37,7 +41,62 @@ public class FileDAO extends AbstractDAO<SourceFile> {
         return persist(file).getId();
     }
 
+    /**
+     * Persist several files with a single flush, which lets Hibernate batch the inserts when hibernate.jdbc.batch_size is set
+     * @param files files to persist
+     * @return the persisted files
+     */
+    public List<SourceFile> createAll(Collection<SourceFile> files) {
+        final List<SourceFile> persisted = new ArrayList<>(files.size());
+        for (SourceFile file : files) {
+            persisted.add(persist(file));
+        }
+        currentSession().flush();
+        return persisted;
+    }
+
     public List<SourceFile> findSourceFilesByVersion(Long versionId) {
         return list(namedTypedQuery("io.dockstore.webservice.core.SourceFile.findSourceFilesForVersion").setParameter("versionId", versionId));
     }
+
+    /**
+     * Lists the path, absolute path and type of every file of a version, without loading file content
+     * @param versionId id of the version
+     * @return the metadata of the files, ordered by path like the sourcefiles of a version
+     */
+    public List<SourceFileMetadata> findMetadataByVersion(long versionId) {
+        final Query<SourceFileMetadata> query = currentSession().createNamedQuery("io.dockstore.webservice.core.SourceFile.findMetadataForVersion", SourceFileMetadata.class)
+            .setParameter("versionId", versionId);
+        return query.list();
+    }
+
+    /**
+     * Counts the files of a version that have content, which are the files written to the version's zip
+     * @param versionId id of the version
+     * @return the number of files with content
+     */
+    public long countSourceFilesByVersion(long versionId) {
+        final Query query = namedQuery("io.dockstore.webservice.core.SourceFile.countSourceFilesForVersion").setParameter("versionId", versionId);
+        return (long)query.uniqueResult();
+    }
+
+    /**
+     * Summarizes the visible versions of an entry that have files, as a cheap way to tell whether their files may have changed
+     * @param entryId id of the entry
+     * @return the number of such versions, the last update of any of them, and the last update of any of their files
+     */
+    public Object[] findVersionCountAndLastUpdateByEntry(long entryId) {
+        final Query<Object[]> query = namedQuery("io.dockstore.webservice.core.SourceFile.findVersionCountAndLastUpdateForEntry").setParameter("entryId", entryId);
+        return query.uniqueResult();
+    }
+
+    /**
+     * Lists the version name, absolute path and checksums of every file of the visible versions of an entry, without loading file content
+     * @param entryId id of the entry
+     * @return rows ordered by version name then path
+     */
+    public List<Object[]> findPathsAndChecksumsByEntry(long entryId) {
+        final Query<Object[]> query = namedQuery("io.dockstore.webservice.core.SourceFile.findPathsAndChecksumsForEntry").setParameter("entryId", entryId);
+        return query.list();
+    }
 }
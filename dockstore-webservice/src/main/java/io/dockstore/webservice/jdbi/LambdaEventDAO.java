@@ -56,30 +56,35 @@ public class LambdaEventDAO extends AbstractDAO<LambdaEvent> {
         return list(query);
     }
 
-    public List<LambdaEvent> findByUser(User user, String offset, Integer limit) {
+    public List<LambdaEvent> findByUser(User user, Long before, String offset, Integer limit) {
         CriteriaBuilder cb = currentSession().getCriteriaBuilder();
         CriteriaQuery<LambdaEvent> query = criteriaQuery();
         Root<LambdaEvent> event = query.from(LambdaEvent.class);
-
-        List<Predicate> predicates = new ArrayList<>();
-        predicates.add(cb.equal(event.get("user"), user));
-        query.orderBy(cb.desc(event.get("id")));
-        query.where(predicates.toArray(new Predicate[]{}));
-
-        query.select(event);
-
-        int primitiveOffset = Integer.parseInt(MoreObjects.firstNonNull(offset, "0"));
-        TypedQuery<LambdaEvent> typedQuery = currentSession().createQuery(query).setFirstResult(primitiveOffset).setMaxResults(limit);
-        return typedQuery.getResultList();
+        return findPage(query, event, cb.equal(event.get("user"), user), before, offset, limit);
     }
 
-    public List<LambdaEvent> findByOrganization(String organization, String offset, Integer limit) {
+    public List<LambdaEvent> findByOrganization(String organization, Long before, String offset, Integer limit) {
         CriteriaBuilder cb = currentSession().getCriteriaBuilder();
         CriteriaQuery<LambdaEvent> query = criteriaQuery();
         Root<LambdaEvent> event = query.from(LambdaEvent.class);
+        return findPage(query, event, cb.equal(event.get("organization"), organization), before, offset, limit);
+    }
 
+    /**
+     * Lists a page of the matching lambda events, newest first. Passing the id of the last event of a page as before starts the next
+     * page right after it, which the (filter column, id) indexes answer at the same cost however deep the page is.
+     *
+     * @param before only list events with smaller ids than this, or null to start from the newest event
+     * @param offset number of events to skip after the cursor, kept for clients that still page by offset
+     */
+    private List<LambdaEvent> findPage(CriteriaQuery<LambdaEvent> query, Root<LambdaEvent> event, Predicate filter, Long before, String offset,
+        Integer limit) {
+        CriteriaBuilder cb = currentSession().getCriteriaBuilder();
         List<Predicate> predicates = new ArrayList<>();
-        predicates.add(cb.equal(event.get("organization"), organization));
+        predicates.add(filter);
+        if (before != null) {
+            predicates.add(cb.lessThan(event.<Long>get("id"), before));
+        }
         query.orderBy(cb.desc(event.get("id")));
         query.where(predicates.toArray(new Predicate[]{}));
 
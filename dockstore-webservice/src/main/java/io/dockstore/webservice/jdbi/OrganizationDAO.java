@@ -1,6 +1,7 @@
 package io.dockstore.webservice.jdbi;
 
 import io.dockstore.webservice.core.Organization;
+import io.dockstore.webservice.core.OrganizationUpdateTime;
 import io.dropwizard.hibernate.AbstractDAO;
 import java.util.List;
 import org.hibernate.Session;
@@ -45,6 +46,35 @@ public class OrganizationDAO extends AbstractDAO<Organization> {
         return list(namedTypedQuery("io.dockstore.webservice.core.Organization.findAllRejected"));
     }
 
+    /**
+     * Find organizations along with their users, in one query rather than one per organization
+     * @param status status of the organizations to find, null for all organizations
+     * @return organizations with their users initialized
+     */
+    public List<Organization> findAllWithUsers(Organization.ApplicationState status) {
+        if (status == null) {
+            return list(namedTypedQuery("io.dockstore.webservice.core.Organization.findAllWithUsers"));
+        }
+        return list(namedTypedQuery("io.dockstore.webservice.core.Organization.findByStatusWithUsers").setParameter("status", status));
+    }
+
+    /**
+     * Get the organizations of a user along with when each was last updated, most recently updated first
+     * @param userId id of the user
+     * @param filter only include organizations whose name or display name contains this, may be null
+     * @param count maximum number of organizations to return, may be null for all of them
+     * @return the organizations and their last update times
+     */
+    public List<OrganizationUpdateTime> findUpdateTimesByUser(long userId, String filter, Integer count) {
+        String pattern = filter == null || filter.isBlank() ? "%" : AbstractDockstoreDAO.containsPattern(filter.toLowerCase());
+        Query<OrganizationUpdateTime> query = currentSession().createNamedQuery("io.dockstore.webservice.core.Organization.findUpdateTimesByUser", OrganizationUpdateTime.class)
+            .setParameter("userId", userId).setParameter("filter", pattern);
+        if (count != null) {
+            query.setMaxResults(count);
+        }
+        return query.getResultList();
+    }
+
     public List<Organization> findAll() {
         return list(namedTypedQuery("io.dockstore.webservice.core.Organization.findAll"));
     }
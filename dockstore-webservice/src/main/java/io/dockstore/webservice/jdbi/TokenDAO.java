@@ -16,9 +16,11 @@
 
 package io.dockstore.webservice.jdbi;
 
+import com.google.common.hash.Hashing;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.TokenType;
 import io.dropwizard.hibernate.AbstractDAO;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -86,7 +88,16 @@ public class TokenDAO extends AbstractDAO<Token> {
     }
 
     public Token findByContent(String content) {
-        return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.Token.findByContent").setParameter("content", content));
+        return uniqueResult(namedTypedQuery("io.dockstore.webservice.core.Token.findByContent").setParameter("contentHash", contentHash(content))
+            .setParameter("content", content));
+    }
+
+    /**
+     * @param content token content
+     * @return the hex SHA-256 of the content, matching the generated contenthash column
+     */
+    public static String contentHash(String content) {
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
     }
 
     public Token findTokenByGitHubUsername(String githubUsername) {
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import io.dockstore.webservice.core.tooltester.ToolTesterLog;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry;
+import io.dropwizard.hibernate.AbstractDAO;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.type.StandardBasicTypes;
+
+public class ToolTesterLogDAO extends AbstractDAO<ToolTesterLogIndexEntry> {
+    public ToolTesterLogDAO(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public List<ToolTesterLogIndexEntry> findByPrefix(String prefix) {
+        return list(namedTypedQuery("io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry.findByPrefix").setParameter("prefix", prefix));
+    }
+
+    /**
+     * Index a log, unless it already is. A single insert, so that instances indexing the same logs at once do not fail each other.
+     * @param prefix the S3 key prefix of the log's tool version
+     * @param log the log, whose filename is its S3 key. Its fields may be null, so they are bound with their type.
+     */
+    public void add(String prefix, ToolTesterLog log) {
+        currentSession().getNamedQuery("io.dockstore.webservice.core.tooltester.ToolTesterLogIndexEntry.add")
+            .setParameter("s3Key", log.getFilename(), StandardBasicTypes.STRING)
+            .setParameter("prefix", prefix, StandardBasicTypes.STRING)
+            .setParameter("toolId", log.getToolId(), StandardBasicTypes.STRING)
+            .setParameter("toolVersionName", log.getToolVersionName(), StandardBasicTypes.STRING)
+            .setParameter("testFilename", log.getTestFilename(), StandardBasicTypes.STRING)
+            .setParameter("runner", log.getRunner(), StandardBasicTypes.STRING)
+            .executeUpdate();
+    }
+}
@@ -19,6 +19,7 @@ package io.dockstore.webservice.jdbi;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.database.VersionVerifiedPlatform;
 import io.dropwizard.hibernate.AbstractDAO;
+import java.sql.Timestamp;
 import java.util.List;
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
@@ -59,6 +60,33 @@ public class VersionDAO<T extends Version> extends AbstractDAO<T> {
         return (long)query.getSingleResult();
     }
 
+    /**
+     * Mark that a DOI was requested for a version, unless a request for it is already pending. A pending request that is older than
+     * expiredBefore is taken over.
+     * @return true if the DOI was marked as requested, false if another request is pending
+     */
+    public boolean requestDOI(long versionId, Timestamp requestDate, Timestamp expiredBefore) {
+        return currentSession().getNamedQuery("io.dockstore.webservice.core.VersionMetadata.requestDOI")
+            .setParameter("versionId", versionId)
+            .setParameter("requested", Version.DOIStatus.REQUESTED)
+            .setParameter("requestDate", requestDate)
+            .setParameter("expiredBefore", expiredBefore)
+            .executeUpdate() == 1;
+    }
+
+    /**
+     * Withdraw a DOI request that failed, so that the DOI may be requested again. A request that has since taken it over is left alone.
+     * @param requestDate when the failed request was made
+     */
+    public void withdrawDOIRequest(long versionId, Timestamp requestDate) {
+        currentSession().getNamedQuery("io.dockstore.webservice.core.VersionMetadata.withdrawDOIRequest")
+            .setParameter("versionId", versionId)
+            .setParameter("notRequested", Version.DOIStatus.NOT_REQUESTED)
+            .setParameter("requested", Version.DOIStatus.REQUESTED)
+            .setParameter("requestDate", requestDate)
+            .executeUpdate();
+    }
+
     public void enableNameFilter(String name) {
         currentSession().enableFilter("versionNameFilter").setParameter("name", name);
     }
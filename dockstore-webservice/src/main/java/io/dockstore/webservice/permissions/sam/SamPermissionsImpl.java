@@ -1,6 +1,8 @@
 package io.dockstore.webservice.permissions.sam;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.core.Token;
@@ -12,6 +14,7 @@ import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.permissions.Permission;
 import io.dockstore.webservice.permissions.PermissionsInterface;
 import io.dockstore.webservice.permissions.Role;
+import io.dropwizard.lifecycle.Managed;
 import io.swagger.sam.client.ApiClient;
 import io.swagger.sam.client.ApiException;
 import io.swagger.sam.client.JSON;
@@ -30,8 +33,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
 import org.apache.http.HttpStatus;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
@@ -40,9 +47,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of the {@link PermissionsInterface} that makes
- * calls to SAM.
+ * calls to SAM. All calls share one Jersey client, which is closed when the application stops.
  */
-public class SamPermissionsImpl implements PermissionsInterface {
+public class SamPermissionsImpl implements PermissionsInterface, Managed {
 
     private static final Logger LOG = LoggerFactory.getLogger(SamPermissionsImpl.class);
 
@@ -64,12 +71,58 @@ public class SamPermissionsImpl implements PermissionsInterface {
     private static Map<Role, String> permissionSamMap = samPermissionMap.entrySet().stream()
             .collect(Collectors.toMap(Map.Entry::getValue, c -> c.getKey()));
 
+    /**
+     * How long an answer from SAM to a permission check is reused. Changes made through Dockstore invalidate
+     * the affected entries right away, this only bounds how stale a change made directly in SAM can be.
+     */
+    private static final long DECISION_TTL_SECONDS = 30;
+    private static final long MAX_CACHED_DECISIONS = 10_000;
+    private static final long MAX_CACHED_CLIENTS = 1_000;
+    /**
+     * Permission checks are reads, so one that times out or hits a SAM server error is tried again
+     */
+    private static final int MAX_ACTION_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 100;
+
     private DockstoreWebserviceConfiguration config;
     private final TokenDAO tokenDAO;
+    private final Cache<DecisionKey, Boolean> decisionCache = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_DECISIONS)
+            .expireAfterWrite(DECISION_TTL_SECONDS, TimeUnit.SECONDS)
+            .build();
+    private final Client samClient;
+    /**
+     * SAM clients keyed by the Google access token they authenticate with. They all send their requests through samClient.
+     */
+    private final Cache<String, ApiClient> apiClientCache = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_CLIENTS)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
 
     public SamPermissionsImpl(TokenDAO tokenDAO, DockstoreWebserviceConfiguration config) {
         this.tokenDAO = tokenDAO;
         this.config = config;
+        this.samClient = new ApiClient() {
+            @Override
+            protected void performAdditionalClientConfiguration(ClientConfig clientConfig) {
+                // Calling ResourcesApi.addUserToPolicy invokes PUT without a body, which will fail
+                // without this:
+                clientConfig.property(ClientProperties.SUPPRESS_HTTP_COMPLIANCE_VALIDATION, true);
+                clientConfig.property(ClientProperties.CONNECT_TIMEOUT, SamPermissionsImpl.this.config.getSamConfiguration().getConnectTimeoutMillis());
+                clientConfig.property(ClientProperties.READ_TIMEOUT, SamPermissionsImpl.this.config.getSamConfiguration().getReadTimeoutMillis());
+            }
+        }.getHttpClient();
+    }
+
+    @Override
+    public void start() {
+        // the client is created with this
+    }
+
+    @Override
+    public void stop() {
+        apiClientCache.invalidateAll();
+        samClient.close();
     }
 
     /**
@@ -119,6 +172,9 @@ public class SamPermissionsImpl implements PermissionsInterface {
                     .orElse("Error setting permission");
             LOG.error(errorMessage, e);
             throw new CustomWebApplicationException(errorMessage, e.getCode());
+        } finally {
+            // SAM may have applied some of the changes before failing
+            invalidateDecisions(workflowResource(workflow));
         }
     }
 
@@ -262,6 +318,8 @@ public class SamPermissionsImpl implements PermissionsInterface {
         } catch (ApiException e) {
             LOG.error(MessageFormat.format("Error removing {0} from workflow {1}", email, encodedPath), e);
             throw new CustomWebApplicationException("Error removing permissions", e.getCode());
+        } finally {
+            invalidateDecisions(workflowResource(workflow));
         }
     }
 
@@ -321,15 +379,52 @@ public class SamPermissionsImpl implements PermissionsInterface {
 
     @Override
     public boolean canDoAction(User user, Workflow workflow, Role.Action action) {
+        final String resource = workflowResource(workflow);
+        final DecisionKey key = new DecisionKey(user.getId(), resource, action);
+        final Boolean cachedDecision = decisionCache.getIfPresent(key);
+        if (cachedDecision != null) {
+            return cachedDecision;
+        }
         ResourcesApi resourcesApi = getResourcesApi(user);
-        String encodedPath = encodedWorkflowResource(workflow, resourcesApi.getApiClient());
+        String encodedPath = resourcesApi.getApiClient().escapeString(resource);
+        for (int attempt = 1;; attempt++) {
+            try {
+                final boolean decision = resourcesApi.resourceAction(SamConstants.RESOURCE_TYPE, encodedPath, SamConstants.toSamAction(action));
+                decisionCache.put(key, decision);
+                return decision;
+            } catch (ApiException | ProcessingException e) {
+                // ProcessingException is a timeout or a failed connection
+                final boolean transientError = e instanceof ProcessingException || ((ApiException) e).getCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+                if (!transientError || attempt == MAX_ACTION_ATTEMPTS || !waitToRetry()) {
+                    LOG.warn(MessageFormat.format("Could not check {0} on {1} with SAM after {2} attempt(s)", action, resource, attempt), e);
+                    // not cached, so that a transient SAM error does not deny access for the lifetime of an entry
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if interrupted while waiting
+     */
+    private static boolean waitToRetry() {
         try {
-            return resourcesApi.resourceAction(SamConstants.RESOURCE_TYPE, encodedPath, SamConstants.toSamAction(action));
-        } catch (ApiException e) {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
 
+    /**
+     * Drops the cached permission checks of every user for a resource
+     * @param resource the unencoded SAM resource id of a workflow
+     */
+    private void invalidateDecisions(String resource) {
+        decisionCache.asMap().keySet().removeIf(key -> key.resource.equals(resource));
+    }
+
     @Override
     public void selfDestruct(User user) {
         if (hasGoogleToken(user)) {
@@ -345,6 +440,9 @@ public class SamPermissionsImpl implements PermissionsInterface {
                 }
             } catch (ApiException e) {
                 throw new CustomWebApplicationException("Error deleting user", e.getCode());
+            } finally {
+                // the resource ids are encoded, simpler to drop everything on this rare operation
+                decisionCache.invalidateAll();
             }
         }
     }
@@ -407,25 +505,29 @@ public class SamPermissionsImpl implements PermissionsInterface {
         }
     }
     private ApiClient getApiClient(User user) {
+        return googleAccessToken(user).map(credentials -> apiClientCache.get(credentials, this::createApiClient))
+                .orElseThrow(() -> new CustomWebApplicationException("Could not get Google access token. Try relinking your Google account.", HttpStatus.SC_UNAUTHORIZED));
+    }
+
+    private ApiClient createApiClient(String credentials) {
         ApiClient apiClient = new ApiClient() {
             @Override
-            protected void performAdditionalClientConfiguration(ClientConfig clientConfig) {
-                // Calling ResourcesApi.addUserToPolicy invokes PUT without a body, which will fail
-                // without this:
-                clientConfig.property(ClientProperties.SUPPRESS_HTTP_COMPLIANCE_VALIDATION, true);
+            protected Client buildHttpClient(boolean debugging) {
+                // share the one client instead of opening a connection pool per token
+                return samClient;
             }
         };
         apiClient.setBasePath(config.getSamConfiguration().getBasepath());
-        return googleAccessToken(user).map(credentials -> {
-            apiClient.setAccessToken(credentials);
-            return apiClient;
-        }).orElseThrow(() -> new CustomWebApplicationException("Could not get Google access token. Try relinking your Google account.", HttpStatus.SC_UNAUTHORIZED));
+        apiClient.setAccessToken(credentials);
+        return apiClient;
     }
 
     private String encodedWorkflowResource(Workflow workflow, ApiClient apiClient) {
-        final StringBuilder sb = new StringBuilder(SamConstants.WORKFLOW_PREFIX);
-        sb.append(workflow.getWorkflowPath());
-        return apiClient.escapeString(sb.toString());
+        return apiClient.escapeString(workflowResource(workflow));
+    }
+
+    private String workflowResource(Workflow workflow) {
+        return SamConstants.WORKFLOW_PREFIX + workflow.getWorkflowPath();
     }
 
     /**
@@ -526,4 +628,32 @@ public class SamPermissionsImpl implements PermissionsInterface {
         return null;
     }
 
+    private static final class DecisionKey {
+        private final long userId;
+        private final String resource;
+        private final Role.Action action;
+
+        DecisionKey(long userId, String resource, Role.Action action) {
+            this.userId = userId;
+            this.resource = resource;
+            this.action = action;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DecisionKey that = (DecisionKey)o;
+            return userId == that.userId && resource.equals(that.resource) && action == that.action;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, resource, action);
+        }
+    }
 }
@@ -411,71 +411,79 @@ public abstract class AbstractHostedEntryResource<T extends Entry<T, U>, U exten
 
     private Set<SourceFile> handleSourceFileMerger(Long entryId, Set<SourceFile> sourceFiles, T entry, U tag) {
         Set<U> versions = entry.getWorkflowVersions();
-        Map<String, SourceFile> map = new HashMap<>();
         tag.setName(calculateNextVersionName(versions, entry));
 
         if (versions.size() > 0) {
             // get the last one and modify files accordingly
             U versionWithTheLargestName = versionWithLargestName(versions);
-            // carry over old files
-            versionWithTheLargestName.getSourceFiles().forEach(v -> {
-                SourceFile newfile = new SourceFile();
-                newfile.setPath(v.getPath());
-                newfile.setAbsolutePath(v.getAbsolutePath());
-                newfile.setContent(v.getContent());
-                newfile.setType(v.getType());
-                map.put(newfile.getPath(), newfile);
-            });
+            Map<String, SourceFile> submittedFiles = new HashMap<>();
+            for (SourceFile file : sourceFiles) {
+                // ignore IDs if they were populated
+                file.setId(0);
+                submittedFiles.put(file.getPath(), file);
+            }
 
-            boolean changed = false;
             // mutate sourcefiles accordingly
             // 1) matching filenames are updated with the new content
             // 2) empty files are deleted
             // 3) new files are created
-            for (SourceFile file : sourceFiles) {
-                // ignore IDs if they were populated
-                file.setId(0);
-
-                if (map.containsKey(file.getPath())) {
-                    if (file.getContent() != null) {
-                        // case 1)
-                        final SourceFile sourceFile = map.get(file.getPath());
-                        if (!sourceFile.getContent().equals(file.getContent())) {
-                            sourceFile.setContent(file.getContent());
-                            changed = true;
-                        }
+            // unchanged files are shared with the previous revision, only the delta is inserted
+            List<SourceFile> sharedFiles = new ArrayList<>();
+            List<SourceFile> newFiles = new ArrayList<>();
+            boolean changed = false;
+            for (SourceFile oldFile : versionWithTheLargestName.getSourceFiles()) {
+                SourceFile file = submittedFiles.remove(oldFile.getPath());
+                if (file == null || (file.getContent() != null && file.getContent().equals(oldFile.getContent()))) {
+                    if (SourceFile.TEST_FILE_TYPES.contains(oldFile.getType())) {
+                        // verification is recorded on test parameter files, and a new revision starts out unverified
+                        newFiles.add(copySourceFile(oldFile));
                     } else {
-                        // case 2)
-                        map.remove(file.getPath());
-                        LOG.info("deleted " + file.getPath() + " for new revision of " + entryId);
-                        changed = true;
+                        sharedFiles.add(oldFile);
                     }
+                } else if (file.getContent() == null) {
+                    // case 2)
+                    LOG.info("deleted " + file.getPath() + " for new revision of " + entryId);
+                    changed = true;
                 } else {
-                    // case 3
-                    map.put(file.getPath(), file);
+                    // case 1)
+                    SourceFile updatedFile = copySourceFile(oldFile);
+                    updatedFile.setContent(file.getContent());
+                    newFiles.add(updatedFile);
                     changed = true;
                 }
             }
+            // case 3)
+            newFiles.addAll(submittedFiles.values());
+            changed |= !submittedFiles.isEmpty();
 
             if (!changed) {
                 LOG.info("aborting change, there were no differences detected for new revision of " + entryId);
                 throw new CustomWebApplicationException("no changes detected", HttpStatus.SC_NO_CONTENT);
             }
+            tag.getSourceFiles().addAll(sharedFiles);
+            persistSourceFiles(tag, newFiles);
         } else {
             // for brand new hosted tools
+            Map<String, SourceFile> map = new HashMap<>();
             sourceFiles.forEach(f -> map.put(f.getPath(), f));
+            persistSourceFiles(tag, map.values());
         }
-        persistSourceFiles(tag, map.values());
 
         return tag.getSourceFiles();
     }
 
+    private static SourceFile copySourceFile(SourceFile sourceFile) {
+        SourceFile newFile = new SourceFile();
+        newFile.setPath(sourceFile.getPath());
+        newFile.setAbsolutePath(sourceFile.getAbsolutePath());
+        newFile.setContent(sourceFile.getContent());
+        newFile.setType(sourceFile.getType());
+        return newFile;
+    }
+
     void persistSourceFiles(U tag, Collection<SourceFile> sourceFiles) {
-        // create everything still in the map
-        for (SourceFile e : sourceFiles) {
-            long l = fileDAO.create(e);
-            tag.getSourceFiles().add(fileDAO.findById(l));
-        }
+        // persisted together and flushed once so that the inserts can be batched
+        tag.getSourceFiles().addAll(fileDAO.createAll(sourceFiles));
     }
 
     /**
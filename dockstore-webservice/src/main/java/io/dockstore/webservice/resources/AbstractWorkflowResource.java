@@ -8,6 +8,7 @@ import static io.dockstore.webservice.core.WorkflowMode.FULL;
 import static io.dockstore.webservice.core.WorkflowMode.STUB;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.SourceControl;
 import io.dockstore.common.Utilities;
@@ -73,7 +74,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
@@ -95,6 +99,13 @@ import org.slf4j.LoggerFactory;
 @Api("workflows")
 public abstract class AbstractWorkflowResource<T extends Workflow> implements SourceControlResourceInterface, AuthenticatedResourceInterface {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractWorkflowResource.class);
+    private static final int DOCKSTORE_YML_FETCH_THREADS = 8;
+    /**
+     * Bounded pool shared by all pushes, used to fetch the files of the entries of a .dockstore.yml concurrently.
+     * Only GitHub reads run here; database work stays on the request thread, which owns the Hibernate session.
+     */
+    private static final ExecutorService DOCKSTORE_YML_FETCH_EXECUTOR = Executors.newFixedThreadPool(DOCKSTORE_YML_FETCH_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("dockstore-yml-fetch-%d").setDaemon(true).build());
 
     protected final HttpClient client;
     protected final TokenDAO tokenDAO;
@@ -367,9 +378,14 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
             // '&=' does not short-circuit, ensuring that all of the lists are processed.
             // 'isSuccessful &= x()' is equivalent to 'isSuccessful = isSuccessful & x()'.
             List<Service12> services = dockstoreYaml12.getService() != null ? List.of(dockstoreYaml12.getService()) : List.of();
-            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(services, repository, gitReference, installationId, username, dockstoreYml, Service.class, messageWriter);
-            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(dockstoreYaml12.getWorkflows(), repository, gitReference, installationId, username, dockstoreYml, BioWorkflow.class, messageWriter);
-            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(dockstoreYaml12.getTools(), repository, gitReference, installationId, username, dockstoreYml, AppTool.class, messageWriter);
+
+            // Fetch the files of every entry up front and concurrently, into a snapshot of the pushed commit shared by all entries.
+            // The per-entry processing below then reads from that snapshot instead of going back to GitHub one file at a time.
+            prefetchDockstoreYmlEntries(gitHubSourceCodeRepo, repository, gitReference, services, dockstoreYaml12.getWorkflows(), dockstoreYaml12.getTools());
+
+            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(services, repository, gitReference, gitHubSourceCodeRepo, username, dockstoreYml, Service.class, messageWriter);
+            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(dockstoreYaml12.getWorkflows(), repository, gitReference, gitHubSourceCodeRepo, username, dockstoreYml, BioWorkflow.class, messageWriter);
+            isSuccessful &= createWorkflowsAndVersionsFromDockstoreYml(dockstoreYaml12.getTools(), repository, gitReference, gitHubSourceCodeRepo, username, dockstoreYml, AppTool.class, messageWriter);
 
         } catch (Exception ex) {
 
@@ -395,6 +411,7 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
 
             GHRateLimit endRateLimit = gitHubSourceCodeRepo.getGhRateLimitQuietly();
             gitHubSourceCodeRepo.reportOnGitHubRelease(startRateLimit, endRateLimit, repository, username, gitReference, isSuccessful);
+            gitHubSourceCodeRepo.clearSnapshot();
         }
 
         if (!isSuccessful) {
@@ -491,20 +508,43 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
         }
     }
 
+    /**
+     * Concurrently fetch the files of the .dockstore.yml entries that apply to the given git reference
+     * @param gitHubSourceCodeRepo Source Code Repo whose file snapshot is populated
+     * @param repository Repository path (ex. dockstore/dockstore-ui2)
+     * @param gitReference Git reference from GitHub (ex. refs/tags/1.0)
+     * @param entryLists Lists of services, workflows and tools from the .dockstore.yml
+     */
+    @SuppressWarnings("lgtm[java/path-injection]")
+    @SafeVarargs
+    private void prefetchDockstoreYmlEntries(GitHubSourceCodeRepo gitHubSourceCodeRepo, String repository, String gitReference, List<? extends Workflowish>... entryLists) {
+        final Path gitRefPath = Path.of(gitReference); // lgtm[java/path-injection]
+        final List<Workflowish> entries = Stream.of(entryLists).flatMap(List::stream).filter(entry -> {
+            try {
+                return DockstoreYamlHelper.filterGitReference(gitRefPath, entry.getFilters());
+            } catch (RuntimeException ex) {
+                // Reported properly when the entry is processed
+                return false;
+            }
+        }).collect(Collectors.toList());
+        if (entries.size() > 1) {
+            gitHubSourceCodeRepo.prefetchDockstoreYmlFiles(repository, gitReference, entries, DOCKSTORE_YML_FETCH_EXECUTOR);
+        }
+    }
+
     /**
      * Create or retrieve workflows/GitHub App Tools based on Dockstore.yml, add or update tag version
      * ONLY WORKS FOR v1.2
      * @param repository Repository path (ex. dockstore/dockstore-ui2)
      * @param gitReference Git reference from GitHub (ex. refs/tags/1.0)
-     * @param installationId Installation id needed to setup GitHub apps
+     * @param gitHubSourceCodeRepo Source Code Repo shared by all entries of the .dockstore.yml
      * @param username Name of user that triggered action
      * @param dockstoreYml
      */
     @SuppressWarnings({"lgtm[java/path-injection]", "checkstyle:ParameterNumber"})
-    private boolean createWorkflowsAndVersionsFromDockstoreYml(List<? extends Workflowish> yamlWorkflows, String repository, String gitReference, String installationId, String username,
-            final SourceFile dockstoreYml, Class<?> workflowType, PrintWriter messageWriter) {
+    private boolean createWorkflowsAndVersionsFromDockstoreYml(List<? extends Workflowish> yamlWorkflows, String repository, String gitReference, GitHubSourceCodeRepo gitHubSourceCodeRepo,
+            String username, final SourceFile dockstoreYml, Class<?> workflowType, PrintWriter messageWriter) {
 
-        GitHubSourceCodeRepo gitHubSourceCodeRepo = (GitHubSourceCodeRepo)SourceCodeRepoFactory.createGitHubAppRepo(gitHubAppSetup(installationId));
         final Path gitRefPath = Path.of(gitReference); // lgtm[java/path-injection]
 
         boolean isSuccessful = true;
@@ -929,7 +969,7 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
                 throw new CustomWebApplicationException("Repository does not meet requirements to publish.", HttpStatus.SC_BAD_REQUEST);
             }
             PublicStateManager.getInstance().handleIndexUpdate(workflow, StateManagerMode.PUBLISH);
-            createAndSetDiscourseTopic(workflow);
+            entryResource.queueDiscourseTopic(workflow);
         } else {
             workflow.setIsPublished(false);
             publishChecker(checker, false, user);
@@ -939,16 +979,6 @@ public abstract class AbstractWorkflowResource<T extends Workflow> implements So
         return workflow;
     }
 
-    private void createAndSetDiscourseTopic(Workflow workflow) {
-        if (workflow.getTopicId() == null) {
-            try {
-                entryResource.createAndSetDiscourseTopic(workflow.getId());
-            } catch (CustomWebApplicationException ex) {
-                LOG.error("Error adding discourse topic.", ex);
-            }
-        }
-    }
-
     private void publishChecker(Workflow checker, boolean publish, User user) {
         if (checker != null && checker.getIsPublished() != publish) {
             checker.setIsPublished(publish);
@@ -77,13 +77,11 @@ public class CategoryResource implements AuthenticatedResourceInterface {
         }
 
         boolean includeEntries = ParamHelper.csvIncludesField(include, "entries");
-        categories.forEach(category -> {
-            if (includeEntries) {
-                collectionHelper.evictAndAddEntries(category);
-            } else {
-                collectionHelper.evictAndSummarize(category);
-            }
-        });
+        if (includeEntries) {
+            collectionHelper.evictAndAddEntries(categories);
+        } else {
+            collectionHelper.evictAndSummarize(categories);
+        }
 
         return categories;
     }
@@ -16,25 +16,50 @@
 
 package io.dockstore.webservice.resources;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.CategorySummary;
 import io.dockstore.webservice.core.Collection;
 import io.dockstore.webservice.core.CollectionEntry;
-import io.dockstore.webservice.core.Label;
 import io.dockstore.webservice.jdbi.EntryDAO;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.apache.http.HttpStatus;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-class CollectionHelper {
+public class CollectionHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(CollectionHelper.class);
+    /**
+     * Assembled entries of each collection. Adding or removing an entry, and publishing, unpublishing or relabelling an entry in the
+     * collection, invalidate it right away, see {@link io.dockstore.webservice.helpers.statelisteners.CollectionListener}. Other changes
+     * to the entries show up once the cached contents expire. The cached entries are never handed out, readers get copies.
+     */
+    private static final Cache<Long, CollectionContents> COLLECTION_CONTENTS = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .maximumSize(10_000)
+        .build();
     private final SessionFactory sessionFactory;
     private final EntryDAO<?> entryDAO;
 
@@ -66,45 +91,123 @@ class CollectionHelper {
     }
 
     public void evictAndAddEntries(Collection collection) {
+        evictAndAddEntries(List.of(collection));
+    }
+
+    /**
+     * Evict the collections from the session and fill in their entries. The entries of collections that are not already cached are loaded together,
+     * so the number of queries does not depend on the number of collections or entries.
+     * @param collections collections to fill in
+     */
+    public void evictAndAddEntries(java.util.Collection<? extends Collection> collections) {
         Session currentSession = sessionFactory.getCurrentSession();
-        currentSession.evict(collection);
-        List<CollectionEntry> collectionWorkflows = entryDAO.getCollectionWorkflows(collection.getId());
-        List<CollectionEntry> collectionServices = entryDAO.getCollectionServices(collection.getId());
-        List<CollectionEntry> collectionTools = entryDAO.getCollectionTools(collection.getId());
-        List<CollectionEntry> collectionWorkflowsWithVersions = entryDAO.getCollectionWorkflowsWithVersions(collection.getId());
-        List<CollectionEntry> collectionServicesWithVersions = entryDAO.getCollectionServicesWithVersions(collection.getId());
-        List<CollectionEntry> collectionToolsWithVersions = entryDAO.getCollectionToolsWithVersions(collection.getId());
-        List<CollectionEntry> collectionEntries = new ArrayList<>();
-        collectionEntries.addAll(collectionWorkflows);
-        collectionEntries.addAll(collectionServices);
-        collectionEntries.addAll(collectionTools);
-        collectionEntries.addAll(collectionWorkflowsWithVersions);
-        collectionEntries.addAll(collectionServicesWithVersions);
-        collectionEntries.addAll(collectionToolsWithVersions);
-        collectionEntries.forEach(entry -> {
-            List<Label> labels = entryDAO.getLabelByEntryId(entry.getId());
-            List<String> labelStrings = labels.stream().map(Label::getValue).collect(Collectors.toList());
-            entry.setLabels(labelStrings);
-            List<CategorySummary> summaries = entryDAO.findCategorySummariesByEntryId(entry.getId());
-            entry.setCategorySummaries(summaries);
+        collections.forEach(currentSession::evict);
+        List<Long> collectionIds = collections.stream().map(Collection::getId).collect(Collectors.toList());
+        Map<Long, CollectionContents> contents = COLLECTION_CONTENTS.getAll(collectionIds, this::loadContents);
+        collections.forEach(collection -> {
+            CollectionContents collectionContents = contents.get(collection.getId());
+            collection.setCollectionEntries(collectionContents.copyEntries());
+            collection.setWorkflowsLength(collectionContents.workflowsLength);
+            collection.setToolsLength(collectionContents.toolsLength);
+        });
+    }
+
+    /**
+     * Set the ETag of a collection that has been filled in by evictAndAddEntries, or answer with a 304 if the client already has it
+     * @param collection collection being returned
+     * @param request the request, used to evaluate If-None-Match
+     * @param response the response to set the ETag on
+     */
+    public void checkEntityTag(Collection collection, Request request, HttpServletResponse response) {
+        CollectionContents collectionContents = COLLECTION_CONTENTS.getIfPresent(collection.getId());
+        if (collectionContents == null) {
+            return;
+        }
+        Hasher hasher = Hashing.sha256().newHasher().putString(collectionContents.hash, StandardCharsets.UTF_8);
+        if (collection.getDbUpdateDate() != null) {
+            hasher.putLong(collection.getDbUpdateDate().getTime());
+        }
+        EntityTag entityTag = new EntityTag(hasher.hash().toString());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            throw new WebApplicationException(notModified.build());
+        }
+        response.setHeader(HttpHeaders.ETAG, entityTag.toString());
+    }
+
+    /**
+     * Drop the cached entries of collections, call whenever an entry is added to or removed from one of them, or one of their entries changes
+     * @param collectionIds ids of the collections
+     */
+    public static void invalidateEntries(java.util.Collection<Long> collectionIds) {
+        COLLECTION_CONTENTS.invalidateAll(collectionIds);
+    }
+
+    private Map<Long, CollectionContents> loadContents(Set<? extends Long> collectionIds) {
+        List<CollectionEntry> workflowEntries = entryDAO.getCollectionWorkflowEntries(new ArrayList<>(collectionIds));
+        List<CollectionEntry> toolEntries = entryDAO.getCollectionToolEntries(new ArrayList<>(collectionIds));
+        List<CollectionEntry> collectionEntries = new ArrayList<>(workflowEntries);
+        collectionEntries.addAll(toolEntries);
+
+        Map<Long, List<String>> labels = Map.of();
+        Map<Long, List<CategorySummary>> summaries = Map.of();
+        if (!collectionEntries.isEmpty()) {
+            Set<Long> entryIds = collectionEntries.stream().map(CollectionEntry::getId).collect(Collectors.toSet());
+            labels = entryDAO.getLabelValuesByEntryIds(entryIds);
+            summaries = entryDAO.findCategorySummariesByEntryIds(entryIds);
+        }
+
+        Map<Long, CollectionContents> contents = new HashMap<>();
+        collectionIds.forEach(collectionId -> contents.put(collectionId, new CollectionContents()));
+        for (CollectionEntry entry : collectionEntries) {
+            entry.setLabels(labels.getOrDefault(entry.getId(), new ArrayList<>()));
+            entry.setCategorySummaries(summaries.getOrDefault(entry.getId(), new ArrayList<>()));
+            CollectionContents collectionContents = contents.get(entry.getCollectionId());
             switch (entry.getEntryType()) {
             case "tool":
-                entry.setDescriptorTypes(entryDAO.getToolsDescriptorTypes(entry.getId()));
+                collectionContents.toolsLength++;
                 break;
             case "workflow":
-                entry.setDescriptorTypes(entryDAO.getWorkflowsDescriptorTypes(entry.getId()));
+                collectionContents.workflowsLength++;
                 break;
             case "apptool":
-                entry.setDescriptorTypes(entryDAO.getWorkflowsDescriptorTypes(entry.getId()));
+                collectionContents.workflowsLength++;
                 // we get file descriptor types like workflows, but make the UI treat these as tools (so icon and url work)
                 entry.setEntryType("tool");
                 break;
+            case "service":
+                break;
             default:
                 throw new UnsupportedOperationException("unexpected entry type when constructing collection");
             }
-        });
-        collection.setCollectionEntries(collectionEntries);
-        collection.setWorkflowsLength(collectionWorkflows.size() + (long)collectionWorkflowsWithVersions.size());
-        collection.setToolsLength(collectionTools.size() + (long)collectionToolsWithVersions.size());
+            collectionContents.entries.add(entry);
+        }
+        contents.values().forEach(CollectionContents::computeHash);
+        return contents;
+    }
+
+    /**
+     * The entries of one collection as they are returned, with a hash of them for the ETag
+     */
+    private static final class CollectionContents {
+        private final List<CollectionEntry> entries = new ArrayList<>();
+        private long workflowsLength;
+        private long toolsLength;
+        private String hash;
+
+        private List<CollectionEntry> copyEntries() {
+            return entries.stream().map(CollectionEntry::new).collect(Collectors.toList());
+        }
+
+        private void computeHash() {
+            Hasher hasher = Hashing.sha256().newHasher();
+            entries.stream().sorted(Comparator.comparing(CollectionEntry::getId).thenComparing(entry -> Objects.toString(entry.getVersionName(), ""))).forEach(entry -> {
+                hasher.putLong(entry.getId()).putString(entry.getEntryType() + '|' + entry.getEntryPath() + '|' + entry.getVersionName() + '|' + entry.getVerified(), StandardCharsets.UTF_8);
+                hasher.putLong(entry.getDbUpdateDate() == null ? 0 : entry.getDbUpdateDate().getTime());
+                hasher.putString(String.join(",", entry.getLabels()) + '|' + String.join(",", entry.getDescriptorTypes()), StandardCharsets.UTF_8);
+                entry.getCategorySummaries().forEach(summary -> hasher.putLong(summary.getId()));
+            });
+            hash = hasher.hash().toString();
+        }
     }
 }
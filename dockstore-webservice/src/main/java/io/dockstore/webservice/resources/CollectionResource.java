@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -57,7 +58,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.http.HttpStatus;
 import org.hibernate.Hibernate;
@@ -143,7 +146,8 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
     @Operation(operationId = "getCollectionById", summary = "Retrieve a collection by ID.", description = "Retrieve a collection by ID. Supports optional authentication.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
     public Collection getCollectionById(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user") @Auth Optional<User> user,
         @ApiParam(value = "Organization ID.", required = true) @Parameter(description = "Organization ID.", name = "organizationId", in = ParameterIn.PATH, required = true) @PathParam("organizationId") Long organizationId,
-        @ApiParam(value = "Collection ID.", required = true) @Parameter(description = "Collection ID.", name = "collectionId", in = ParameterIn.PATH, required = true) @PathParam("collectionId") Long collectionId) {
+        @ApiParam(value = "Collection ID.", required = true) @Parameter(description = "Collection ID.", name = "collectionId", in = ParameterIn.PATH, required = true) @PathParam("collectionId") Long collectionId,
+        @Context Request request, @Context HttpServletResponse response) {
 
         if (user.isEmpty()) {
             // No user given, only show collections from approved organizations
@@ -158,6 +162,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
             Hibernate.initialize(collection.getAliases());
             Collection approvalForCollection = getApprovalForCollection(collection);
             evictAndAddEntries(approvalForCollection);
+            helper.checkEntityTag(approvalForCollection, request, response);
             return approvalForCollection;
         } else {
             // User is given, check if the collections organization is either approved or the user has access
@@ -171,6 +176,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
             assert collection != null;
             Hibernate.initialize(collection.getAliases());
             evictAndAddEntries(collection);
+            helper.checkEntityTag(collection, request, response);
             return collection;
         }
     }
@@ -183,7 +189,8 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
     @Operation(operationId = "getCollectionByName", summary = "Retrieve a collection by name.", description = "Retrieve a collection by name. Supports optional authentication.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
     public Collection getCollectionByName(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user") @Auth Optional<User> user,
         @ApiParam(value = "Organization name.", required = true) @Parameter(description = "Organization name.", name = "organizationName", in = ParameterIn.PATH, required = true) @PathParam("organizationName") String organizationName,
-        @ApiParam(value = "Collection name.", required = true) @Parameter(description = "Collection name.", name = "collectionName", in = ParameterIn.PATH, required = true) @PathParam("collectionName") String collectionName) {
+        @ApiParam(value = "Collection name.", required = true) @Parameter(description = "Collection name.", name = "collectionName", in = ParameterIn.PATH, required = true) @PathParam("collectionName") String collectionName,
+        @Context Request request, @Context HttpServletResponse response) {
         if (user.isEmpty()) {
             // No user given, only show collections from approved organizations
             Organization organization = organizationDAO.findApprovedByName(organizationName);
@@ -197,6 +204,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
             throwExceptionForNullCollection(collection);
             Collection approvalForCollection = getApprovalForCollection(collection);
             evictAndAddEntries(approvalForCollection);
+            helper.checkEntityTag(approvalForCollection, request, response);
             return approvalForCollection;
         } else {
             // User is given, check if the collections organization is either approved or the user has access
@@ -213,6 +221,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
 
             Hibernate.initialize(collection.getAliases());
             evictAndAddEntries(collection);
+            helper.checkEntityTag(collection, request, response);
             return collection;
         }
     }
@@ -262,6 +271,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
 
         Event addToCollectionEvent = eventBuild.build();
         eventDAO.create(addToCollectionEvent);
+        CollectionHelper.invalidateEntries(List.of(collectionId));
 
         // If added to a Category, update the Entry in the index
         if (entryAndCollection.getRight() instanceof Category) {
@@ -312,6 +322,7 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
 
         Event removeFromCollectionEvent = eventBuild.build();
         eventDAO.create(removeFromCollectionEvent);
+        CollectionHelper.invalidateEntries(List.of(collectionId));
 
         // If deleted from a Category, update the Entry in the index
         if (entryAndCollection.getRight() instanceof Category) {
@@ -398,13 +409,11 @@ public class CollectionResource implements AuthenticatedResourceInterface, Alias
 
         List<Collection> collections = collectionDAO.findAllByOrg(organizationId);
         boolean includeEntries = ParamHelper.csvIncludesField(include, "entries");
-        collections.forEach(collection -> {
-            if (includeEntries) {
-                evictAndAddEntries(collection);
-            } else {
-                evictAndSummarize(collection);
-            }
-        });
+        if (includeEntries) {
+            helper.evictAndAddEntries(collections);
+        } else {
+            collections.forEach(this::evictAndSummarize);
+        }
         return collections;
     }
 
@@ -73,7 +73,6 @@ import io.swagger.quay.client.model.QuayRepo;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -88,6 +87,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -97,10 +97,10 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ResourceContext;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
-import javax.ws.rs.core.StreamingOutput;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.hibernate.Hibernate;
@@ -743,13 +743,7 @@ public class DockerRepoResource
         tool = toolDAO.findById(id);
         if (request.getPublish()) {
             PublicStateManager.getInstance().handleIndexUpdate(tool, StateManagerMode.PUBLISH);
-            if (tool.getTopicId() == null) {
-                try {
-                    entryResource.createAndSetDiscourseTopic(id);
-                } catch (CustomWebApplicationException ex) {
-                    LOG.error("Error adding discourse topic.", ex);
-                }
-            }
+            entryResource.queueDiscourseTopic(tool);
         } else {
             PublicStateManager.getInstance().handleIndexUpdate(tool, StateManagerMode.DELETE);
         }
@@ -1188,7 +1182,8 @@ public class DockerRepoResource
     @Produces("application/zip")
     public Response getToolZip(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user") @Auth Optional<User> user,
         @ApiParam(value = "toolId", required = true) @PathParam("toolId") Long toolId,
-        @ApiParam(value = "tagId", required = true) @PathParam("tagId") Long tagId) {
+        @ApiParam(value = "tagId", required = true) @PathParam("tagId") Long tagId,
+        @ApiParam(hidden = true) @Parameter(hidden = true) @HeaderParam(HttpHeaders.RANGE) String range) {
 
         Tool tool = toolDAO.findById(toolId);
         if (tool == null) {
@@ -1208,16 +1203,13 @@ public class DockerRepoResource
 
         Tag tag = tool.getWorkflowVersions().stream().filter(innertag -> innertag.getId() == tagId).findFirst()
             .orElseThrow(() -> new CustomWebApplicationException("Could not find tag", HttpStatus.SC_NOT_FOUND));
-        Set<SourceFile> sourceFiles = tag.getSourceFiles();
-        if (sourceFiles == null || sourceFiles.size() == 0) {
+        if (fileDAO.countSourceFilesByVersion(tag.getId()) == 0) {
             throw new CustomWebApplicationException("no files found to zip", HttpStatus.SC_NO_CONTENT);
         }
 
         String fileName = EntryVersionHelper.generateZipFileName(tool.getToolPath(), tag.getName());
-        java.nio.file.Path path = Paths.get(tag.getWorkingDirectory());
 
-        return Response.ok().entity((StreamingOutput) output -> writeStreamAsZip(sourceFiles, output, path))
-            .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"").build();
+        return getVersionZipResponse(sessionFactory, tag, fileName, range);
     }
 
     @GET
@@ -15,33 +15,32 @@
  */
 package io.dockstore.webservice.resources;
 
-import static io.dockstore.webservice.helpers.ORCIDHelper.getPutCodeFromLocation;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
 
 import com.codahale.metrics.annotation.Timed;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.webservice.CustomWebApplicationException;
-import io.dockstore.webservice.DockstoreWebserviceConfiguration;
-import io.dockstore.webservice.core.AppTool;
-import io.dockstore.webservice.core.BioWorkflow;
 import io.dockstore.webservice.core.Category;
 import io.dockstore.webservice.core.CollectionOrganization;
 import io.dockstore.webservice.core.DescriptionMetrics;
 import io.dockstore.webservice.core.Entry;
-import io.dockstore.webservice.core.OrcidPutCode;
-import io.dockstore.webservice.core.Service;
-import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.OrcidExportJob;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.TokenScope;
-import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.dockstore.webservice.core.database.VersionVerifiedPlatform;
+import io.dockstore.webservice.helpers.DiscourseTopicOutbox;
 import io.dockstore.webservice.helpers.GitHubSourceCodeRepo;
 import io.dockstore.webservice.helpers.ORCIDHelper;
+import io.dockstore.webservice.helpers.OrcidExportQueue;
 import io.dockstore.webservice.helpers.PublicStateManager;
 import io.dockstore.webservice.helpers.SourceCodeRepoFactory;
+import io.dockstore.webservice.helpers.TransactionHelper;
+import io.dockstore.webservice.jdbi.DiscourseTopicRequestDAO;
+import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
@@ -54,11 +53,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
-import io.swagger.discourse.client.ApiClient;
 import io.swagger.discourse.client.ApiException;
-import io.swagger.discourse.client.Configuration;
-import io.swagger.discourse.client.api.TopicsApi;
-import io.swagger.discourse.client.model.InlineResponse2005;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -71,11 +66,6 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import io.swagger.v3.oas.annotations.security.SecuritySchemes;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.net.http.HttpResponse;
 import java.util.List;
 import java.util.Optional;
 import java.util.SortedSet;
@@ -89,10 +79,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
-import javax.xml.bind.JAXBException;
-import javax.xml.datatype.DatatypeConfigurationException;
+import javax.ws.rs.core.Response;
 import org.apache.http.HttpStatus;
-import org.hibernate.Hibernate;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -114,39 +102,31 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
     public static final String VERSION_NO_DOI_ERROR_MESSAGE = "Version does not have a DOI url associated with it";
     private static final Logger LOG = LoggerFactory.getLogger(EntryResource.class);
 
+    private final SessionFactory sessionFactory;
     private final TokenDAO tokenDAO;
     private final ToolDAO toolDAO;
     private final VersionDAO<?> versionDAO;
     private final UserDAO userDAO;
+    private final FileDAO fileDAO;
     private final CollectionHelper collectionHelper;
-    private final TopicsApi topicsApi;
-    private final String discourseKey;
-    private final String discourseUrl;
-    private final int discourseCategoryId;
-    private final String discourseApiUsername = "system";
-    private final int maxDescriptionLength = 500;
-    private final String hostName;
+    private final DiscourseTopicRequestDAO discourseTopicRequestDAO;
+    private final DiscourseTopicOutbox discourseTopicOutbox;
+    private final OrcidExportQueue orcidExportQueue;
     private final PermissionsInterface permissionsInterface;
 
     public EntryResource(SessionFactory sessionFactory, PermissionsInterface permissionsInterface, TokenDAO tokenDAO, ToolDAO toolDAO, VersionDAO<?> versionDAO, UserDAO userDAO,
-        DockstoreWebserviceConfiguration configuration) {
+        DiscourseTopicOutbox discourseTopicOutbox, OrcidExportQueue orcidExportQueue) {
+        this.sessionFactory = sessionFactory;
         this.permissionsInterface = permissionsInterface;
         this.toolDAO = toolDAO;
         this.versionDAO = versionDAO;
         this.tokenDAO = tokenDAO;
         this.userDAO = userDAO;
+        this.fileDAO = new FileDAO(sessionFactory);
         this.collectionHelper = new CollectionHelper(sessionFactory, toolDAO);
-        discourseUrl = configuration.getDiscourseUrl();
-        discourseKey = configuration.getDiscourseKey();
-        discourseCategoryId = configuration.getDiscourseCategoryId();
-
-        ApiClient apiClient = Configuration.getDefaultApiClient();
-        apiClient.addDefaultHeader("Content-Type", "application/x-www-form-urlencoded");
-        apiClient.addDefaultHeader("cache-control", "no-cache");
-        apiClient.setBasePath(discourseUrl);
-
-        hostName = configuration.getExternalConfig().getHostname();
-        topicsApi = new TopicsApi(apiClient);
+        this.discourseTopicRequestDAO = new DiscourseTopicRequestDAO(sessionFactory);
+        this.discourseTopicOutbox = discourseTopicOutbox;
+        this.orcidExportQueue = orcidExportQueue;
     }
 
     @POST
@@ -228,8 +208,7 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
             throw new CustomWebApplicationException("Version " + versionId + " does not exist for this entry", HttpStatus.SC_BAD_REQUEST);
         }
 
-        SortedSet<SourceFile> sourceFiles = version.getSourceFiles();
-        return sourceFiles.stream().map(sourceFile -> sourceFile.getType()).collect(Collectors.toCollection(TreeSet::new));
+        return fileDAO.findMetadataByVersion(versionId).stream().map(SourceFileMetadata::getType).collect(Collectors.toCollection(TreeSet::new));
     }
 
     public void checkEntryPermissions(final Optional<User> user, final Entry<? extends Entry, ? extends Version> entry) {
@@ -267,7 +246,7 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
     @POST
     @Path("/{entryId}/exportToOrcid")
     @Timed
-    @UnitOfWork
+    @UnitOfWork(transactional = false)
     @Operation(description = "Export entry to ORCID. DOI is required", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
     @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "Successfully exported entry to ORCID", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Entry.class)))
     @ApiResponse(responseCode = HttpStatus.SC_INTERNAL_SERVER_ERROR + "", description = "Internal Server Error")
@@ -275,15 +254,56 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
     @ApiResponse(responseCode = HttpStatus.SC_BAD_REQUEST + "", description = "Bad Request")
     @ApiOperation(value = "hidden", hidden = true)
     public Entry exportToORCID(@Parameter(hidden = true, name = "user") @Auth User user, @Parameter(description = "The id of the entry to export.", name = "entryId", in = ParameterIn.PATH, required = true)
+        @PathParam("entryId") Long entryId,
+        @Parameter(description = "Optional version ID of the entry version to export.", name = "versionId", in = ParameterIn.QUERY) @QueryParam("versionId") Long versionId) {
+        // the unit of work is not transactional and holds no connection until it is first used, so nothing is held during the ORCID calls.
+        // The check and the export run in short transactions of their own
+        TransactionHelper.transactionInNewSession(sessionFactory, () -> checkCanExportToOrcid(user, toolDAO.getGenericEntryById(entryId), versionId));
+        OrcidExportJob job = orcidExportQueue.exportNow(user.getId(), entryId, versionId);
+        if (job.getStatus() == OrcidExportJob.Status.FAILED) {
+            throw new CustomWebApplicationException(job.getMessage(), job.getErrorCode());
+        }
+        // read in the request's session after the export, so that the new put code is returned and lazy associations load while it is serialized
+        return toolDAO.getGenericEntryById(entryId);
+    }
+
+    @POST
+    @Path("/{entryId}/orcidExports")
+    @Timed
+    @UnitOfWork(readOnly = true)
+    @Operation(operationId = "submitOrcidExport", description = "Submit a job that exports an entry, or one of its versions, to ORCID. DOI is required. Jobs of the same user run one after another.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiResponse(responseCode = HttpStatus.SC_ACCEPTED + "", description = "Export job submitted", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = OrcidExportJob.class)))
+    @ApiResponse(responseCode = HttpStatus.SC_NOT_FOUND + "", description = "Not Found")
+    @ApiResponse(responseCode = HttpStatus.SC_BAD_REQUEST + "", description = "Bad Request")
+    @ApiOperation(value = "hidden", hidden = true)
+    public Response submitOrcidExport(@Parameter(hidden = true, name = "user") @Auth User user, @Parameter(description = "The id of the entry to export.", name = "entryId", in = ParameterIn.PATH, required = true)
         @PathParam("entryId") Long entryId,
         @Parameter(description = "Optional version ID of the entry version to export.", name = "versionId", in = ParameterIn.QUERY) @QueryParam("versionId") Long versionId) {
         Entry<? extends Entry, ? extends Version> entry = toolDAO.getGenericEntryById(entryId);
+        checkCanExportToOrcid(user, entry, versionId);
+        return Response.status(HttpStatus.SC_ACCEPTED).entity(orcidExportQueue.submit(user.getId(), entryId, versionId)).build();
+    }
+
+    @GET
+    @Path("/orcidExports/{jobId}")
+    @Timed
+    @Operation(operationId = "getOrcidExport", description = "Get the status of an ORCID export job", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "Status of the export job", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = OrcidExportJob.class)))
+    @ApiResponse(responseCode = HttpStatus.SC_NOT_FOUND + "", description = "Not Found")
+    @ApiOperation(value = "hidden", hidden = true)
+    public OrcidExportJob getOrcidExport(@Parameter(hidden = true, name = "user") @Auth User user,
+        @Parameter(description = "The id of the export job.", name = "jobId", in = ParameterIn.PATH, required = true) @PathParam("jobId") String jobId) {
+        return orcidExportQueue.getJob(jobId, user.getId())
+            .orElseThrow(() -> new CustomWebApplicationException("ORCID export job " + jobId + " not found", HttpStatus.SC_NOT_FOUND));
+    }
+
+    /**
+     * Checks everything about an ORCID export that can be checked without calling ORCID
+     */
+    private void checkCanExportToOrcid(User user, Entry<? extends Entry, ? extends Version> entry, Long versionId) {
         checkEntry(entry);
         checkEntryPermissions(Optional.of(user), entry);
         List<Token> orcidByUserId = tokenDAO.findOrcidByUserId(user.getId());
-        String putCode;
-        User nonCachedUser = this.userDAO.findById(user.getId());
-        Optional<Version> optionalVersion = Optional.empty();
 
         if (versionId != null) {
             Version version = versionDAO.findVersionInEntry(entry.getId(), versionId);
@@ -293,7 +313,6 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
             if (version.getDoiURL() == null) {
                 throw new CustomWebApplicationException(VERSION_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
             }
-            optionalVersion = Optional.ofNullable(version);
         } else {
             if (entry.getConceptDoi() == null) {
                 throw new CustomWebApplicationException(ENTRY_NO_DOI_ERROR_MESSAGE, HttpStatus.SC_BAD_REQUEST);
@@ -309,106 +328,9 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
             LOG.error("ORCID auth URL is likely incorrect");
             throw new CustomWebApplicationException("Could not export to ORCID: Dockstore ORCID integration is not set up correctly.", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
-
-
-        OrcidPutCode userPutCode;
-        if (optionalVersion.isPresent()) {
-            userPutCode = optionalVersion.get().getVersionMetadata().getUserIdToOrcidPutCode().get(user.getId());
-        } else {
-            userPutCode = entry.getUserIdToOrcidPutCode().get(user.getId());
-        }
-        putCode = (userPutCode == null) ? null : userPutCode.orcidPutCode;
-
-        String orcidWorkString;
-        boolean updateSuccess;
-        String orcidId = nonCachedUser.getOrcid();
-        if (orcidId == null) {
+        if (this.userDAO.findById(user.getId()).getOrcid() == null) {
             throw new CustomWebApplicationException("Dockstore could not get your ORCID ID", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
-        try {
-            orcidWorkString = ORCIDHelper.getOrcidWorkString(entry, optionalVersion, putCode);
-            if (putCode == null) {
-                int responseCode = createOrcidWork(optionalVersion, entry, orcidId, orcidWorkString, orcidByUserId, user.getId());
-                // If there's a conflict, the user already has an ORCID work with the same DOI URL. Try to link the ORCID work to the Dockstore entry by getting its put code
-                if (responseCode == HttpStatus.SC_CONFLICT) {
-                    String doiUrl = optionalVersion.isPresent() ? optionalVersion.get().getDoiURL() : entry.getConceptDoi();
-                    Optional<Long> existingPutCode = ORCIDHelper.searchForPutCodeByDoiUrl(orcidId, orcidByUserId, doiUrl);
-                    if (existingPutCode.isPresent()) {
-                        String existingPutCodeString = existingPutCode.get().toString();
-                        // Sync the ORCID put code to Dockstore
-                        setPutCode(optionalVersion, entry, existingPutCodeString, user.getId());
-                        orcidWorkString = ORCIDHelper.getOrcidWorkString(entry, optionalVersion, existingPutCodeString);
-                        // Since the ORCID work was already created, update the work
-                        updateSuccess = updateOrcidWork(orcidId, orcidWorkString, orcidByUserId, existingPutCodeString);
-                        if (!updateSuccess) {
-                            // Shouldn't really get here because we know the work with the put code exists
-                            LOG.error("Could not find ORCID work based on put code: {}", existingPutCodeString);
-                        }
-                    } else {
-                        throw new CustomWebApplicationException("Could not export to ORCID: unable to find the put code for the existing ORCID work with DOI URL " + doiUrl, HttpStatus.SC_INTERNAL_SERVER_ERROR);
-                    }
-                }
-            } else {
-                updateSuccess = updateOrcidWork(orcidId, orcidWorkString, orcidByUserId, putCode);
-                if (!updateSuccess) {
-                    LOG.error("Could not find ORCID work based on put code: {} ", putCode);
-                    // This is almost going to be redundant because it's going to attempt to create a new work
-                    setPutCode(optionalVersion, entry, null, user.getId());
-                    orcidWorkString = ORCIDHelper.getOrcidWorkString(entry, optionalVersion, null);
-                    createOrcidWork(optionalVersion, entry, orcidId, orcidWorkString, orcidByUserId, user.getId());
-                }
-            }
-        } catch (IOException | URISyntaxException | JAXBException | DatatypeConfigurationException e) {
-            throw new CustomWebApplicationException("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new CustomWebApplicationException("Could not export to ORCID: " + e.getMessage(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
-        }
-
-        Hibernate.initialize(entry.getWorkflowVersions());
-        return entry;
-    }
-
-    private void setPutCode(Optional<Version> optionalVersion, Entry entry, String putCode, long userId) {
-        OrcidPutCode orcidPutCode = new OrcidPutCode(putCode);
-        if (optionalVersion.isPresent()) {
-            optionalVersion.get().getVersionMetadata().getUserIdToOrcidPutCode().put(userId, orcidPutCode);
-        } else {
-            entry.getUserIdToOrcidPutCode().put(userId, orcidPutCode);
-        }
-    }
-
-    private int createOrcidWork(Optional<Version> optionalVersion, Entry entry, String orcidId, String orcidWorkString,
-        List<Token> orcidTokens, long userId) throws IOException, URISyntaxException, InterruptedException {
-        HttpResponse<String> response = ORCIDHelper
-                .postWorkString(orcidId, orcidWorkString, orcidTokens.get(0).getToken());
-        switch (response.statusCode()) {
-        case HttpStatus.SC_CREATED:
-            setPutCode(optionalVersion, entry, getPutCodeFromLocation(response), userId);
-            return response.statusCode();
-        case HttpStatus.SC_CONFLICT: // User has an ORCID work with the same DOI URL.
-            return response.statusCode();
-        default:
-            throw new CustomWebApplicationException("Could not export to ORCID.\n" + response.body(), response.statusCode());
-        }
-    }
-
-    /**
-     * return true means everything is fine
-     * return false means there's a syncing problem (Dockstore has put code, ORCID does not)
-     */
-    private boolean updateOrcidWork(String orcidId, String orcidWorkString, List<Token> orcidTokens, String putCode)
-            throws IOException, URISyntaxException, InterruptedException {
-        HttpResponse<String> response = ORCIDHelper
-                .putWorkString(orcidId, orcidWorkString, orcidTokens.get(0).getToken(), putCode);
-        switch (response.statusCode()) {
-        case HttpStatus.SC_OK:
-            return true;
-        case HttpStatus.SC_NOT_FOUND:
-            return false;
-        default:
-            throw new CustomWebApplicationException("Could not export to ORCID: " + response.body(), response.statusCode());
-        }
     }
 
     @POST
@@ -461,73 +383,28 @@ public class EntryResource implements AuthenticatedResourceInterface, AliasableR
             throw new CustomWebApplicationException("Entry " + id + " already has an associated Discourse topic.", HttpStatus.SC_BAD_REQUEST);
         }
 
-        // Create title and link to entry
-
-        String entryLink = "https://dockstore.org/";
-        String title = "";
-        if (hostName.contains("staging")) {
-            entryLink = "https://staging.dockstore.org/";
-            title = "Staging ";
-        }
-        if (entry instanceof BioWorkflow) {
-            title += ((BioWorkflow)(entry)).getWorkflowPath();
-            entryLink += "workflows/";
-        } else if (entry instanceof Service) {
-            title += ((Service)(entry)).getWorkflowPath();
-            entryLink += "services/";
-        } else if (entry instanceof AppTool) {
-            title += ((AppTool)(entry)).getWorkflowPath();
-            entryLink += "tools/";
-        } else {
-            title += ((Tool)(entry)).getToolPath();
-            entryLink += "tools/";
-        }
-
-        entryLink += title;
-
-        // Create description
-        String description = "";
-        if (entry.getDescription() != null) {
-            description = entry.getDescription() != null ? entry.getDescription().substring(0, Math.min(entry.getDescription().length(), maxDescriptionLength)) : "";
-        }
-
-        description += "\n<hr>\n<small>This is a companion discussion topic for the original entry at <a href='" + entryLink + "'>" + title + "</a></small>\n";
-
-        // Check that discourse is reachable
-        boolean isReachable;
-        HttpURLConnection connection = null;
         try {
-            URL url = new URL(discourseUrl);
-            connection = (HttpURLConnection)url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.connect();
-            int respCode = connection.getResponseCode();
-            isReachable = respCode == HttpStatus.SC_OK;
-        } catch (IOException ex) {
-            LOG.error("Error reaching " + discourseUrl, ex);
-            isReachable = false;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-
-        if (isReachable) {
-            // Create a discourse topic
-            InlineResponse2005 response;
-            try {
-                response = topicsApi.postsJsonPost(description, discourseKey, discourseApiUsername, title, null, discourseCategoryId, null, null, null);
-                entry.setTopicId(response.getTopicId().longValue());
-            } catch (ApiException ex) {
-                String message = "Could not add a topic " + title + " to category " + discourseCategoryId;
-                LOG.error(message, ex);
-                throw new CustomWebApplicationException(message, HttpStatus.SC_BAD_REQUEST);
-            }
+            entry.setTopicId(discourseTopicOutbox.createTopic(entry));
+        } catch (ApiException ex) {
+            String message = "Could not add a topic for entry " + id + " to Discourse";
+            LOG.error(message, ex);
+            throw new CustomWebApplicationException(message, HttpStatus.SC_BAD_REQUEST);
         }
 
         return entry;
     }
 
+    /**
+     * Queue the creation of a Discourse topic for a newly published entry, which happens in the background
+     * and is committed along with the publish. Nothing is queued if no Discourse is configured.
+     * @param entry a published entry
+     */
+    public void queueDiscourseTopic(Entry entry) {
+        if (entry.getTopicId() == null && discourseTopicOutbox.isEnabled()) {
+            discourseTopicRequestDAO.enqueue(entry.getId());
+        }
+    }
+
     @Override
     public Optional<PublicStateManager> getPublicStateManager() {
         return Optional.of(PublicStateManager.getInstance());
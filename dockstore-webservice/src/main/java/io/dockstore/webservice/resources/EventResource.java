@@ -18,6 +18,7 @@ package io.dockstore.webservice.resources;
 import static io.dockstore.webservice.jdbi.EventDAO.MAX_LIMIT;
 import static io.dockstore.webservice.jdbi.EventDAO.PAGINATION_RANGE;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
+import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_BEFORE_TEXT;
 
 import com.codahale.metrics.annotation.Timed;
 import io.dockstore.webservice.CustomWebApplicationException;
@@ -97,9 +98,10 @@ public class EventResource {
     public List<Event> getEvents(@Parameter(hidden = true) @ApiParam(hidden = true) @Auth User user,
         @NotNull @QueryParam("eventSearchType") EventSearchType eventSearchType,
         @Min(1) @Max(MAX_LIMIT) @DefaultValue(PAGINATION_DEFAULT_STRING) @ApiParam(defaultValue = PAGINATION_DEFAULT_STRING, allowableValues = PAGINATION_RANGE) @Parameter(schema = @Schema(maximum = "100", minimum = "1")) @QueryParam("limit") Integer limit,
-        @QueryParam("offset") @DefaultValue("0") Integer offset) {
+        @QueryParam("offset") @DefaultValue("0") Integer offset,
+        @ApiParam(value = PAGINATION_BEFORE_TEXT) @Parameter(description = PAGINATION_BEFORE_TEXT) @QueryParam("before") Long before) {
         User userWithSession = this.userDAO.findById(user.getId());
-        return getEventsForUser(userWithSession, eventSearchType, limit, offset);
+        return getEventsForUser(userWithSession, eventSearchType, limit, offset, before);
     }
 
     @GET
@@ -113,10 +115,11 @@ public class EventResource {
     public List<Event> getUserEvents(@ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId,
         @NotNull @QueryParam("eventSearchType") EventSearchType eventSearchType,
         @Min(1) @Max(MAX_LIMIT) @DefaultValue(PAGINATION_DEFAULT_STRING) @ApiParam(defaultValue = PAGINATION_DEFAULT_STRING, allowableValues = PAGINATION_RANGE) @Parameter(schema = @Schema(maximum = "100", minimum = "1")) @QueryParam("limit") Integer limit,
-        @QueryParam("offset") @DefaultValue("0") Integer offset) {
+        @QueryParam("offset") @DefaultValue("0") Integer offset,
+        @ApiParam(value = PAGINATION_BEFORE_TEXT) @Parameter(description = PAGINATION_BEFORE_TEXT) @QueryParam("before") Long before) {
         User user = this.userDAO.findById(userId);
         checkUserExists(user);
-        return getEventsForUser(user, eventSearchType, limit, offset);
+        return getEventsForUser(user, eventSearchType, limit, offset, before);
     }
 
     /**
@@ -125,29 +128,30 @@ public class EventResource {
      * @param eventSearchType The types of events
      * @param limit Event list limit
      * @param offset Event list offest
+     * @param before Only list events older than the event with this id, if not null
      * @return A list of events
      */
-    private List<Event> getEventsForUser(User user, EventSearchType eventSearchType, int limit, Integer offset) {
+    private List<Event> getEventsForUser(User user, EventSearchType eventSearchType, int limit, Integer offset, Long before) {
         switch (eventSearchType) {
         case STARRED_ENTRIES:
             Set<Long> entryIDs = user.getStarredEntries().stream().map(Entry::getId).collect(Collectors.toSet());
-            List<Event> eventsByEntryIDs = this.eventDAO.findEventsByEntryIDs(entryIDs, offset, limit);
+            List<Event> eventsByEntryIDs = this.eventDAO.findEventsByEntryIDs(entryIDs, before, offset, limit);
             eagerLoadEventEntries(eventsByEntryIDs);
             return eventsByEntryIDs;
         case STARRED_ORGANIZATION:
             Set<Long> organizationIDs = user.getStarredOrganizations().stream().map(Organization::getId).collect(Collectors.toSet());
-            List<Event> allByOrganizationIds = this.eventDAO.findAllByOrganizationIds(organizationIDs, offset, limit);
+            List<Event> allByOrganizationIds = this.eventDAO.findAllByOrganizationIds(organizationIDs, before, offset, limit);
             eagerLoadEventEntries(allByOrganizationIds);
             return allByOrganizationIds;
         case ALL_STARRED:
             Set<Long> organizationIDs2 = user.getStarredOrganizations().stream().map(Organization::getId).collect(Collectors.toSet());
             Set<Long> entryIDs2 = user.getStarredEntries().stream().map(Entry::getId).collect(Collectors.toSet());
             List<Event> allByOrganizationIdsOrEntryIds = this.eventDAO
-                .findAllByOrganizationIdsOrEntryIds(organizationIDs2, entryIDs2, offset, limit);
+                .findAllByOrganizationIdsOrEntryIds(organizationIDs2, entryIDs2, before, offset, limit);
             eagerLoadEventEntries(allByOrganizationIdsOrEntryIds);
             return allByOrganizationIdsOrEntryIds;
         case PROFILE:
-            List<Event> eventsByUserID = this.eventDAO.findEventsForInitiatorUser(user.getId(), offset, limit);
+            List<Event> eventsByUserID = this.eventDAO.findEventsForInitiatorUser(user.getId(), before, offset, limit);
             eagerLoadEventEntries(eventsByUserID);
             return eventsByUserID;
         default:
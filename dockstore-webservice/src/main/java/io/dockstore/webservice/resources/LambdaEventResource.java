@@ -1,5 +1,6 @@
 package io.dockstore.webservice.resources;
 
+import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_BEFORE_TEXT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_LIMIT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_LIMIT_TEXT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_OFFSET_TEXT;
@@ -58,7 +59,8 @@ public class LambdaEventResource {
     public List<LambdaEvent> getLambdaEventsByOrganization(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User user,
             @ApiParam(value = "organization", required = true) @PathParam("organization") String organization,
             @ApiParam(value = PAGINATION_OFFSET_TEXT) @QueryParam("offset") @DefaultValue("0") String offset,
-            @ApiParam(value = PAGINATION_LIMIT_TEXT, allowableValues = "range[1,100]", defaultValue = PAGINATION_LIMIT) @DefaultValue(PAGINATION_LIMIT) @QueryParam("limit") Integer limit) {
+            @ApiParam(value = PAGINATION_LIMIT_TEXT, allowableValues = "range[1,100]", defaultValue = PAGINATION_LIMIT) @DefaultValue(PAGINATION_LIMIT) @QueryParam("limit") Integer limit,
+            @ApiParam(value = PAGINATION_BEFORE_TEXT) @Parameter(description = PAGINATION_BEFORE_TEXT) @QueryParam("before") Long before) {
         User authUser = userDAO.findById(user.getId());
         List<Token> githubTokens = tokenDAO.findGithubByUserId(authUser.getId());
         if (githubTokens.isEmpty()) {
@@ -74,6 +76,6 @@ public class LambdaEventResource {
             }
         }
 
-        return lambdaEventDAO.findByOrganization(organization, offset, limit);
+        return lambdaEventDAO.findByOrganization(organization, before, offset, limit);
     }
 }
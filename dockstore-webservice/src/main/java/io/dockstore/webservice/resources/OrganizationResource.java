@@ -1,6 +1,7 @@
 package io.dockstore.webservice.resources;
 
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
+import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_BEFORE_TEXT;
 
 import com.codahale.metrics.annotation.Timed;
 import io.dockstore.common.Utilities;
@@ -338,11 +339,12 @@ public class OrganizationResource implements AuthenticatedResourceInterface, Ali
         @ApiParam(value = "Amount of records to return in a given page, limited to "
             + PAGINATION_LIMIT, allowableValues = "range[1,100]", defaultValue = PAGINATION_LIMIT) @Parameter(description = "Amount of records to return in a given page, limited to "
             + PAGINATION_LIMIT, name = "limit", in = ParameterIn.QUERY, schema = @Schema(minimum = "1", maximum = "100"), required = true) @DefaultValue(PAGINATION_LIMIT) @QueryParam("limit") Integer limit,
+        @ApiParam(value = PAGINATION_BEFORE_TEXT) @Parameter(description = PAGINATION_BEFORE_TEXT, name = "before", in = ParameterIn.QUERY) @QueryParam("before") Long before,
         @Context HttpServletResponse response) {
         getOrganizationByIdOptionalAuth(user, id);
         response.addHeader("X-total-count", String.valueOf(eventDAO.countAllEventsForOrganization(id)));
         response.addHeader("Access-Control-Expose-Headers", "X-total-count");
-        List<Event> eventsForOrganization = eventDAO.findEventsForOrganization(id, offset, limit);
+        List<Event> eventsForOrganization = eventDAO.findEventsForOrganization(id, before, offset, limit);
         for (Event event : eventsForOrganization) {
             Hibernate.initialize(event.getInitiatorUser());
             Hibernate.initialize(event.getCollection());
@@ -477,26 +479,26 @@ public class OrganizationResource implements AuthenticatedResourceInterface, Ali
     public List<Organization> getAllOrganizations(
         @ApiParam(value = "Filter to apply to organizations.", required = true, allowableValues = "all, pending, rejected, approved") @Parameter(description = "Filter to apply to organizations.", name = "type", in = ParameterIn.QUERY, schema = @Schema(allowableValues = {
             "all", "pending", "rejected", "approved"}), required = true) @QueryParam("type") String type) {
-        List<Organization> organizations;
+        Organization.ApplicationState status;
 
         switch (type) {
         case "pending":
-            organizations = organizationDAO.findAllPending();
+            status = Organization.ApplicationState.PENDING;
             break;
         case "rejected":
-            organizations = organizationDAO.findAllRejected();
+            status = Organization.ApplicationState.REJECTED;
             break;
         case "approved":
-            organizations = organizationDAO.findAllApproved();
+            status = Organization.ApplicationState.APPROVED;
             break;
         case "all":
         default:
-            organizations = organizationDAO.findAll();
+            status = null;
             break;
         }
 
-        organizations.forEach(organization -> Hibernate.initialize(organization.getUsers()));
-        return organizations;
+        // users are fetched along with the organizations instead of being initialized one organization at a time
+        return organizationDAO.findAllWithUsers(status);
     }
 
     @POST
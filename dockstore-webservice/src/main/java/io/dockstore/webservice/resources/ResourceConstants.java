@@ -40,6 +40,7 @@ public final class ResourceConstants {
     public static final String PAGINATION_LIMIT = "100";
     public static final int VERSION_PAGINATION_LIMIT = 200;
     public static final String PAGINATION_LIMIT_TEXT = "Amount of records to return in a given page, limited to " + PAGINATION_LIMIT;
+    public static final String PAGINATION_BEFORE_TEXT = "Only return records older than the record with this id. Pass the id of the last record of a page to get the next page, which stays fast however deep the page is, unlike an offset.";
     public static final String PAGINATION_OFFSET_TEXT = "Start index of paging. Pagination results can be based on numbers or other values chosen by the registry implementor (for example, SHA values). If this exceeds the current result set return an empty set.  If not specified in the request, this will start at the beginning of the results.";
 
     private ResourceConstants() {
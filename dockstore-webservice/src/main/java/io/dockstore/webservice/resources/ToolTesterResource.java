@@ -24,22 +24,40 @@ import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.core.tooltester.ToolTesterLog;
 import io.dockstore.webservice.core.tooltester.ToolTesterLogType;
 import io.dockstore.webservice.core.tooltester.ToolTesterS3Client;
+import io.dockstore.webservice.helpers.DatabaseToolTesterLogStore;
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ResponseHeader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
 /**
  * @author gluu
@@ -51,36 +69,71 @@ import software.amazon.awssdk.awscore.exception.AwsServiceException;
 @Tag(name = "toolTester", description = ResourceConstants.TOOLTESTER)
 public class ToolTesterResource {
     private static final Logger LOG = LoggerFactory.getLogger(ToolTesterResource.class);
-    private final String bucketName;
+    private static final String TOTAL_COUNT_TEXT = "The number of logs of the tool version";
+    private static final String OFFSET_TEXT = "Start index of paging. If this exceeds the number of logs, return an empty list.";
+    private static final String LIMIT_TEXT = "Maximum number of logs to return, all of them if not specified";
+    private final ToolTesterS3Client toolTesterS3Client;
 
-    public ToolTesterResource(DockstoreWebserviceConfiguration configuration) {
-        bucketName = configuration.getToolTesterBucket();
+    public ToolTesterResource(DockstoreWebserviceConfiguration configuration, SessionFactory sessionFactory) {
+        this(configuration.getToolTesterBucket() == null ? null
+            : new ToolTesterS3Client(configuration.getToolTesterBucket(), new DatabaseToolTesterLogStore(sessionFactory)));
+    }
+
+    /**
+     * @param toolTesterS3Client Client shared by all requests, null if the logging integration is not set up
+     */
+    public ToolTesterResource(ToolTesterS3Client toolTesterS3Client) {
+        this.toolTesterS3Client = toolTesterS3Client;
     }
 
     @GET
     @Timed
     @Path("logs")
     @Operation(summary = "Get ToolTester log file")
+    @ApiResponse(description = "default response", content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(type = "string")))
     @Produces(MediaType.TEXT_PLAIN)
-    public String getToolTesterLog(
+    public Response getToolTesterLog(
             @QueryParam("tool_id") @Parameter(description = "TRS Tool Id", example = "#workflow/github.com/dockstore/hello_world", required = true) String toolId,
             @QueryParam("tool_version_name") @Parameter(example = "v1.0.0", required = true) String toolVersionName,
             @QueryParam("test_filename") @Parameter(example = "hello_world.cwl.json", required = true) String testFilename,
             @QueryParam("runner") @Parameter(example = "cwltool", required = true) String runner,
             @QueryParam("log_type") @Parameter(required = true) ToolTesterLogType logType,
-            @QueryParam("filename") @Parameter(example = "1554477737092.log", required = true) String filename) {
-        if (this.bucketName == null) {
+            @QueryParam("filename") @Parameter(example = "1554477737092.log", required = true) String filename,
+            @ApiParam(hidden = true) @Parameter(hidden = true) @HeaderParam(HttpHeaders.RANGE) String range) {
+        final ResponseInputStream<GetObjectResponse> log = openToolTesterLog(toolId, toolVersionName, testFilename, runner, filename, range);
+        final GetObjectResponse logResponse = log.response();
+        // the log is copied straight from S3 to the client rather than being held in memory
+        Response.ResponseBuilder builder = Response.status(logResponse.contentRange() == null ? HttpStatus.SC_OK : HttpStatus.SC_PARTIAL_CONTENT)
+                .entity((StreamingOutput) output -> {
+                    try (log) {
+                        log.transferTo(output);
+                    }
+                })
+                .header("Accept-Ranges", "bytes");
+        if (logResponse.contentLength() != null) {
+            builder.header(HttpHeaders.CONTENT_LENGTH, logResponse.contentLength());
+        }
+        if (logResponse.contentRange() != null) {
+            builder.header("Content-Range", logResponse.contentRange());
+        }
+        return builder.build();
+    }
+
+    private ResponseInputStream<GetObjectResponse> openToolTesterLog(String toolId, String toolVersionName, String testFilename, String runner, String filename, String range) {
+        if (this.toolTesterS3Client == null) {
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
         }
-        ToolTesterS3Client toolTesterS3Client = new ToolTesterS3Client(this.bucketName);
         try {
-            return toolTesterS3Client.getToolTesterLog(toolId, toolVersionName, testFilename, runner, filename);
+            return toolTesterS3Client.getToolTesterLogStream(toolId, toolVersionName, testFilename, runner, filename, range);
         } catch (AwsServiceException e) {
+            if (e.statusCode() == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                throw new CustomWebApplicationException("Requested range of the log file cannot be satisfied", HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
             LOG.error(e.getMessage(), e);
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
-        } catch (IOException e) {
+        } catch (UnsupportedEncodingException e) {
             LOG.error(e.getMessage(), e);
             throw new CustomWebApplicationException("Could not fetch log file contents", HttpStatus.SC_INTERNAL_SERVER_ERROR);
         }
@@ -89,17 +142,32 @@ public class ToolTesterResource {
     @GET
     @Timed
     @Path("logs/search")
+    @ApiOperation(value = "Search for ToolTester log files", response = ToolTesterLog.class, responseContainer = "List",
+        responseHeaders = @ResponseHeader(name = "X-total-count", description = TOTAL_COUNT_TEXT, response = Integer.class))
     @Operation(summary = "Search for ToolTester log files")
+    @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "The logs, or the requested page of them",
+        headers = @Header(name = "X-total-count", description = TOTAL_COUNT_TEXT, schema = @Schema(type = "integer")),
+        content = @Content(mediaType = MediaType.APPLICATION_JSON, array = @ArraySchema(schema = @Schema(implementation = ToolTesterLog.class))))
     public List<ToolTesterLog> search(
             @QueryParam("tool_id") @Parameter(description = "TRS Tool Id", example = "#workflow/github.com/dockstore/hello_world", required = true) String toolId,
-            @QueryParam("tool_version_name") @Parameter(example = "v1.0.0", required = true) String toolVersionName) {
-        if (this.bucketName == null) {
+            @QueryParam("tool_version_name") @Parameter(example = "v1.0.0", required = true) String toolVersionName,
+            @ApiParam(value = OFFSET_TEXT) @QueryParam("offset") @DefaultValue("0") @Parameter(description = OFFSET_TEXT) Integer offset,
+            @ApiParam(value = LIMIT_TEXT) @QueryParam("limit") @Parameter(description = LIMIT_TEXT) Integer limit,
+            @Context HttpServletResponse response) {
+        if (this.toolTesterS3Client == null) {
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
                     HttpStatus.SC_SERVICE_UNAVAILABLE);
         }
+        if (offset < 0 || (limit != null && limit < 0)) {
+            throw new CustomWebApplicationException("Offset and limit cannot be negative", HttpStatus.SC_BAD_REQUEST);
+        }
         try {
-            ToolTesterS3Client toolTesterS3Client = new ToolTesterS3Client(this.bucketName);
-            return toolTesterS3Client.getToolTesterLogs(toolId, toolVersionName);
+            List<ToolTesterLog> logs = toolTesterS3Client.getToolTesterLogs(toolId, toolVersionName);
+            response.addHeader("X-total-count", String.valueOf(logs.size()));
+            response.addHeader("Access-Control-Expose-Headers", "X-total-count");
+            int start = Math.min(offset, logs.size());
+            int end = limit == null ? logs.size() : (int)Math.min((long)start + limit, logs.size());
+            return logs.subList(start, end);
         } catch (AwsServiceException e) {
             LOG.error(e.getMessage(), e);
             throw new CustomWebApplicationException("Dockstore Logging integration is currently not set up",
@@ -19,6 +19,7 @@ package io.dockstore.webservice.resources;
 import static io.dockstore.webservice.Constants.USERNAME_CONTAINS_KEYWORD_PATTERN;
 import static io.dockstore.webservice.resources.ResourceConstants.APPEASE_SWAGGER_PATCH;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
+import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_BEFORE_TEXT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_LIMIT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_LIMIT_TEXT;
 import static io.dockstore.webservice.resources.ResourceConstants.PAGINATION_OFFSET_TEXT;
@@ -38,7 +39,6 @@ import io.dockstore.webservice.api.PrivilegeRequest;
 import io.dockstore.webservice.core.AppTool;
 import io.dockstore.webservice.core.BioWorkflow;
 import io.dockstore.webservice.core.CloudInstance;
-import io.dockstore.webservice.core.Collection;
 import io.dockstore.webservice.core.DeletedUsername;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.EntryUpdateTime;
@@ -56,7 +56,6 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
-import io.dockstore.webservice.core.database.EntryLite;
 import io.dockstore.webservice.core.database.MyWorkflows;
 import io.dockstore.webservice.core.database.UserInfo;
 import io.dockstore.webservice.helpers.DeletedUserHelper;
@@ -71,6 +70,7 @@ import io.dockstore.webservice.jdbi.DeletedUsernameDAO;
 import io.dockstore.webservice.jdbi.EntryDAO;
 import io.dockstore.webservice.jdbi.EventDAO;
 import io.dockstore.webservice.jdbi.LambdaEventDAO;
+import io.dockstore.webservice.jdbi.OrganizationDAO;
 import io.dockstore.webservice.jdbi.ServiceDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
@@ -95,7 +95,6 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.sql.Timestamp;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -161,6 +160,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     private final EventDAO eventDAO;
     private final LambdaEventDAO lambdaEventDAO;
     private final DeletedUsernameDAO deletedUsernameDAO;
+    private final OrganizationDAO organizationDAO;
     private final PermissionsInterface authorizer;
     private final CachingAuthenticator<String, User> cachingAuthenticator;
     private final HttpClient client;
@@ -181,6 +181,7 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
         this.serviceDAO = new ServiceDAO(sessionFactory);
         this.lambdaEventDAO = new LambdaEventDAO(sessionFactory);
         this.deletedUsernameDAO = new DeletedUsernameDAO(sessionFactory);
+        this.organizationDAO = new OrganizationDAO(sessionFactory);
         this.workflowResource = workflowResource;
         this.dockerRepoResource = dockerRepoResource;
         this.authorizer = authorizer;
@@ -736,34 +737,8 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     public List<OrganizationUpdateTime> getUserDockstoreOrganizations(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User authUser,
                                                             @Parameter(name = "count", description = "Maximum number of organizations to return", in = ParameterIn.QUERY) @QueryParam("count") Integer count,
                                                             @Parameter(name = "filter", description = "Filter paths with matching text", in = ParameterIn.QUERY) @QueryParam("filter") String filter) {
-        final List<OrganizationUpdateTime> organizations = new ArrayList<>();
-        final User fetchedUser = this.userDAO.findById(authUser.getId());
-
-        // Retrieve all organizations and get timestamps
-        Set<OrganizationUser> organizationUsers = fetchedUser.getOrganizations();
-
-        organizationUsers.forEach((OrganizationUser organizationUser) -> {
-            Organization organization = organizationUser.getOrganization();
-            Optional<Collection> mostRecentCollection = organization.getCollections().stream().max(Comparator.comparing(Collection::getDbUpdateDate));
-            Timestamp timestamp = organization.getDbUpdateDate();
-            if (mostRecentCollection.isPresent() && timestamp.before(mostRecentCollection.get().getDbUpdateDate())) {
-                timestamp = mostRecentCollection.get().getDbUpdateDate();
-            }
-            organizations.add(new OrganizationUpdateTime(organization.getName(), organization.getDisplayName(), timestamp));
-        });
-
-        // Sort all organizations by timestamp
-        List<OrganizationUpdateTime> sortedOrganizations = organizations
-                .stream()
-                .filter((OrganizationUpdateTime organizationUpdateTime) -> filter == null || filter.isBlank() || organizationUpdateTime.getName().toLowerCase().contains(filter.toLowerCase()) || organizationUpdateTime.getDisplayName().toLowerCase().contains(filter.toLowerCase()))
-                .sorted(Comparator.comparing(OrganizationUpdateTime::getLastUpdateDate, Comparator.nullsLast(Comparator.reverseOrder())))
-                .collect(Collectors.toList());
-
-        // Grab subset if necessary
-        if (count != null) {
-            return sortedOrganizations.subList(0, Math.min(count, sortedOrganizations.size()));
-        }
-        return sortedOrganizations;
+        // The last update times, filter and count are all handled by the database
+        return organizationDAO.findUpdateTimesByUser(authUser.getId(), filter, count);
     }
 
     @GET
@@ -777,21 +752,8 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     public List<EntryUpdateTime> getUserEntries(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User authUser,
                                                 @Parameter(name = "count", description = "Maximum number of entries to return", in = ParameterIn.QUERY) @QueryParam("count") Integer count,
                                                 @Parameter(name = "filter", description = "Filter paths with matching text", in = ParameterIn.QUERY) @QueryParam("filter") String filter) {
-        //get entries with only minimal columns from database
-        final List<EntryLite> entriesLite = new ArrayList<>();
-        final long userId = authUser.getId();
-        entriesLite.addAll(toolDAO.findEntryVersions(userId));
-        entriesLite.addAll(bioWorkflowDAO.findEntryVersions(userId));
-        entriesLite.addAll(serviceDAO.findEntryVersions(userId));
-
-        //cleanup fields for UI: filter(if applicable), sort, and limit by count(if applicable)
-        List<EntryUpdateTime> filteredEntries = entriesLite
-                .stream().map(e -> new EntryUpdateTime(e.getEntryPath(), e.getPrettyPath(), e.getEntryType(), new Timestamp(e.getLastUpdated().getTime())))
-                .filter((EntryUpdateTime entryUpdateTime) -> filter == null || filter.isBlank() || entryUpdateTime.getPath().toLowerCase().contains(filter.toLowerCase()))
-                .sorted(Comparator.comparing(EntryUpdateTime::getLastUpdateDate, Comparator.nullsLast(Comparator.reverseOrder())))
-                .limit(count != null ? count : Integer.MAX_VALUE)
-                .collect(Collectors.toList());
-        return filteredEntries;
+        // filter, sort and limit by count in the database so the cost depends on count rather than on how many entries the user has
+        return toolDAO.findEntryUpdateTimes(authUser.getId(), filter, count);
     }
 
     @GET
@@ -1087,9 +1049,10 @@ public class UserResource implements AuthenticatedResourceInterface, SourceContr
     @ApiOperation(value = "See OpenApi for details")
     public List<LambdaEvent> getUserGitHubEvents(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user")@Auth User authUser,
             @ApiParam(value = PAGINATION_OFFSET_TEXT) @QueryParam("offset") String offset,
-            @ApiParam(value = PAGINATION_LIMIT_TEXT, allowableValues = "range[1,100]", defaultValue = PAGINATION_LIMIT) @DefaultValue(PAGINATION_LIMIT) @QueryParam("limit") Integer limit) {
+            @ApiParam(value = PAGINATION_LIMIT_TEXT, allowableValues = "range[1,100]", defaultValue = PAGINATION_LIMIT) @DefaultValue(PAGINATION_LIMIT) @QueryParam("limit") Integer limit,
+            @ApiParam(value = PAGINATION_BEFORE_TEXT) @Parameter(description = PAGINATION_BEFORE_TEXT) @QueryParam("before") Long before) {
         final User user = userDAO.findById(authUser.getId());
-        return lambdaEventDAO.findByUser(user, offset, limit);
+        return lambdaEventDAO.findByUser(user, before, offset, limit);
     }
 
     @GET
@@ -65,7 +65,9 @@ import io.dockstore.webservice.helpers.SourceCodeRepoFactory;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
 import io.dockstore.webservice.helpers.StateManagerMode;
 import io.dockstore.webservice.helpers.StringInputValidationHelper;
+import io.dockstore.webservice.helpers.TransactionHelper;
 import io.dockstore.webservice.helpers.URIHelper;
+import io.dockstore.webservice.helpers.ZenodoExecutors;
 import io.dockstore.webservice.helpers.ZenodoHelper;
 import io.dockstore.webservice.jdbi.BioWorkflowDAO;
 import io.dockstore.webservice.jdbi.EntryDAO;
@@ -100,7 +102,8 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.zenodo.client.ApiClient;
 import java.net.URISyntaxException;
-import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -114,6 +117,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.annotation.security.RolesAllowed;
 import javax.servlet.http.HttpServletResponse;
@@ -122,6 +126,7 @@ import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -129,9 +134,9 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.http.HttpStatus;
@@ -172,6 +177,12 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     private static final String VERSION_INCLUDE_MESSAGE = "Comma-delimited list of fields to include: " + VERSION_INCLUDE;
     private static final String WORKFLOW_INCLUDE_MESSAGE = "Comma-delimited list of fields to include: " + WORKFLOW_INCLUDE + ", " + VERSION_INCLUDE;
     private static final String SHA_TYPE_FOR_SOURCEFILES = "SHA-1";
+    /**
+     * How long a DOI request may stay REQUESTED before it is presumed lost, for example to a restart, and may be requested again
+     */
+    private static final Duration DOI_REQUEST_TIMEOUT = Duration.ofHours(2);
+    private static final String DOI_REQUEST_NOTES = "The DOI is minted in the background. Until then the DOI status of the version is REQUESTED, "
+        + "it becomes CREATED once the DOI is minted, or NOT_REQUESTED again if minting fails.";
 
     private final ToolDAO toolDAO;
     private final LabelDAO labelDAO;
@@ -181,6 +192,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     private final VersionDAO versionDAO;
 
     private final PermissionsInterface permissionsInterface;
+    private final ZenodoExecutors zenodoExecutors;
     private final String zenodoUrl;
     private final String zenodoClientID;
     private final String zenodoClientSecret;
@@ -190,7 +202,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     private final String dockstoreGA4GHBaseUrl;
 
     public WorkflowResource(HttpClient client, SessionFactory sessionFactory, PermissionsInterface permissionsInterface,
-        EntryResource entryResource, DockstoreWebserviceConfiguration configuration) {
+        EntryResource entryResource, ZenodoExecutors zenodoExecutors, DockstoreWebserviceConfiguration configuration) {
         super(client, sessionFactory, entryResource, configuration);
         this.toolDAO = new ToolDAO(sessionFactory);
         this.labelDAO = new LabelDAO(sessionFactory);
@@ -200,6 +212,7 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         this.versionDAO = new VersionDAO(sessionFactory);
 
         this.permissionsInterface = permissionsInterface;
+        this.zenodoExecutors = zenodoExecutors;
 
         zenodoUrl = configuration.getZenodoUrl();
         zenodoClientID = configuration.getZenodoClientID();
@@ -582,8 +595,14 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     @UnitOfWork
     @Beta
     @Path("/{workflowId}/requestDOI/{workflowVersionId}")
-    @Operation(operationId = "requestDOIForWorkflowVersion", description = "Request a DOI for this version of a workflow.", security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
-    @ApiOperation(value = "Request a DOI for this version of a workflow.", authorizations = {
+    @Operation(operationId = "requestDOIForWorkflowVersion", description = "Request a DOI for this version of a workflow. " + DOI_REQUEST_NOTES,
+        security = @SecurityRequirement(name = JWT_SECURITY_DEFINITION_NAME))
+    @ApiResponse(responseCode = HttpStatus.SC_OK + "", description = "The DOI was requested, the versions of the workflow are returned", content = @Content(
+        mediaType = "application/json",
+        array = @ArraySchema(schema = @Schema(implementation = WorkflowVersion.class))))
+    @ApiResponse(responseCode = HttpStatus.SC_BAD_REQUEST + "", description = "Bad Request")
+    @ApiResponse(responseCode = HttpStatus.SC_CONFLICT + "", description = "A DOI has already been requested for this version")
+    @ApiOperation(value = "Request a DOI for this version of a workflow.", notes = DOI_REQUEST_NOTES, authorizations = {
         @Authorization(value = JWT_SECURITY_DEFINITION_NAME)}, response = WorkflowVersion.class, responseContainer = "List")
     public Set<WorkflowVersion> requestDOIForWorkflowVersion(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user") @Auth User user,
         @ApiParam(value = "Workflow to modify.", required = true) @PathParam("workflowId") Long workflowId,
@@ -623,39 +642,83 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         }
         final String zenodoAccessToken = zenodoToken.getContent();
 
-        //TODO: Determine whether workflow DOIStatus is needed; we don't use it
-        //E.g. Version.DOIStatus.CREATED
-
-        ApiClient zenodoClient = new ApiClient();
-        // for testing, either 'https://sandbox.zenodo.org/api' or 'https://zenodo.org/api' is the first parameter
-        String zenodoUrlApi = zenodoUrl + "/api";
-        zenodoClient.setBasePath(zenodoUrlApi);
-        zenodoClient.setApiKey(zenodoAccessToken);
+        ZenodoHelper.checkCanRegisterDOI(workflowVersion, fileDAO);
 
-        registerZenodoDOIForWorkflow(zenodoClient, workflow, workflowVersion, user);
-
-        Workflow result = workflowDAO.findById(workflowId);
-        checkEntry(result);
-        PublicStateManager.getInstance().handleIndexUpdate(result, StateManagerMode.UPDATE);
-        return result.getWorkflowVersions();
+        // Minting the DOI uploads the files of the version to Zenodo, which can take a long time, so it is done in the background.
+        // The status is committed first so that the job can see it, and so that the request can be polled for with the version.
+        // Marking the request is a single conditional update, so that of two concurrent requests only one goes ahead.
+        final long now = System.currentTimeMillis();
+        final Timestamp requestDate = new Timestamp(now);
+        if (!workflowVersionDAO.requestDOI(workflowVersionId, requestDate, new Timestamp(now - DOI_REQUEST_TIMEOUT.toMillis()))) {
+            throw new CustomWebApplicationException("A DOI has already been requested for " + workflowNameAndVersion + ".", HttpStatus.SC_CONFLICT);
+        }
+        sessionFactory.getCurrentSession().refresh(workflowVersion.getVersionMetadata());
+        sessionFactory.getCurrentSession().getTransaction().commit();
+        sessionFactory.getCurrentSession().beginTransaction();
+        final long userId = user.getId();
+        zenodoExecutors.getDoiExecutor().execute(() -> registerZenodoDOIInBackground(zenodoAccessToken, workflowId, workflowVersionId, userId, requestDate));
 
+        return workflow.getWorkflowVersions();
     }
 
     /**
-     * Register a Zenodo DOI for the workflow and workflow version
+     * Register a Zenodo DOI for a workflow version. No session is open while Zenodo is called; what the deposit needs is read in one short
+     * transaction and the DOI is saved in another. If registration fails, the version may be requested again.
      *
-     * @param zenodoClient    Client for interacting with Zenodo server
-     * @param workflow        workflow for which DOI is registered
-     * @param workflowVersion workflow version for which DOI is registered
-     * @param user            user authenticated to issue a DOI for the workflow
+     * @param zenodoAccessToken Zenodo access token of the user
+     * @param workflowId        id of the workflow for which DOI is registered
+     * @param workflowVersionId id of the workflow version for which DOI is registered
+     * @param userId            id of the user who requested the DOI
+     * @param requestDate       when the DOI was requested, a failure only withdraws this request and not one that has taken it over
      */
-    private void registerZenodoDOIForWorkflow(ApiClient zenodoClient, Workflow workflow, WorkflowVersion workflowVersion, User user) {
+    private void registerZenodoDOIInBackground(String zenodoAccessToken, long workflowId, long workflowVersionId, long userId, Timestamp requestDate) {
+        try {
+            AtomicReference<Workflow> workflow = new AtomicReference<>();
+            AtomicReference<WorkflowVersion> workflowVersion = new AtomicReference<>();
+            TransactionHelper.transactionInNewSession(sessionFactory, () -> {
+                Workflow loadedWorkflow = workflowDAO.findById(workflowId);
+                // the deposit metadata uses the labels, and the versions are searched for an existing DOI
+                Hibernate.initialize(loadedWorkflow.getLabels());
+                Hibernate.initialize(loadedWorkflow.getWorkflowVersions());
+                workflow.set(loadedWorkflow);
+                workflowVersion.set(workflowVersionDAO.findById(workflowVersionId));
+            });
 
-        // Create Dockstore workflow URL (e.g. https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl)
-        String workflowUrl = MetadataResourceHelper.createWorkflowURL(workflow);
+            ApiClient zenodoClient = new ApiClient();
+            // for testing, either 'https://sandbox.zenodo.org/api' or 'https://zenodo.org/api' is the first parameter
+            String zenodoUrlApi = zenodoUrl + "/api";
+            zenodoClient.setBasePath(zenodoUrlApi);
+            zenodoClient.setApiKey(zenodoAccessToken);
+
+            // Create Dockstore workflow URL (e.g. https://dockstore.org/workflows/github.com/DataBiosphere/topmed-workflows/UM_variant_caller_wdl)
+            String workflowUrl = MetadataResourceHelper.createWorkflowURL(workflow.get());
+            ZenodoHelper.ZenodoDoiResult zenodoDoiResult = ZenodoHelper.registerZenodoDOI(zenodoClient, workflow.get(),
+                workflowVersion.get(), workflowUrl, dockstoreGA4GHBaseUrl, dockstoreUrl, this, zenodoAccessToken, sessionFactory,
+                zenodoExecutors.getFileExecutor());
+
+            TransactionHelper.transactionInNewSession(sessionFactory, () -> saveZenodoDOI(zenodoDoiResult, workflowId, workflowVersionId, userId));
+        } catch (RuntimeException ex) {
+            LOG.error("Could not register a Zenodo DOI for workflow version " + workflowVersionId, ex);
+            try {
+                TransactionHelper.transactionInNewSession(sessionFactory, () -> workflowVersionDAO.withdrawDOIRequest(workflowVersionId, requestDate));
+            } catch (RuntimeException resetEx) {
+                LOG.error("Could not reset the DOI status of workflow version " + workflowVersionId, resetEx);
+            }
+        }
+    }
 
-        ZenodoHelper.ZenodoDoiResult zenodoDoiResult = ZenodoHelper.registerZenodoDOI(zenodoClient, workflow,
-            workflowVersion, workflowUrl, dockstoreGA4GHBaseUrl, dockstoreUrl, this);
+    /**
+     * Save a DOI registered on Zenodo to the workflow and workflow version
+     *
+     * @param zenodoDoiResult   the registered DOI
+     * @param workflowId        id of the workflow for which DOI is registered
+     * @param workflowVersionId id of the workflow version for which DOI is registered
+     * @param userId            id of the user who requested the DOI
+     */
+    private void saveZenodoDOI(ZenodoHelper.ZenodoDoiResult zenodoDoiResult, long workflowId, long workflowVersionId, long userId) {
+        Workflow workflow = workflowDAO.findById(workflowId);
+        WorkflowVersion workflowVersion = workflowVersionDAO.findById(workflowVersionId);
+        User user = userDAO.findById(userId);
 
         workflowVersion.setDoiURL(zenodoDoiResult.getDoiUrl());
         workflow.setConceptDoi(zenodoDoiResult.getConceptDoi());
@@ -667,9 +730,10 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         // to the workflow version, but there may be an invalid Related Identifier URL on the Zenodo entry
         AliasHelper.addWorkflowVersionAliasesAndCheck(this, workflowDAO, workflowVersionDAO, user,
             workflowVersion.getId(), zenodoDoiResult.getDoiAlias(), false);
+        workflowVersion.setDoiStatus(Version.DOIStatus.CREATED);
+        PublicStateManager.getInstance().handleIndexUpdate(workflow, StateManagerMode.UPDATE);
     }
 
-
     private String workflowNameAndVersion(Workflow workflow, WorkflowVersion workflowVersion) {
         return workflow.getWorkflowPath() + ":" + workflowVersion.getName();
     }
@@ -1935,7 +1999,8 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
     @Produces("application/zip")
     public Response getWorkflowZip(@ApiParam(hidden = true) @Parameter(hidden = true, name = "user") @Auth Optional<User> user,
         @ApiParam(value = "workflowId", required = true) @PathParam("workflowId") Long workflowId,
-        @ApiParam(value = "workflowVersionId", required = true) @PathParam("workflowVersionId") Long workflowVersionId) {
+        @ApiParam(value = "workflowVersionId", required = true) @PathParam("workflowVersionId") Long workflowVersionId,
+        @ApiParam(hidden = true) @Parameter(hidden = true) @HeaderParam(HttpHeaders.RANGE) String range) {
 
         Workflow workflow = workflowDAO.findById(workflowId);
         checkOptionalAuthRead(user, workflow);
@@ -1944,16 +2009,13 @@ public class WorkflowResource extends AbstractWorkflowResource<Workflow>
         if (workflowVersion == null) {
             throw new CustomWebApplicationException("Could not find workflow version", HttpStatus.SC_NOT_FOUND);
         }
-        Set<SourceFile> sourceFiles = workflowVersion.getSourceFiles();
-        java.nio.file.Path path = Paths.get(workflowVersion.getWorkingDirectory());
-        if (sourceFiles == null || sourceFiles.size() == 0) {
+        if (fileDAO.countSourceFilesByVersion(workflowVersion.getId()) == 0) {
             throw new CustomWebApplicationException("no files found to zip", HttpStatus.SC_NO_CONTENT);
         }
 
         String fileName = EntryVersionHelper.generateZipFileName(workflow.getWorkflowPath(), workflowVersion.getName());
 
-        return Response.ok().entity((StreamingOutput) output -> writeStreamAsZip(sourceFiles, output, path))
-            .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"").build();
+        return getVersionZipResponse(sessionFactory, workflowVersion, fileName, range);
     }
 
     @GET
@@ -30,8 +30,10 @@ import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
 import io.dockstore.webservice.helpers.ElasticSearchHelper;
 import io.dockstore.webservice.helpers.PublicStateManager;
+import io.dockstore.webservice.helpers.VersionArchiveHelper;
 import io.dockstore.webservice.helpers.statelisteners.ElasticListener;
 import io.dockstore.webservice.jdbi.AppToolDAO;
+import io.dockstore.webservice.jdbi.EntryChangeDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.openapi.api.impl.ToolsApiServiceImpl;
@@ -53,6 +55,7 @@ import java.util.stream.Collectors;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.http.HttpStatus;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
@@ -63,6 +66,7 @@ import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.hibernate.SessionFactory;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -84,13 +88,16 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
     private static final int SEARCH_TERM_LIMIT = 256;
     private static final int TOO_MANY_REQUESTS_429 = 429;
     private static final int ELASTICSEARCH_DEFAULT_LIMIT = 15;
+    private static final int MAX_CHANGES_LIMIT = 1000;
 
     private static ToolDAO toolDAO = null;
     private static WorkflowDAO workflowDAO = null;
     private static AppToolDAO appToolDAO = null;
+    private static EntryChangeDAO entryChangeDAO = null;
     private static DockstoreWebserviceConfiguration config = null;
     private static PublicStateManager publicStateManager = null;
     private static Semaphore elasticSearchConcurrencyLimit = null;
+    private static SessionFactory sessionFactory = null;
 
     public static void setStateManager(PublicStateManager manager) {
         ToolsApiExtendedServiceImpl.publicStateManager = manager;
@@ -104,10 +111,18 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
         ToolsApiExtendedServiceImpl.workflowDAO = workflowDAO;
     }
 
+    public static void setSessionFactory(SessionFactory sessionFactory) {
+        ToolsApiExtendedServiceImpl.sessionFactory = sessionFactory;
+    }
+
     public static void setAppToolDAO(AppToolDAO appToolDAO) {
         ToolsApiExtendedServiceImpl.appToolDAO = appToolDAO;
     }
 
+    public static void setEntryChangeDAO(EntryChangeDAO entryChangeDAO) {
+        ToolsApiExtendedServiceImpl.entryChangeDAO = entryChangeDAO;
+    }
+
     public static void setConfig(DockstoreWebserviceConfiguration config) {
         ToolsApiExtendedServiceImpl.config = config;
         if (config.getEsConfiguration().getMaxConcurrentSessions() == null) {
@@ -167,6 +182,19 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
         return Response.ok(workflowOrgGetList(organization)).build();
     }
 
+    @Override
+    public Response workflowsOrgArchiveGet(String organization, String format, SecurityContext securityContext) {
+        if (!VersionArchiveHelper.ZIP_FORMAT.equals(format) && !VersionArchiveHelper.NDJSON_FORMAT.equals(format)) {
+            throw new CustomWebApplicationException("Format must be one of " + VersionArchiveHelper.ZIP_FORMAT + " or " + VersionArchiveHelper.NDJSON_FORMAT, HttpStatus.SC_BAD_REQUEST);
+        }
+        final boolean zip = VersionArchiveHelper.ZIP_FORMAT.equals(format);
+        final String fileName = organization.replaceAll("[^A-Za-z0-9._-]", "-") + (zip ? ".zip" : ".ndjson");
+        return Response.ok((StreamingOutput) output -> VersionArchiveHelper.writePublishedWorkflowVersions(sessionFactory, organization, format, output),
+                zip ? "application/zip" : "application/x-ndjson")
+            .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+            .build();
+    }
+
     @Override
     public Response entriesOrgGet(String organization, SecurityContext securityContext) {
         return Response.ok(entriesOrgGetList(organization)).build();
@@ -180,6 +208,15 @@ public class ToolsApiExtendedServiceImpl extends ToolsExtendedApiService {
         return Response.ok(new ArrayList<>(organizations)).build();
     }
 
+    @Override
+    public Response entryChangesGet(long since, int limit, SecurityContext securityContext) {
+        if (limit < 1 || limit > MAX_CHANGES_LIMIT) {
+            throw new CustomWebApplicationException("Limit must be between 1 and " + MAX_CHANGES_LIMIT, HttpStatus.SC_BAD_REQUEST);
+        }
+        return Response.ok(entryChangeDAO.findSince(since, limit)
+            .orElseThrow(() -> new CustomWebApplicationException("Since must be 0 or the id of a change", HttpStatus.SC_BAD_REQUEST))).build();
+    }
+
     @Override
     public Response toolsIndexGet(SecurityContext securityContext) {
         if (!config.getEsConfiguration().getHostname().isEmpty()) {
@@ -18,6 +18,7 @@ package io.dockstore.webservice.resources.proposedGA4GH;
 import static io.dockstore.webservice.resources.ResourceConstants.JWT_SECURITY_DEFINITION_NAME;
 
 import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.core.EntryChange;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.resources.ResourceConstants;
 import io.dropwizard.auth.Auth;
@@ -40,6 +41,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.util.Map;
 import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -130,6 +132,42 @@ public class ToolsExtendedApi {
         return delegate.workflowsOrgGet(organization, securityContext);
     }
 
+    @GET
+    @Path("/workflows/{organization}/archive")
+    @UnitOfWork(readOnly = true)
+    @Produces({"application/zip", "application/x-ndjson"})
+    @ApiOperation(nickname = WorkflowsOrgArchiveGet.OPERATION_ID, value = WorkflowsOrgArchiveGet.SUMMARY, notes = WorkflowsOrgArchiveGet.DESCRIPTION)
+    @ApiResponses(value = {
+        @ApiResponse(code = HttpStatus.SC_OK, message = WorkflowsOrgArchiveGet.OK_RESPONSE)})
+    @Operation(operationId = WorkflowsOrgArchiveGet.OPERATION_ID, summary = WorkflowsOrgArchiveGet.SUMMARY, description = WorkflowsOrgArchiveGet.DESCRIPTION, responses = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = HttpStatus.SC_OK
+            + "", description = WorkflowsOrgArchiveGet.OK_RESPONSE, content = @Content(mediaType = "application/zip"))
+    })
+    public Response workflowsOrgArchiveGet(
+        @ApiParam(value = "An organization, for example `cancercollaboratory`", required = true) @PathParam("organization") String organization,
+        @ApiParam(value = "Either zip or ndjson", allowableValues = "zip, ndjson") @Parameter(description = "Either zip or ndjson") @DefaultValue("zip") @QueryParam("format") String format,
+        @Context SecurityContext securityContext) throws NotFoundException {
+        return delegate.workflowsOrgArchiveGet(organization, format, securityContext);
+    }
+
+    @GET
+    @Path("/changes")
+    @UnitOfWork(readOnly = true)
+    @Produces({MediaType.APPLICATION_JSON})
+    @ApiOperation(nickname = EntryChangesGet.OPERATION_ID, value = EntryChangesGet.SUMMARY, notes = EntryChangesGet.DESCRIPTION, response = EntryChange.class, responseContainer = "List")
+    @ApiResponses(value = {
+        @ApiResponse(code = HttpStatus.SC_OK, message = EntryChangesGet.OK_RESPONSE, response = EntryChange.class, responseContainer = "List")})
+    @Operation(operationId = EntryChangesGet.OPERATION_ID, summary = EntryChangesGet.SUMMARY, description = EntryChangesGet.DESCRIPTION, responses = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = HttpStatus.SC_OK
+            + "", description = EntryChangesGet.OK_RESPONSE, content = @Content(mediaType = MediaType.APPLICATION_JSON, array = @ArraySchema(schema = @Schema(implementation = EntryChange.class))))
+    })
+    public Response entryChangesGet(
+        @ApiParam(value = "Return changes after this one, 0 to start from the beginning") @Parameter(description = "Return changes after this one, 0 to start from the beginning") @DefaultValue("0") @QueryParam("since") long since,
+        @ApiParam(value = "Maximum number of changes to return", allowableValues = "range[1,1000]") @Parameter(description = "Maximum number of changes to return") @DefaultValue("100") @QueryParam("limit") int limit,
+        @Context SecurityContext securityContext) {
+        return delegate.entryChangesGet(since, limit, securityContext);
+    }
+
     @GET
     @Path("/containers/{organization}")
     @UnitOfWork(readOnly = true)
@@ -236,6 +274,22 @@ public class ToolsExtendedApi {
         public static final String OK_RESPONSE = "An array of Tools of the input organization.";
     }
 
+    private static final class WorkflowsOrgArchiveGet {
+
+        public static final String OPERATION_ID = "workflowsOrgArchiveGet";
+        public static final String SUMMARY = "Download the files of all published workflow versions of an organization";
+        public static final String DESCRIPTION = "This endpoint streams the files of every published, non-hidden workflow version of an organization, either as a zip or as newline-delimited JSON. GitHub App tools and services are not included.";
+        public static final String OK_RESPONSE = "A zip of entry/version/path files, or one JSON object per file.";
+    }
+
+    private static final class EntryChangesGet {
+
+        public static final String OPERATION_ID = "entryChangesGet";
+        public static final String SUMMARY = "List changes to published entries";
+        public static final String DESCRIPTION = "This endpoint returns changes to published tools and workflows in the order they were committed, so that mirrors can sync incrementally. Pass the id of the last change seen as since to continue. A change is only returned once every transaction that started before it has finished, so a change never becomes visible before one that was already returned, and a mirror that continues from the last change it saw misses none.";
+        public static final String OK_RESPONSE = "An array of changes, empty once the mirror is up to date.";
+    }
+
     private static final class ToolsIndexSearch {
 
         public static final String OPERATION_ID = "toolsIndexSearch";
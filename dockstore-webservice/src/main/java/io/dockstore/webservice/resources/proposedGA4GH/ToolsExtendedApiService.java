@@ -28,8 +28,10 @@ import javax.ws.rs.core.SecurityContext;
 public abstract class ToolsExtendedApiService {
     public abstract Response toolsOrgGet(String organization, SecurityContext securityContext) throws NotFoundException;
     public abstract Response workflowsOrgGet(String organization, SecurityContext securityContext) throws NotFoundException;
+    public abstract Response workflowsOrgArchiveGet(String organization, String format, SecurityContext securityContext) throws NotFoundException;
     public abstract Response entriesOrgGet(String organization, SecurityContext securityContext) throws NotFoundException;
     public abstract Response organizationsGet(SecurityContext securityContext);
+    public abstract Response entryChangesGet(long since, int limit, SecurityContext securityContext);
 
     public abstract Response toolsIndexGet(SecurityContext securityContext) throws NotFoundException;
 
@@ -41,6 +41,7 @@ import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
 import io.dockstore.webservice.jdbi.AppToolDAO;
 import io.dockstore.webservice.jdbi.BioWorkflowDAO;
@@ -69,6 +70,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -828,7 +830,7 @@ public class ToolsApiServiceImpl extends ToolsApiService implements Authenticate
                 WorkflowVersion workflowVersion = first.get();
                 // Matching the workflow path in a workflow automatically indicates that the file is a primary descriptor
                 primaryDescriptorPaths.add(workflowVersion.getWorkflowPath());
-                Set<SourceFile> sourceFiles = workflowVersion.getSourceFiles();
+                List<SourceFileMetadata> sourceFiles = fileDAO.findMetadataByVersion(workflowVersion.getId());
                 List<ToolFile> toolFiles = getToolFiles(sourceFiles, primaryDescriptorPaths, type, workflowVersion.getWorkingDirectory());
                 return Response.ok().entity(toolFiles).build();
             } else {
@@ -843,7 +845,7 @@ public class ToolsApiServiceImpl extends ToolsApiService implements Authenticate
                 // Matching the CWL path or WDL path in a tool automatically indicates that the file is a primary descriptor
                 primaryDescriptorPaths.add(tag.getCwlPath());
                 primaryDescriptorPaths.add(tag.getWdlPath());
-                Set<SourceFile> sourceFiles = tag.getSourceFiles();
+                List<SourceFileMetadata> sourceFiles = fileDAO.findMetadataByVersion(tag.getId());
                 List<ToolFile> toolFiles = getToolFiles(sourceFiles, primaryDescriptorPaths, type, tag.getWorkingDirectory());
                 return Response.ok().entity(toolFiles).build();
             } else {
@@ -860,7 +862,7 @@ public class ToolsApiServiceImpl extends ToolsApiService implements Authenticate
      * @param fileType The SourceFile.FileType
      * @return The ToolFile.FileTypeEnum
      */
-    private static ToolFile.FileTypeEnum fileTypeToToolFileFileTypeEnum(DescriptorLanguage.FileType fileType) {
+    public static ToolFile.FileTypeEnum fileTypeToToolFileFileTypeEnum(DescriptorLanguage.FileType fileType) {
         if (fileType.getCategory() == DescriptorLanguage.FileTypeCategory.TEST_FILE) {
             return ToolFile.FileTypeEnum.TEST_FILE;
         } else if (fileType.getCategory() == DescriptorLanguage.FileTypeCategory.CONTAINERFILE) {
@@ -876,16 +878,16 @@ public class ToolsApiServiceImpl extends ToolsApiService implements Authenticate
     }
 
     /**
-     * Converts a list of SourceFile to a list of ToolFile.
+     * Converts a list of SourceFile to a list of ToolFile. Only the metadata of the files is needed, so their content is never loaded.
      *
-     * @param sourceFiles    The list of SourceFile to convert
+     * @param sourceFiles    The metadata of the SourceFiles to convert
      * @param mainDescriptor The main descriptor path, used to determine if the file is a primary or secondary descriptor
      * @return A list of ToolFile for the Tool
      */
-    public static List<ToolFile> getToolFiles(Set<SourceFile> sourceFiles, List<String> mainDescriptor, String type, String workingDirectory) {
+    public static List<ToolFile> getToolFiles(Collection<SourceFileMetadata> sourceFiles, List<String> mainDescriptor, String type, String workingDirectory) {
         // Filters the source files to only show the ones that are possibly relevant to the type (CWL or WDL or NFL)
         final DescriptorLanguage descriptorLanguage = DescriptorLanguage.convertShortStringToEnum(type);
-        List<SourceFile> filteredSourceFiles = sourceFiles.stream()
+        List<SourceFileMetadata> filteredSourceFiles = sourceFiles.stream()
             .filter(sourceFile -> descriptorLanguage.isRelevantFileType(sourceFile.getType())).collect(Collectors.toList());
 
         final Path path = Paths.get("/" + workingDirectory);
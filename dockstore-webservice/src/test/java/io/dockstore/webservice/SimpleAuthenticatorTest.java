@@ -2,7 +2,10 @@ package io.dockstore.webservice;
 
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.services.oauth2.model.Userinfoplus;
@@ -10,6 +13,7 @@ import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
+import java.io.IOException;
 import java.util.Optional;
 import org.junit.Assert;
 import org.junit.Before;
@@ -46,7 +50,7 @@ public class SimpleAuthenticatorTest {
     }
 
     @Test
-    public void authenticateGoogleTokenExistingUser() {
+    public void authenticateGoogleTokenExistingUser() throws IOException {
         when(tokenDAO.findByContent(credentials)).thenReturn(null);
         doReturn(Optional.of(userinfoplus)).when(simpleAuthenticator).userinfoPlusFromToken(credentials);
         when(userinfoplus.getEmail()).thenReturn(USER_EMAIL);
@@ -56,7 +60,7 @@ public class SimpleAuthenticatorTest {
     }
 
     @Test
-    public void authenticateGoogleTokenNewUser() {
+    public void authenticateGoogleTokenNewUser() throws IOException {
         when(tokenDAO.findByContent(credentials)).thenReturn(null);
         doReturn(Optional.of(userinfoplus)).when(simpleAuthenticator).userinfoPlusFromToken(credentials);
         when(userinfoplus.getEmail()).thenReturn(USER_EMAIL);
@@ -66,8 +70,29 @@ public class SimpleAuthenticatorTest {
     }
 
     @Test
-    public void authenticateBadToken() {
+    public void authenticateBadToken() throws IOException {
         doReturn(Optional.empty()).when(simpleAuthenticator).userinfoPlusFromToken(credentials);
         Assert.assertFalse(simpleAuthenticator.authenticate(credentials).isPresent());
     }
+
+    @Test
+    public void rejectedTokenIsRemembered() throws IOException {
+        doReturn(Optional.empty()).when(simpleAuthenticator).userinfoPlusFromToken(credentials);
+        Assert.assertFalse(simpleAuthenticator.authenticate(credentials).isPresent());
+        Assert.assertFalse(simpleAuthenticator.authenticate(credentials).isPresent());
+        // Neither the database nor Google is asked about a token that was just rejected
+        verify(tokenDAO, times(1)).findByContent(credentials);
+        verify(simpleAuthenticator, times(1)).userinfoPlusFromToken(credentials);
+    }
+
+    @Test
+    public void unansweredTokenIsNotRemembered() throws IOException {
+        doThrow(new IOException("Google is unavailable")).doReturn(Optional.of(userinfoplus)).when(simpleAuthenticator).userinfoPlusFromToken(credentials);
+        when(userinfoplus.getEmail()).thenReturn(USER_EMAIL);
+        when(userDAO.findByGoogleEmail(USER_EMAIL)).thenReturn(user);
+        Assert.assertFalse(simpleAuthenticator.authenticate(credentials).isPresent());
+        // Google answering later is not hidden by the failure
+        Assert.assertTrue(simpleAuthenticator.authenticate(credentials).isPresent());
+        verify(simpleAuthenticator, times(2)).userinfoPlusFromToken(credentials);
+    }
 }
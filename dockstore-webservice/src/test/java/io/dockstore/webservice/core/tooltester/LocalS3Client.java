@@ -0,0 +1,147 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core.tooltester;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * An in-memory stand-in for S3 that supports the calls the ToolTester client makes, including ranged gets, so the log endpoints can be
+ * tested without a bucket or credentials.
+ */
+public class LocalS3Client implements S3Client {
+    public static final int PAGE_SIZE = 2;
+    private static final Pattern BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    private final NavigableMap<String, byte[]> objects = new TreeMap<>();
+    private final Map<String, Map<String, String>> metadata = new TreeMap<>();
+    private final AtomicInteger headRequests = new AtomicInteger();
+    private final AtomicInteger listRequests = new AtomicInteger();
+
+    public void putObject(String key, byte[] content, Map<String, String> userMetadata) {
+        objects.put(key, content);
+        metadata.put(key, userMetadata);
+    }
+
+    public int getHeadRequests() {
+        return headRequests.get();
+    }
+
+    public int getListRequests() {
+        return listRequests.get();
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest) {
+        byte[] content = objects.get(getObjectRequest.key());
+        if (content == null) {
+            throw NoSuchKeyException.builder().statusCode(HttpStatus.SC_NOT_FOUND).message("The specified key does not exist.").build();
+        }
+        GetObjectResponse.Builder response = GetObjectResponse.builder().metadata(metadata.get(getObjectRequest.key()));
+        if (getObjectRequest.range() == null) {
+            response.contentLength((long)content.length);
+        } else {
+            Matcher matcher = BYTE_RANGE.matcher(getObjectRequest.range());
+            if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                throw invalidRange();
+            }
+            int start;
+            int end;
+            if (matcher.group(1).isEmpty()) {
+                start = Math.max(0, content.length - Integer.parseInt(matcher.group(2)));
+                end = content.length - 1;
+            } else {
+                start = Integer.parseInt(matcher.group(1));
+                end = matcher.group(2).isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+            }
+            if (start > end) {
+                throw invalidRange();
+            }
+            response.contentLength((long)(end - start + 1)).contentRange("bytes " + start + "-" + end + "/" + content.length);
+            content = Arrays.copyOfRange(content, start, end + 1);
+        }
+        return new ResponseInputStream<>(response.build(), AbortableInputStream.create(new ByteArrayInputStream(content)));
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        headRequests.incrementAndGet();
+        if (!objects.containsKey(headObjectRequest.key())) {
+            throw NoSuchKeyException.builder().statusCode(HttpStatus.SC_NOT_FOUND).build();
+        }
+        return HeadObjectResponse.builder().metadata(metadata.get(headObjectRequest.key())).contentLength((long)objects.get(headObjectRequest.key()).length).build();
+    }
+
+    /**
+     * Lists at most {@link #PAGE_SIZE} keys at a time, so callers have to follow the continuation token to see every key
+     */
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        String prefix = listObjectsV2Request.prefix() == null ? "" : listObjectsV2Request.prefix();
+        int pageSize = listObjectsV2Request.maxKeys() == null ? PAGE_SIZE : Math.min(listObjectsV2Request.maxKeys(), PAGE_SIZE);
+        String after = listObjectsV2Request.continuationToken() != null ? listObjectsV2Request.continuationToken() : listObjectsV2Request.startAfter();
+        listRequests.incrementAndGet();
+        List<String> keys = (after == null ? objects.keySet() : objects.tailMap(after, false).keySet()).stream()
+            .filter(key -> key.startsWith(prefix))
+            .limit(pageSize + 1L)
+            .collect(Collectors.toList());
+        boolean truncated = keys.size() > pageSize;
+        List<String> page = truncated ? keys.subList(0, pageSize) : keys;
+        return ListObjectsV2Response.builder()
+            .contents(page.stream().map(key -> S3Object.builder().key(key).size((long)objects.get(key).length).build()).collect(Collectors.toList()))
+            .keyCount(page.size())
+            .continuationToken(listObjectsV2Request.continuationToken())
+            .nextContinuationToken(truncated ? page.get(page.size() - 1) : null)
+            .isTruncated(truncated)
+            .build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private static S3Exception invalidRange() {
+        return (S3Exception)S3Exception.builder().statusCode(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE).message("The requested range is not satisfiable").build();
+    }
+}
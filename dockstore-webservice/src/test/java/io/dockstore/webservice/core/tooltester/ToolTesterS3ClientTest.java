@@ -21,11 +21,19 @@ package io.dockstore.webservice.core.tooltester;
 import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
 /**
  * TODO: Add more tests
@@ -69,6 +77,90 @@ public class ToolTesterS3ClientTest {
         Assert.assertEquals("10101011.log", toolTesterLog.getFilename());
     }
 
+    /**
+     * Test that logs are served whole or by byte range from a shared client without reading them into memory first
+     */
+    @Test
+    public void getToolTesterLogStream() throws IOException {
+        LocalS3Client s3 = new LocalS3Client();
+        String key = "tool/quay.io/briandoconnor/dockstore-tool-md5sum/1.0.4/test.json/cwltool/1554477725708.log";
+        s3.putObject(key, "0123456789".getBytes(StandardCharsets.UTF_8), Map.of());
+        ToolTesterS3Client client = new ToolTesterS3Client("bucket", s3);
+
+        Assert.assertEquals("0123456789", client.getToolTesterLog("quay.io/briandoconnor/dockstore-tool-md5sum", "1.0.4", "test.json", "cwltool", "1554477725708.log"));
+        try (ResponseInputStream<GetObjectResponse> range = client.getToolTesterLogStream("quay.io/briandoconnor/dockstore-tool-md5sum", "1.0.4", "test.json", "cwltool", "1554477725708.log", "bytes=2-4")) {
+            Assert.assertEquals("234", IOUtils.toString(range, StandardCharsets.UTF_8));
+            Assert.assertEquals("bytes 2-4/10", range.response().contentRange());
+            Assert.assertEquals(Long.valueOf(3), range.response().contentLength());
+        }
+    }
+
+    /**
+     * Test that listing logs is served from the index once a version has been indexed, instead of looking at every log again
+     */
+    @Test
+    public void getToolTesterLogsFromIndex() throws UnsupportedEncodingException {
+        LocalS3Client s3 = new LocalS3Client();
+        Map<String, String> metadata = Map.of("tool_id", "quay.io/pancancer/pcawg-bwa-mem-workflow", "version_name", "2.7.0", "test_file_path", "test1.json", "runner", "cwltool");
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/1.log", new byte[0], metadata);
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/2.log", new byte[0], metadata);
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.8.0/test1.json/cwltool/3.log", new byte[0], metadata);
+        ToolTesterS3Client client = new ToolTesterS3Client("bucket", s3);
+
+        List<ToolTesterLog> logs = client.getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0");
+        Assert.assertEquals(2, logs.size());
+        Assert.assertEquals("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/1.log", logs.get(0).getFilename());
+        Assert.assertEquals(2, s3.getHeadRequests());
+
+        Assert.assertEquals(2, client.getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0").size());
+        Assert.assertEquals("a second listing should come from the index", 2, s3.getHeadRequests());
+    }
+
+    /**
+     * Test that a version with more logs than fit in one listing is indexed completely
+     */
+    @Test
+    public void getToolTesterLogsAcrossListingPages() throws UnsupportedEncodingException {
+        LocalS3Client s3 = new LocalS3Client();
+        Map<String, String> metadata = Map.of("tool_id", "quay.io/pancancer/pcawg-bwa-mem-workflow", "version_name", "2.7.0", "test_file_path", "test1.json", "runner", "cwltool");
+        final int logCount = LocalS3Client.PAGE_SIZE * 2 + 1;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < logCount; i++) {
+            keys.add("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/" + i + ".log");
+            s3.putObject(keys.get(i), new byte[0], metadata);
+        }
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.8.0/test1.json/cwltool/0.log", new byte[0], metadata);
+        ToolTesterS3Client client = new ToolTesterS3Client("bucket", s3);
+
+        List<ToolTesterLog> logs = client.getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0");
+        Assert.assertEquals(keys, logs.stream().map(ToolTesterLog::getFilename).collect(Collectors.toList()));
+        Assert.assertEquals("every page of the listing should have been requested", 3, s3.getListRequests());
+        Assert.assertEquals(logCount, s3.getHeadRequests());
+    }
+
+    /**
+     * Test that a client that starts without an index, like one that restarted or another instance, only looks up logs no client has indexed
+     */
+    @Test
+    public void getToolTesterLogsFromStoredIndex() throws UnsupportedEncodingException {
+        LocalS3Client s3 = new LocalS3Client();
+        Map<String, String> metadata = Map.of("tool_id", "quay.io/pancancer/pcawg-bwa-mem-workflow", "version_name", "2.7.0", "test_file_path", "test1.json", "runner", "cwltool");
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/1.log", new byte[0], metadata);
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/2.log", new byte[0], metadata);
+        InMemoryLogStore store = new InMemoryLogStore();
+
+        Assert.assertEquals(2, new ToolTesterS3Client("bucket", s3, store).getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0").size());
+        Assert.assertEquals(2, s3.getHeadRequests());
+        Assert.assertEquals(2, store.logs.get("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0").size());
+
+        s3.putObject("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0/test1.json/cwltool/3.log", new byte[0], metadata);
+        List<ToolTesterLog> logs = new ToolTesterS3Client("bucket", s3, store).getToolTesterLogs("quay.io/pancancer/pcawg-bwa-mem-workflow", "2.7.0");
+        Assert.assertEquals(3, logs.size());
+        Assert.assertEquals("cwltool", logs.get(0).getRunner());
+        Assert.assertEquals("a new client should only look up the log that was not stored", 3, s3.getHeadRequests());
+        Assert.assertEquals(3, store.logs.get("tool/quay.io/pancancer/pcawg-bwa-mem-workflow/2.7.0").size());
+    }
+
     @Test
     @Ignore("this works to check if tooltester retrieval works, but you need the right creds")
     public void testLocal() throws IOException {
@@ -79,4 +171,18 @@ public class ToolTesterS3ClientTest {
         Assert.assertTrue((toolTesterLogs.size() > 10));
         Assert.assertNotNull(cwltool);
     }
+
+    private static final class InMemoryLogStore implements ToolTesterLogStore {
+        private final Map<String, Map<String, ToolTesterLog>> logs = new HashMap<>();
+
+        @Override
+        public Map<String, ToolTesterLog> findByPrefix(String prefix) {
+            return new HashMap<>(logs.getOrDefault(prefix, Map.of()));
+        }
+
+        @Override
+        public void add(String prefix, Collection<ToolTesterLog> added) {
+            added.forEach(log -> logs.computeIfAbsent(prefix, key -> new HashMap<>()).putIfAbsent(log.getFilename(), log));
+        }
+    }
 }
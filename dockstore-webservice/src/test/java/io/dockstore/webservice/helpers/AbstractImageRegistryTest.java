@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.common.DescriptorLanguage;
+import io.dockstore.common.VersionTypeValidation;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.Validation;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbstractImageRegistryTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFetchConcurrentlyKeepsOrder() {
+        List<Integer> items = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+        List<String> results = AbstractImageRegistry.fetchConcurrently(executor, items, item -> {
+            // finish out of order
+            sleep(50 - item);
+            return "tag-" + item;
+        });
+        Assert.assertEquals(items.stream().map(item -> "tag-" + item).collect(Collectors.toList()), results);
+    }
+
+    @Test
+    public void testFetchConcurrentlyRunsInParallel() {
+        // every fetch waits for all of the others, so this only finishes if they run at the same time
+        CountDownLatch allStarted = new CountDownLatch(4);
+        List<Boolean> results = AbstractImageRegistry.fetchConcurrently(executor, List.of(1, 2, 3, 4), item -> {
+            allStarted.countDown();
+            try {
+                return allStarted.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        Assert.assertTrue(results.stream().allMatch(Boolean::booleanValue));
+    }
+
+    @Test
+    public void testFetchConcurrentlyThrowsFailure() {
+        try {
+            AbstractImageRegistry.fetchConcurrently(executor, List.of(1, 2, 3), item -> {
+                if (item == 2) {
+                    throw new CustomWebApplicationException("Could not get Quay Tag", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                }
+                return item;
+            });
+            Assert.fail("a failed fetch should fail the refresh");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals("Could not get Quay Tag", ex.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testToolIndexMatchesByToolPath() {
+        AbstractImageRegistry.ToolIndex index = new AbstractImageRegistry.ToolIndex();
+        Tool tool = tool("md5sum", "git@github.com:dockstore/md5sum.git");
+        index.add(tool);
+        index.add(tool("bwa", "git@github.com:dockstore/bwa.git"));
+        Assert.assertSame(tool, index.find(tool("md5sum", "git@github.com:dockstore/other.git")).orElseThrow());
+        Assert.assertTrue(index.find(tool("other", "git@github.com:dockstore/other.git")).isEmpty());
+    }
+
+    @Test
+    public void testToolIndexMatchesByPathAndGitUrl() {
+        AbstractImageRegistry.ToolIndex index = new AbstractImageRegistry.ToolIndex();
+        Tool tool = tool("md5sum", "git@github.com:dockstore/md5sum.git");
+        index.add(tool);
+        // a tool with another tool name in the same image and repository is the same tool
+        Assert.assertSame(tool, index.find(tool("renamed", "git@github.com:dockstore/md5sum.git")).orElseThrow());
+        // a tool without a git url only matches by tool path
+        Assert.assertTrue(index.find(tool("renamed", null)).isEmpty());
+        index.add(tool("nogiturl", null));
+        Assert.assertEquals("nogiturl", index.find(tool("nogiturl", "git@github.com:dockstore/other.git")).orElseThrow().getToolname());
+    }
+
+    @Test
+    public void testToolIndexFindsFirstAddedMatch() {
+        AbstractImageRegistry.ToolIndex index = new AbstractImageRegistry.ToolIndex();
+        Tool byGitUrl = tool("first", "git@github.com:dockstore/md5sum.git");
+        Tool byToolPath = tool("second", "git@github.com:dockstore/other.git");
+        index.add(byGitUrl);
+        index.add(byToolPath);
+        // matches the first tool by path and git url, and the second by tool path, the first one added wins as when the list was searched
+        Assert.assertSame(byGitUrl, index.find(tool("second", "git@github.com:dockstore/md5sum.git")).orElseThrow());
+        // adding a tool again does not move it back
+        index.add(byGitUrl);
+        Assert.assertSame(byGitUrl, index.find(tool("second", "git@github.com:dockstore/md5sum.git")).orElseThrow());
+        // of two tools with the same tool path, the first one is found
+        index.add(tool("second", "git@github.com:dockstore/third.git"));
+        Assert.assertSame(byToolPath, index.find(tool("second", null)).orElseThrow());
+    }
+
+    @Test
+    public void testDescriptorValidationIsCurrentForTheSamePrimaryDescriptor() {
+        Tag tag = new Tag();
+        Assert.assertFalse("an unvalidated tag must be validated", AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, "/Dockstore.cwl"));
+
+        Validation validation = new Validation(DescriptorLanguage.FileType.DOCKSTORE_CWL, new VersionTypeValidation(true, Map.of()));
+        tag.addOrUpdateValidation(validation);
+        Assert.assertFalse("a validation that did not record its descriptor must be repeated",
+            AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, "/Dockstore.cwl"));
+
+        Validation withPath = new Validation(DescriptorLanguage.FileType.DOCKSTORE_CWL, new VersionTypeValidation(true, Map.of()));
+        withPath.setPrimaryDescriptorPath("/Dockstore.cwl");
+        tag.addOrUpdateValidation(withPath);
+        Assert.assertTrue(AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, "/Dockstore.cwl"));
+        Assert.assertFalse("the primary descriptor changed", AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, "/other.cwl"));
+        Assert.assertFalse(AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_WDL, "/Dockstore.cwl"));
+        Assert.assertFalse(AbstractImageRegistry.isDescriptorValidationCurrent(tag, DescriptorLanguage.FileType.DOCKSTORE_CWL, null));
+    }
+
+    private static Tool tool(String toolname, String gitUrl) {
+        Tool tool = new Tool();
+        tool.setRegistry("quay.io");
+        tool.setNamespace("dockstore");
+        tool.setName("image");
+        tool.setToolname(toolname);
+        tool.setGitUrl(gitUrl);
+        return tool;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -18,12 +18,29 @@ package io.dockstore.webservice.helpers;
 
 import com.google.api.client.util.Charsets;
 import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpServer;
 import io.dockstore.webservice.helpers.CheckUrlHelper.TestFileType;
 import io.dropwizard.testing.ResourceHelpers;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.json.JSONObject;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.SystemErrRule;
@@ -31,6 +48,12 @@ import org.junit.contrib.java.lang.system.SystemOutRule;
 
 public class CheckUrlHelperTest {
 
+    private HttpServer lambda;
+    private ExecutorService lambdaExecutor;
+    private final Map<String, AtomicInteger> checksPerUrl = new ConcurrentHashMap<>();
+    private final AtomicInteger activeChecks = new AtomicInteger();
+    private final AtomicInteger maxActiveChecks = new AtomicInteger();
+
     @Rule
     public final SystemOutRule systemOutRule = new SystemOutRule().enableLog().muteForSuccessfulTests();
 
@@ -62,4 +85,91 @@ public class CheckUrlHelperTest {
         Assert.assertTrue(CheckUrlHelper.checkTestParameterFile(s, "fakeBaseUrl", TestFileType.YAML).isEmpty());
         Assert.assertTrue(CheckUrlHelper.checkTestParameterFile(s, "fakeBaseUrl", TestFileType.JSON).isEmpty());
     }
+
+    /**
+     * Starts a fake CheckURL lambda. URLs containing "broken" are not accessible, URLs containing "flaky" get an answer that is neither
+     * true nor false, every other URL is accessible. Each check takes a little while, so that concurrent checks overlap.
+     */
+    @Before
+    public void startLambda() throws IOException {
+        lambdaExecutor = Executors.newCachedThreadPool();
+        lambda = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        lambda.setExecutor(lambdaExecutor);
+        lambda.createContext("/check", exchange -> {
+            final String url = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("url=".length()), StandardCharsets.UTF_8);
+            checksPerUrl.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+            maxActiveChecks.accumulateAndGet(activeChecks.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            activeChecks.decrementAndGet();
+            String message = url.contains("flaky") ? "{\"message\":\"timeout\"}" : "{\"message\":" + !url.contains("broken") + "}";
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        lambda.start();
+    }
+
+    @After
+    public void stopLambda() {
+        lambda.stop(0);
+        lambdaExecutor.shutdownNow();
+    }
+
+    @Test
+    public void checkUrlsCachesDefinitiveAnswers() {
+        final String parameterFile = parameterFile(List.of("https://cached.example.org/ok", "https://cached.example.org/broken"));
+        Assert.assertEquals(Optional.of(false), CheckUrlHelper.checkTestParameterFile(parameterFile, lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals(Optional.of(false), CheckUrlHelper.checkTestParameterFile(parameterFile, lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals("each URL should only be checked once", 1, checksPerUrl.get("https://cached.example.org/ok").get());
+        Assert.assertEquals("each URL should only be checked once", 1, checksPerUrl.get("https://cached.example.org/broken").get());
+    }
+
+    @Test
+    public void checkUrlsDoesNotCacheUnknownAnswers() {
+        final String parameterFile = parameterFile(List.of("https://uncached.example.org/ok", "https://uncached.example.org/flaky"));
+        Assert.assertEquals(Optional.empty(), CheckUrlHelper.checkTestParameterFile(parameterFile, lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals(Optional.empty(), CheckUrlHelper.checkTestParameterFile(parameterFile, lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals(1, checksPerUrl.get("https://uncached.example.org/ok").get());
+        Assert.assertEquals("an unknown answer should be checked again", 2, checksPerUrl.get("https://uncached.example.org/flaky").get());
+    }
+
+    @Test
+    public void checkUrlsLimitsConcurrentChecksPerHost() {
+        final List<String> urls = IntStream.range(0, 3 * CheckUrlHelper.MAX_CONCURRENT_CHECKS_PER_HOST)
+            .mapToObj(i -> "https://busy.example.org/file" + i).collect(Collectors.toList());
+        Assert.assertEquals(Optional.of(true), CheckUrlHelper.checkTestParameterFile(parameterFile(urls), lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals(urls.size(), checksPerUrl.size());
+        Assert.assertTrue("at most " + CheckUrlHelper.MAX_CONCURRENT_CHECKS_PER_HOST + " URLs of a host should be checked at once, was " + maxActiveChecks.get(),
+            maxActiveChecks.get() <= CheckUrlHelper.MAX_CONCURRENT_CHECKS_PER_HOST);
+    }
+
+    /**
+     * A host with more URLs than the checks allowed at once gets an answer for every URL, rather than unknown for those that had to wait
+     */
+    @Test
+    public void checkUrlsWaitsForBusyHost() {
+        final List<String> urls = IntStream.range(0, 6 * CheckUrlHelper.MAX_CONCURRENT_CHECKS_PER_HOST)
+            .mapToObj(i -> "https://crowded.example.org/file" + i).collect(Collectors.toList());
+        Assert.assertEquals(Optional.of(true), CheckUrlHelper.checkTestParameterFile(parameterFile(urls), lambdaUrl(), TestFileType.JSON));
+        Assert.assertEquals(Optional.of(true), CheckUrlHelper.checkTestParameterFile(parameterFile(urls), lambdaUrl(), TestFileType.JSON));
+        urls.forEach(url -> Assert.assertEquals("every URL should be answered on the first check", 1, checksPerUrl.get(url).get()));
+    }
+
+    private String lambdaUrl() {
+        return "http://localhost:" + lambda.getAddress().getPort() + "/check";
+    }
+
+    private static String parameterFile(List<String> urls) {
+        JSONObject parameters = new JSONObject();
+        for (int i = 0; i < urls.size(); i++) {
+            parameters.put("file" + i, urls.get(i));
+        }
+        return parameters.toString();
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.common.SourceControl;
+import io.dockstore.webservice.core.BioWorkflow;
+import io.swagger.discourse.client.ApiException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class DiscourseTopicOutboxTest {
+
+    private HttpServer forum;
+    private final AtomicReference<String> postedForm = new AtomicReference<>();
+    private volatile int status = HttpStatus.SC_OK;
+
+    /**
+     * Starts a stub forum that answers topic creation like Discourse does
+     */
+    @Before
+    public void startForum() throws IOException {
+        forum = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        forum.createContext("/posts.json", exchange -> {
+            postedForm.set(URLDecoder.decode(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+            byte[] body = "{\"topic_id\": 42}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        forum.start();
+    }
+
+    @After
+    public void stopForum() {
+        forum.stop(0);
+    }
+
+    @Test
+    public void testCreateTopic() throws ApiException {
+        long topicId = outbox().createTopic(workflow());
+        Assert.assertEquals(42, topicId);
+        Assert.assertTrue(postedForm.get().contains("github.com/dockstore/hello_world"));
+        Assert.assertTrue(postedForm.get().contains("https://dockstore.org/workflows/github.com/dockstore/hello_world"));
+    }
+
+    @Test
+    public void testForumErrorIsThrown() {
+        status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        try {
+            outbox().createTopic(workflow());
+            Assert.fail("a failed post should be reported so that it can be retried");
+        } catch (ApiException ex) {
+            Assert.assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, ex.getCode());
+        }
+    }
+
+    @Test
+    public void testBackoff() {
+        Assert.assertEquals(DiscourseTopicOutbox.INITIAL_BACKOFF, DiscourseTopicOutbox.backoff(1));
+        Assert.assertEquals(DiscourseTopicOutbox.INITIAL_BACKOFF.multipliedBy(4), DiscourseTopicOutbox.backoff(3));
+        Assert.assertEquals(DiscourseTopicOutbox.MAX_BACKOFF, DiscourseTopicOutbox.backoff(20));
+        Assert.assertEquals(DiscourseTopicOutbox.MAX_BACKOFF, DiscourseTopicOutbox.backoff(Integer.MAX_VALUE));
+        Assert.assertTrue(DiscourseTopicOutbox.backoff(5).compareTo(Duration.ZERO) > 0);
+    }
+
+    private DiscourseTopicOutbox outbox() {
+        return new DiscourseTopicOutbox(Mockito.mock(SessionFactory.class), "http://localhost:" + forum.getAddress().getPort(), "key", 9, "dockstore.org");
+    }
+
+    private static BioWorkflow workflow() {
+        BioWorkflow workflow = new BioWorkflow();
+        workflow.setSourceControl(SourceControl.GITHUB);
+        workflow.setOrganization("dockstore");
+        workflow.setRepository("hello_world");
+        workflow.setDescription("A workflow that says hello");
+        return workflow;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.webservice.core.dockerhub.Results;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DockerHubClientTest {
+
+    private static final String ETAG = "\"page-1\"";
+
+    private HttpServer dockerHub;
+    private final AtomicInteger notModified = new AtomicInteger();
+    private volatile int status = HttpStatus.SC_OK;
+
+    /**
+     * Starts a fake Docker Hub with a repository whose tags span two pages, the first of which has an ETag
+     */
+    @Before
+    public void startDockerHub() throws IOException {
+        dockerHub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        dockerHub.createContext("/v2/repositories/dockstore/tool/tags", exchange -> {
+            if (status != HttpStatus.SC_OK) {
+                respond(exchange, status, "{\"message\": \"httperror " + status + "\"}");
+            } else if (exchange.getRequestURI().getQuery().contains("page=2")) {
+                respond(exchange, HttpStatus.SC_OK, "{\"next\": null, \"results\": [" + tag("3.0") + "]}");
+            } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(HttpStatus.SC_NOT_MODIFIED, -1);
+                exchange.close();
+            } else {
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                String next = "http://localhost:" + dockerHub.getAddress().getPort() + "/v2/repositories/dockstore/tool/tags?page_size="
+                    + DockerHubClient.PAGE_SIZE + "&page=2";
+                respond(exchange, HttpStatus.SC_OK, "{\"next\": \"" + next + "\", \"results\": [" + tag("1.0") + ", " + tag("2.0") + "]}");
+            }
+        });
+        dockerHub.start();
+    }
+
+    @After
+    public void stopDockerHub() {
+        dockerHub.stop(0);
+    }
+
+    @Test
+    public void testGetTagsFollowsPages() {
+        Optional<List<Results>> tags = client().getTags("dockstore/tool");
+        Assert.assertTrue(tags.isPresent());
+        Assert.assertEquals(List.of("1.0", "2.0", "3.0"), tags.get().stream().map(Results::getName).collect(Collectors.toList()));
+        Assert.assertEquals("sha256:1.0", tags.get().get(0).getImages()[0].getDigest());
+    }
+
+    @Test
+    public void testUnchangedPageIsNotDownloadedAgain() {
+        DockerHubClient client = client();
+        List<Results> first = client.getTags("dockstore/tool").orElseThrow();
+        List<Results> second = client.getTags("dockstore/tool").orElseThrow();
+        Assert.assertEquals(1, notModified.get());
+        Assert.assertEquals(first.stream().map(Results::getName).collect(Collectors.toList()),
+            second.stream().map(Results::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testMissingRepositoryHasNoTags() {
+        status = HttpStatus.SC_NOT_FOUND;
+        Assert.assertEquals(Optional.of(List.of()), client().getTags("dockstore/tool"));
+    }
+
+    @Test
+    public void testFailureIsNotMistakenForNoTags() {
+        status = HttpStatus.SC_SERVICE_UNAVAILABLE;
+        Assert.assertTrue(client().getTags("dockstore/tool").isEmpty());
+    }
+
+    private DockerHubClient client() {
+        return new DockerHubClient("http://localhost:" + dockerHub.getAddress().getPort() + "/v2/");
+    }
+
+    private static String tag(String name) {
+        return "{\"name\": \"" + name + "\", \"digest\": \"sha256:" + name + "\", \"image_id\": null, \"images\": [{\"digest\": \"sha256:" + name
+            + "\", \"architecture\": \"amd64\", \"size\": 100}]}";
+    }
+
+    private static void respond(HttpExchange exchange, int responseStatus, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(responseStatus, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -2,11 +2,27 @@ package io.dockstore.webservice.helpers;
 
 import static org.mockito.Mockito.when;
 
+import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.oauth2.model.Tokeninfo;
 import com.google.api.services.oauth2.model.Userinfoplus;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.TokenType;
 import io.dockstore.webservice.core.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.http.HttpStatus;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -32,6 +48,148 @@ public class GoogleHelperTest {
         Assert.assertFalse(GoogleHelper.isValidAudience(tokeninfo));
     }
 
+    @Test
+    public void isRejection() {
+        Assert.assertTrue(GoogleHelper.isRejection(httpResponseException(HttpStatus.SC_BAD_REQUEST)));
+        Assert.assertTrue(GoogleHelper.isRejection(httpResponseException(HttpStatus.SC_UNAUTHORIZED)));
+        // Google failing to answer says nothing about the token
+        Assert.assertFalse(GoogleHelper.isRejection(httpResponseException(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+        Assert.assertFalse(GoogleHelper.isRejection(httpResponseException(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+        Assert.assertFalse(GoogleHelper.isRejection(httpResponseException(HttpStatus.SC_GATEWAY_TIMEOUT)));
+    }
+
+    private static HttpResponseException httpResponseException(int statusCode) {
+        return new HttpResponseException.Builder(statusCode, null, new HttpHeaders()).build();
+    }
+
+    @Test
+    public void cacheDurationNanos() {
+        // Tokens are given up a minute before Google expires them
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(3540), GoogleHelper.cacheDurationNanos(3600));
+        Assert.assertEquals(0, GoogleHelper.cacheDurationNanos(30));
+        Assert.assertEquals(0, GoogleHelper.cacheDurationNanos(0));
+    }
+
+    @After
+    public void restoreTokenCalls() {
+        GoogleHelper.setTokenCalls(GoogleHelper.GOOGLE_TOKEN_CALLS);
+    }
+
+    @Test
+    public void validatedTokenIsCached() {
+        useAudience();
+        final StubTokenCalls calls = new StubTokenCalls(accessToken -> Optional.of(tokenInfo(AUDIENCE1)), refreshToken -> Optional.empty());
+        GoogleHelper.setTokenCalls(calls);
+        final Token token = token("access", null);
+        Assert.assertEquals(Optional.of("access"), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals(Optional.of("access"), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals("the second lookup should be served from the cache", 1, calls.tokenInfoCalls.get());
+    }
+
+    @Test
+    public void rejectedTokenIsNotCached() {
+        useAudience();
+        final StubTokenCalls calls = new StubTokenCalls(accessToken -> Optional.of(tokenInfo(INVALID_AUDIENCE)), refreshToken -> Optional.empty());
+        GoogleHelper.setTokenCalls(calls);
+        final Token token = token("access", null);
+        Assert.assertEquals(Optional.empty(), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals(Optional.empty(), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals(2, calls.tokenInfoCalls.get());
+    }
+
+    @Test
+    public void failedRefreshIsNotCached() {
+        useAudience();
+        final StubTokenCalls calls = new StubTokenCalls(accessToken -> Optional.empty(), refreshToken -> Optional.empty());
+        GoogleHelper.setTokenCalls(calls);
+        final Token token = token("expired", "refresh");
+        Assert.assertEquals(Optional.empty(), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals(Optional.empty(), GoogleHelper.getValidAccessToken(token));
+        Assert.assertEquals("a failed refresh should be tried again", 2, calls.refreshCalls.get());
+    }
+
+    @Test
+    public void concurrentCallersShareOneRefresh() throws Exception {
+        useAudience();
+        final int callers = 8;
+        final CountDownLatch allChecked = new CountDownLatch(callers);
+        final StubTokenCalls calls = new StubTokenCalls(accessToken -> {
+            allChecked.countDown();
+            return Optional.empty();
+        }, refreshToken -> {
+            // keep the refresh running until every caller has found the access token expired
+            try {
+                allChecked.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(new TokenResponse().setAccessToken("refreshed").setExpiresInSeconds(3600L));
+        });
+        GoogleHelper.setTokenCalls(calls);
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<Optional<String>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> GoogleHelper.getValidAccessToken(token("expired", "refresh"))));
+            }
+            for (Future<Optional<String>> result : results) {
+                Assert.assertEquals(Optional.of("refreshed"), result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.refreshCalls.get());
+        // the refreshed token is known to be valid, and the refresh is not repeated
+        Assert.assertEquals(Optional.of("refreshed"), GoogleHelper.getValidAccessToken(token("refreshed", "refresh")));
+        Assert.assertEquals(Optional.of("refreshed"), GoogleHelper.getValidAccessToken(token("expired", "refresh")));
+        Assert.assertEquals(callers, calls.tokenInfoCalls.get());
+        Assert.assertEquals(1, calls.refreshCalls.get());
+    }
+
+    private static void useAudience() {
+        final DockstoreWebserviceConfiguration config = new DockstoreWebserviceConfiguration();
+        config.setGoogleClientID(AUDIENCE1);
+        GoogleHelper.setConfig(config);
+    }
+
+    private static Tokeninfo tokenInfo(String audience) {
+        return new Tokeninfo().setAudience(audience).setExpiresIn(3600);
+    }
+
+    private static Token token(String accessToken, String refreshToken) {
+        final Token token = new Token();
+        token.setContent(accessToken);
+        token.setRefreshToken(refreshToken);
+        return token;
+    }
+
+    /**
+     * Answers for Google and counts the calls made to it
+     */
+    private static final class StubTokenCalls implements GoogleHelper.GoogleTokenCalls {
+        private final AtomicInteger tokenInfoCalls = new AtomicInteger();
+        private final AtomicInteger refreshCalls = new AtomicInteger();
+        private final Function<String, Optional<Tokeninfo>> tokenInfo;
+        private final Function<String, Optional<TokenResponse>> refresh;
+
+        StubTokenCalls(Function<String, Optional<Tokeninfo>> tokenInfo, Function<String, Optional<TokenResponse>> refresh) {
+            this.tokenInfo = tokenInfo;
+            this.refresh = refresh;
+        }
+
+        @Override
+        public Optional<Tokeninfo> getTokenInfo(String accessToken) {
+            tokenInfoCalls.incrementAndGet();
+            return tokenInfo.apply(accessToken);
+        }
+
+        @Override
+        public Optional<TokenResponse> refresh(String refreshToken) {
+            refreshCalls.incrementAndGet();
+            return refresh.apply(refreshToken);
+        }
+    }
+
     @Test
     public void updateUserFromGoogleUserinfoplus() {
         String pictureUrl = "https://example.com/picture";
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.core.OrcidExportJob;
+import org.apache.http.HttpStatus;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Tests how export jobs are run and tracked, against a database that cannot be reached, so every export fails when it reads its work
+ */
+public class OrcidExportQueueTest {
+
+    private static final long USER_ID = 1;
+    private static final long OTHER_USER_ID = 2;
+    private static final String DATABASE_ERROR = "database is down";
+
+    private OrcidExportQueue queue;
+
+    @Before
+    public void createQueue() {
+        SessionFactory sessionFactory = Mockito.mock(SessionFactory.class);
+        Mockito.when(sessionFactory.openSession()).thenThrow(new IllegalStateException(DATABASE_ERROR));
+        queue = new OrcidExportQueue(sessionFactory);
+    }
+
+    @After
+    public void stopQueue() throws InterruptedException {
+        queue.stop();
+    }
+
+    @Test
+    public void testFailedJobIsReported() throws InterruptedException {
+        OrcidExportJob job = queue.submit(USER_ID, 10, null);
+        Assert.assertEquals(job, queue.getJob(job.getId(), USER_ID).orElseThrow());
+        waitUntilFinished(job);
+        Assert.assertEquals(OrcidExportJob.Status.FAILED, job.getStatus());
+        Assert.assertEquals(Integer.valueOf(HttpStatus.SC_INTERNAL_SERVER_ERROR), job.getErrorCode());
+        Assert.assertTrue(job.getMessage().contains(DATABASE_ERROR));
+        Assert.assertEquals("a finished job can still be polled", job, queue.getJob(job.getId(), USER_ID).orElseThrow());
+    }
+
+    @Test
+    public void testFailedJobDoesNotBlockTheNextJobOfTheUser() throws InterruptedException {
+        OrcidExportJob first = queue.submit(USER_ID, 10, null);
+        OrcidExportJob second = queue.submit(USER_ID, 10, 11L);
+        waitUntilFinished(first);
+        waitUntilFinished(second);
+        Assert.assertEquals(OrcidExportJob.Status.FAILED, second.getStatus());
+        Assert.assertEquals(Long.valueOf(11), second.getVersionId());
+
+        // the runner of the user is gone once its queue is empty, so a later job gets a new one
+        OrcidExportJob third = queue.submit(USER_ID, 10, null);
+        waitUntilFinished(third);
+        Assert.assertEquals(OrcidExportJob.Status.FAILED, third.getStatus());
+    }
+
+    @Test
+    public void testJobIsOnlyVisibleToItsUser() {
+        OrcidExportJob job = queue.submit(USER_ID, 10, null);
+        Assert.assertTrue(queue.getJob(job.getId(), OTHER_USER_ID).isEmpty());
+        Assert.assertTrue(queue.getJob("no such job", USER_ID).isEmpty());
+    }
+
+    @Test
+    public void testExportNowRunsOnTheCallingThread() {
+        OrcidExportJob job = queue.exportNow(USER_ID, 10, null);
+        Assert.assertEquals("the export should have finished when exportNow returns", OrcidExportJob.Status.FAILED, job.getStatus());
+        Assert.assertTrue(job.getMessage().contains(DATABASE_ERROR));
+        Assert.assertTrue("an inline export is not kept for polling", queue.getJob(job.getId(), USER_ID).isEmpty());
+    }
+
+    @Test
+    public void testStopWaitsForSubmittedJobs() throws InterruptedException {
+        OrcidExportJob job = queue.submit(USER_ID, 10, null);
+        queue.stop();
+        Assert.assertEquals(OrcidExportJob.Status.FAILED, job.getStatus());
+    }
+
+    private static void waitUntilFinished(OrcidExportJob job) throws InterruptedException {
+        final int maxPolls = 100;
+        for (int i = 0; i < maxPolls && (job.getStatus() == OrcidExportJob.Status.QUEUED || job.getStatus() == OrcidExportJob.Status.RUNNING); i++) {
+            Thread.sleep(50);
+        }
+    }
+}
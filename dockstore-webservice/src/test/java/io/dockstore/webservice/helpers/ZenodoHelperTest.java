@@ -3,17 +3,126 @@ package io.dockstore.webservice.helpers;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.sun.net.httpserver.HttpServer;
 import io.dockstore.common.DescriptorLanguage;
 import io.dockstore.common.SourceControl;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.BioWorkflow;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.swagger.zenodo.client.ApiClient;
+import io.swagger.zenodo.client.api.FilesApi;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.http.HttpStatus;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 public class ZenodoHelperTest {
 
+    private HttpServer zenodo;
+    private final Map<String, byte[]> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> authorizations = new ConcurrentHashMap<>();
+    private final List<String> deletes = new CopyOnWriteArrayList<>();
+    private volatile int status = HttpStatus.SC_OK;
+    private final ZenodoExecutors executors = new ZenodoExecutors();
+
+    /**
+     * Starts a fake Zenodo that accepts file uploads to buckets and file deletes like Zenodo does
+     */
+    @Before
+    public void startZenodo() throws IOException {
+        zenodo = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        zenodo.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                uploads.put(path, exchange.getRequestBody().readAllBytes());
+                authorizations.put(path, exchange.getRequestHeaders().getFirst("Authorization"));
+            } else if ("DELETE".equals(exchange.getRequestMethod())) {
+                deletes.add(path);
+            }
+            exchange.sendResponseHeaders(status == HttpStatus.SC_OK && "DELETE".equals(exchange.getRequestMethod()) ? HttpStatus.SC_NO_CONTENT : status, -1);
+            exchange.close();
+        });
+        zenodo.start();
+    }
+
+    @After
+    public void stopZenodo() throws InterruptedException {
+        zenodo.stop(0);
+        executors.stop();
+    }
+
+    @Test
+    public void testUploadToBucketStreamsContent() {
+        // larger than the pipe between the writer and the upload, so that the writer has to wait for the upload to read
+        byte[] content = new byte[5 * 1024 * 1024 + 7];
+        new Random(1).nextBytes(content);
+        ZenodoHelper.uploadToBucket(bucketUrl(), "token", "github.com-org-repo_1.0 final.zip", outputStream -> {
+            try (outputStream) {
+                for (int offset = 0; offset < content.length; offset += 1000) {
+                    outputStream.write(content, offset, Math.min(1000, content.length - offset));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executors.getFileExecutor());
+        String path = "/api/files/bucket-id/github.com-org-repo_1.0 final.zip";
+        Assert.assertArrayEquals(content, uploads.get(path));
+        Assert.assertEquals("Bearer token", authorizations.get(path));
+    }
+
+    @Test
+    public void testUploadToBucketError() {
+        status = HttpStatus.SC_FORBIDDEN;
+        try {
+            ZenodoHelper.uploadToBucket(bucketUrl(), "token", "file.zip", outputStream -> {
+                try (outputStream) {
+                    outputStream.write(new byte[1024]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executors.getFileExecutor());
+            fail("a rejected upload should fail the DOI request");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, ex.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testUploadToBucketWriterError() {
+        try {
+            ZenodoHelper.uploadToBucket(bucketUrl(), "token", "file.zip", outputStream -> {
+                throw new IllegalStateException("no source files");
+            }, executors.getFileExecutor());
+            fail("an archive that could not be written should not be reported as uploaded");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, ex.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testDeleteFiles() {
+        ApiClient zenodoClient = new ApiClient();
+        zenodoClient.setBasePath("http://localhost:" + zenodo.getAddress().getPort() + "/api");
+        ZenodoHelper.deleteFiles(new FilesApi(zenodoClient), 123, Arrays.asList("a", "b", "c"), executors.getFileExecutor());
+        Assert.assertEquals(3, deletes.size());
+        Assert.assertTrue(deletes.stream().allMatch(path -> path.contains("123")));
+    }
+
+    private String bucketUrl() {
+        return "http://localhost:" + zenodo.getAddress().getPort() + "/api/files/bucket-id";
+    }
+
     @Test
     public void testcreateWorkflowTrsUrl() {
         final Workflow workflow = new BioWorkflow();
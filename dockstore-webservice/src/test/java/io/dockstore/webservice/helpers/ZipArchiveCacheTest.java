@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 OICR and UCSC
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.http.HttpStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ZipArchiveCacheTest {
+
+    @Test
+    public void parseByteRange() {
+        Assert.assertArrayEquals(new long[] {0, 99}, ZipArchiveCache.parseByteRange("bytes=0-99", 1000).get());
+        Assert.assertArrayEquals(new long[] {500, 999}, ZipArchiveCache.parseByteRange("bytes=500-", 1000).get());
+        Assert.assertArrayEquals(new long[] {900, 999}, ZipArchiveCache.parseByteRange("bytes=-100", 1000).get());
+        // End past the end of the archive is truncated
+        Assert.assertArrayEquals(new long[] {900, 999}, ZipArchiveCache.parseByteRange("bytes=900-5000", 1000).get());
+        // Suffix longer than the archive is the whole archive
+        Assert.assertArrayEquals(new long[] {0, 999}, ZipArchiveCache.parseByteRange("bytes=-5000", 1000).get());
+    }
+
+    @Test
+    public void parseUnsatisfiableByteRange() {
+        Assert.assertTrue(ZipArchiveCache.parseByteRange(null, 1000).isEmpty());
+        Assert.assertTrue(ZipArchiveCache.parseByteRange("bytes=1000-", 1000).isEmpty());
+        Assert.assertTrue(ZipArchiveCache.parseByteRange("bytes=50-10", 1000).isEmpty());
+        Assert.assertTrue(ZipArchiveCache.parseByteRange("bytes=-", 1000).isEmpty());
+        // Multiple ranges are not supported
+        Assert.assertTrue(ZipArchiveCache.parseByteRange("bytes=0-10,20-30", 1000).isEmpty());
+        Assert.assertTrue(ZipArchiveCache.parseByteRange("items=0-10", 1000).isEmpty());
+    }
+
+    @Test
+    public void frozenArchiveResponse() {
+        final AtomicInteger generated = new AtomicInteger();
+        final Consumer<OutputStream> writer = archiveWriter(1000, generated);
+
+        Response whole = ZipArchiveCache.frozenArchiveResponse(-1L, writer, "archive.zip", null);
+        Assert.assertEquals(HttpStatus.SC_OK, whole.getStatus());
+        Assert.assertEquals(1000, ((byte[])whole.getEntity()).length);
+
+        Response partial = ZipArchiveCache.frozenArchiveResponse(-1L, writer, "archive.zip", "bytes=10-19");
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, partial.getStatus());
+        Assert.assertEquals("bytes 10-19/1000", partial.getHeaderString("Content-Range"));
+        Assert.assertArrayEquals(Arrays.copyOfRange(content(1000), 10, 20), (byte[])partial.getEntity());
+
+        Response unsatisfiable = ZipArchiveCache.frozenArchiveResponse(-1L, writer, "archive.zip", "bytes=1000-");
+        Assert.assertEquals(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, unsatisfiable.getStatus());
+        Assert.assertEquals("bytes */1000", unsatisfiable.getHeaderString("Content-Range"));
+
+        // Multiple ranges are ignored and the whole archive is served
+        Response multipleRanges = ZipArchiveCache.frozenArchiveResponse(-1L, writer, "archive.zip", "bytes=0-10,20-30");
+        Assert.assertEquals(HttpStatus.SC_OK, multipleRanges.getStatus());
+        Assert.assertEquals(1000, ((byte[])multipleRanges.getEntity()).length);
+
+        Assert.assertEquals("the archive should only be generated once", 1, generated.get());
+    }
+
+    @Test
+    public void oversizedFrozenArchiveIsStreamed() throws IOException {
+        final AtomicInteger generated = new AtomicInteger();
+        final int size = ZipArchiveCache.MAX_CACHED_ARCHIVE_BYTES + 1;
+        final Consumer<OutputStream> writer = archiveWriter(size, generated);
+
+        for (int i = 0; i < 2; i++) {
+            Response response = ZipArchiveCache.frozenArchiveResponse(-2L, writer, "archive.zip", "bytes=0-9");
+            Assert.assertEquals("ranges of an archive too large to cache are ignored", HttpStatus.SC_OK, response.getStatus());
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            ((StreamingOutput)response.getEntity()).write(streamed);
+            Assert.assertArrayEquals(content(size), streamed.toByteArray());
+        }
+        Assert.assertEquals("the cache should give up on the archive once, then only stream it", 3, generated.get());
+    }
+
+    private static Consumer<OutputStream> archiveWriter(int size, AtomicInteger generated) {
+        return output -> {
+            generated.incrementAndGet();
+            try {
+                output.write(content(size));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte)i;
+        }
+        return content;
+    }
+}
@@ -0,0 +1,33 @@
+package io.dockstore.webservice.helpers.statelisteners;
+
+import io.dockstore.webservice.core.Checksum;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChangeFeedListenerTest {
+
+    @Test
+    public void versionChecksums() {
+        final List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {"1.0", "/Dockstore.cwl", List.of(new Checksum("SHA-256", "aaa"))});
+        rows.add(new Object[] {"1.0", "/test.json", List.of(new Checksum("SHA-256", "bbb"))});
+        rows.add(new Object[] {"2.0", "/Dockstore.cwl", List.of(new Checksum("SHA-256", "aaa"))});
+        rows.add(new Object[] {"2.0", "/test.json", List.of(new Checksum("SHA-256", "ccc"))});
+        final Map<String, String> checksums = ChangeFeedListener.versionChecksums(rows);
+        Assert.assertEquals(2, checksums.size());
+        Assert.assertNotEquals(checksums.get("1.0"), checksums.get("2.0"));
+
+        // Same files give the same checksum, a renamed file does not
+        final List<Object[]> sameFiles = new ArrayList<>();
+        sameFiles.add(new Object[] {"1.0", "/Dockstore.cwl", List.of(new Checksum("SHA-256", "aaa"))});
+        sameFiles.add(new Object[] {"1.0", "/test.json", List.of(new Checksum("SHA-256", "bbb"))});
+        Assert.assertEquals(checksums.get("1.0"), ChangeFeedListener.versionChecksums(sameFiles).get("1.0"));
+        final List<Object[]> renamedFile = new ArrayList<>();
+        renamedFile.add(new Object[] {"1.0", "/Dockstore.cwl", List.of(new Checksum("SHA-256", "aaa"))});
+        renamedFile.add(new Object[] {"1.0", "/other.json", List.of(new Checksum("SHA-256", "bbb"))});
+        Assert.assertNotEquals(checksums.get("1.0"), ChangeFeedListener.versionChecksums(renamedFile).get("1.0"));
+    }
+}
@@ -0,0 +1,134 @@
+package io.dockstore.webservice.permissions.sam;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.permissions.Role;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Checks SamPermissionsImpl against a fake SAM, so that the real SAM client, its timeouts and retries are used
+ */
+public class SamPermissionsImplServerTest {
+
+    private static final int READ_TIMEOUT_MILLIS = 200;
+    private static final long UNANSWERED_MILLIS = 10_000;
+
+    private HttpServer sam;
+    private final ExecutorService samExecutor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    /**
+     * How many requests fail, with failureStatus or by not answering in time, before SAM answers true
+     */
+    private volatile int failures;
+    private volatile int failureStatus;
+    private SamPermissionsImpl samPermissionsImpl;
+    private final User user = Mockito.mock(User.class);
+    private final Workflow workflow = Mockito.mock(Workflow.class);
+
+    @Before
+    public void setup() throws IOException {
+        sam = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        sam.createContext("/", exchange -> {
+            if (requests.incrementAndGet() <= failures) {
+                if (failureStatus == 0) {
+                    try {
+                        Thread.sleep(UNANSWERED_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    exchange.sendResponseHeaders(failureStatus, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            final byte[] body = "true".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        // answers while an earlier request is still sleeping
+        sam.setExecutor(samExecutor);
+        sam.start();
+
+        final DockstoreWebserviceConfiguration config = new DockstoreWebserviceConfiguration();
+        config.getSamConfiguration().setBasepath("http://localhost:" + sam.getAddress().getPort());
+        config.getSamConfiguration().setReadTimeoutMillis(READ_TIMEOUT_MILLIS);
+        samPermissionsImpl = Mockito.spy(new SamPermissionsImpl(Mockito.mock(TokenDAO.class), config));
+        when(user.getId()).thenReturn(1L);
+        doReturn(Optional.of("my token")).when(samPermissionsImpl).googleAccessToken(user);
+        when(workflow.getWorkflowPath()).thenReturn("github.com/jdoe/foo");
+    }
+
+    @After
+    public void tearDown() {
+        samPermissionsImpl.stop();
+        sam.stop(0);
+        samExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testServerErrorIsRetried() {
+        failures = 1;
+        failureStatus = HttpStatus.SC_SERVICE_UNAVAILABLE;
+        Assert.assertTrue(samPermissionsImpl.canDoAction(user, workflow, Role.Action.READ));
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testTimeoutIsRetried() {
+        failures = 1;
+        Assert.assertTrue(samPermissionsImpl.canDoAction(user, workflow, Role.Action.READ));
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testRetriesAreBounded() {
+        failures = Integer.MAX_VALUE;
+        final long start = System.currentTimeMillis();
+        Assert.assertFalse(samPermissionsImpl.canDoAction(user, workflow, Role.Action.READ));
+        Assert.assertEquals(3, requests.get());
+        // each attempt gives up after the read timeout rather than waiting for SAM to answer
+        Assert.assertTrue(System.currentTimeMillis() - start < UNANSWERED_MILLIS / 2);
+
+        // the failure is not cached
+        failures = 0;
+        Assert.assertTrue(samPermissionsImpl.canDoAction(user, workflow, Role.Action.READ));
+    }
+
+    @Test
+    public void testClientErrorIsNotRetried() {
+        failures = 1;
+        failureStatus = HttpStatus.SC_NOT_FOUND;
+        Assert.assertFalse(samPermissionsImpl.canDoAction(user, workflow, Role.Action.READ));
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testTokensShareOneClient() {
+        final User otherUser = Mockito.mock(User.class);
+        doReturn(Optional.of("other token")).when(samPermissionsImpl).googleAccessToken(otherUser);
+        Assert.assertNotSame(samPermissionsImpl.getResourcesApi(user).getApiClient(), samPermissionsImpl.getResourcesApi(otherUser).getApiClient());
+        Assert.assertSame(samPermissionsImpl.getResourcesApi(user).getApiClient().getHttpClient(),
+                samPermissionsImpl.getResourcesApi(otherUser).getApiClient().getHttpClient());
+    }
+}
@@ -38,6 +38,7 @@ import java.util.Map;
 import java.util.Optional;
 import org.apache.http.HttpStatus;
 import org.hamcrest.CoreMatchers;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -150,6 +151,11 @@ public class SamPermissionsImplTest {
         when(userMock.getUserProfiles()).thenReturn(map);
     }
 
+    @After
+    public void tearDown() {
+        samPermissionsImpl.stop();
+    }
+
     @Test
     public void testAccessPolicyResponseEntryToUserPermissions() {
         final List<Permission> permissions = samPermissionsImpl
@@ -231,6 +237,65 @@ public class SamPermissionsImplTest {
         Assert.assertFalse(samPermissionsImpl.canDoAction(userMock, gooWorkflow, Role.Action.WRITE));
     }
 
+    @Test
+    public void testCanDoActionIsCached() throws ApiException {
+        final String resourceId = SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME;
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE)))
+                .thenReturn(Boolean.TRUE);
+        Assert.assertTrue(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+        Assert.assertTrue(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+        verify(resourcesApiMock, times(1)).resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE));
+
+        // A different action is a different decision
+        Assert.assertFalse(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.SHARE));
+        verify(resourcesApiMock, times(1)).resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.SHARE));
+    }
+
+    @Test
+    public void testRemovePermissionInvalidatesDecisions() throws ApiException {
+        final String resourceId = SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME;
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE)))
+                .thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(resourcesApiMock.listResourcePolicies(SamConstants.RESOURCE_TYPE, resourceId)).thenReturn(Collections.singletonList(writerPolicy));
+        Assert.assertTrue(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+
+        samPermissionsImpl.removePermission(userMock, workflowInstance, JANE_DOE_GMAIL_COM, Role.WRITER);
+        Assert.assertFalse(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+        verify(resourcesApiMock, times(2)).resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE));
+    }
+
+    @Test
+    public void testFailedRemovePermissionInvalidatesDecisions() throws ApiException {
+        final String resourceId = SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME;
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE)))
+                .thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(resourcesApiMock.listResourcePolicies(SamConstants.RESOURCE_TYPE, resourceId)).thenReturn(Collections.singletonList(writerPolicy));
+        // SAM may have removed the user before the error reached us
+        doThrow(new ApiException(HttpStatus.SC_INTERNAL_SERVER_ERROR, ""))
+                .when(resourcesApiMock)
+                .removeUserFromPolicy(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.WRITE_POLICY, JANE_DOE_GMAIL_COM);
+        Assert.assertTrue(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+
+        try {
+            samPermissionsImpl.removePermission(userMock, workflowInstance, JANE_DOE_GMAIL_COM, Role.WRITER);
+            Assert.fail("Expected removePermission to throw exception");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, ex.getResponse().getStatus());
+        }
+        Assert.assertFalse(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.WRITE));
+        verify(resourcesApiMock, times(2)).resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.WRITE));
+    }
+
+    @Test
+    public void testFailedCheckIsNotCached() throws ApiException {
+        final String resourceId = SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME;
+        when(resourcesApiMock.resourceAction(SamConstants.RESOURCE_TYPE, resourceId, SamConstants.toSamAction(Role.Action.READ)))
+                .thenThrow(new ApiException(HttpStatus.SC_SERVICE_UNAVAILABLE, "Unavailable"))
+                .thenReturn(Boolean.TRUE);
+        Assert.assertFalse(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.READ));
+        Assert.assertTrue(samPermissionsImpl.canDoAction(userMock, workflowInstance, Role.Action.READ));
+    }
+
     @Test
     public void testSetPermission() throws ApiException {
         when(resourcesApiMock.listResourcePolicies(SamConstants.RESOURCE_TYPE, SamConstants.WORKFLOW_PREFIX + FOO_WORKFLOW_NAME))
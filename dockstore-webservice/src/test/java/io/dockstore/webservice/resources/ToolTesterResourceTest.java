@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2022 OICR and UCSC
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.resources;
+
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.tooltester.LocalS3Client;
+import io.dockstore.webservice.core.tooltester.ToolTesterLog;
+import io.dockstore.webservice.core.tooltester.ToolTesterLogType;
+import io.dockstore.webservice.core.tooltester.ToolTesterS3Client;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.http.HttpStatus;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ToolTesterResourceTest {
+    private static final String TOOL_ID = "#workflow/github.com/dockstore/hello_world";
+    private ToolTesterResource resource;
+
+    @Before
+    public void setup() {
+        LocalS3Client s3 = new LocalS3Client();
+        s3.putObject("workflow/github.com/dockstore/hello_world/v1.0.0/hello_world.cwl.json/cwltool/1554477737092.log", "hello world".getBytes(StandardCharsets.UTF_8), Map.of());
+        s3.putObject("workflow/github.com/dockstore/hello_world/v1.0.0/hello_world.cwl.json/cwltool/1554477737093.log", "hello again".getBytes(StandardCharsets.UTF_8), Map.of());
+        resource = new ToolTesterResource(new ToolTesterS3Client("bucket", s3));
+    }
+
+    @Test
+    public void testWholeLogIsStreamed() throws IOException {
+        Response response = getLog(null);
+        Assert.assertEquals(HttpStatus.SC_OK, response.getStatus());
+        Assert.assertEquals("11", response.getHeaderString("Content-Length"));
+        Assert.assertEquals("hello world", readEntity(response));
+    }
+
+    @Test
+    public void testLogRange() throws IOException {
+        Response response = getLog("bytes=6-");
+        Assert.assertEquals(HttpStatus.SC_PARTIAL_CONTENT, response.getStatus());
+        Assert.assertEquals("bytes 6-10/11", response.getHeaderString("Content-Range"));
+        Assert.assertEquals("world", readEntity(response));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() {
+        try {
+            getLog("bytes=20-30");
+            Assert.fail("a range past the end of the log should be rejected");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE, ex.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testSearchPagination() {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        List<ToolTesterLog> logs = resource.search(TOOL_ID, "v1.0.0", 0, 10, response);
+        Assert.assertEquals(2, logs.size());
+        Mockito.verify(response).addHeader("X-total-count", "2");
+
+        logs = resource.search(TOOL_ID, "v1.0.0", 1, 10, response);
+        Assert.assertEquals(1, logs.size());
+        Assert.assertTrue(logs.get(0).getFilename().endsWith("1554477737093.log"));
+        Assert.assertTrue(resource.search(TOOL_ID, "v1.0.0", 5, null, response).isEmpty());
+    }
+
+    @Test
+    public void testLoggingNotSetUp() {
+        try {
+            new ToolTesterResource((ToolTesterS3Client)null).getToolTesterLog(TOOL_ID, "v1.0.0", "hello_world.cwl.json", "cwltool", ToolTesterLogType.FULL, "1554477737092.log", null);
+            Assert.fail("logs cannot be fetched without a bucket");
+        } catch (CustomWebApplicationException ex) {
+            Assert.assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, ex.getResponse().getStatus());
+        }
+    }
+
+    private Response getLog(String range) {
+        return resource.getToolTesterLog(TOOL_ID, "v1.0.0", "hello_world.cwl.json", "cwltool", ToolTesterLogType.FULL, "1554477737092.log", range);
+    }
+
+    private static String readEntity(Response response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput)response.getEntity()).write(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
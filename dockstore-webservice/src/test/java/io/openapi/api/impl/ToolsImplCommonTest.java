@@ -28,6 +28,7 @@ import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.openapi.model.DescriptorType;
 import io.openapi.model.ImageData;
 import io.openapi.model.ToolFile;
@@ -110,7 +111,7 @@ public class ToolsImplCommonTest {
         workflowPaths.add("/Galaxy.ga");
         workflowVersion.setName("fakeName");
         workflow.addWorkflowVersion(workflowVersion);
-        List<ToolFile> toolFiles = ToolsApiServiceImpl.getToolFiles(sourceFiles, workflowPaths, DescriptorType.GALAXY.toString(), "");
+        List<ToolFile> toolFiles = ToolsApiServiceImpl.getToolFiles(sourceFiles.stream().map(SourceFileMetadata::new).collect(Collectors.toList()), workflowPaths, DescriptorType.GALAXY.toString(), "");
         assertEquals(2, toolFiles.size());
     }
 
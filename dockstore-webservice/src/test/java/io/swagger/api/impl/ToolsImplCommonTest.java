@@ -33,6 +33,7 @@ import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.core.database.SourceFileMetadata;
 import io.openapi.api.impl.ToolsApiServiceImpl;
 import io.openapi.model.ImageData;
 import io.openapi.model.ToolFile;
@@ -273,7 +274,7 @@ public class ToolsImplCommonTest {
         workflowPaths.add("/Galaxy.ga");
         workflowVersion.setName("fakeName");
         workflow.addWorkflowVersion(workflowVersion);
-        List<ToolFile> toolFiles = ToolsApiServiceImpl.getToolFiles(sourceFiles, workflowPaths, DescriptorType.GXFORMAT2.toString(), "");
+        List<ToolFile> toolFiles = ToolsApiServiceImpl.getToolFiles(sourceFiles.stream().map(SourceFileMetadata::new).collect(Collectors.toList()), workflowPaths, DescriptorType.GXFORMAT2.toString(), "");
         assertEquals(2, toolFiles.size());
     }
 